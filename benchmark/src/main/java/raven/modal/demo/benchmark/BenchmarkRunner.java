@@ -0,0 +1,98 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import raven.modal.demo.mysql.SchemaMigrator;
+import raven.modal.demo.sample.DataGenerator;
+import raven.modal.demo.sample.GeneratorConfig;
+
+import java.io.File;
+
+/**
+ * Boots an embedded database, loads the schema and a {@link DataGenerator} dataset, then runs every DAO benchmark
+ * once single-threaded and once with {@code --threads} threads. Each run writes a JMH JSON result
+ * (throughput, p50/p99 latency, {@code gc.alloc.rate.norm} bytes per operation) that can be diffed between commits.
+ * Run with: {@code java -jar benchmark/target/benchmarks.jar --schema=martDB-schema.sql [options] [benchmark regex]}
+ * <ul>
+ *     <li>{@code --schema=file} a {@code mysqldump --no-data --routines martDB} of the production schema (required).</li>
+ *     <li>{@code --rows=n} approximate dataset size over all tables, see {@link GeneratorConfig#forRows}. Default 200,000.</li>
+ *     <li>{@code --threads=n} threads of the concurrent run. Default: available processors.</li>
+ *     <li>{@code --seed=n} dataset seed. Default 42.</li>
+ *     <li>{@code --out=dir} where the JSON results go. Default {@code target/jmh}.</li>
+ * </ul>
+ * Methods that show a success dialog (master-data add/update) or destroy the dataset (deletes, stock rebuild)
+ * are not benchmarked; invoice edits are measured load-and-save, the way the edit forms run them.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) {
+        String schema = null;
+        long rows = 200_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 42;
+        File out = new File("target/jmh");
+        String include = DaoBenchmark.class.getPackage().getName() + ".*";
+        for (String arg : args) {
+            if (arg.startsWith("--schema=")) {
+                schema = value(arg);
+            } else if (arg.startsWith("--rows=")) {
+                rows = Long.parseLong(value(arg));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(value(arg));
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value(arg));
+            } else if (arg.startsWith("--out=")) {
+                out = new File(value(arg));
+            } else {
+                include = arg;
+            }
+        }
+        if (schema == null || !new File(schema).isFile()) {
+            System.err.println("Usage: BenchmarkRunner --schema=martDB-schema.sql [--rows=n] [--threads=n] [--seed=n] [--out=dir] [regex]");
+            System.exit(1);
+        }
+        out.mkdirs();
+
+        try (EmbeddedDatabase database = EmbeddedDatabase.start()) {
+            database.loadSchema(new File(schema));
+            System.setProperty("mart.db.url", database.getUrl());
+            System.setProperty("mart.db.user", database.getUser());
+            System.setProperty("mart.db.password", "");
+            SchemaMigrator.getInstance().migrate();
+            new DataGenerator(GeneratorConfig.forRows(rows)
+                    .seed(seed)
+                    .threads(Math.min(threads, 8))
+                    .build()).generate();
+
+            int[] threadCounts = threads > 1 ? new int[]{1, threads} : new int[]{1};
+            for (int threadCount : threadCounts) {
+                File result = new File(out, "dao-" + threadCount + "t.json");
+                Options options = new OptionsBuilder()
+                        .include(include)
+                        .threads(threadCount)
+                        .addProfiler(GCProfiler.class)
+                        .jvmArgsAppend("-Djava.awt.headless=true",
+                                "-Dmart.db.url=" + database.getUrl(),
+                                "-Dmart.db.user=" + database.getUser(),
+                                "-Dmart.db.password=")
+                        .resultFormat(ResultFormatType.JSON)
+                        .result(result.getPath())
+                        .build();
+                new Runner(options).run();
+                System.out.println("Results written to " + result.getPath());
+            }
+        } catch (Exception e) {
+            System.err.println("Benchmark failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    private static String value(String arg) {
+        return arg.substring(arg.indexOf('=') + 1);
+    }
+}
@@ -0,0 +1,191 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import raven.modal.demo.dao.BrandDao;
+import raven.modal.demo.dao.CategoryDao;
+import raven.modal.demo.dao.CompanyDao;
+import raven.modal.demo.dao.CustomerDao;
+import raven.modal.demo.dao.PeckingTypeDao;
+import raven.modal.demo.dao.ProductDao;
+import raven.modal.demo.dao.PurchaseDao;
+import raven.modal.demo.dao.SaleDao;
+import raven.modal.demo.dao.StockLedgerDao;
+import raven.modal.demo.dao.SupplierDao;
+import raven.modal.demo.dao.SupplierPaymentDao;
+import raven.modal.demo.dao.UnitDao;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.utils.HashUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The DAOs under test and the ID ranges of the loaded dataset, shared by all benchmark threads of a fork.
+ * The database itself is started and loaded once by {@link BenchmarkRunner}, which passes its URL to every fork.
+ * The few rows the dataset generator does not produce (units, the login user) are added here on first use.
+ */
+@State(Scope.Benchmark)
+public class DaoState {
+
+    private static final int CURSORS = 1_000;
+    private static final String[] UNITS = {"Pcs", "Kg", "Gram", "Litre", "ml", "Dozen", "Box", "Pack", "Carton", "Bottle"};
+    static final String LOGIN_USER = "bench";
+    static final String LOGIN_PASSWORD = "bench-password";
+
+    final ProductDao productDao = new ProductDao();
+    final CustomerDao customerDao = new CustomerDao();
+    final SupplierDao supplierDao = new SupplierDao();
+    final PurchaseDao purchaseDao = new PurchaseDao();
+    final SaleDao saleDao = new SaleDao();
+    final StockLedgerDao stockLedgerDao = new StockLedgerDao();
+    final SupplierPaymentDao supplierPaymentDao = new SupplierPaymentDao();
+    final BrandDao brandDao = new BrandDao();
+    final CategoryDao categoryDao = new CategoryDao();
+    final CompanyDao companyDao = new CompanyDao();
+    final UnitDao unitDao = new UnitDao();
+    final PeckingTypeDao peckingTypeDao = new PeckingTypeDao();
+
+    int maxProductId;
+    int maxCustomerId;
+    int maxSupplierId;
+    int maxSaleId;
+    int maxPurchaseId;
+    int maxCompanyId;
+    int brandCount;
+    int activeCategoryCount;
+    int activeCompanyCount;
+    int unitCount;
+    int activePeckingTypeCount;
+    PageCursor[] saleCursors;
+    PageCursor[] purchaseCursors;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             Statement st = conn.createStatement()) {
+            maxProductId = max(st, "SELECT MAX(ProductID) FROM TBLProducts");
+            maxCustomerId = max(st, "SELECT MAX(CustomerID) FROM TBLCustomers");
+            maxSupplierId = max(st, "SELECT MAX(SupplierID) FROM TBLSuppliers");
+            maxSaleId = max(st, "SELECT MAX(SaleID) FROM TBLSale");
+            maxPurchaseId = max(st, "SELECT MAX(PurchaseID) FROM TBLPurchase");
+            maxCompanyId = max(st, "SELECT MAX(CompanyID) FROM TBLCompanies");
+            brandCount = max(st, "SELECT COUNT(*) FROM TBLBrands");
+            activeCategoryCount = max(st, "SELECT COUNT(*) FROM TBLCategories WHERE IsActive = true");
+            activeCompanyCount = max(st, "SELECT COUNT(*) FROM TBLCompanies WHERE IsActive = true");
+            activePeckingTypeCount = max(st, "SELECT COUNT(*) FROM TBLPeckingType WHERE IsActive = true");
+            unitCount = addUnits(conn, max(st, "SELECT COUNT(*) FROM TBLUnits"));
+            addLoginUser(conn);
+            saleCursors = cursors(st, "SELECT SaleDate, SaleID FROM TBLSale ORDER BY RAND(42) LIMIT " + CURSORS);
+            purchaseCursors = cursors(st, "SELECT PurchaseDate, PurchaseID FROM TBLPurchase ORDER BY RAND(42) LIMIT " + CURSORS);
+        }
+        if (maxProductId == 0 || maxSaleId == 0 || maxPurchaseId == 0) {
+            throw new IllegalStateException("Benchmark database is empty; run through BenchmarkRunner");
+        }
+    }
+
+    int randomProductId() {
+        return ThreadLocalRandom.current().nextInt(maxProductId) + 1;
+    }
+
+    int randomCustomerId() {
+        return ThreadLocalRandom.current().nextInt(maxCustomerId) + 1;
+    }
+
+    int randomSupplierId() {
+        return ThreadLocalRandom.current().nextInt(maxSupplierId) + 1;
+    }
+
+    int randomSaleId() {
+        return ThreadLocalRandom.current().nextInt(maxSaleId) + 1;
+    }
+
+    int randomPurchaseId() {
+        return ThreadLocalRandom.current().nextInt(maxPurchaseId) + 1;
+    }
+
+    int randomCompanyId() {
+        return ThreadLocalRandom.current().nextInt(maxCompanyId) + 1;
+    }
+
+    /**
+     * @return A page offset within the first {@code rows} rows of a table.
+     */
+    static int randomOffset(int rows) {
+        return ThreadLocalRandom.current().nextInt(Math.max(1, rows));
+    }
+
+    PageCursor randomSaleCursor() {
+        return saleCursors[ThreadLocalRandom.current().nextInt(saleCursors.length)];
+    }
+
+    PageCursor randomPurchaseCursor() {
+        return purchaseCursors[ThreadLocalRandom.current().nextInt(purchaseCursors.length)];
+    }
+
+    private static int max(Statement st, String sql) throws SQLException {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int addUnits(Connection conn, int units) throws SQLException {
+        if (units > 0) {
+            return units;
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TBLUnits (UnitName) VALUES (?)")) {
+            for (String unit : UNITS) {
+                ps.setString(1, unit);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        return UNITS.length;
+    }
+
+    private static void addLoginUser(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT 1 FROM TBLUserLogin WHERE Username = ?")) {
+            ps.setString(1, LOGIN_USER);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return;
+                }
+            }
+        }
+        int userId;
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TBLUsers (FullName, Email, ContactNo, Address, CNIC, IsActive) "
+                + "VALUES ('Benchmark User', 'bench@example.com', '0000000000', '-', '-', true)", Statement.RETURN_GENERATED_KEYS)) {
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                userId = keys.getInt(1);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TBLUserLogin (UserID, Username, PasswordHash, Role, IsBlocked) VALUES (?, ?, ?, ?, false)")) {
+            ps.setInt(1, userId);
+            ps.setString(2, LOGIN_USER);
+            ps.setString(3, HashUtils.hashPassword(LOGIN_PASSWORD));
+            ps.setString(4, "Admin");
+            ps.executeUpdate();
+        }
+    }
+
+    private static PageCursor[] cursors(Statement st, String sql) throws SQLException {
+        List<PageCursor> cursors = new ArrayList<>();
+        try (ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                cursors.add(new PageCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getInt(2)));
+            }
+        }
+        return cursors.toArray(new PageCursor[0]);
+    }
+}
@@ -0,0 +1,62 @@
+package raven.modal.demo.benchmark;
+
+import ch.vorburger.exec.ManagedProcessException;
+import ch.vorburger.mariaDB4j.DB;
+import ch.vorburger.mariaDB4j.DBConfigurationBuilder;
+
+import java.io.File;
+
+/**
+ * A throw-away MariaDB server for the benchmarks: unpacked into a temp directory, started on a free port
+ * and deleted again on {@link #close()}. MariaDB speaks the MySQL protocol, so the DAOs run against it
+ * through the same Connector/J driver and pool as in production.
+ */
+public class EmbeddedDatabase implements AutoCloseable {
+
+    public static final String DATABASE = "martDB";
+    private static final String USER = "root";
+
+    private final DB db;
+    private final int port;
+
+    private EmbeddedDatabase(DB db, int port) {
+        this.db = db;
+        this.port = port;
+    }
+
+    public static EmbeddedDatabase start() throws ManagedProcessException {
+        DBConfigurationBuilder config = DBConfigurationBuilder.newBuilder();
+        config.setPort(0); // any free port
+        config.addArg("--innodb-buffer-pool-size=512M");
+        config.addArg("--max-connections=200");
+        DB db = DB.newEmbeddedDB(config.build());
+        db.start();
+        db.createDB(DATABASE);
+        return new EmbeddedDatabase(db, db.getConfiguration().getPort());
+    }
+
+    /**
+     * Loads a {@code mysqldump --no-data --routines martDB} file (tables, stored procedures) with the mysql client,
+     * which understands the {@code DELIMITER} blocks JDBC cannot run.
+     */
+    public void loadSchema(File dump) throws ManagedProcessException {
+        db.run("source " + dump.getAbsolutePath().replace('\\', '/'), USER, null, DATABASE);
+    }
+
+    public String getUrl() {
+        return "jdbc:mysql://localhost:" + port + "/" + DATABASE + "?rewriteBatchedStatements=true";
+    }
+
+    public String getUser() {
+        return USER;
+    }
+
+    @Override
+    public void close() {
+        try {
+            db.stop();
+        } catch (ManagedProcessException e) {
+            System.err.println("Could not stop embedded database: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package raven.modal.demo.benchmark;
+
+import raven.modal.demo.model.PurchaseDetailModel;
+import raven.modal.demo.model.PurchaseModel;
+import raven.modal.demo.model.SaleDetailModel;
+import raven.modal.demo.model.SaleModel;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random invoices for the save benchmarks, shaped like the ones the tills send, and the edits of the update benchmarks.
+ */
+final class Invoices {
+
+    private Invoices() {
+    }
+
+    /**
+     * A purchase of 3-8 lines from a random supplier, half of them paid in full.
+     */
+    static PurchaseModel purchase(Random random, String invoiceNo, LocalDateTime date, int maxProductId, int maxSupplierId) {
+        List<PurchaseDetailModel> details = new ArrayList<>();
+        double total = 0;
+        int lines = 3 + random.nextInt(6);
+        for (int i = 0; i < lines; i++) {
+            double quantity = 50 + random.nextInt(150);
+            double rate = 10 + random.nextInt(490);
+            details.add(PurchaseDetailModel.builder()
+                    .productID(random.nextInt(maxProductId) + 1)
+                    .quantity(quantity)
+                    .rate(rate)
+                    .total(quantity * rate)
+                    .build());
+            total += quantity * rate;
+        }
+        return PurchaseModel.builder()
+                .supplierID(random.nextInt(maxSupplierId) + 1)
+                .purchaseDate(date)
+                .invoiceNo(invoiceNo)
+                .actualAmount(total)
+                .discountType("Fixed Amount")
+                .totalAmount(total)
+                .paidAmount(random.nextBoolean() ? total : 0)
+                .details(details)
+                .build();
+    }
+
+    /**
+     * A sale of 1-5 lines to a random customer, a quarter of them on credit.
+     */
+    static SaleModel sale(Random random, String invoiceNo, LocalDateTime date, int maxProductId, int maxCustomerId) {
+        List<SaleDetailModel> details = new ArrayList<>();
+        double total = 0;
+        int lines = 1 + random.nextInt(5);
+        for (int i = 0; i < lines; i++) {
+            double quantity = 1 + random.nextInt(5);
+            double rate = 15 + random.nextInt(600);
+            details.add(SaleDetailModel.builder()
+                    .productID(random.nextInt(maxProductId) + 1)
+                    .quantity(quantity)
+                    .rate(rate)
+                    .total(quantity * rate)
+                    .build());
+            total += quantity * rate;
+        }
+        return SaleModel.builder()
+                .customerID(random.nextInt(maxCustomerId) + 1)
+                .saleDate(date)
+                .invoiceNo(invoiceNo)
+                .actualAmount(total)
+                .discountType("Fixed Amount")
+                .totalAmount(total)
+                .receivedAmount(random.nextInt(4) == 0 ? 0 : total)
+                .details(details)
+                .build();
+    }
+
+    /**
+     * Moves the quantity of one line of a loaded purchase up or down by one, as a correction in the edit form would.
+     * Either way is equally likely, so the stock the other benchmarks read does not drift.
+     */
+    static void editLine(Random random, PurchaseModel purchase) {
+        PurchaseDetailModel line = purchase.getDetails().get(random.nextInt(purchase.getDetails().size()));
+        double change = random.nextBoolean() || line.getQuantity() <= 1 ? 1 : -1;
+        line.setQuantity(line.getQuantity() + change);
+        line.setTotal(line.getQuantity() * line.getRate());
+        purchase.setActualAmount(purchase.getActualAmount() + change * line.getRate());
+        purchase.setTotalAmount(purchase.getTotalAmount() + change * line.getRate());
+    }
+
+    /**
+     * Moves the quantity of one line of a loaded sale up or down by one, as a correction in the edit form would.
+     */
+    static void editLine(Random random, SaleModel sale) {
+        SaleDetailModel line = sale.getDetails().get(random.nextInt(sale.getDetails().size()));
+        double change = random.nextBoolean() || line.getQuantity() <= 1 ? 1 : -1;
+        line.setQuantity(line.getQuantity() + change);
+        line.setTotal(line.getQuantity() * line.getRate());
+        sale.setActualAmount(sale.getActualAmount() + change * line.getRate());
+        sale.setTotalAmount(sale.getTotalAmount() + change * line.getRate());
+    }
+}
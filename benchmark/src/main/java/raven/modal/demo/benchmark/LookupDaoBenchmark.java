@@ -0,0 +1,68 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import raven.modal.demo.model.BrandModel;
+import raven.modal.demo.model.CategoryModel;
+import raven.modal.demo.model.CompanyModel;
+import raven.modal.demo.model.PeckingTypeModel;
+import raven.modal.demo.model.UnitModel;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brands, categories, companies, units and pecking types: the dropdowns of the product and brand forms
+ * and the pages of their table panels.
+ */
+public class LookupDaoBenchmark extends DaoBenchmark {
+
+    @Benchmark
+    public List<BrandModel> getBrandsByCompanyId(DaoState state) {
+        return state.brandDao.getBrandsByCompanyId(state.randomCompanyId());
+    }
+
+    @Benchmark
+    public List<BrandModel> getBrandsWithCompanyName(DaoState state) {
+        return state.brandDao.getBrandsWithCompanyName(DaoState.randomOffset(state.brandCount), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<CategoryModel> getActiveCategoriesForDropdown(DaoState state) {
+        return state.categoryDao.getActiveCategoriesForDropdown();
+    }
+
+    @Benchmark
+    public List<CategoryModel> getAllCategories(DaoState state) {
+        return state.categoryDao.getAllCategories(DaoState.randomOffset(state.activeCategoryCount), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<CompanyModel> getActiveCompaniesForDropdown(DaoState state) {
+        return state.companyDao.getActiveCompaniesForDropdown();
+    }
+
+    @Benchmark
+    public List<CompanyModel> getAllCompanies(DaoState state) {
+        return state.companyDao.getAllCompanies(DaoState.randomOffset(state.activeCompanyCount), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Map<String, Integer> getUnitsForDropdown(DaoState state) {
+        return state.unitDao.getAllUnits();
+    }
+
+    @Benchmark
+    public List<UnitModel> getAllUnits(DaoState state) {
+        return state.unitDao.getAllUnits(DaoState.randomOffset(state.unitCount), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PeckingTypeModel> getActivePeckingTypesForDropdown(DaoState state) {
+        return state.peckingTypeDao.getActivePeekingTypesForDropdown();
+    }
+
+    @Benchmark
+    public List<PeckingTypeModel> getAllPeckingTypes(DaoState state) {
+        return state.peckingTypeDao.getAllPeckingTypes(DaoState.randomOffset(state.activePeckingTypeCount), PAGE_SIZE);
+    }
+}
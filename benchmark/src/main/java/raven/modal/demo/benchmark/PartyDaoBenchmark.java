@@ -0,0 +1,67 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import raven.modal.demo.model.CustomerModel;
+import raven.modal.demo.model.SupplierModel;
+import raven.modal.demo.model.SupplierPaymentModel;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Customers, suppliers and supplier payments.
+ */
+public class PartyDaoBenchmark extends DaoBenchmark {
+
+    @Benchmark
+    public List<CustomerModel> getActiveCustomersForDropdown(DaoState state) {
+        return state.customerDao.getActiveCustomersForDropdown();
+    }
+
+    @Benchmark
+    public List<CustomerModel> getAllCustomers(DaoState state) {
+        return state.customerDao.getAllCustomers(ThreadLocalRandom.current().nextInt(state.maxCustomerId), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CustomerModel getCustomerById(DaoState state) {
+        return state.customerDao.getCustomerById(state.randomCustomerId());
+    }
+
+    @Benchmark
+    public List<SupplierModel> getRemainingBalanceSuppliers(DaoState state) {
+        return state.supplierDao.getRemainingBalanceSuppliers();
+    }
+
+    @Benchmark
+    public List<SupplierModel> getActiveSuppliersForDropdown(DaoState state) {
+        return state.supplierDao.getActiveSuppliersForDropdown();
+    }
+
+    @Benchmark
+    public List<SupplierModel> getSuppliers(DaoState state) {
+        return state.supplierDao.getSuppliers(ThreadLocalRandom.current().nextInt(state.maxSupplierId), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public SupplierModel getSupplierById(DaoState state) {
+        return state.supplierDao.getSupplierById(state.randomSupplierId());
+    }
+
+    @Benchmark
+    public double getSupplierBalance(DaoState state) {
+        return state.supplierDao.getSupplierBalance(state.randomSupplierId());
+    }
+
+    @Benchmark
+    public boolean updateSupplierBalance(DaoState state) {
+        // Net zero, so the balances the other benchmarks read do not drift
+        return state.supplierDao.updateSupplierBalance(state.randomSupplierId(), 10, 10);
+    }
+
+    @Benchmark
+    public void saveSupplierPayment(DaoState state) throws SQLException {
+        state.supplierPaymentDao.saveSupplierPayment(new SupplierPaymentModel(state.randomSupplierId(), 100, "Benchmark"));
+    }
+}
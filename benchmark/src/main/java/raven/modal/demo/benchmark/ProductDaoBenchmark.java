@@ -0,0 +1,33 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import raven.modal.demo.model.ProductModel;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+public class ProductDaoBenchmark extends DaoBenchmark {
+
+    // What a cashier types: item words of the generated product names, and product code prefixes
+    private static final String[] SEARCH_TERMS = {"Rice", "Tea", "Oil", "Soap", "Milk", "Sugar", "Chips", "1kg", "500ml", "P00012", "P0003"};
+
+    @Benchmark
+    public List<ProductModel> searchActiveProducts(DaoState state) {
+        return state.productDao.searchActiveProducts(SEARCH_TERMS[ThreadLocalRandom.current().nextInt(SEARCH_TERMS.length)]);
+    }
+
+    @Benchmark
+    public List<ProductModel> getAllActiveProducts(DaoState state) {
+        return state.productDao.getAllActiveProducts();
+    }
+
+    @Benchmark
+    public List<ProductModel> getAllProducts(DaoState state) {
+        return state.productDao.getAllProducts(ThreadLocalRandom.current().nextInt(state.maxProductId), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ProductModel getProductById(DaoState state) {
+        return state.productDao.getProductById(state.randomProductId());
+    }
+}
@@ -0,0 +1,86 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.model.InvoiceUpdateResult;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.PurchaseModel;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PurchaseDaoBenchmark extends DaoBenchmark {
+
+    private static final AtomicInteger invoiceNumbers = new AtomicInteger();
+
+    @Benchmark
+    public int savePurchase(DaoState state) throws SQLException {
+        return state.purchaseDao.savePurchase(Invoices.purchase(ThreadLocalRandom.current(), "BENCH-P-" + invoiceNumbers.incrementAndGet(),
+                LocalDateTime.now(), state.maxProductId, state.maxSupplierId));
+    }
+
+    /**
+     * Opens a random purchase for editing and saves it with one line's quantity changed, as the edit form does.
+     */
+    @Benchmark
+    public InvoiceUpdateResult updatePurchase(DaoState state) {
+        PurchaseModel purchase = state.purchaseDao.getPurchaseForEdit(state.randomPurchaseId());
+        if (purchase == null || purchase.getDetails().isEmpty()) {
+            return null;
+        }
+        Invoices.editLine(ThreadLocalRandom.current(), purchase);
+        return state.purchaseDao.updatePurchase(purchase);
+    }
+
+    @Benchmark
+    public List<PurchaseModel> getPurchasesFirstPage(DaoState state) {
+        return state.purchaseDao.getPurchasesAfter(null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<PurchaseModel> getPurchasesAfter(DaoState state) {
+        return state.purchaseDao.getPurchasesAfter(state.randomPurchaseCursor(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PageCursor seekOlderPurchase(DaoState state) throws SQLException {
+        return state.purchaseDao.seekOlderPurchase(state.randomPurchaseCursor(), PAGE_SIZE * 10);
+    }
+
+    @Benchmark
+    public PageCursor seekNewerPurchase(DaoState state) throws SQLException {
+        return state.purchaseDao.seekNewerPurchase(state.randomPurchaseCursor(), PAGE_SIZE * 10);
+    }
+
+    @Benchmark
+    public int countPurchasesNewerThan(DaoState state) throws SQLException {
+        return state.purchaseDao.countPurchasesNewerThan(state.randomPurchaseCursor());
+    }
+
+    /**
+     * The count query behind {@code getPurchaseCount()}, which itself answers from {@link RowCountCache}.
+     */
+    @Benchmark
+    public int getPurchaseCount() throws SQLException {
+        return RowCountCache.getInstance().getSource().count(RowCount.PURCHASES);
+    }
+
+    @Benchmark
+    public PurchaseModel getPurchaseForEdit(DaoState state) {
+        return state.purchaseDao.getPurchaseForEdit(state.randomPurchaseId());
+    }
+
+    @Benchmark
+    public PurchaseModel getPurchaseById(DaoState state) {
+        return state.purchaseDao.getPurchaseById(state.randomPurchaseId());
+    }
+
+    @Benchmark
+    public void updateSupplierPayment(DaoState state) throws SQLException {
+        state.purchaseDao.updateSupplierPayment(state.randomPurchaseId(), 1);
+    }
+}
@@ -0,0 +1,81 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.model.InvoiceUpdateResult;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.SaleModel;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SaleDaoBenchmark extends DaoBenchmark {
+
+    private static final AtomicInteger invoiceNumbers = new AtomicInteger();
+
+    @Benchmark
+    public int saveSale(DaoState state) throws SQLException {
+        return state.saleDao.saveSale(Invoices.sale(ThreadLocalRandom.current(), "BENCH-S-" + invoiceNumbers.incrementAndGet(),
+                LocalDateTime.now(), state.maxProductId, state.maxCustomerId));
+    }
+
+    /**
+     * Opens a random sale for editing and saves it with one line's quantity changed, as the edit form does.
+     */
+    @Benchmark
+    public InvoiceUpdateResult updateSale(DaoState state) {
+        SaleModel sale = state.saleDao.getSaleForEdit(state.randomSaleId());
+        if (sale == null || sale.getDetails().isEmpty()) {
+            return null;
+        }
+        Invoices.editLine(ThreadLocalRandom.current(), sale);
+        return state.saleDao.updateSale(sale);
+    }
+
+    @Benchmark
+    public List<SaleModel> getSalesFirstPage(DaoState state) {
+        return state.saleDao.getSalesAfter(null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<SaleModel> getSalesAfter(DaoState state) {
+        return state.saleDao.getSalesAfter(state.randomSaleCursor(), PAGE_SIZE);
+    }
+
+    @Benchmark
+    public PageCursor seekOlderSale(DaoState state) throws SQLException {
+        return state.saleDao.seekOlderSale(state.randomSaleCursor(), PAGE_SIZE * 10);
+    }
+
+    @Benchmark
+    public PageCursor seekNewerSale(DaoState state) throws SQLException {
+        return state.saleDao.seekNewerSale(state.randomSaleCursor(), PAGE_SIZE * 10);
+    }
+
+    @Benchmark
+    public int countSalesNewerThan(DaoState state) throws SQLException {
+        return state.saleDao.countSalesNewerThan(state.randomSaleCursor());
+    }
+
+    /**
+     * The count query behind {@code getSaleCount()}, which itself answers from {@link RowCountCache}.
+     */
+    @Benchmark
+    public int getSaleCount() throws SQLException {
+        return RowCountCache.getInstance().getSource().count(RowCount.SALES);
+    }
+
+    @Benchmark
+    public SaleModel getSaleForEdit(DaoState state) {
+        return state.saleDao.getSaleForEdit(state.randomSaleId());
+    }
+
+    @Benchmark
+    public double getAvailableStock(DaoState state) {
+        return state.saleDao.getAvailableStock(state.randomProductId());
+    }
+}
@@ -0,0 +1,19 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+public class StockLedgerDaoBenchmark extends DaoBenchmark {
+
+    @Benchmark
+    public double getStockOnHand(DaoState state) {
+        return state.stockLedgerDao.getStockOnHand(state.randomProductId());
+    }
+
+    @Benchmark
+    public Map<Integer, Double> getAllStockOnHand(DaoState state) throws SQLException {
+        return state.stockLedgerDao.getAllStockOnHand();
+    }
+}
@@ -0,0 +1,13 @@
+package raven.modal.demo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import raven.modal.demo.dao.UserDAO;
+import raven.modal.demo.model.ModelUser;
+
+public class UserDaoBenchmark extends DaoBenchmark {
+
+    @Benchmark
+    public ModelUser authenticateUser(DaoState state) {
+        return UserDAO.authenticateUser(DaoState.LOGIN_USER, DaoState.LOGIN_PASSWORD);
+    }
+}
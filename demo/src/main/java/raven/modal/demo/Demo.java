@@ -5,12 +5,22 @@ import com.formdev.flatlaf.FlatLaf;
 import com.formdev.flatlaf.fonts.roboto.FlatRobotoFont;
 import com.formdev.flatlaf.util.FontUtils;
 import raven.modal.Drawer;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.dao.BalanceRollup;
+import raven.modal.demo.dao.InvoiceSequence;
+import raven.modal.demo.dao.StockClosingDao;
+import raven.modal.demo.feed.ChangeFeed;
+import raven.modal.demo.journal.OfflineSales;
 import raven.modal.demo.menu.MyDrawerBuilder;
+import raven.modal.demo.mysql.SchemaMigrator;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.StorageEngine;
 import raven.modal.demo.system.FormManager;
 import raven.modal.demo.utils.DemoPreferences;
 
 import javax.swing.*;
 import java.awt.*;
+import java.sql.SQLException;
 
 public class Demo extends JFrame {
 
@@ -30,11 +40,33 @@ public class Demo extends JFrame {
     }
 
     public static void main(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith("--storage=")) {
+                System.setProperty(StorageEngine.PROPERTY, arg.substring("--storage=".length()));
+            }
+        }
         DemoPreferences.init();
         FlatRobotoFont.install();
         FlatLaf.registerCustomDefaultsSource("raven.modal.demo.themes");
         UIManager.put("defaultFont", FontUtils.getCompositeFont(FlatRobotoFont.FAMILY, Font.PLAIN, 13));
         DemoPreferences.setupLaf();
+        boolean mysql = Repositories.getInstance().getEngine() == StorageEngine.MYSQL;
+        if (mysql) {
+            try {
+                SchemaMigrator.getInstance().migrate();
+            } catch (SQLException e) {
+                System.err.println("Schema migration failed: " + e.getMessage());
+                JOptionPane.showMessageDialog(null, "Database schema could not be updated:\n" + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+        RowCountCache.getInstance().warmUpAsync();
+        if (mysql) {
+            BalanceRollup.getInstance().start();
+            new StockClosingDao().closeEndedMonthsAsync();
+            ChangeFeed.getInstance().start();
+            InvoiceSequence.getInstance().warmUpAsync();
+            OfflineSales.getInstance().start();
+        }
         EventQueue.invokeLater(() -> new Demo().setVisible(true));
     }
 }
@@ -0,0 +1,129 @@
+package raven.modal.demo.cache;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+/**
+ * Read-through cache for the dropdown lists (customers, suppliers, companies, ...) that every form loads when it opens.
+ * <p>
+ * Values are immutable snapshots ({@code List.copyOf}), so forms can hold on to them safely. Each {@link LookupType}
+ * has its own version; the DAO write methods call {@link #invalidate(LookupType)}, which bumps it and drops the entries.
+ * A load that raced with an invalidation is returned to its caller but not cached. A global version stamp
+ * ({@link #getVersion()}) lets a form tell cheaply whether any master data changed since it last loaded.
+ */
+public class LookupCache {
+
+    /**
+     * Key for lookups that are not parameterised.
+     */
+    public static final Object ALL = "ALL";
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws SQLException;
+    }
+
+    private final Map<LookupType, ConcurrentHashMap<Object, Entry>> entries = new EnumMap<>(LookupType.class);
+    private final Map<LookupType, AtomicLong> typeVersions = new EnumMap<>(LookupType.class);
+    private final AtomicLong version = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder failedLoads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private LookupCache() {
+        for (LookupType type : LookupType.values()) {
+            entries.put(type, new ConcurrentHashMap<>());
+            typeVersions.put(type, new AtomicLong());
+        }
+    }
+
+    private static final class InstanceHolder {
+        static final LookupCache instance = new LookupCache();
+    }
+
+    public static LookupCache getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    public <T> List<T> getList(LookupType type, Loader<List<T>> loader, List<T> fallback) {
+        return getList(type, ALL, loader, fallback);
+    }
+
+    /**
+     * Returns the cached list for {@code (type, key)}, loading it on a miss.
+     * @param fallback Returned (and not cached) if the load fails, e.g. just the "--- Select ---" placeholder.
+     */
+    public <T> List<T> getList(LookupType type, Object key, Loader<List<T>> loader, List<T> fallback) {
+        return lookup(type, key, loader, List::copyOf, fallback);
+    }
+
+    public <K, V> Map<K, V> getMap(LookupType type, Loader<Map<K, V>> loader) {
+        return lookup(type, ALL, loader, Map::copyOf, Map.of());
+    }
+
+    /**
+     * Drops every cached list of {@code type}; call after any write to the underlying table.
+     */
+    public void invalidate(LookupType type) {
+        typeVersions.get(type).incrementAndGet();
+        entries.get(type).clear();
+        version.incrementAndGet();
+        invalidations.increment();
+    }
+
+    /**
+     * Global version stamp; changes whenever any lookup type is invalidated.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public LookupStats getStats() {
+        int cached = 0;
+        for (ConcurrentHashMap<Object, Entry> map : entries.values()) {
+            cached += map.size();
+        }
+        return new LookupStats(version.get(), hits.sum(), misses.sum(), failedLoads.sum(), invalidations.sum(), cached);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(LookupType type, Object key, Loader<T> loader, UnaryOperator<T> snapshot, T fallback) {
+        long typeVersion = typeVersions.get(type).get();
+        Entry entry = entries.get(type).get(key);
+        if (entry != null && entry.version == typeVersion) {
+            hits.increment();
+            return (T) entry.value;
+        }
+        misses.increment();
+        T value;
+        try {
+            value = snapshot.apply(loader.load());
+        } catch (SQLException e) {
+            failedLoads.increment();
+            System.err.println("Error loading " + type + " lookup: " + e.getMessage());
+            return fallback;
+        }
+        // Cache only if nothing invalidated this type while we were loading
+        if (typeVersions.get(type).get() == typeVersion) {
+            entries.get(type).put(key, new Entry(value, typeVersion));
+        }
+        return value;
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long version;
+
+        private Entry(Object value, long version) {
+            this.value = value;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package raven.modal.demo.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of the {@link LookupCache} counters.
+ */
+@Getter
+@AllArgsConstructor
+public class LookupStats {
+
+    private final long version;          // Global stamp, bumped by every invalidation
+    private final long hits;
+    private final long misses;           // Loads from the database
+    private final long failedLoads;      // Loads that failed and were not cached
+    private final long invalidations;
+    private final int cachedEntries;
+
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("version=%d, hits=%d, misses=%d (%.1f%% hit), failed=%d, invalidations=%d, entries=%d",
+                version, hits, misses, getHitRatio() * 100, failedLoads, invalidations, cachedEntries);
+    }
+}
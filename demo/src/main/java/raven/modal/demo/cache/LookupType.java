@@ -0,0 +1,15 @@
+package raven.modal.demo.cache;
+
+/**
+ * Master-data lists cached by {@link LookupCache}; each is invalidated by the add/update/delete methods of its DAO.
+ */
+public enum LookupType {
+    BRANDS,
+    CATEGORIES,
+    COMPANIES,
+    CUSTOMERS,
+    PECKING_TYPES,
+    PRODUCTS,
+    SUPPLIERS,
+    UNITS
+}
@@ -0,0 +1,44 @@
+package raven.modal.demo.cache;
+
+/**
+ * The row counts shown by the table panels, each with the query that computes it exactly.
+ * Counts without a filter carry their table name so {@code UtilsDao.getCount(tableName)} can find them.
+ */
+public enum RowCount {
+
+    BRANDS("TBLBrands", "SELECT COUNT(*) FROM TBLBrands"),
+    COMPANIES("TBLCompanies", "SELECT COUNT(*) FROM TBLCompanies"),
+    CUSTOMERS("TBLCustomers", "SELECT COUNT(*) FROM TBLCustomers"),
+    PRODUCTS("TBLProducts", "SELECT COUNT(*) FROM TBLProducts"),
+    PURCHASES("TBLPurchase", "SELECT COUNT(*) FROM TBLPurchase"),
+    SALES("TBLSale", "SELECT COUNT(*) FROM TBLSale"),
+    SUPPLIERS("TBLSuppliers", "SELECT COUNT(*) FROM TBLSuppliers"),
+    UNITS("TBLUnits", "SELECT COUNT(*) FROM TBLUnits"),
+    ACTIVE_CATEGORIES(null, "SELECT COUNT(*) FROM TBLCategories WHERE IsActive = true"),
+    ACTIVE_COMPANIES(null, "SELECT COUNT(*) FROM TBLCompanies WHERE IsActive = true"),
+    ACTIVE_PECKING_TYPES(null, "SELECT COUNT(*) FROM TBLPeckingType WHERE IsActive = true");
+
+    private final String table;
+    private final String sql;
+
+    RowCount(String table, String sql) {
+        this.table = table;
+        this.sql = sql;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return The unfiltered count of {@code tableName} (case-insensitive), or null if it is not cached.
+     */
+    public static RowCount forTable(String tableName) {
+        for (RowCount count : values()) {
+            if (count.table != null && count.table.equalsIgnoreCase(tableName)) {
+                return count;
+            }
+        }
+        return null;
+    }
+}
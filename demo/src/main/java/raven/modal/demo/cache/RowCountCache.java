@@ -0,0 +1,183 @@
+package raven.modal.demo.cache;
+
+import raven.modal.demo.mysql.MySQLConnection;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cached row counts for the table panels, so turning a page does not run {@code COUNT(*)}
+ * (a full index scan on InnoDB) every time.
+ * <p>
+ * The DAO write paths keep the counts exact: {@link #adjust} after a committed insert/delete whose effect
+ * is known, {@link #invalidate} when it is not (e.g. stored procedures, IsActive changes).
+ * A count is loaded synchronously only the first time; afterwards readers always get the cached value while
+ * stale entries (invalidated, or older than {@link #MAX_AGE_MILLIS} to pick up other terminals) reload in the background.
+ */
+public class RowCountCache {
+
+    private static final long MAX_AGE_MILLIS = 5 * 60 * 1000;
+
+    private final Map<RowCount, Entry> entries = new EnumMap<>(RowCount.class);
+    private final ExecutorService refresher;
+    private volatile CountSource source = RowCountCache::query;
+
+    private RowCountCache() {
+        for (RowCount count : RowCount.values()) {
+            entries.put(count, new Entry());
+        }
+        refresher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "mart-count-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class InstanceHolder {
+        static final RowCountCache instance = new RowCountCache();
+    }
+
+    public static RowCountCache getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Loads every count on the background thread, so the first panel opened does not wait for its count.
+     */
+    public void warmUpAsync() {
+        entries.forEach((count, entry) -> refresher.execute(() -> {
+            synchronized (entry) {
+                if (!entry.loaded) {
+                    loadNow(count, entry);
+                }
+            }
+        }));
+    }
+
+    /**
+     * Replaces where counts are read from (MySQL by default), e.g. when the in-memory storage engine is active.
+     */
+    public void setSource(CountSource source) {
+        this.source = source;
+    }
+
+    public CountSource getSource() {
+        return source;
+    }
+
+    public int get(RowCount count) {
+        Entry entry = entries.get(count);
+        boolean refresh;
+        synchronized (entry) {
+            if (!entry.loaded) {
+                // First use: nothing to show yet, so this one read has to wait for the query
+                loadNow(count, entry);
+                return entry.value;
+            }
+            refresh = (entry.stale || System.currentTimeMillis() - entry.loadedAt > MAX_AGE_MILLIS) && !entry.refreshing;
+            if (refresh) {
+                entry.refreshing = true;
+            }
+        }
+        if (refresh) {
+            refresher.execute(() -> refresh(count, entry));
+        }
+        return entry.value;
+    }
+
+    /**
+     * Applies a known change (+1 insert, -1 delete) after the write committed.
+     */
+    public void adjust(RowCount count, int delta) {
+        Entry entry = entries.get(count);
+        synchronized (entry) {
+            if (entry.loaded) {
+                entry.value = Math.max(0, entry.value + delta);
+                entry.version++;
+            }
+        }
+    }
+
+    /**
+     * Marks a count stale when a write changed it by an unknown amount; it reloads in the background.
+     */
+    public void invalidate(RowCount count) {
+        Entry entry = entries.get(count);
+        synchronized (entry) {
+            entry.stale = true;
+            entry.version++;
+            if (!entry.loaded || entry.refreshing) {
+                return;
+            }
+            entry.refreshing = true;
+        }
+        refresher.execute(() -> refresh(count, entry));
+    }
+
+    private void loadNow(RowCount count, Entry entry) {
+        try {
+            entry.value = source.count(count);
+            entry.loaded = true;
+            entry.stale = false;
+            entry.loadedAt = System.currentTimeMillis();
+        } catch (SQLException e) {
+            System.err.println("Error counting " + count + ": " + e.getMessage());
+        }
+    }
+
+    private void refresh(RowCount count, Entry entry) {
+        long version;
+        synchronized (entry) {
+            version = entry.version;
+        }
+        try {
+            int value = source.count(count);
+            synchronized (entry) {
+                entry.refreshing = false;
+                if (entry.version != version) {
+                    // A write landed while counting; the result may or may not include it, so count again
+                    entry.stale = true;
+                    return;
+                }
+                entry.value = value;
+                entry.stale = false;
+                entry.loadedAt = System.currentTimeMillis();
+            }
+        } catch (SQLException e) {
+            synchronized (entry) {
+                entry.refreshing = false;
+            }
+            System.err.println("Error refreshing count " + count + ": " + e.getMessage());
+        }
+    }
+
+    private static int query(RowCount count) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(count.getSql())) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Counts the rows behind a {@link RowCount}.
+     */
+    public interface CountSource {
+        int count(RowCount count) throws SQLException;
+    }
+
+    private static final class Entry {
+        private volatile int value;
+        private boolean loaded;
+        private boolean stale;
+        private boolean refreshing;
+        private long loadedAt;
+        private long version;
+    }
+}
@@ -0,0 +1,208 @@
+package raven.modal.demo.cache;
+
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.StockLedgerRepository;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stock availability for the sale screens.
+ * <p>
+ * On-hand quantities are seeded from TBLStockBalance on a background thread and then kept current by the
+ * DAOs, which publish the committed per-product deltas of every sale/purchase transaction.
+ * Open carts hold soft reservations, so {@code available = onHand - reserved} and two carts in this
+ * application cannot both take the last carton. A periodic re-sync picks up changes made by other terminals.
+ * <p>
+ * All reads and reservations are in-memory map lookups; nothing here touches the database on the caller's thread.
+ */
+public class StockAvailability {
+
+    private static final long RESYNC_INTERVAL_SECONDS = 60;
+
+    private final StockLedgerRepository stockLedgerDao = Repositories.getInstance().stockLedger();
+    private final ConcurrentHashMap<Integer, ProductStock> stock = new ConcurrentHashMap<>();
+    // cartId -> (productId -> reserved qty)
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Integer, Double>> carts = new ConcurrentHashMap<>();
+    // Bumped on every locally committed change; lets a re-sync skip products that changed while it was loading
+    private final AtomicLong commitSequence = new AtomicLong();
+    private final ScheduledExecutorService syncExecutor;
+    private volatile boolean seeded;
+
+    private StockAvailability() {
+        syncExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mart-stock-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncExecutor.scheduleWithFixedDelay(this::resync, 0, RESYNC_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static final class InstanceHolder {
+        static final StockAvailability instance = new StockAvailability();
+    }
+
+    public static StockAvailability getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * @return false until the first load from the database has finished.
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    public double getOnHand(int productId) {
+        ProductStock ps = stock.get(productId);
+        return ps == null ? 0 : ps.getOnHand();
+    }
+
+    /**
+     * On-hand quantity minus everything reserved by open carts.
+     */
+    public double getAvailable(int productId) {
+        ProductStock ps = stock.get(productId);
+        return ps == null ? 0 : ps.getAvailable();
+    }
+
+    // --- Cart reservations ---
+
+    public String openCart() {
+        String cartId = UUID.randomUUID().toString();
+        carts.put(cartId, new ConcurrentHashMap<>());
+        return cartId;
+    }
+
+    /**
+     * Reserves {@code qty} of a product for a cart if enough is available.
+     * Before the cache is seeded the reservation is recorded but never refused.
+     * @return true if the quantity was reserved.
+     */
+    public boolean reserve(String cartId, int productId, double qty) {
+        ConcurrentHashMap<Integer, Double> cart = carts.computeIfAbsent(cartId, id -> new ConcurrentHashMap<>());
+        ProductStock ps = stock.computeIfAbsent(productId, id -> new ProductStock());
+        if (!ps.tryReserve(qty, !seeded)) {
+            return false;
+        }
+        cart.merge(productId, qty, Double::sum);
+        return true;
+    }
+
+    /**
+     * Gives back part of a cart's reservation, e.g. when a line is removed.
+     */
+    public void release(String cartId, int productId, double qty) {
+        ConcurrentHashMap<Integer, Double> cart = carts.get(cartId);
+        if (cart == null) {
+            return;
+        }
+        Double held = cart.get(productId);
+        if (held == null) {
+            return;
+        }
+        double released = Math.min(held, qty);
+        cart.computeIfPresent(productId, (id, q) -> q - released <= 0 ? null : q - released);
+        ProductStock ps = stock.get(productId);
+        if (ps != null) {
+            ps.release(released);
+        }
+    }
+
+    /**
+     * Drops every reservation of a cart (cleared, closed, or saved - the committed sale is
+     * reflected through {@link #applyCommitted(Map)}).
+     */
+    public void releaseCart(String cartId) {
+        ConcurrentHashMap<Integer, Double> cart = carts.remove(cartId);
+        if (cart == null) {
+            return;
+        }
+        cart.forEach((productId, qty) -> {
+            ProductStock ps = stock.get(productId);
+            if (ps != null) {
+                ps.release(qty);
+            }
+        });
+    }
+
+    // --- Committed changes ---
+
+    /**
+     * Applies the per-product quantity deltas of a committed transaction (positive = stock in).
+     * Called by the DAOs only after {@code commit()} succeeded.
+     */
+    public void applyCommitted(Map<Integer, Double> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        long sequence = commitSequence.incrementAndGet();
+        deltas.forEach((productId, qty) -> stock.computeIfAbsent(productId, id -> new ProductStock()).adjust(qty, sequence));
+    }
+
+    /**
+     * Reloads on-hand quantities from the database in the background (reservations are kept).
+     */
+    public void refreshAsync() {
+        syncExecutor.execute(this::resync);
+    }
+
+    private void resync() {
+        long sequenceBefore = commitSequence.get();
+        try {
+            Map<Integer, Double> loaded = stockLedgerDao.getAllStockOnHand();
+            loaded.forEach((productId, qty) -> stock.computeIfAbsent(productId, id -> new ProductStock()).sync(qty, sequenceBefore));
+            seeded = true;
+        } catch (Exception e) {
+            System.err.println("Stock availability sync failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Per-product counters; the tiny critical sections keep check-and-reserve atomic.
+     */
+    private static final class ProductStock {
+
+        private double onHand;
+        private double reserved;
+        private long lastLocalSequence;
+
+        synchronized double getOnHand() {
+            return onHand;
+        }
+
+        synchronized double getAvailable() {
+            return onHand - reserved;
+        }
+
+        synchronized boolean tryReserve(double qty, boolean force) {
+            if (!force && onHand - reserved < qty) {
+                return false;
+            }
+            reserved += qty;
+            return true;
+        }
+
+        synchronized void release(double qty) {
+            reserved = Math.max(0, reserved - qty);
+        }
+
+        synchronized void adjust(double qty, long sequence) {
+            onHand += qty;
+            lastLocalSequence = sequence;
+        }
+
+        synchronized void sync(double loadedOnHand, long sequenceBefore) {
+            // A local commit landed after the snapshot was read; the snapshot is older than what we hold
+            if (lastLocalSequence > sequenceBefore) {
+                return;
+            }
+            onHand = loadedOnHand;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package raven.modal.demo.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when an edit would undo receipts or supplier payments allocated to a sale or purchase, e.g. by taking its
+ * received/paid amount below what the allocations record or by moving it to another party; the message is meant for the user.
+ */
+public class AllocatedInvoiceException extends SQLException {
+
+    public AllocatedInvoiceException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,14 @@
+package raven.modal.demo.dao;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a sale or purchase is edited or deleted after its lines were moved to the archive tables.
+ * Archived invoices belong to a closed period and are read-only; the message is meant for the user.
+ */
+public class ArchivedInvoiceException extends SQLException {
+
+    public ArchivedInvoiceException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,224 @@
+package raven.modal.demo.dao;
+
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Customer and supplier balances as an append-only journal.
+ * <p>
+ * Sales, purchases and payments no longer run {@code UPDATE ... SET OpeningBalance = OpeningBalance + ?} on the
+ * party row inside their transaction; with several tills selling to the same walk-in customer that row serialized
+ * every sale. They insert a TBLBalanceJournal row instead, which takes no lock on the party.
+ * {@link #rollUp()} (scheduled by {@link BalanceRollup}) folds the journal into TBLCustomers/TBLSuppliers.OpeningBalance.
+ * <p>
+ * The current balance is always {@code OpeningBalance + SUM(unrolled journal amounts)}; use {@link #balanceColumn}
+ * in queries instead of reading OpeningBalance directly.
+ */
+public class BalanceJournalDao {
+
+    private static final String SQL_INSERT = "INSERT INTO TBLBalanceJournal (PartyType, PartyID, Amount, RefType, RefID) VALUES (?, ?, ?, ?, ?)";
+    private static final int ROLLUP_BATCH = 5000;
+
+    /**
+     * Owner of a balance: customers (receivable) or suppliers (payable).
+     */
+    public enum Party {
+        CUSTOMER("C", "TBLCustomers", "CustomerID"),
+        SUPPLIER("S", "TBLSuppliers", "SupplierID");
+
+        private final String code;
+        private final String table;
+        private final String idColumn;
+
+        Party(String code, String table, String idColumn) {
+            this.code = code;
+            this.table = table;
+            this.idColumn = idColumn;
+        }
+
+        static Party ofCode(String code) {
+            return CUSTOMER.code.equals(code) ? CUSTOMER : SUPPLIER;
+        }
+    }
+
+    /**
+     * Records a balance change inside the caller's transaction.
+     * @param amount Positive = the party owes more (customers) / is owed more (suppliers).
+     * @param refType Source document, e.g. 'SALE', 'PURCHASE', 'PAYMENT'.
+     */
+    public void post(Connection conn, Party party, int partyId, double amount, String refType, int refId) throws SQLException {
+        if (amount == 0) {
+            return;
+        }
+        // Plain (non-locking) read: keeps the "party must exist" check of the old UPDATE without locking the row
+        String sqlParty = "SELECT 1 FROM " + party.table + " WHERE " + party.idColumn + " = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sqlParty)) {
+            ps.setInt(1, partyId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Failed to update balance: " + party.idColumn + " " + partyId + " not found.");
+                }
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT)) {
+            ps.setString(1, party.code);
+            ps.setInt(2, partyId);
+            ps.setDouble(3, amount);
+            ps.setString(4, refType);
+            ps.setInt(5, refId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Records one balance change per source document inside the caller's transaction: the parties are checked
+     * in one read per {@value MultiRowInsert#MAX_ROWS_PER_STATEMENT} ids and the entries written with multi-row inserts.
+     * Used by settlement runs, where {@link #post} would cost two round trips per payment.
+     * @param partyIds Index-aligned with {@code amounts} and {@code refIds}; entries with a zero amount are skipped like in {@link #post}.
+     */
+    public void postAll(Connection conn, Party party, int[] partyIds, double[] amounts, String refType, int[] refIds) throws SQLException {
+        Set<Integer> wanted = new TreeSet<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < partyIds.length; i++) {
+            if (amounts[i] != 0) {
+                wanted.add(partyIds[i]);
+                rows.add(new Object[]{party.code, partyIds[i], amounts[i], refType, refIds[i]});
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        List<Integer> ids = new ArrayList<>(wanted);
+        Set<Integer> found = new HashSet<>();
+        for (int from = 0; from < ids.size(); from += MultiRowInsert.MAX_ROWS_PER_STATEMENT) {
+            List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MultiRowInsert.MAX_ROWS_PER_STATEMENT));
+            StringBuilder sql = new StringBuilder("SELECT ").append(party.idColumn).append(" FROM ").append(party.table)
+                    .append(" WHERE ").append(party.idColumn).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(rs.getInt(1));
+                    }
+                }
+            }
+        }
+        wanted.removeAll(found);
+        if (!wanted.isEmpty()) {
+            throw new SQLException("Failed to update balance: " + party.idColumn + " " + wanted + " not found.");
+        }
+
+        MultiRowInsert.insert(conn, "TBLBalanceJournal", new String[]{"PartyType", "PartyID", "Amount", "RefType", "RefID"}, rows);
+    }
+
+    /**
+     * SQL expression for the current balance of the party row aliased {@code alias}: the rolled-up
+     * OpeningBalance plus the journal entries not yet rolled up (an index range read on the party).
+     */
+    public static String balanceColumn(Party party, String alias) {
+        return "(" + alias + ".OpeningBalance + COALESCE((SELECT SUM(j.Amount) FROM TBLBalanceJournal j " +
+                "WHERE j.PartyType = '" + party.code + "' AND j.PartyID = " + alias + "." + party.idColumn + "), 0))";
+    }
+
+    /**
+     * Sum of the journal entries of one party that are not rolled up yet.
+     * Used when a form writes an absolute OpeningBalance, so the pending entries are not counted twice.
+     * The entries are locked ({@code FOR UPDATE}): call it in the transaction that writes OpeningBalance, so a
+     * {@link #rollUp()} batch cannot fold them in between the read and the write.
+     */
+    public double getUnrolledAmount(Connection conn, Party party, int partyId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(Amount), 0) FROM TBLBalanceJournal WHERE PartyType = ? AND PartyID = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, party.code);
+            ps.setInt(2, partyId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Folds the journal into the master balances, in batches of {@value #ROLLUP_BATCH} entries.
+     * Each batch locks its journal rows, adds the per-party sums to OpeningBalance (one UPDATE per party,
+     * in key order) and deletes exactly the rows it summed, all in one READ COMMITTED transaction; a
+     * reader therefore sees each entry either in the journal or in OpeningBalance, never in both.
+     * @return Number of journal entries rolled up.
+     */
+    public int rollUp() throws SQLException {
+        int total = 0;
+        int batch;
+        do {
+            // READ COMMITTED: no gap locks, tills keep appending to the journal while a batch is being folded
+            batch = TransactionExecutor.getInstance().execute("balanceRollUp", Connection.TRANSACTION_READ_COMMITTED,
+                    tx -> rollUpBatch(tx.getConnection()));
+            total += batch;
+        } while (batch == ROLLUP_BATCH);
+        return total;
+    }
+
+    private int rollUpBatch(Connection conn) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        // (party, id) -> summed amount, sorted so concurrent roll-ups lock party rows in the same order
+        Map<Party, Map<Integer, Double>> sums = new TreeMap<>();
+        String sqlSelect = "SELECT JournalID, PartyType, PartyID, Amount FROM TBLBalanceJournal ORDER BY JournalID LIMIT ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sqlSelect)) {
+            ps.setInt(1, ROLLUP_BATCH);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong("JournalID"));
+                    sums.computeIfAbsent(Party.ofCode(rs.getString("PartyType")), p -> new TreeMap<>())
+                            .merge(rs.getInt("PartyID"), rs.getDouble("Amount"), Double::sum);
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        for (Map.Entry<Party, Map<Integer, Double>> entry : sums.entrySet()) {
+            Party party = entry.getKey();
+            String sqlUpdate = "UPDATE " + party.table + " SET OpeningBalance = OpeningBalance + ? WHERE " + party.idColumn + " = ?";
+            try (PreparedStatement ps = conn.prepareStatement(sqlUpdate)) {
+                for (Map.Entry<Integer, Double> sum : entry.getValue().entrySet()) {
+                    ps.setDouble(1, sum.getValue());
+                    ps.setInt(2, sum.getKey());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        for (int from = 0; from < ids.size(); from += MultiRowInsert.MAX_ROWS_PER_STATEMENT) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + MultiRowInsert.MAX_ROWS_PER_STATEMENT));
+            StringBuilder sql = new StringBuilder("DELETE FROM TBLBalanceJournal WHERE JournalID IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setLong(i + 1, chunk.get(i));
+                }
+                ps.executeUpdate();
+            }
+        }
+        return ids.size();
+    }
+}
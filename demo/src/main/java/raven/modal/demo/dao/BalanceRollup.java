@@ -0,0 +1,60 @@
+package raven.modal.demo.dao;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically folds TBLBalanceJournal into the customer/supplier master balances.
+ * Reads stay exact between runs because they add the unrolled entries; the roll-up only keeps the journal short.
+ */
+public class BalanceRollup {
+
+    private static final long INTERVAL_SECONDS = 30;
+
+    private final BalanceJournalDao balanceJournalDao = new BalanceJournalDao();
+    private final ScheduledExecutorService executor;
+    private volatile boolean started;
+
+    private BalanceRollup() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mart-balance-rollup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class InstanceHolder {
+        static final BalanceRollup instance = new BalanceRollup();
+    }
+
+    public static BalanceRollup getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Starts the periodic roll-up; the first run happens right away.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        executor.scheduleWithFixedDelay(this::rollUp, 0, INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Requests an extra roll-up in the background, e.g. before a report that reads OpeningBalance.
+     */
+    public void rollUpAsync() {
+        executor.execute(this::rollUp);
+    }
+
+    private void rollUp() {
+        try {
+            balanceJournalDao.rollUp();
+        } catch (Exception e) {
+            System.err.println("Balance roll-up failed: " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
 import raven.modal.demo.model.BrandModel;
 import raven.modal.demo.mysql.MySQLConnection;
 
@@ -14,17 +20,22 @@ import java.util.List;
 
 public class BrandDao {
 
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
     // --- CREATE/ADD Method ---
     public void addBrand(BrandModel brand) {
         String sql = "INSERT INTO TBLBrands (BrandTitle, CompanyId, IsActive) VALUES (?, ?, ?)";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, brand.getBrandTitle());
             ps.setInt(2, brand.getCompanyId());
             ps.setBoolean(3, brand.isActive());
 
             ps.executeUpdate();
+            changeFeedDao.appendInsertedQuietly(conn, ps, ChangeEntity.BRAND);
+            LookupCache.getInstance().invalidate(LookupType.BRANDS);
+            RowCountCache.getInstance().adjust(RowCount.BRANDS, 1);
             JOptionPane.showMessageDialog(null, "Brand '" + brand.getBrandTitle() + "' saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(null, "Database error saving brand: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
@@ -68,6 +79,8 @@ public class BrandDao {
             ps.setInt(4, brand.getBrandId());
 
             ps.executeUpdate();
+            changeFeedDao.appendQuietly(conn, ChangeEntity.BRAND, ChangeOp.UPDATE, brand.getBrandId());
+            LookupCache.getInstance().invalidate(LookupType.BRANDS);
             JOptionPane.showMessageDialog(null, "Brand ID " + brand.getBrandId() + " updated successfully!", "Update Success", JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(null, "Database error updating brand: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
@@ -118,15 +131,7 @@ public class BrandDao {
      * @return The total count of brands.
      */
     public int getBrandCount() {
-        String sql = "SELECT COUNT(*) FROM TBLBrands";
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            if (rs.next()) return rs.getInt(1);
-        } catch (SQLException e) {
-            System.err.println("Database error counting brands: " + e.getMessage());
-        }
-        return 0;
+        return RowCountCache.getInstance().get(RowCount.BRANDS);
     }
 
     // --- DELETE Method (Completing the CRUD requirement) ---
@@ -142,8 +147,11 @@ public class BrandDao {
 
             ps.setInt(1, brandId);
             int rowsAffected = ps.executeUpdate();
+            LookupCache.getInstance().invalidate(LookupType.BRANDS);
 
             if (rowsAffected > 0) {
+                changeFeedDao.appendQuietly(conn, ChangeEntity.BRAND, ChangeOp.DELETE, brandId);
+                RowCountCache.getInstance().adjust(RowCount.BRANDS, -1);
                 JOptionPane.showMessageDialog(null,
                         "Brand ID " + brandId + " deleted successfully!",
                         "Deletion Success",
@@ -178,6 +186,11 @@ public class BrandDao {
      * @return List of BrandModel containing ID and Title.
      */
     public List<BrandModel> getBrandsByCompanyId(int companyId) {
+        return LookupCache.getInstance().getList(LookupType.BRANDS, companyId, () -> loadBrandsByCompanyId(companyId),
+                List.of(BrandModel.builder().brandId(0).brandTitle("--- Select Brand ---").build()));
+    }
+
+    private List<BrandModel> loadBrandsByCompanyId(int companyId) throws SQLException {
         List<BrandModel> brands = new ArrayList<>();
 
         // Always add a placeholder/default item first
@@ -205,8 +218,6 @@ public class BrandDao {
                             .build());
                 }
             }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching brands by company ID: " + e.getMessage());
         }
         return brands;
     }
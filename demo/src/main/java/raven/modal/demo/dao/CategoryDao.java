@@ -1,5 +1,11 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
 import raven.modal.demo.model.CategoryModel;
 import raven.modal.demo.mysql.MySQLConnection;
 
@@ -14,16 +20,23 @@ import java.util.List;
 
 public class CategoryDao {
 
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
     // --- CREATE/ADD Method ---
     public void addCategory(CategoryModel category) {
         String sql = "INSERT INTO TBLCategories (CategoryName, IsActive) VALUES (?, ?)";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, category.getCategoryName());
             ps.setBoolean(2, category.isActive());
 
             ps.executeUpdate();
+            changeFeedDao.appendInsertedQuietly(conn, ps, ChangeEntity.CATEGORY);
+            LookupCache.getInstance().invalidate(LookupType.CATEGORIES);
+            if (category.isActive()) {
+                RowCountCache.getInstance().adjust(RowCount.ACTIVE_CATEGORIES, 1);
+            }
             JOptionPane.showMessageDialog(null, "Category '" + category.getCategoryName() + "' saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(null, "Database error saving category: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
@@ -81,15 +94,7 @@ public class CategoryDao {
 
     // --- READ/FETCH Count (For Pagination) ---
     public int getCategoryCount() {
-        String sql = "SELECT COUNT(*) FROM TBLCategories where IsActive = true";
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            if (rs.next()) return rs.getInt(1);
-        } catch (SQLException e) {
-            // ... error handling ...
-        }
-        return 0;
+        return RowCountCache.getInstance().get(RowCount.ACTIVE_CATEGORIES);
     }
 
     // --- UPDATE Method ---
@@ -103,6 +108,9 @@ public class CategoryDao {
             ps.setInt(3, category.getCategoryId());
 
             ps.executeUpdate();
+            changeFeedDao.appendQuietly(conn, ChangeEntity.CATEGORY, ChangeOp.UPDATE, category.getCategoryId());
+            LookupCache.getInstance().invalidate(LookupType.CATEGORIES);
+            RowCountCache.getInstance().invalidate(RowCount.ACTIVE_CATEGORIES); // IsActive may have changed
             JOptionPane.showMessageDialog(null, "Category ID " + category.getCategoryId() + " updated successfully!", "Update Success", JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(null, "Database error updating category: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
@@ -118,8 +126,11 @@ public class CategoryDao {
 
             ps.setInt(1, categoryId);
             int rowsAffected = ps.executeUpdate();
+            LookupCache.getInstance().invalidate(LookupType.CATEGORIES);
 
             if (rowsAffected > 0) {
+                changeFeedDao.appendQuietly(conn, ChangeEntity.CATEGORY, ChangeOp.DELETE, categoryId);
+                RowCountCache.getInstance().invalidate(RowCount.ACTIVE_CATEGORIES);
                 JOptionPane.showMessageDialog(null, "Category ID " + categoryId + " deleted successfully!", "Deletion Success", JOptionPane.INFORMATION_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(null, "Category ID " + categoryId + " not found. No record was deleted.", "Warning", JOptionPane.WARNING_MESSAGE);
@@ -144,6 +155,11 @@ public class CategoryDao {
      * @return List of CategoryModel containing only ID and Name.
      */
     public List<CategoryModel> getActiveCategoriesForDropdown() {
+        return LookupCache.getInstance().getList(LookupType.CATEGORIES, this::loadActiveCategories,
+                List.of(CategoryModel.builder().categoryId(0).categoryName("--- Select Category ---").build()));
+    }
+
+    private List<CategoryModel> loadActiveCategories() throws SQLException {
         String sql = "SELECT CategoryID, CategoryName FROM TBLCategories WHERE IsActive = TRUE ORDER BY CategoryName";
         List<CategoryModel> categories = new ArrayList<>();
 
@@ -160,8 +176,6 @@ public class CategoryDao {
                         .categoryName(rs.getString("CategoryName"))
                         .build());
             }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching active categories: " + e.getMessage());
         }
         return categories;
     }
@@ -0,0 +1,123 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeEvent;
+import raven.modal.demo.feed.ChangeOp;
+import raven.modal.demo.mysql.MySQLConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * TBLChangeFeed: one row per changed entity, appended by the DAO write paths and tailed by
+ * {@link raven.modal.demo.feed.ChangeFeed} on every terminal.
+ */
+public class ChangeFeedDao {
+
+    private static final String TABLE = "TBLChangeFeed";
+    private static final String[] COLUMNS = {"Entity", "EntityID", "Op"};
+
+    /**
+     * Appends changes inside the caller's transaction, so they become visible exactly when the write does.
+     */
+    public void append(Connection conn, ChangeEntity entity, ChangeOp op, int... ids) throws SQLException {
+        if (ids.length == 0) {
+            return;
+        }
+        List<Object[]> rows = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            rows.add(new Object[]{entity.name(), id, op.getCode()});
+        }
+        MultiRowInsert.insert(conn, TABLE, COLUMNS, rows);
+    }
+
+    /**
+     * For write paths that run in auto-commit mode: appends right after the write, which has already committed,
+     * so a failure is only logged. Other terminals then catch up on their next full reload.
+     */
+    public void appendQuietly(Connection conn, ChangeEntity entity, ChangeOp op, int... ids) {
+        try {
+            append(conn, entity, op, ids);
+        } catch (SQLException e) {
+            System.err.println("Error appending " + entity + " change to the feed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * {@link #appendQuietly} for the rows just inserted by {@code st}, which must have been prepared with
+     * {@link Statement#RETURN_GENERATED_KEYS}.
+     */
+    public void appendInsertedQuietly(Connection conn, Statement st, ChangeEntity entity) {
+        try (ResultSet keys = st.getGeneratedKeys()) {
+            List<Integer> ids = new ArrayList<>();
+            while (keys.next()) {
+                ids.add(keys.getInt(1));
+            }
+            append(conn, entity, ChangeOp.INSERT, ids.stream().mapToInt(Integer::intValue).toArray());
+        } catch (SQLException e) {
+            System.err.println("Error appending " + entity + " change to the feed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return The highest ChangeID so far, 0 if the feed is empty.
+     */
+    public long getLatestVersion() throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(ChangeID), 0) FROM " + TABLE)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Reads the committed changes with {@code after < ChangeID <= upTo}, in version order. Rows of entities this
+     * build does not know (written by a newer version of the application) are skipped, but still added to
+     * {@code versions} so the caller's cursor moves past them.
+     * @param versions Receives the ChangeID of every row read, including skipped ones.
+     */
+    public List<ChangeEvent> read(long after, long upTo, int limit, List<Long> versions) throws SQLException {
+        String sql = "SELECT ChangeID, Entity, EntityID, Op FROM " + TABLE + " WHERE ChangeID > ? AND ChangeID <= ? ORDER BY ChangeID LIMIT ?";
+        List<ChangeEvent> events = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, after);
+            ps.setLong(2, upTo);
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long changeId = rs.getLong("ChangeID");
+                    versions.add(changeId);
+                    try {
+                        events.add(new ChangeEvent(changeId, ChangeEntity.valueOf(rs.getString("Entity")),
+                                rs.getInt("EntityID"), ChangeOp.ofCode(rs.getString("Op"))));
+                    } catch (IllegalArgumentException e) {
+                        // Unknown entity or op
+                    }
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Deletes up to {@code limit} changes older than {@code before}.
+     * @return The number of rows deleted.
+     */
+    public int prune(LocalDateTime before, int limit) throws SQLException {
+        String sql = "DELETE FROM " + TABLE + " WHERE CreatedDate < ? LIMIT ?";
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(before));
+            ps.setInt(2, limit);
+            return ps.executeUpdate();
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
 import raven.modal.demo.model.CompanyModel;
 import raven.modal.demo.mysql.MySQLConnection;
 
@@ -15,6 +21,8 @@ import java.util.List;
 
 public class CompanyDao {
 
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
     public int addCompany(CompanyModel company) {
         String sql = "{ CALL SP_IUD_Company(?, ?, ?, ?, ?, ?) }";
 
@@ -29,6 +37,8 @@ public class CompanyDao {
             cs.setString(6, "Save");
 
             ResultSet rs = cs.executeQuery();
+            invalidateCaches();
+            changeFeedDao.appendQuietly(conn, ChangeEntity.COMPANY, ChangeOp.INSERT, 0); // The procedure does not return the new ID
             if (rs.next()) {
                 return rs.getInt("Result"); // return SP result
             }
@@ -95,15 +105,7 @@ public class CompanyDao {
 
     // --- READ/FETCH Count (For Pagination) ---
     public int getCompanyCount() {
-        String sql = "SELECT COUNT(*) FROM TBLCompanies c where c.IsActive = true ";
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            if (rs.next()) return rs.getInt(1);
-        } catch (SQLException e) {
-            // ... error handling ...
-        }
-        return 0;
+        return RowCountCache.getInstance().get(RowCount.ACTIVE_COMPANIES);
     }
 
     public int updateCompany(CompanyModel company) {
@@ -120,6 +122,8 @@ public class CompanyDao {
             cs.setString(6, "Update");
 
             ResultSet rs = cs.executeQuery();
+            invalidateCaches();
+            changeFeedDao.appendQuietly(conn, ChangeEntity.COMPANY, ChangeOp.UPDATE, company.getCompanyId());
             if (rs.next()) {
                 return rs.getInt("Result");
             }
@@ -148,6 +152,8 @@ public class CompanyDao {
             cs.setString(6, "Delete");
 
             ResultSet rs = cs.executeQuery();
+            invalidateCaches();
+            changeFeedDao.appendQuietly(conn, ChangeEntity.COMPANY, ChangeOp.DELETE, companyId);
             if (rs.next()) {
                 return rs.getInt("Result");
             }
@@ -167,6 +173,11 @@ public class CompanyDao {
      * @return List of CompanyModel containing only ID and Name.
      */
     public List<CompanyModel> getActiveCompaniesForDropdown() {
+        return LookupCache.getInstance().getList(LookupType.COMPANIES, this::loadActiveCompanies,
+                List.of(CompanyModel.builder().companyId(0).companyName("--- Select Company ---").build()));
+    }
+
+    private List<CompanyModel> loadActiveCompanies() throws SQLException {
         // Assuming TBLCompanies has CompanyID, CompanyName, and IsActive columns
         String sql = "SELECT CompanyID, CompanyName FROM TBLCompanies WHERE IsActive = TRUE ORDER BY CompanyName";
         List<CompanyModel> companies = new ArrayList<>();
@@ -184,11 +195,17 @@ public class CompanyDao {
                         .companyName(rs.getString("CompanyName"))
                         .build());
             }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching active companies: " + e.getMessage());
-            // Optionally show a dialog, but often best to fail silently in helper methods
         }
         return companies;
     }
 
+    /**
+     * SP_IUD_Company may insert, delete, rename or toggle IsActive, and its result code does not say which;
+     * recount and reload the dropdown.
+     */
+    private void invalidateCaches() {
+        RowCountCache.getInstance().invalidate(RowCount.COMPANIES);
+        RowCountCache.getInstance().invalidate(RowCount.ACTIVE_COMPANIES);
+        LookupCache.getInstance().invalidate(LookupType.COMPANIES);
+    }
 }
@@ -1,7 +1,14 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
 import raven.modal.demo.model.CustomerModel;
 import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.repository.CustomerRepository;
 
 import javax.swing.*;
 import java.sql.Connection;
@@ -10,11 +17,22 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class CustomerDao {
+public class CustomerDao implements CustomerRepository {
 
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
+    private static final String CUSTOMER_BALANCE = BalanceJournalDao.balanceColumn(BalanceJournalDao.Party.CUSTOMER, "c");
+
+    @Override
     public List<CustomerModel> getActiveCustomersForDropdown() {
+        return LookupCache.getInstance().getList(LookupType.CUSTOMERS, this::loadActiveCustomers,
+                List.of(CustomerModel.builder().customerId(0).customerName("--- Select Customer ---").build()));
+    }
+
+    private List<CustomerModel> loadActiveCustomers() throws SQLException {
         String sql = "SELECT CustomerID, CustomerName FROM tblcustomers ORDER BY CustomerID";
         List<CustomerModel> customers = new ArrayList<>();
 
@@ -31,16 +49,15 @@ public class CustomerDao {
                         .customerName(rs.getString("CustomerName"))
                         .build());
             }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching active Customer: " + e.getMessage());
         }
         return customers;
     }
 
+    @Override
     public boolean addCustomer(CustomerModel customer) {
         String sql = "INSERT INTO tblcustomers (CustomerName, ContactNo, Address, Email, OpeningBalance, TaxPer, CreatedDate) VALUES (?, ?, ?, ?, ?, ?, NOW())";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, customer.getCustomerName());
             ps.setString(2, customer.getContactNo());
@@ -49,16 +66,22 @@ public class CustomerDao {
             ps.setDouble(5, customer.getOpeningBalance());
             ps.setDouble(6, customer.getTaxPer());
 
-            return ps.executeUpdate() > 0;
+            if (ps.executeUpdate() > 0) {
+                changeFeedDao.appendInsertedQuietly(conn, ps, ChangeEntity.CUSTOMER);
+                LookupCache.getInstance().invalidate(LookupType.CUSTOMERS);
+                RowCountCache.getInstance().adjust(RowCount.CUSTOMERS, 1);
+                return true;
+            }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return false;
     }
 
+    @Override
     public List<CustomerModel> getAllCustomers(int offset, int limit) {
         List<CustomerModel> list = new ArrayList<>();
-        String sql = "SELECT * FROM tblcustomers ORDER BY CustomerId LIMIT ? OFFSET ?";
+        String sql = "SELECT c.*, " + CUSTOMER_BALANCE + " AS CurrentBalance FROM tblcustomers c ORDER BY c.CustomerId LIMIT ? OFFSET ?";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
@@ -67,25 +90,56 @@ public class CustomerDao {
 
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                CustomerModel customer = new CustomerModel();
-                customer.setCustomerId(rs.getInt("CustomerId"));
-                customer.setCustomerName(rs.getString("CustomerName"));
-                customer.setContactNo(rs.getString("ContactNo"));
-                customer.setAddress(rs.getString("address"));
-                customer.setEmail(rs.getString("email"));
-                customer.setOpeningBalance(rs.getDouble("OpeningBalance"));
-                customer.setTaxPer(rs.getDouble("TaxPer"));
-                list.add(customer);
+                list.add(mapListRow(rs));
             }
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return list;
     }
+
+    @Override
+    public List<CustomerModel> getCustomersByIds(List<Integer> customerIds) {
+        List<CustomerModel> list = new ArrayList<>();
+        if (customerIds.isEmpty()) {
+            return list;
+        }
+        String sql = "SELECT c.*, " + CUSTOMER_BALANCE + " AS CurrentBalance FROM tblcustomers c WHERE c.CustomerId IN ("
+                + String.join(", ", Collections.nCopies(customerIds.size(), "?")) + ")";
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < customerIds.size(); i++) {
+                ps.setInt(i + 1, customerIds.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapListRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Database error fetching customers by ID: " + e.getMessage());
+        }
+        return list;
+    }
+
+    private static CustomerModel mapListRow(ResultSet rs) throws SQLException {
+        CustomerModel customer = new CustomerModel();
+        customer.setCustomerId(rs.getInt("CustomerId"));
+        customer.setCustomerName(rs.getString("CustomerName"));
+        customer.setContactNo(rs.getString("ContactNo"));
+        customer.setAddress(rs.getString("address"));
+        customer.setEmail(rs.getString("email"));
+        customer.setOpeningBalance(rs.getDouble("CurrentBalance"));
+        customer.setTaxPer(rs.getDouble("TaxPer"));
+        return customer;
+    }
     // --- READ/FETCH Single Record Method (For Edit Form) ---
+    @Override
     public CustomerModel getCustomerById(int customerId) {
         // NOTE: Adjust column names if your table schema differs
-        String sql = "SELECT CustomerID, CustomerName, ContactNo, Email, Address, OpeningBalance, TaxPer FROM TBLCustomers WHERE CustomerID = ?";
+        String sql = "SELECT c.CustomerID, c.CustomerName, c.ContactNo, c.Email, c.Address, " + CUSTOMER_BALANCE + " AS CurrentBalance, c.TaxPer " +
+                "FROM TBLCustomers c WHERE c.CustomerID = ?";
         CustomerModel customer = null;
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -100,7 +154,7 @@ public class CustomerDao {
                             .contactNo(rs.getString("ContactNo"))
                             .email(rs.getString("Email"))
                             .address(rs.getString("Address"))
-                            .openingBalance(rs.getDouble("OpeningBalance"))
+                            .openingBalance(rs.getDouble("CurrentBalance"))
                             .taxPer(rs.getDouble("TaxPer"))
                             .build();
                 }
@@ -112,8 +166,12 @@ public class CustomerDao {
     }
 
     // --- UPDATE Method ---
+    @Override
     public boolean updateCustomer(CustomerModel customer) {
-        String sql = "UPDATE TBLCustomers SET CustomerName=?, ContactNo=?, Email=?, Address=?, OpeningBalance=?, TaxPer=? WHERE CustomerID=?";
+        // The form shows the current balance; store it minus the journal entries not rolled up yet
+        String sql = "UPDATE TBLCustomers SET CustomerName=?, ContactNo=?, Email=?, Address=?, " +
+                "OpeningBalance = ? - COALESCE((SELECT SUM(Amount) FROM TBLBalanceJournal WHERE PartyType = 'C' AND PartyID = ?), 0), " +
+                "TaxPer=? WHERE CustomerID=?";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
@@ -122,10 +180,16 @@ public class CustomerDao {
             ps.setString(3, customer.getEmail());
             ps.setString(4, customer.getAddress());
             ps.setDouble(5, customer.getOpeningBalance());
-            ps.setDouble(6, customer.getTaxPer());
-            ps.setInt(7, customer.getCustomerId());
-
-            return ps.executeUpdate() > 0;
+            ps.setInt(6, customer.getCustomerId());
+            ps.setDouble(7, customer.getTaxPer());
+            ps.setInt(8, customer.getCustomerId());
+
+            if (ps.executeUpdate() > 0) {
+                changeFeedDao.appendQuietly(conn, ChangeEntity.CUSTOMER, ChangeOp.UPDATE, customer.getCustomerId());
+                LookupCache.getInstance().invalidate(LookupType.CUSTOMERS);
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
             handleSqlError(e, "updating customer");
             return false;
@@ -133,6 +197,7 @@ public class CustomerDao {
     }
 
     // --- DELETE Method ---
+    @Override
     public boolean deleteCustomer(int customerId) {
         String sql = "DELETE FROM TBLCustomers WHERE CustomerID = ?";
 
@@ -140,7 +205,13 @@ public class CustomerDao {
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, customerId);
-            return ps.executeUpdate() > 0;
+            if (ps.executeUpdate() > 0) {
+                changeFeedDao.appendQuietly(conn, ChangeEntity.CUSTOMER, ChangeOp.DELETE, customerId);
+                LookupCache.getInstance().invalidate(LookupType.CUSTOMERS);
+                RowCountCache.getInstance().adjust(RowCount.CUSTOMERS, -1);
+                return true;
+            }
+            return false;
 
         } catch (SQLException e) {
             handleSqlError(e, "deleting customer");
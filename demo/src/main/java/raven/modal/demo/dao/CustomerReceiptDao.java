@@ -0,0 +1,84 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.model.CustomerReceiptModel;
+import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.model.SettlementResult;
+import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.repository.CustomerReceiptRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Customer receipts, the sales-side counterpart of {@link SupplierPaymentDao}.
+ * <p>
+ * A receipt raises TBLSale.ReceivedAmount of the sales it pays and posts a single journal entry to the customer,
+ * instead of going through {@link SaleDao#updateSale} (reversal and reinsert of the whole invoice) per sale.
+ * Allocations are recorded in TBLCustomerReceiptAllocation (migration V5).
+ */
+public class CustomerReceiptDao implements CustomerReceiptRepository {
+
+    private final TransactionExecutor transactions = TransactionExecutor.getInstance();
+
+    @Override
+    public void saveReceipt(CustomerReceiptModel receipt) throws SQLException {
+        postReceipts(Collections.singletonList(receipt));
+    }
+
+    /**
+     * Saves the receipts in a fixed number of statements through {@link Settlement#CUSTOMER_RECEIPT}, like
+     * {@link SupplierPaymentDao#settlePayments}; the open sales are read through IX_TBLSale_Customer_Open.
+     */
+    @Override
+    public SettlementResult postReceipts(List<CustomerReceiptModel> receipts) throws SQLException {
+        if (receipts.isEmpty()) {
+            return new SettlementResult(0, 0, 0, 0, 0);
+        }
+        return transactions.execute("postCustomerReceipts", tx -> post(tx.getConnection(), receipts));
+    }
+
+    private SettlementResult post(Connection conn, List<CustomerReceiptModel> receipts) throws SQLException {
+        List<Settlement.Payment> payments = new ArrayList<>(receipts.size());
+        for (CustomerReceiptModel receipt : receipts) {
+            payments.add(new Settlement.Payment(receipt.getCustomerID(), receipt.getReceiptDate(), receipt.getAmount(),
+                    receipt.getRemarks(), receipt.getAllocateTo()));
+        }
+        SettlementResult result = Settlement.CUSTOMER_RECEIPT.settle(conn, payments);
+        for (int i = 0; i < receipts.size(); i++) {
+            receipts.get(i).setReceiptID(payments.get(i).id);
+        }
+        return result;
+    }
+
+    @Override
+    public List<SaleModel> getOpenSales(int customerId) {
+        String sql = "SELECT SaleID, CustomerID, SaleDate, InvoiceNo, TotalAmount, ReceivedAmount FROM TBLSale " +
+                "WHERE CustomerID = ? AND BalanceDue > 0 ORDER BY SaleDate ASC, SaleID ASC";
+        List<SaleModel> sales = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, customerId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sales.add(SaleModel.builder()
+                            .saleID(rs.getInt("SaleID"))
+                            .customerID(rs.getInt("CustomerID"))
+                            .saleDate(rs.getTimestamp("SaleDate").toLocalDateTime())
+                            .invoiceNo(rs.getString("InvoiceNo"))
+                            .totalAmount(rs.getDouble("TotalAmount"))
+                            .receivedAmount(rs.getDouble("ReceivedAmount"))
+                            .build());
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Database error fetching open sales: " + e.getMessage());
+        }
+        return sales;
+    }
+}
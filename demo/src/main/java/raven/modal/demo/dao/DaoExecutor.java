@@ -0,0 +1,49 @@
+package raven.modal.demo.dao;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs DAO calls off the Event Dispatch Thread.
+ * The thread count stays below the connection pool size so background reads never starve the save paths.
+ */
+public class DaoExecutor {
+
+    private static final int THREADS = 3;
+
+    private final ExecutorService executor;
+
+    private DaoExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(THREADS, r -> {
+            Thread thread = new Thread(r, "mart-dao-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class InstanceHolder {
+        static final DaoExecutor instance = new DaoExecutor();
+    }
+
+    public static DaoExecutor getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Queues a DAO call. Cancelling the returned future before it starts means the query never runs.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,152 @@
+package raven.modal.demo.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compares the stored detail lines of an invoice with the edited ones, so an update only touches
+ * the lines that were added, removed or changed.
+ * <p>
+ * Lines are matched by their detail ID first. Edited lines that come back without an ID (the form
+ * re-created them) are matched to a remaining stored line of the same product.
+ *
+ * Also used by the in-memory storage engine, so both engines report the same {@code InvoiceUpdateResult}.
+ *
+ * @param <D> SaleDetailModel or PurchaseDetailModel.
+ */
+public final class DetailDiff<D> {
+
+    private final List<D> added = new ArrayList<>();
+    private final List<D> removed = new ArrayList<>();
+    // {stored line, edited line} pairs whose values differ
+    private final List<Change<D>> changed = new ArrayList<>();
+    private int unchanged;
+
+    private DetailDiff() {
+    }
+
+    /**
+     * @param stored     Lines currently in the database (with their detail IDs).
+     * @param edited     Lines of the edited invoice; a detail ID of 0 means "new or unknown".
+     * @param idOf       Detail ID accessor.
+     * @param productOf  ProductID accessor.
+     * @param sameValues True if two matched lines store the same values.
+     */
+    public static <D> DetailDiff<D> of(List<D> stored, List<D> edited, ToIntFunction<D> idOf, ToIntFunction<D> productOf,
+                                BiPredicate<D, D> sameValues) {
+        DetailDiff<D> diff = new DetailDiff<>();
+        Map<Integer, D> remaining = new LinkedHashMap<>();
+        for (D line : stored) {
+            remaining.put(idOf.applyAsInt(line), line);
+        }
+
+        List<D> unmatched = new ArrayList<>();
+        List<Change<D>> pairs = new ArrayList<>();
+        for (D line : edited) {
+            D old = idOf.applyAsInt(line) > 0 ? remaining.remove(idOf.applyAsInt(line)) : null;
+            if (old != null) {
+                pairs.add(new Change<>(old, line));
+            } else {
+                unmatched.add(line);
+            }
+        }
+        for (D line : unmatched) {
+            D old = removeFirstOfProduct(remaining, productOf, productOf.applyAsInt(line));
+            if (old != null) {
+                pairs.add(new Change<>(old, line));
+            } else {
+                diff.added.add(line);
+            }
+        }
+        diff.removed.addAll(remaining.values());
+
+        for (Change<D> pair : pairs) {
+            if (productOf.applyAsInt(pair.getStored()) != productOf.applyAsInt(pair.getEdited())) {
+                // A line that switched product is stocked like a removal plus an addition
+                diff.removed.add(pair.getStored());
+                diff.added.add(pair.getEdited());
+            } else if (sameValues.test(pair.getStored(), pair.getEdited())) {
+                diff.unchanged++;
+            } else {
+                diff.changed.add(pair);
+            }
+        }
+        return diff;
+    }
+
+    private static <D> D removeFirstOfProduct(Map<Integer, D> remaining, ToIntFunction<D> productOf, int productId) {
+        Iterator<D> it = remaining.values().iterator();
+        while (it.hasNext()) {
+            D line = it.next();
+            if (productOf.applyAsInt(line) == productId) {
+                it.remove();
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deletes detail rows by primary key with one {@code IN (...)} statement.
+     * @return Number of rows deleted.
+     */
+    static int deleteByIds(Connection conn, String table, String idColumn, List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        StringBuilder sql = new StringBuilder("DELETE FROM ").append(table).append(" WHERE ").append(idColumn).append(" IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setInt(i + 1, ids.get(i));
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    public List<D> getAdded() {
+        return added;
+    }
+
+    public List<D> getRemoved() {
+        return removed;
+    }
+
+    public List<Change<D>> getChanged() {
+        return changed;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public static final class Change<D> {
+
+        private final D stored;
+        private final D edited;
+
+        private Change(D stored, D edited) {
+            this.stored = stored;
+            this.edited = edited;
+        }
+
+        public D getStored() {
+            return stored;
+        }
+
+        public D getEdited() {
+            return edited;
+        }
+    }
+}
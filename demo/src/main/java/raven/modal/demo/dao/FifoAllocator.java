@@ -0,0 +1,104 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.model.PaymentAllocationModel;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * FIFO split of payments over the open invoices of one party, computed in memory.
+ * <p>
+ * Invoices are added oldest first (the order of the index read that loaded them); each {@link #allocate} call
+ * takes what it can from the oldest invoice that still has a balance and moves on, so several payments of the
+ * same party in one settlement run continue where the previous one stopped. {@link #allocateTo} settles a named
+ * invoice first, for payments that say which invoices they pay. Nothing is written here; the caller applies
+ * {@link #getAppliedAmount applied amounts} and the allocation rows in batches.
+ */
+public final class FifoAllocator {
+
+    private int[] invoiceIds = new int[8];
+    private double[] balances = new double[8];
+    private double[] applied = new double[8];
+    private int size;
+    private int next;   // Oldest invoice that still has a balance
+    private Map<Integer, Integer> positions;   // Invoice ID -> index, built on the first allocateTo
+
+    /**
+     * Appends an open invoice; invoices must be added oldest first.
+     */
+    public void add(int invoiceId, double balanceDue) {
+        if (size == invoiceIds.length) {
+            invoiceIds = Arrays.copyOf(invoiceIds, size * 2);
+            balances = Arrays.copyOf(balances, size * 2);
+            applied = Arrays.copyOf(applied, size * 2);
+        }
+        invoiceIds[size] = invoiceId;
+        balances[size] = balanceDue;
+        size++;
+        positions = null;
+    }
+
+    /**
+     * Applies {@code amount} to the oldest open invoices.
+     * @param out Receives one allocation per invoice touched.
+     * @return The part of {@code amount} left after every invoice is settled.
+     */
+    public double allocate(int paymentId, double amount, List<PaymentAllocationModel> out) {
+        double remaining = amount;
+        while (remaining > 0 && next < size) {
+            double amountToApply = Math.min(remaining, balances[next]);
+            if (amountToApply > 0) {
+                out.add(new PaymentAllocationModel(paymentId, invoiceIds[next], amountToApply));
+                balances[next] -= amountToApply;
+                applied[next] += amountToApply;
+                remaining -= amountToApply;
+            }
+            if (balances[next] <= 0) {
+                next++;
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Applies up to {@code amount} to one invoice, whatever its age.
+     * @return The part of {@code amount} beyond the invoice's balance.
+     * @throws IllegalArgumentException If the invoice is not one of the open invoices added.
+     */
+    public double allocateTo(int paymentId, int invoiceId, double amount, List<PaymentAllocationModel> out) {
+        if (positions == null) {
+            positions = new HashMap<>(size * 2);
+            for (int i = 0; i < size; i++) {
+                positions.put(invoiceIds[i], i);
+            }
+        }
+        Integer index = positions.get(invoiceId);
+        if (index == null) {
+            throw new IllegalArgumentException("Invoice " + invoiceId + " is not open.");
+        }
+        double amountToApply = Math.min(amount, balances[index]);
+        if (amountToApply > 0) {
+            out.add(new PaymentAllocationModel(paymentId, invoiceId, amountToApply));
+            balances[index] -= amountToApply;
+            applied[index] += amountToApply;
+        }
+        return amount - Math.max(amountToApply, 0);
+    }
+
+    public int getInvoiceCount() {
+        return size;
+    }
+
+    public int getInvoiceId(int index) {
+        return invoiceIds[index];
+    }
+
+    /**
+     * Total applied to the invoice at {@code index} by all {@link #allocate} calls so far.
+     */
+    public double getAppliedAmount(int index) {
+        return applied[index];
+    }
+}
@@ -0,0 +1,291 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.model.InvoiceBlockModel;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.StorageEngine;
+import raven.modal.demo.utils.DemoPreferences;
+import raven.modal.demo.utils.combox.InvoiceUtil;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.prefs.BackingStoreException;
+import java.util.prefs.Preferences;
+
+/**
+ * Hands out invoice numbers ({@code INV-yyyyMMdd-NNNNN}, counting from 1 each day) without a database round trip per invoice.
+ * <p>
+ * The terminal reserves a block of {@value #BLOCK_SIZE} numbers of the day in one short transaction
+ * ({@link InvoiceSequenceDao#reserve}) and issues them from memory; the next block is reserved in the background
+ * when {@value #PREFETCH_AT} are left. Numbers never collide across terminals, but they are not gap-free: a number
+ * can go to an invoice that is never saved, and the rest of a block is dropped when the day changes or the
+ * application stops abruptly. {@link InvoiceSequenceDao#findGaps} reports them. The till takes its numbers through
+ * {@link #nextReserved()}, which never touches the database.
+ * <p>
+ * On a clean shutdown the position in the current block is kept in the user preferences; the next start on the
+ * same day continues from it, after the highest number an invoice of the block already carries.
+ * With the in-memory storage engine the numbers come from a local counter per day.
+ */
+public class InvoiceSequence {
+
+    private static final int BLOCK_SIZE = 50;
+    private static final int PREFETCH_AT = 10;
+    private static final String KEY_RESUME_BLOCK = "invoiceBlock";
+    private static final String KEY_RESUME_NEXT = "invoiceNext";
+
+    private final InvoiceSequenceDao invoiceSequenceDao = new InvoiceSequenceDao();
+    private final boolean mysql = Repositories.getInstance().getEngine() == StorageEngine.MYSQL;
+    private final String terminal = terminalName();
+    private final Map<LocalDate, Integer> localCounters = new HashMap<>();
+    private InvoiceBlockModel block;
+    private int nextNo;
+    private CompletableFuture<InvoiceBlockModel> spare;
+    private CompletableFuture<Void> warmUp; // Pending start-up reservation; no other block is reserved meanwhile
+    private boolean resumeChecked;
+
+    private InvoiceSequence() {
+        if (mysql) {
+            Runtime.getRuntime().addShutdownHook(new Thread(this::saveResumePoint, "mart-invoice-sequence"));
+        }
+    }
+
+    private static final class InstanceHolder {
+        static final InvoiceSequence instance = new InvoiceSequence();
+    }
+
+    public static InvoiceSequence getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * @return The next invoice number of today. Waits for a pending {@link #warmUpAsync()} first, so its block is used.
+     * @throws SQLException If the block is used up and a new one could not be reserved.
+     */
+    public String next() throws SQLException {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            pending = warmUp;
+        }
+        if (pending != null) {
+            try {
+                pending.join(); // Outside the lock: the warm-up needs it to hand over its block
+            } catch (CompletionException e) {
+                // Reported by warmUpAsync; reserve a block below
+            }
+        }
+        return nextNumber();
+    }
+
+    private synchronized String nextNumber() throws SQLException {
+        LocalDate today = LocalDate.now();
+        if (!mysql) {
+            return InvoiceUtil.format(today, localCounters.merge(today, 1, Integer::sum));
+        }
+        if (!resumeChecked) {
+            resumeChecked = true;
+            resume(today);
+        }
+        if (block == null || !block.getDate().equals(today) || nextNo > block.getLastNo()) {
+            block = takeSpare(today);
+            if (block == null) {
+                block = invoiceSequenceDao.reserve(today, BLOCK_SIZE, terminal);
+            }
+            nextNo = block.getFirstNo();
+        }
+        int number = nextNo++;
+        if (block.getLastNo() - number < PREFETCH_AT) {
+            prefetch(today);
+        }
+        return InvoiceUtil.format(today, number);
+    }
+
+    /**
+     * The next number of today if one is reserved already; never waits for the database.
+     * Reserves the next block in the background when there is none.
+     * @return The number, or null if none is reserved (e.g. the database is unreachable); take one with
+     * {@link #next()} on a background thread instead.
+     */
+    public synchronized String nextReserved() {
+        LocalDate today = LocalDate.now();
+        if (!mysql) {
+            return InvoiceUtil.format(today, localCounters.merge(today, 1, Integer::sum));
+        }
+        if (!resumeChecked) {
+            warmUpAsync();
+            return null;
+        }
+        if (warmUp != null && !warmUp.isDone()) {
+            return null; // Its block is on the way; reserving another one now would waste it
+        }
+        if (block == null || !block.getDate().equals(today) || nextNo > block.getLastNo()) {
+            if (spare == null || !spare.isDone()) {
+                prefetch(today);
+                return null;
+            }
+            InvoiceBlockModel reserved = takeSpare(today);
+            if (reserved == null) {
+                prefetch(today);
+                return null;
+            }
+            block = reserved;
+            nextNo = block.getFirstNo();
+        }
+        int number = nextNo++;
+        if (block.getLastNo() - number < PREFETCH_AT) {
+            prefetch(today);
+        }
+        return InvoiceUtil.format(today, number);
+    }
+
+    /**
+     * Resumes the previous block, or reserves a first one, on the {@link DaoExecutor} (e.g. at start-up),
+     * so the first sale finds a number reserved.
+     */
+    public synchronized void warmUpAsync() {
+        if (!mysql || resumeChecked) {
+            return;
+        }
+        resumeChecked = true;
+        LocalDate today = LocalDate.now();
+        warmUp = DaoExecutor.getInstance().submit(() -> {
+            InvoiceBlockModel previous = null;
+            int from = 0;
+            ResumePoint point = takeResumePoint();
+            if (point != null) {
+                previous = invoiceSequenceDao.getBlock(point.blockId);
+                if (previous != null) {
+                    from = Math.max(point.nextNo, invoiceSequenceDao.getHighestUsed(previous) + 1);
+                }
+            }
+            if (previous == null || !previous.getDate().equals(today) || from > previous.getLastNo()) {
+                previous = invoiceSequenceDao.reserve(today, BLOCK_SIZE, terminal);
+                from = previous.getFirstNo();
+            }
+            synchronized (this) {
+                if (block == null) {
+                    block = previous;
+                    nextNo = from;
+                }
+            }
+            return null;
+        });
+        warmUp.whenComplete((ignored, e) -> {
+            if (e != null) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                System.err.println("Reserving the first invoice numbers failed: " + cause.getMessage());
+            }
+            synchronized (this) {
+                warmUp = null;
+            }
+        });
+    }
+
+    private void prefetch(LocalDate today) {
+        if (spare == null) {
+            spare = DaoExecutor.getInstance().submit(() -> invoiceSequenceDao.reserve(today, BLOCK_SIZE, terminal));
+        }
+    }
+
+    /**
+     * @return The block reserved in the background, or null if there is none for {@code today} (it failed,
+     * or was reserved before midnight).
+     */
+    private InvoiceBlockModel takeSpare(LocalDate today) {
+        if (spare == null) {
+            return null;
+        }
+        CompletableFuture<InvoiceBlockModel> future = spare;
+        spare = null;
+        try {
+            InvoiceBlockModel reserved = future.join();
+            return reserved.getDate().equals(today) ? reserved : null;
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            System.err.println("Reserving invoice numbers in the background failed: " + cause.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Continues the block the previous run left on this day. The resume point is removed first, so two instances
+     * started from the same profile never share a block.
+     */
+    private void resume(LocalDate today) {
+        ResumePoint point = takeResumePoint();
+        if (point == null) {
+            return;
+        }
+        try {
+            InvoiceBlockModel previous = invoiceSequenceDao.getBlock(point.blockId);
+            if (previous == null || !previous.getDate().equals(today)) {
+                return;
+            }
+            int from = Math.max(point.nextNo, invoiceSequenceDao.getHighestUsed(previous) + 1);
+            if (from <= previous.getLastNo()) {
+                block = previous;
+                nextNo = from;
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not resume the previous invoice block: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads and removes the resume point the previous run saved.
+     * @return The point, or null if there is none.
+     */
+    private static ResumePoint takeResumePoint() {
+        Preferences state = DemoPreferences.getState();
+        if (state == null || state.getLong(KEY_RESUME_BLOCK, 0) == 0) {
+            return null;
+        }
+        ResumePoint point = new ResumePoint(state.getLong(KEY_RESUME_BLOCK, 0), state.getInt(KEY_RESUME_NEXT, 0));
+        state.remove(KEY_RESUME_BLOCK);
+        state.remove(KEY_RESUME_NEXT);
+        try {
+            state.flush();
+        } catch (BackingStoreException e) {
+            System.err.println("Could not clear the saved invoice block: " + e.getMessage());
+        }
+        return point;
+    }
+
+    private synchronized void saveResumePoint() {
+        Preferences state = DemoPreferences.getState();
+        if (state == null || block == null || !block.getDate().equals(LocalDate.now()) || nextNo > block.getLastNo()) {
+            return;
+        }
+        state.putLong(KEY_RESUME_BLOCK, block.getBlockId());
+        state.putInt(KEY_RESUME_NEXT, nextNo);
+        try {
+            state.flush();
+        } catch (BackingStoreException e) {
+            System.err.println("Could not keep the invoice block for the next start: " + e.getMessage());
+        }
+    }
+
+    private static final class ResumePoint {
+
+        private final long blockId;
+        private final int nextNo;
+
+        private ResumePoint(long blockId, int nextNo) {
+            this.blockId = blockId;
+            this.nextNo = nextNo;
+        }
+    }
+
+    private static String terminalName() {
+        try {
+            String name = InetAddress.getLocalHost().getHostName();
+            return name.length() > 100 ? name.substring(0, 100) : name;
+        } catch (UnknownHostException e) {
+            return "unknown";
+        }
+    }
+}
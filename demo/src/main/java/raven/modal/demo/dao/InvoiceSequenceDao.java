@@ -0,0 +1,180 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.model.InvoiceBlockModel;
+import raven.modal.demo.model.InvoiceGapModel;
+import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.utils.combox.InvoiceUtil;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Blocks of invoice numbers (TBLInvoiceSequence, TBLInvoiceBlock) for {@link InvoiceSequence}, and the gap report over them.
+ */
+public class InvoiceSequenceDao {
+
+    /**
+     * Reserves the next {@code size} numbers of {@code date} in one short transaction.
+     * The first block of a day starts above every number of that day an invoice already carries, so numbers
+     * given out before the sequence existed (or typed in by hand) are never issued again.
+     */
+    public InvoiceBlockModel reserve(LocalDate date, int size, String terminal) throws SQLException {
+        return TransactionExecutor.getInstance().execute("reserveInvoiceBlock", tx -> {
+            Connection conn = tx.getConnection();
+            Integer firstNo = lockNextNo(conn, date);
+            if (firstNo == null) {
+                NavigableSet<Integer> used = getUsedNumbers(conn, date);
+                try (PreparedStatement ps = conn.prepareStatement("INSERT IGNORE INTO TBLInvoiceSequence (SeqDate, NextNo) VALUES (?, ?)")) {
+                    ps.setDate(1, Date.valueOf(date));
+                    ps.setInt(2, used.isEmpty() ? 1 : used.last() + 1);
+                    ps.executeUpdate();
+                }
+                firstNo = lockNextNo(conn, date); // Another terminal may have created the day meanwhile
+            }
+            int lastNo = firstNo + size - 1;
+            try (PreparedStatement ps = conn.prepareStatement("UPDATE TBLInvoiceSequence SET NextNo = ? WHERE SeqDate = ?")) {
+                ps.setInt(1, lastNo + 1);
+                ps.setDate(2, Date.valueOf(date));
+                ps.executeUpdate();
+            }
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO TBLInvoiceBlock (SeqDate, FirstNo, LastNo, Terminal) VALUES (?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+                ps.setDate(1, Date.valueOf(date));
+                ps.setInt(2, firstNo);
+                ps.setInt(3, lastNo);
+                ps.setString(4, terminal);
+                ps.executeUpdate();
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Failed to retrieve InvoiceBlock ID.");
+                    }
+                    return new InvoiceBlockModel(rs.getLong(1), date, firstNo, lastNo, terminal);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return The block, or null if it does not exist.
+     */
+    public InvoiceBlockModel getBlock(long blockId) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT BlockID, SeqDate, FirstNo, LastNo, Terminal FROM TBLInvoiceBlock WHERE BlockID = ?")) {
+            ps.setLong(1, blockId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapBlock(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Highest number of {@code block} that a saved sale or purchase carries.
+     * @return The number, or {@code block.getFirstNo() - 1} if none does.
+     */
+    public int getHighestUsed(InvoiceBlockModel block) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            Integer highest = getUsedNumbers(conn, block.getDate()).floor(block.getLastNo());
+            return highest == null || highest < block.getFirstNo() ? block.getFirstNo() - 1 : highest;
+        }
+    }
+
+    /**
+     * Reserved numbers of the given days that no saved sale or purchase carries, in number order per day.
+     * Numbers of a block after its highest used one were never handed out; the others were issued to an
+     * invoice that was cancelled, failed to save or has been deleted since.
+     * Blocks still being used by a running terminal show their unused end as a gap too.
+     */
+    public List<InvoiceGapModel> findGaps(LocalDate from, LocalDate to) throws SQLException {
+        String sql = "SELECT BlockID, SeqDate, FirstNo, LastNo, Terminal FROM TBLInvoiceBlock WHERE SeqDate BETWEEN ? AND ? ORDER BY SeqDate, FirstNo";
+        List<InvoiceGapModel> gaps = new ArrayList<>();
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            List<InvoiceBlockModel> blocks = new ArrayList<>();
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setDate(1, Date.valueOf(from));
+                ps.setDate(2, Date.valueOf(to));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        blocks.add(mapBlock(rs));
+                    }
+                }
+            }
+
+            Map<LocalDate, NavigableSet<Integer>> usedByDate = new HashMap<>();
+            for (InvoiceBlockModel block : blocks) {
+                NavigableSet<Integer> used = usedByDate.get(block.getDate());
+                if (used == null) {
+                    used = getUsedNumbers(conn, block.getDate());
+                    usedByDate.put(block.getDate(), used);
+                }
+                Integer highest = used.floor(block.getLastNo());
+                int issuedUpTo = highest == null || highest < block.getFirstNo() ? block.getFirstNo() - 1 : highest;
+
+                int gapStart = -1;
+                for (int number = block.getFirstNo(); number <= issuedUpTo + 1; number++) {
+                    boolean free = number <= issuedUpTo && !used.contains(number);
+                    if (free && gapStart < 0) {
+                        gapStart = number;
+                    } else if (!free && gapStart >= 0) {
+                        gaps.add(new InvoiceGapModel(block.getDate(), gapStart, number - 1, block.getTerminal(), true));
+                        gapStart = -1;
+                    }
+                }
+                if (issuedUpTo < block.getLastNo()) {
+                    gaps.add(new InvoiceGapModel(block.getDate(), issuedUpTo + 1, block.getLastNo(), block.getTerminal(), false));
+                }
+            }
+        }
+        return gaps;
+    }
+
+    /**
+     * @return TBLInvoiceSequence.NextNo of the day, locked for update; null if the day has no row yet.
+     */
+    private Integer lockNextNo(Connection conn, LocalDate date) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT NextNo FROM TBLInvoiceSequence WHERE SeqDate = ? FOR UPDATE")) {
+            ps.setDate(1, Date.valueOf(date));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Numbers of {@code date} carried by saved sales and purchases.
+     */
+    private NavigableSet<Integer> getUsedNumbers(Connection conn, LocalDate date) throws SQLException {
+        String sql = "SELECT InvoiceNo FROM TBLSale WHERE InvoiceNo LIKE ? " +
+                "UNION ALL SELECT InvoiceNo FROM TBLPurchase WHERE InvoiceNo LIKE ?";
+        NavigableSet<Integer> used = new TreeSet<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            String pattern = InvoiceUtil.prefix(date) + "%";
+            ps.setString(1, pattern);
+            ps.setString(2, pattern);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int number = InvoiceUtil.parseNumber(rs.getString(1), date);
+                    if (number >= 0) {
+                        used.add(number);
+                    }
+                }
+            }
+        }
+        return used;
+    }
+
+    private static InvoiceBlockModel mapBlock(ResultSet rs) throws SQLException {
+        return new InvoiceBlockModel(rs.getLong("BlockID"), rs.getDate("SeqDate").toLocalDate(),
+                rs.getInt("FirstNo"), rs.getInt("LastNo"), rs.getString("Terminal"));
+    }
+}
@@ -0,0 +1,109 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.model.PageCursor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Keyset (seek) pagination helpers for a history table ordered by (date DESC, id DESC).
+ * <p>
+ * Pages continue from the key of a row instead of an OFFSET, so MySQL starts reading at the cursor in the
+ * (date, id) index and the cost of a page does not depend on how deep it is. Skipping whole pages only
+ * walks that index (no row lookups, no joins) through {@link #seekOlder} / {@link #seekNewer}.
+ */
+final class KeysetQuery {
+
+    private final String table;
+    private final String dateColumn;
+    private final String idColumn;
+
+    KeysetQuery(String table, String dateColumn, String idColumn) {
+        this.table = table;
+        this.dateColumn = dateColumn;
+        this.idColumn = idColumn;
+    }
+
+    /**
+     * WHERE fragment selecting the rows after the cursor in (date DESC, id DESC) order; binds 3 parameters.
+     * Written as OR instead of a row constructor so MySQL can use a range scan on the index.
+     */
+    String olderThan(String alias) {
+        String date = alias + "." + dateColumn;
+        String id = alias + "." + idColumn;
+        return "(" + date + " < ? OR (" + date + " = ? AND " + id + " < ?))";
+    }
+
+    String orderNewestFirst(String alias) {
+        return " ORDER BY " + alias + "." + dateColumn + " DESC, " + alias + "." + idColumn + " DESC";
+    }
+
+    /**
+     * Binds a cursor for {@link #olderThan(String)} and returns the next parameter index.
+     */
+    static int bind(PreparedStatement ps, int index, PageCursor cursor) throws SQLException {
+        Timestamp date = Timestamp.valueOf(cursor.getDate());
+        ps.setTimestamp(index++, date);
+        ps.setTimestamp(index++, date);
+        ps.setInt(index++, cursor.getId());
+        return index;
+    }
+
+    /**
+     * @param from Start position, or null for the newest row.
+     * @param rows How many rows to move towards older entries (1 = the row right after {@code from}).
+     * @return The key of that row, or null if the list ends before it.
+     */
+    PageCursor seekOlder(Connection conn, PageCursor from, int rows) throws SQLException {
+        String sql = "SELECT t." + dateColumn + ", t." + idColumn + " FROM " + table + " t" +
+                (from == null ? "" : " WHERE " + olderThan("t")) +
+                orderNewestFirst("t") + " LIMIT 1 OFFSET ?";
+        return seek(conn, sql, from, rows);
+    }
+
+    /**
+     * @param from Start position, or null for the oldest end of the list.
+     * @param rows How many rows to move towards newer entries (1 = the row right before {@code from}).
+     * @return The key of that row, or null if the list ends before it.
+     */
+    PageCursor seekNewer(Connection conn, PageCursor from, int rows) throws SQLException {
+        String date = "t." + dateColumn;
+        String id = "t." + idColumn;
+        String sql = "SELECT " + date + ", " + id + " FROM " + table + " t" +
+                (from == null ? "" : " WHERE (" + date + " > ? OR (" + date + " = ? AND " + id + " > ?))") +
+                " ORDER BY " + date + " ASC, " + id + " ASC LIMIT 1 OFFSET ?";
+        return seek(conn, sql, from, rows);
+    }
+
+    /**
+     * Number of rows before the cursor in (date DESC, id DESC) order; an index range count.
+     */
+    int countNewerThan(Connection conn, PageCursor cursor) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM " + table + " t WHERE t." + dateColumn + " > ? OR (t." + dateColumn + " = ? AND t." + idColumn + " > ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            bind(ps, 1, cursor);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private PageCursor seek(Connection conn, String sql, PageCursor from, int rows) throws SQLException {
+        if (rows < 1) {
+            return from;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = from == null ? 1 : bind(ps, 1, from);
+            ps.setInt(index, rows - 1);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return new PageCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getInt(2));
+                }
+            }
+        }
+        return null;
+    }
+}
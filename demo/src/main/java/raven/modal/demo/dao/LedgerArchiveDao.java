@@ -0,0 +1,310 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.model.ArchiveRunResult;
+import raven.modal.demo.mysql.MySQLConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Moves the detail lines and stock ledger rows of invoices in closed periods out of the live tables.
+ * <p>
+ * TBLSaleDetail, TBLPurchaseDetail and TBLStockLedger rows of invoices dated up to a closed month end are
+ * copied into year-partitioned archive tables and deleted from the live ones; the headers stay in
+ * TBLSale / TBLPurchase so lists and balances are unchanged. Each chunk of {@value #CHUNK_INVOICES}
+ * invoices is its own short READ COMMITTED transaction, with a pause in between, so tills are never
+ * blocked for long. A run only scans the invoices dated after the period the previous run archived
+ * (TBLArchiveLog) that still have live lines, so earlier periods are not locked and counted again.
+ * <p>
+ * Archived invoices stay readable through getSaleForEdit / getPurchaseForEdit ({@link #detailSource})
+ * and are read-only: {@link #lockNotArchived} rejects edits and deletes. Stock as-of-date queries
+ * include the archived ledger through {@link #ledgerSource} when they reach into an archived period.
+ */
+public class LedgerArchiveDao {
+
+    private static final String LEDGER_COLUMNS = "LedgerID, ProductID, RefType, RefID, RefDetailID, QtyIn, QtyOut, Rate, CreatedDate";
+    private static final int CHUNK_INVOICES = 200;
+    private static final long CHUNK_PAUSE_MILLIS = 50;
+
+    /**
+     * The two archived invoice kinds and the tables behind them.
+     */
+    public enum Invoice {
+        SALE("TBLSale", "SaleID", "SaleDate", "TBLSaleDetail", "SaleDetailID", "'SALE', 'SALE_ADJUST', 'SALE_REVERSAL'"),
+        PURCHASE("TBLPurchase", "PurchaseID", "PurchaseDate", "TBLPurchaseDetail", "PurchaseDetailID", "'PURCHASE', 'PURCHASE_ADJUST'");
+
+        private final String headerTable;
+        private final String idColumn;
+        private final String dateColumn;
+        private final String detailTable;
+        private final String detailIdColumn;
+        private final String refTypes;
+
+        Invoice(String headerTable, String idColumn, String dateColumn, String detailTable, String detailIdColumn, String refTypes) {
+            this.headerTable = headerTable;
+            this.idColumn = idColumn;
+            this.dateColumn = dateColumn;
+            this.detailTable = detailTable;
+            this.detailIdColumn = detailIdColumn;
+            this.refTypes = refTypes;
+        }
+
+        String archiveTable() {
+            return detailTable + "Archive";
+        }
+
+        String detailColumns() {
+            return detailIdColumn + ", " + idColumn + ", ProductID, Quantity, Rate, Total";
+        }
+    }
+
+    /**
+     * Derived table with the detail lines of one invoice, live or archived; binds 3 parameters
+     * through {@link #bindDetailSource}. Its columns are the live detail table's ones.
+     */
+    static String detailSource(Invoice invoice) {
+        return "(SELECT " + invoice.detailColumns() + " FROM " + invoice.detailTable + " WHERE " + invoice.idColumn + " = ? " +
+                "UNION ALL SELECT " + invoice.detailColumns() + " FROM " + invoice.archiveTable() +
+                " WHERE DocYear = ? AND " + invoice.idColumn + " = ?)";
+    }
+
+    /**
+     * Binds {@link #detailSource}; the document date selects the archive partition.
+     * @return The next parameter index.
+     */
+    static int bindDetailSource(PreparedStatement ps, int index, int invoiceId, LocalDateTime documentDate) throws SQLException {
+        ps.setInt(index++, invoiceId);
+        ps.setInt(index++, documentDate.getYear());
+        ps.setInt(index++, invoiceId);
+        return index;
+    }
+
+    /**
+     * TBLStockLedger, or TBLStockLedger plus its archive when {@code withArchive}; usable wherever the
+     * ledger table name goes in a FROM clause (columns ProductID, RefType, RefID, QtyIn, QtyOut, Rate).
+     */
+    static String ledgerSource(boolean withArchive) {
+        if (!withArchive) {
+            return "TBLStockLedger";
+        }
+        String columns = "ProductID, RefType, RefID, QtyIn, QtyOut, Rate";
+        return "(SELECT " + columns + " FROM TBLStockLedger UNION ALL SELECT " + columns + " FROM TBLStockLedgerArchive)";
+    }
+
+    /**
+     * Locks the invoice header and fails if its lines were archived. Call first in an edit or delete transaction;
+     * the archiver locks the same header row, so an invoice cannot be archived half-way through an edit.
+     */
+    static void lockNotArchived(Connection conn, Invoice invoice, int invoiceId) throws SQLException {
+        String sqlLock = "SELECT " + invoice.dateColumn + " FROM " + invoice.headerTable + " WHERE " + invoice.idColumn + " = ? FOR UPDATE";
+        LocalDateTime date;
+        try (PreparedStatement ps = conn.prepareStatement(sqlLock)) {
+            ps.setInt(1, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return; // Nothing to protect; the caller reports the missing invoice
+                }
+                date = rs.getTimestamp(1).toLocalDateTime();
+            }
+        }
+        String sqlArchived = "SELECT 1 FROM " + invoice.archiveTable() + " WHERE DocYear = ? AND " + invoice.idColumn + " = ? LIMIT 1";
+        try (PreparedStatement ps = conn.prepareStatement(sqlArchived)) {
+            ps.setInt(1, date.getYear());
+            ps.setInt(2, invoiceId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    throw new ArchivedInvoiceException("This " + invoice.name().toLowerCase() + " is dated " + date.toLocalDate()
+                            + ", in an archived period, and can no longer be changed.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Latest day whose invoices were archived, or null if nothing was archived yet.
+     */
+    static LocalDate getArchivedThrough(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT MAX(ArchivedThrough) FROM TBLArchiveLog");
+             ResultSet rs = ps.executeQuery()) {
+            Date date = rs.next() ? rs.getDate(1) : null;
+            return date == null ? null : date.toLocalDate();
+        }
+    }
+
+    /**
+     * Archives every sale and purchase dated up to the end of {@code cutoff}. The period is logged in TBLArchiveLog
+     * only once both kinds are done; an interrupted run leaves its committed chunks archived and the next run
+     * picks up the rest.
+     * @param cutoff A closed period end (see {@link StockClosingDao}): archived movements must already be in a closing.
+     * @throws SQLException Also when the thread is interrupted between chunks (the interrupt flag stays set).
+     */
+    public ArchiveRunResult archiveThrough(LocalDate cutoff) throws SQLException {
+        if (!new StockClosingDao().getClosedPeriods().contains(cutoff)) {
+            throw new SQLException(cutoff + " is not a closed stock period; close the month before archiving it.");
+        }
+        long start = System.currentTimeMillis();
+        Timestamp before = Timestamp.valueOf(cutoff.plusDays(1).atStartOfDay());
+        LocalDate archivedThrough;
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            archivedThrough = getArchivedThrough(conn);
+        }
+        Timestamp from = archivedThrough == null ? new Timestamp(0) : Timestamp.valueOf(archivedThrough.plusDays(1).atStartOfDay());
+        ensurePartitions(cutoff.getYear());
+
+        // [invoices, detail rows, ledger rows, chunks] per kind
+        int[] sales = archiveInvoices(Invoice.SALE, from, before);
+        int[] purchases = archiveInvoices(Invoice.PURCHASE, from, before);
+
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO TBLArchiveLog (ArchivedThrough, Sales, Purchases, DetailRows, LedgerRows) VALUES (?, ?, ?, ?, ?)")) {
+            ps.setDate(1, Date.valueOf(cutoff));
+            ps.setInt(2, sales[0]);
+            ps.setInt(3, purchases[0]);
+            ps.setInt(4, sales[1] + purchases[1]);
+            ps.setInt(5, sales[2] + purchases[2]);
+            ps.executeUpdate();
+        }
+        return new ArchiveRunResult(cutoff, sales[0], purchases[0], sales[1] + purchases[1], sales[2] + purchases[2],
+                sales[3] + purchases[3], System.currentTimeMillis() - start);
+    }
+
+    private int[] archiveInvoices(Invoice invoice, Timestamp from, Timestamp before) throws SQLException {
+        int[] totals = new int[4];
+        int lastId = 0;
+        while (true) {
+            int fromId = lastId;
+            int[] chunk = TransactionExecutor.getInstance().execute("archiveChunk", Connection.TRANSACTION_READ_COMMITTED,
+                    tx -> moveChunk(tx.getConnection(), invoice, from, before, fromId));
+            if (chunk[0] == 0) {
+                return totals;
+            }
+            totals[0] += chunk[0];
+            totals[1] += chunk[1];
+            totals[2] += chunk[2];
+            totals[3]++;
+            lastId = chunk[3];
+            try {
+                Thread.sleep(CHUNK_PAUSE_MILLIS); // Let waiting tills through between chunks
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                // Not done: returning would let archiveThrough log the whole period as archived
+                throw new SQLException("Archive run interrupted after " + totals[0] + " " + invoice.name().toLowerCase()
+                        + " invoices; run it again to finish.", e);
+            }
+        }
+    }
+
+    /**
+     * Moves the lines and ledger rows of the next {@value #CHUNK_INVOICES} invoices after {@code afterId}
+     * dated in [{@code from}, {@code before}) that still have live lines.
+     * @return {invoices moved, detail rows moved, ledger rows moved, last invoice ID}.
+     */
+    private static int[] moveChunk(Connection conn, Invoice invoice, Timestamp from, Timestamp before, int afterId) throws SQLException {
+        // Lock the headers so a concurrent edit either finishes first or sees the invoice as archived
+        String sqlIds = "SELECT h." + invoice.idColumn + " FROM " + invoice.headerTable + " h" +
+                " WHERE h." + invoice.idColumn + " > ? AND h." + invoice.dateColumn + " >= ? AND h." + invoice.dateColumn + " < ?" +
+                " AND EXISTS (SELECT 1 FROM " + invoice.detailTable + " d WHERE d." + invoice.idColumn + " = h." + invoice.idColumn + ")" +
+                " ORDER BY h." + invoice.idColumn + " LIMIT ? FOR UPDATE";
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sqlIds)) {
+            ps.setInt(1, afterId);
+            ps.setTimestamp(2, from);
+            ps.setTimestamp(3, before);
+            ps.setInt(4, CHUNK_INVOICES);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return new int[]{0, 0, 0, afterId};
+        }
+        String in = " IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        String year = "YEAR(h." + invoice.dateColumn + ")";
+        String join = " JOIN " + invoice.headerTable + " h ON h." + invoice.idColumn + " = ";
+
+        int details = execute(conn, "INSERT INTO " + invoice.archiveTable() + " (DocYear, " + invoice.detailColumns() + ") " +
+                "SELECT " + year + ", d." + invoice.detailColumns().replace(", ", ", d.") + " FROM " + invoice.detailTable + " d" +
+                join + "d." + invoice.idColumn + " WHERE d." + invoice.idColumn + in, ids);
+        int ledger = execute(conn, "INSERT INTO TBLStockLedgerArchive (DocYear, " + LEDGER_COLUMNS + ") " +
+                "SELECT " + year + ", l." + LEDGER_COLUMNS.replace(", ", ", l.") + " FROM TBLStockLedger l" +
+                join + "l.RefID WHERE l.RefType IN (" + invoice.refTypes + ") AND l.RefID" + in, ids);
+
+        int deletedDetails = execute(conn, "DELETE FROM " + invoice.detailTable + " WHERE " + invoice.idColumn + in, ids);
+        int deletedLedger = execute(conn, "DELETE FROM TBLStockLedger WHERE RefType IN (" + invoice.refTypes + ") AND RefID" + in, ids);
+        if (deletedDetails != details || deletedLedger != ledger) {
+            throw new SQLException("Archive copy mismatch for " + invoice.detailTable + "; chunk rolled back.");
+        }
+        return new int[]{ids.size(), details, ledger, ids.get(ids.size() - 1)};
+    }
+
+    private static int execute(Connection conn, String sql, List<Integer> ids) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < ids.size(); i++) {
+                ps.setInt(i + 1, ids.get(i));
+            }
+            return ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Splits a yearly partition off {@code pmax} for every year up to {@code lastYear} that has none yet.
+     * Years below the lowest split share that partition, which only makes it coarser.
+     */
+    private static void ensurePartitions(int lastYear) throws SQLException {
+        List<String> tables = List.of(Invoice.SALE.archiveTable(), Invoice.PURCHASE.archiveTable(), "TBLStockLedgerArchive");
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            int firstYear = firstDocumentYear(conn);
+            for (String table : tables) {
+                int nextYear = highestPartitionBound(conn, table);
+                for (int year = Math.max(nextYear, firstYear); year <= lastYear; year++) {
+                    try (Statement st = conn.createStatement()) {
+                        st.execute("ALTER TABLE " + table + " REORGANIZE PARTITION pmax INTO (" +
+                                "PARTITION p" + year + " VALUES LESS THAN (" + (year + 1) + "), " +
+                                "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+                    }
+                }
+            }
+        }
+    }
+
+    private static int firstDocumentYear(Connection conn) throws SQLException {
+        String sql = "SELECT LEAST(COALESCE((SELECT MIN(SaleDate) FROM TBLSale), NOW()), " +
+                "COALESCE((SELECT MIN(PurchaseDate) FROM TBLPurchase), NOW()))";
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rs.getTimestamp(1).toLocalDateTime().getYear() : LocalDate.now().getYear();
+        }
+    }
+
+    /**
+     * @return The upper bound of the highest yearly partition (the first year not covered yet), or 0 if there is none.
+     */
+    private static int highestPartitionBound(Connection conn, String table) throws SQLException {
+        String sql = "SELECT MAX(CAST(PARTITION_DESCRIPTION AS UNSIGNED)) FROM information_schema.PARTITIONS " +
+                "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME <> 'pmax'";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package raven.modal.demo.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Builds {@code INSERT INTO t (a, b) VALUES (?, ?), (?, ?), ...} statements so a whole list of rows
+ * is written in one round trip, and maps the generated keys back to the rows in insertion order.
+ * Large lists are split into chunks of {@link #MAX_ROWS_PER_STATEMENT} to stay below max_allowed_packet.
+ */
+final class MultiRowInsert {
+
+    static final int MAX_ROWS_PER_STATEMENT = 500;
+
+    private MultiRowInsert() {
+    }
+
+    /**
+     * Inserts all rows within the caller's transaction.
+     * @param conn    The active (transactional) connection.
+     * @param table   Target table.
+     * @param columns Column names, in the same order as the values of each row.
+     * @param rows    One Object[] of column values per row.
+     * @return The generated keys, index-aligned with {@code rows}.
+     */
+    static int[] insertReturningKeys(Connection conn, String table, String[] columns, List<Object[]> rows) throws SQLException {
+        int[] keys = new int[rows.size()];
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(rows.size(), from + MAX_ROWS_PER_STATEMENT);
+            String sql = buildSql(table, columns, to - from);
+
+            try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                int index = 1;
+                for (int i = from; i < to; i++) {
+                    Object[] row = rows.get(i);
+                    if (row.length != columns.length) {
+                        throw new SQLException("Row " + i + " has " + row.length + " values, expected " + columns.length);
+                    }
+                    for (Object value : row) {
+                        ps.setObject(index++, value);
+                    }
+                }
+                ps.executeUpdate();
+
+                try (ResultSet rs = ps.getGeneratedKeys()) {
+                    int i = from;
+                    while (rs.next() && i < to) {
+                        keys[i++] = rs.getInt(1);
+                    }
+                    if (i != to) {
+                        throw new SQLException("Expected " + (to - from) + " generated keys from " + table + ", got " + (i - from));
+                    }
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Inserts all rows within the caller's transaction, for tables whose generated keys nobody reads.
+     * @return Number of rows inserted.
+     */
+    static int insert(Connection conn, String table, String[] columns, List<Object[]> rows) throws SQLException {
+        int inserted = 0;
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            int to = Math.min(rows.size(), from + MAX_ROWS_PER_STATEMENT);
+            try (PreparedStatement ps = conn.prepareStatement(buildSql(table, columns, to - from))) {
+                int index = 1;
+                for (int i = from; i < to; i++) {
+                    for (Object value : rows.get(i)) {
+                        ps.setObject(index++, value);
+                    }
+                }
+                inserted += ps.executeUpdate();
+            }
+        }
+        return inserted;
+    }
+
+    private static String buildSql(String table, String[] columns, int rowCount) {
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < columns.length; i++) {
+            row.append(i == 0 ? "?" : ", ?");
+        }
+        row.append(')');
+
+        StringBuilder sql = new StringBuilder("INSERT INTO ")
+                .append(table)
+                .append(" (")
+                .append(String.join(", ", columns))
+                .append(") VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+}
@@ -0,0 +1,90 @@
+package raven.modal.demo.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and settles the outstanding invoices of many parties at once, for the {@link Settlement} runs of
+ * {@link SupplierPaymentDao} (purchases) and {@link CustomerReceiptDao} (sales). Both tables carry a stored
+ * BalanceDue column and a (party, date, id, BalanceDue) index (migrations V3 and V5), so the read is a range
+ * scan per party in allocation order.
+ */
+enum OpenInvoices {
+    PURCHASE("TBLPurchase", "SupplierID", "PurchaseID", "PurchaseDate", "PaidAmount"),
+    SALE("TBLSale", "CustomerID", "SaleID", "SaleDate", "ReceivedAmount");
+
+    private final String table;
+    private final String partyColumn;
+    private final String idColumn;
+    private final String dateColumn;
+    private final String paidColumn;
+
+    OpenInvoices(String table, String partyColumn, String idColumn, String dateColumn, String paidColumn) {
+        this.table = table;
+        this.partyColumn = partyColumn;
+        this.idColumn = idColumn;
+        this.dateColumn = dateColumn;
+        this.paidColumn = paidColumn;
+    }
+
+    /**
+     * Feeds each party's outstanding invoices, oldest first, into its allocator. The rows are locked
+     * (FOR UPDATE) so a concurrent payment of the same party waits instead of allocating the same balance;
+     * parties are read in the key order of {@code allocators} (a TreeMap), so two runs lock them in the same order.
+     */
+    void load(Connection conn, Map<Integer, FifoAllocator> allocators) throws SQLException {
+        List<Integer> partyIds = new ArrayList<>(allocators.keySet());
+        for (int from = 0; from < partyIds.size(); from += MultiRowInsert.MAX_ROWS_PER_STATEMENT) {
+            List<Integer> chunk = partyIds.subList(from, Math.min(partyIds.size(), from + MultiRowInsert.MAX_ROWS_PER_STATEMENT));
+            StringBuilder sql = new StringBuilder("SELECT ").append(partyColumn).append(", ").append(idColumn)
+                    .append(", BalanceDue FROM ").append(table).append(" WHERE ").append(partyColumn).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(") AND BalanceDue > 0 ORDER BY ").append(partyColumn).append(", ").append(dateColumn)
+                    .append(", ").append(idColumn).append(" FOR UPDATE");
+
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    ps.setInt(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        allocators.get(rs.getInt(1)).add(rs.getInt(2), rs.getDouble(3));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds what the allocators applied to the paid column, one batched UPDATE with a single change per invoice.
+     * @return Number of invoices updated.
+     */
+    int applyPaid(Connection conn, Map<Integer, FifoAllocator> allocators) throws SQLException {
+        String sql = "UPDATE " + table + " SET " + paidColumn + " = " + paidColumn + " + ? WHERE " + idColumn + " = ?";
+        int updated = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (FifoAllocator allocator : allocators.values()) {
+                for (int i = 0; i < allocator.getInvoiceCount(); i++) {
+                    double applied = allocator.getAppliedAmount(i);
+                    if (applied > 0) {
+                        ps.setDouble(1, applied);
+                        ps.setInt(2, allocator.getInvoiceId(i));
+                        ps.addBatch();
+                        updated++;
+                    }
+                }
+            }
+            if (updated > 0) {
+                ps.executeBatch();
+            }
+        }
+        return updated;
+    }
+}
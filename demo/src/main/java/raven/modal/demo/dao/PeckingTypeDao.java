@@ -1,5 +1,11 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
 import raven.modal.demo.model.PeckingTypeModel;
 import raven.modal.demo.mysql.MySQLConnection;
 
@@ -14,17 +20,24 @@ import java.util.List;
 
 public class PeckingTypeDao {
 
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
     // --- CREATE/ADD Method ---
     public void addPeckingType(PeckingTypeModel type) {
         String sql = "INSERT INTO TBLPeckingType (PeekingTypeName, quarterQty, IsActive) VALUES (?, ?, ?)";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, type.getPeckingTypeName());
             ps.setInt(2, type.getQuarterQty());
             ps.setBoolean(3, type.isActive());
 
             ps.executeUpdate();
+            changeFeedDao.appendInsertedQuietly(conn, ps, ChangeEntity.PECKING_TYPE);
+            LookupCache.getInstance().invalidate(LookupType.PECKING_TYPES);
+            if (type.isActive()) {
+                RowCountCache.getInstance().adjust(RowCount.ACTIVE_PECKING_TYPES, 1);
+            }
             JOptionPane.showMessageDialog(null, "Pecking Type '" + type.getPeckingTypeName() + "' saved successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(null, "Database error saving Pecking Type: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
@@ -83,15 +96,7 @@ public class PeckingTypeDao {
 
     // --- READ/FETCH Count (For Pagination) ---
     public int getPeckingTypeCount() {
-        String sql = "SELECT COUNT(*) FROM TBLPeckingType p where p.isActive = true";
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-            if (rs.next()) return rs.getInt(1);
-        } catch (SQLException e) {
-            JOptionPane.showMessageDialog(null, "Database error updating Pecking Type: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-        }
-        return 0;
+        return RowCountCache.getInstance().get(RowCount.ACTIVE_PECKING_TYPES);
     }
 
     public void updatePeckingType(PeckingTypeModel type) {
@@ -105,6 +110,10 @@ public class PeckingTypeDao {
             ps.setInt(4, type.getPeckingTypeId());
 
             ps.executeUpdate();
+            changeFeedDao.appendQuietly(conn, ChangeEntity.PECKING_TYPE, ChangeOp.UPDATE, type.getPeckingTypeId());
+            LookupCache.getInstance().invalidate(LookupType.PECKING_TYPES);
+            LookupCache.getInstance().invalidate(LookupType.PRODUCTS); // Products carry the quarterQty
+            RowCountCache.getInstance().invalidate(RowCount.ACTIVE_PECKING_TYPES); // IsActive may have changed
             JOptionPane.showMessageDialog(null, "Pecking Type ID " + type.getPeckingTypeId() + " updated successfully!", "Update Success", JOptionPane.INFORMATION_MESSAGE);
         } catch (SQLException e) {
             JOptionPane.showMessageDialog(null, "Database error updating Pecking Type: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
@@ -120,8 +129,11 @@ public class PeckingTypeDao {
 
             ps.setInt(1, typeId);
             int rowsAffected = ps.executeUpdate();
+            LookupCache.getInstance().invalidate(LookupType.PECKING_TYPES);
 
             if (rowsAffected > 0) {
+                changeFeedDao.appendQuietly(conn, ChangeEntity.PECKING_TYPE, ChangeOp.DELETE, typeId);
+                RowCountCache.getInstance().invalidate(RowCount.ACTIVE_PECKING_TYPES);
                 JOptionPane.showMessageDialog(null, "Pecking Type ID " + typeId + " deleted successfully!", "Deletion Success", JOptionPane.INFORMATION_MESSAGE);
             } else {
                 JOptionPane.showMessageDialog(null, "Pecking Type ID " + typeId + " not found. No record was deleted.", "Warning", JOptionPane.WARNING_MESSAGE);
@@ -145,6 +157,11 @@ public class PeckingTypeDao {
      * @return List of PeekingTypeModel containing only ID and Name.
      */
     public List<PeckingTypeModel> getActivePeekingTypesForDropdown() {
+        return LookupCache.getInstance().getList(LookupType.PECKING_TYPES, this::loadActivePeekingTypes,
+                List.of(PeckingTypeModel.builder().peckingTypeId(0).peckingTypeName("--- Select Pecking Type ---").build()));
+    }
+
+    private List<PeckingTypeModel> loadActivePeekingTypes() throws SQLException {
         String sql = "SELECT PeekingTypeId, PeekingTypeName FROM TBLPeckingType WHERE IsActive = TRUE ORDER BY PeekingTypeName";
         List<PeckingTypeModel> types = new ArrayList<>();
 
@@ -161,8 +178,6 @@ public class PeckingTypeDao {
                         .peckingTypeName(rs.getString("PeekingTypeName"))
                         .build());
             }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching active peeking types: " + e.getMessage());
         }
         return types;
     }
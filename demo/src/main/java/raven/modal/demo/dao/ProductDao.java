@@ -1,17 +1,44 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
 import raven.modal.demo.model.ProductModel;
 import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.repository.ProductRepository;
 
 import javax.swing.*;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class ProductDao {
+public class ProductDao implements ProductRepository {
+
+    private static final String LIST_SELECT =
+            "SELECT " +
+                    "p.ProductID, " +
+                    "p.ProductCode, " +
+                    "p.ProductName, " +
+                    "c.CompanyName, " +
+                    "b.BrandTitle AS BrandName, " +
+                    "cat.CategoryName, " +
+                    "pk.PeekingTypeName, " +
+                    "p.IsActive " +
+                    "FROM TBLProducts p " +
+                    "LEFT JOIN TBLBrands b ON p.BrandId = b.BrandId " +
+                    "LEFT JOIN TBLCompanies c ON b.CompanyId = c.CompanyId " +
+                    "LEFT JOIN TBLCategories cat ON p.CategoryId = cat.CategoryId " +
+                    "LEFT JOIN TBLPeckingType pk ON p.PeckingTypeId = pk.PeekingTypeId ";
+
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
 
     // Inside ProductDao.java
 
@@ -21,6 +48,7 @@ public class ProductDao {
      * @param query The search string.
      * @return List of ProductModel (ID, Code, Name, PeckingTypeId, UnitID).
      */
+    @Override
     public List<ProductModel> searchActiveProducts(String query) {
         // NOTE: Need to fetch PeckingTypeId and UnitID for quantity calculation
         String sql = "SELECT p.ProductID, p.ProductCode, p.ProductName, p.PeckingTypeId, pt.quarterQty as UnitPerCarton " +
@@ -59,7 +87,12 @@ public class ProductDao {
      * Fetches ALL active products (used for initial load of the searchable JComboBox).
      * @return List of all active ProductModel objects (ID, Code, Name, UnitsPerCarton).
      */
+    @Override
     public List<ProductModel> getAllActiveProducts() {
+        return LookupCache.getInstance().getList(LookupType.PRODUCTS, this::loadAllActiveProducts, List.of());
+    }
+
+    private List<ProductModel> loadAllActiveProducts() throws SQLException {
         String sql = "SELECT p.ProductID, p.ProductCode, p.ProductName, p.PeckingTypeId, pt.quarterQty as UnitPerCarton " +
                 "FROM TBLProducts p " +
                 "JOIN TBLPeckingType pt ON p.PeckingTypeId = pt.PeekingTypeId " +
@@ -80,8 +113,6 @@ public class ProductDao {
                         .unitsPerCarton(rs.getInt("UnitPerCarton"))
                         .build());
             }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching all products: " + e.getMessage());
         }
         return products;
     }
@@ -91,26 +122,11 @@ public class ProductDao {
      * @param limit  The maximum number of rows to return.
      * @return A List of ProductModel objects.
      */
+    @Override
     public List<ProductModel> getAllProducts(int offset, int limit) {
         List<ProductModel> products = new ArrayList<>();
 
-        String sql =
-                "SELECT " +
-                        "p.ProductID, " +
-                        "p.ProductCode, " +
-                        "p.ProductName, " +
-                        "c.CompanyName, " +
-                        "b.BrandTitle AS BrandName, " +
-                        "cat.CategoryName, " +
-                        "pk.PeekingTypeName, " +
-                        "p.IsActive " +
-                        "FROM TBLProducts p " +
-                        "LEFT JOIN TBLBrands b ON p.BrandId = b.BrandId " +
-                        "LEFT JOIN TBLCompanies c ON b.CompanyId = c.CompanyId " +
-                        "LEFT JOIN TBLCategories cat ON p.CategoryId = cat.CategoryId " +
-                        "LEFT JOIN TBLPeckingType pk ON p.PeckingTypeId = pk.PeekingTypeId " +
-                        "WHERE p.IsActive = TRUE " +
-                        "LIMIT ? OFFSET ?;";
+        String sql = LIST_SELECT + "WHERE p.IsActive = TRUE LIMIT ? OFFSET ?;";
 
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -120,16 +136,7 @@ public class ProductDao {
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    ProductModel product = ProductModel.builder()
-                            .productId(rs.getInt("ProductID"))
-                            .productCode(rs.getString("ProductCode"))
-                            .productName(rs.getString("ProductName"))
-                            .companyName(rs.getString("CompanyName"))
-                            .brandName(rs.getString("BrandName"))
-                            .categoryName(rs.getString("CategoryName"))
-                            .peckingTypeName(rs.getString("PeekingTypeName"))
-                            .build();
-                    products.add(product);
+                    products.add(mapListRow(rs));
                 }
             }
 
@@ -145,18 +152,56 @@ public class ProductDao {
         return products;
     }
 
+    @Override
+    public List<ProductModel> getProductsByIds(List<Integer> productIds) {
+        List<ProductModel> products = new ArrayList<>();
+        if (productIds.isEmpty()) {
+            return products;
+        }
+        String sql = LIST_SELECT + "WHERE p.IsActive = TRUE AND p.ProductID IN ("
+                + String.join(", ", Collections.nCopies(productIds.size(), "?")) + ")";
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            for (int i = 0; i < productIds.size(); i++) {
+                ps.setInt(i + 1, productIds.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapListRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Database error fetching products by ID: " + e.getMessage());
+        }
+        return products;
+    }
+
+    private static ProductModel mapListRow(ResultSet rs) throws SQLException {
+        return ProductModel.builder()
+                .productId(rs.getInt("ProductID"))
+                .productCode(rs.getString("ProductCode"))
+                .productName(rs.getString("ProductName"))
+                .companyName(rs.getString("CompanyName"))
+                .brandName(rs.getString("BrandName"))
+                .categoryName(rs.getString("CategoryName"))
+                .peckingTypeName(rs.getString("PeekingTypeName"))
+                .build();
+    }
+
 
     /**
      * Inserts a new product record into TBLProducts.
      * @param product The ProductModel to save.
      */
+    @Override
     public void addProduct(ProductModel product) {
         // SQL must match the 7 fields being inserted (excluding ProductID)
         String sql = "INSERT INTO TBLProducts (ProductCode, ProductName, IsActive, BrandId, CategoryId, PeckingTypeId, CompanyId) "
                 + "VALUES (?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             // 1. Set the parameters from the ProductModel (7 parameters)
             ps.setString(1, product.getProductCode());
@@ -169,8 +214,11 @@ public class ProductDao {
 
             // 2. Execute the update
             int rowsAffected = ps.executeUpdate();
+            LookupCache.getInstance().invalidate(LookupType.PRODUCTS);
 
             if (rowsAffected > 0) {
+                changeFeedDao.appendInsertedQuietly(conn, ps, ChangeEntity.PRODUCT);
+                RowCountCache.getInstance().adjust(RowCount.PRODUCTS, 1);
                 // Success feedback
                 JOptionPane.showMessageDialog(null,
                         "Product '" + product.getProductName() + "' saved successfully!",
@@ -193,6 +241,7 @@ public class ProductDao {
      * Updates an existing product record in TBLProducts.
      * @param product The ProductModel with updated data and existing ProductID.
      */
+    @Override
     public void updateProduct(ProductModel product) {
         // SQL must update 7 fields, filtering by ProductID (8 parameters)
         String sql = "UPDATE TBLProducts SET ProductCode=?, ProductName=?, IsActive=?, BrandId=?, CategoryId=?, PeckingTypeId=?, CompanyId=? "
@@ -215,8 +264,10 @@ public class ProductDao {
 
             // 3. Execute the update
             int rowsAffected = ps.executeUpdate();
+            LookupCache.getInstance().invalidate(LookupType.PRODUCTS);
 
             if (rowsAffected > 0) {
+                changeFeedDao.appendQuietly(conn, ChangeEntity.PRODUCT, ChangeOp.UPDATE, product.getProductId());
                 JOptionPane.showMessageDialog(null,
                         "Product '" + product.getProductName() + "' updated successfully!",
                         "Update Success",
@@ -239,6 +290,7 @@ public class ProductDao {
      * @param productId The ID of the product to fetch.
      * @return The ProductModel or null if not found.
      */
+    @Override
     public ProductModel getProductById(int productId) {
         String sql = "SELECT ProductID, ProductCode, ProductName, IsActive, BrandId, CategoryId, PeckingTypeId, CompanyId "
                 + "FROM TBLProducts WHERE ProductID = ?";
@@ -296,6 +348,7 @@ public class ProductDao {
         }
     }
 
+    @Override
     public void deleteProductById(int productId) {
         String sql = "DELETE FROM tblproducts WHERE ProductID = ? ";
 
@@ -304,8 +357,11 @@ public class ProductDao {
 
             ps.setInt(1, productId);
             int rowsAffected = ps.executeUpdate();
+            LookupCache.getInstance().invalidate(LookupType.PRODUCTS);
 
             if (rowsAffected > 0) {
+                changeFeedDao.appendQuietly(conn, ChangeEntity.PRODUCT, ChangeOp.DELETE, productId);
+                RowCountCache.getInstance().adjust(RowCount.PRODUCTS, -1);
                 JOptionPane.showMessageDialog(null,
                         "Product ID " + productId + " deleted successfully!",
                         "Deletion Success",
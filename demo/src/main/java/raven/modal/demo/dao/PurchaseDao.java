@@ -1,8 +1,18 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.cache.StockAvailability;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
+import raven.modal.demo.model.InvoiceUpdateResult;
+import raven.modal.demo.model.PageCursor;
 import raven.modal.demo.model.PurchaseDetailModel;
 import raven.modal.demo.model.PurchaseModel;
+import raven.modal.demo.model.StockLedgerModel;
+import raven.modal.demo.model.SupplierPaymentModel;
 import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.repository.PurchaseRepository;
 
 import javax.swing.*;
 import java.sql.Connection;
@@ -13,80 +23,102 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class PurchaseDao {
+public class PurchaseDao implements PurchaseRepository {
+
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
+    private static final String[] DETAIL_COLUMNS = {"PurchaseID", "ProductID", "Quantity", "Rate", "Total"};
+    private static final KeysetQuery PURCHASE_KEYSET = new KeysetQuery("TBLPurchase", "PurchaseDate", "PurchaseID");
+
+    private final StockLedgerDao stockLedgerDao = new StockLedgerDao();
+    private final BalanceJournalDao balanceJournalDao = new BalanceJournalDao();
+    private final SupplierPaymentDao supplierPaymentDao = new SupplierPaymentDao();
+    private final TransactionExecutor transactions = TransactionExecutor.getInstance();
 
     /**
      * Deletes a purchase transaction, performing a ledger reversal and removing all details.
      * @param purchaseId The ID of the purchase to delete.
      * @return true if the deletion transaction was successful.
      */
+    @Override
     public boolean deletePurchase(int purchaseId) {
-        Connection conn = null;
+        try {
+            Boolean deleted = transactions.execute("deletePurchase", tx -> {
+                Connection conn = tx.getConnection();
+                LedgerArchiveDao.lockNotArchived(conn, LedgerArchiveDao.Invoice.PURCHASE, purchaseId);
+
+                // Read the totals for the reversal with the row locked, so a payment cannot change them meanwhile
+                PurchaseModel oldPurchase = lockPurchaseHeader(conn, purchaseId);
+                if (oldPurchase == null) {
+                    return null; // Nothing was written; reported below
+                }
 
-        // 1. Fetch OLD totals for reversal (we reuse the existing helper method)
-        PurchaseModel oldPurchase = getOldPurchaseTotals(purchaseId);
-        if (oldPurchase == null) {
-            JOptionPane.showMessageDialog(null, "Cannot find original purchase to delete.", "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
+                // --- A. LEDGER REVERSAL ---
+                double oldNetChange = oldPurchase.getTotalAmount() - oldPurchase.getPaidAmount();
 
-        try {
-            conn = MySQLConnection.getInstance().getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // --- A. LEDGER REVERSAL ---
-            double oldNetChange = oldPurchase.getTotalAmount() - oldPurchase.getPaidAmount();
-
-            // Reversal: The original transaction ADDED 'oldNetChange' to the balance.
-            // To reverse it, we SUBTRACT 'oldNetChange'.
-            // We reuse the updateSupplierBalanceInTransaction helper by passing -oldNetChange.
-            updateSupplierBalanceInTransaction(conn, oldPurchase.getSupplierID(), -oldNetChange);
-
-            // --- B. DELETE OLD DETAILS ---
-            String sqlDeleteDetails = "DELETE FROM TBLPurchaseDetail WHERE PurchaseID = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sqlDeleteDetails)) {
-                ps.setInt(1, purchaseId);
-                ps.executeUpdate();
-                // We don't check row count here; it's okay if it deletes 0 details if somehow the record was already cleaned.
-            }
+                // Reversal: The original transaction ADDED 'oldNetChange' to the balance.
+                // To reverse it, we SUBTRACT 'oldNetChange'.
+                // We reuse the updateSupplierBalanceInTransaction helper by passing -oldNetChange.
+                updateSupplierBalanceInTransaction(conn, oldPurchase.getSupplierID(), -oldNetChange, purchaseId);
 
-            // --- C. DELETE PURCHASE HEADER (TBLPurchase) ---
-            String sqlDeleteHeader = "DELETE FROM TBLPurchase WHERE PurchaseID = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sqlDeleteHeader)) {
-                ps.setInt(1, purchaseId);
+                // --- B. DELETE OLD DETAILS AND STOCK ---
+                // Removes the purchase's ledger rows (QtyIn and later adjustments) and takes the quantities back out of TBLStockBalance
+                Map<Integer, Double> stockDeltas = stockLedgerDao.deleteEntries(conn, purchaseId, "PURCHASE", "PURCHASE_ADJUST");
 
-                if (ps.executeUpdate() == 0) {
-                    // If the header wasn't deleted, something is wrong.
-                    throw new SQLException("Failed to delete purchase header. Purchase ID not found.");
+                String sqlDeleteDetails = "DELETE FROM TBLPurchaseDetail WHERE PurchaseID = ?";
+                try (PreparedStatement ps = conn.prepareStatement(sqlDeleteDetails)) {
+                    ps.setInt(1, purchaseId);
+                    ps.executeUpdate();
+                    // We don't check row count here; it's okay if it deletes 0 details if somehow the record was already cleaned.
                 }
-            }
 
-            // --- D. COMMIT ---
-            conn.commit();
-            return true;
+                // The paid part stays on the supplier's balance as an unallocated advance
+                String sqlDeleteAllocations = "DELETE FROM TBLSupplierPaymentAllocation WHERE PurchaseID = ?";
+                try (PreparedStatement ps = conn.prepareStatement(sqlDeleteAllocations)) {
+                    ps.setInt(1, purchaseId);
+                    ps.executeUpdate();
+                }
 
-        } catch (SQLException e) {
-            System.err.println("Purchase Deletion Transaction failed. Rolling back: " + e.getMessage());
-            try { if (conn != null) conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
-            JOptionPane.showMessageDialog(null, "Purchase deletion failed due to a database error.", "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                    conn.close();
+                // --- C. DELETE PURCHASE HEADER (TBLPurchase) ---
+                String sqlDeleteHeader = "DELETE FROM TBLPurchase WHERE PurchaseID = ?";
+                try (PreparedStatement ps = conn.prepareStatement(sqlDeleteHeader)) {
+                    ps.setInt(1, purchaseId);
+
+                    if (ps.executeUpdate() == 0) {
+                        // If the header wasn't deleted, something is wrong.
+                        throw new SQLException("Failed to delete purchase header. Purchase ID not found.");
+                    }
                 }
-            } catch (SQLException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
+                changeFeedDao.append(conn, ChangeEntity.PURCHASE, ChangeOp.DELETE, purchaseId);
+
+                tx.afterCommit(() -> {
+                    StockAvailability.getInstance().applyCommitted(stockDeltas);
+                    RowCountCache.getInstance().adjust(RowCount.PURCHASES, -1);
+                });
+                return true;
+            });
+            if (deleted == null) {
+                JOptionPane.showMessageDialog(null, "Cannot find original purchase to delete.", "DB Error", JOptionPane.ERROR_MESSAGE);
+                return false;
             }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Purchase Deletion Transaction failed. Rolled back: " + e.getMessage());
+            JOptionPane.showMessageDialog(null, e instanceof ArchivedInvoiceException ? e.getMessage()
+                    : "Purchase deletion failed due to a database error.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            return false;
         }
     }
 
     /**
      * Fetches purchase header and all associated details for editing.
      */
+    @Override
     public PurchaseModel getPurchaseForEdit(int purchaseId) {
         // 1. Fetch Header Data
         String sqlHeader = "SELECT p.*, s.SupplierName " +
@@ -113,6 +145,7 @@ public class PurchaseDao {
 //                                .discountValue(rs.getDouble("DiscountValue"))
                                 .totalAmount(rs.getDouble("TotalAmount"))
                                 .paidAmount(rs.getDouble("PaidAmount"))
+                                .loadedPaidAmount(rs.getDouble("PaidAmount"))
                                 .remarks(rs.getString("Remarks"))
                                 .details(new ArrayList<>()) // Initialize list for details
                                 .build();
@@ -123,14 +156,15 @@ public class PurchaseDao {
             }
 
             // 2. Fetch Detail Data (Line Items)
+            // Lines of purchases in archived periods come from TBLPurchaseDetailArchive
             String sqlDetails = "SELECT pd.*, p.ProductName, pt.quarterQty as UnitPerCarton " +
-                    "FROM TBLPurchaseDetail pd " +
+                    "FROM " + LedgerArchiveDao.detailSource(LedgerArchiveDao.Invoice.PURCHASE) + " pd " +
                     "JOIN TBLProducts p ON pd.ProductID = p.ProductID " +
                     "JOIN TBLPeckingType pt ON p.PeckingTypeId = pt.PeekingTypeId " +
-                    "WHERE pd.PurchaseID = ?";
+                    "ORDER BY pd.PurchaseDetailID";
 
             try (PreparedStatement psDetails = conn.prepareStatement(sqlDetails)) {
-                psDetails.setInt(1, purchaseId);
+                LedgerArchiveDao.bindDetailSource(psDetails, 1, purchaseId, purchase.getPurchaseDate());
                 try (ResultSet rs = psDetails.executeQuery()) {
                     while (rs.next()) {
                         PurchaseDetailModel detail = PurchaseDetailModel.builder()
@@ -153,183 +187,192 @@ public class PurchaseDao {
         }
         return purchase;
     }
-// Assuming the necessary helper method exists in PurchaseDao:
-    // private void updateProductStock(Connection conn, int productId, double quantityChange) throws SQLException
 
-    public boolean savePurchase(PurchaseModel purchaseModel) {
+    /**
+     * Saves a new purchase with its details, stock ledger entries and the supplier balance in one transaction.
+     * Runs on the {@link SaveQueue} thread, so failures are rolled back and rethrown rather than shown in a dialog.
+     * @return The generated PurchaseID.
+     */
+    @Override
+    public int savePurchase(PurchaseModel purchaseModel) throws SQLException {
         String sqlPurchase = "INSERT INTO TBLPurchase (SupplierID, PurchaseDate, InvoiceNo, TotalAmount, PaidAmount, Remarks, CreatedDate) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?)";
-        String sqlDetail = "INSERT INTO TBLPurchaseDetail (PurchaseID, ProductID, Quantity, Rate, Total) VALUES (?, ?, ?, ?, ?)";
-        String sqlStock = "INSERT INTO TBLStockLedger (ProductID, RefType, RefID, RefDetailID, QtyIn, Rate) VALUES (?, 'PURCHASE', ?, ?, ?, ?)";
 
-        Connection conn = null;
         try {
-            conn = MySQLConnection.getInstance().getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // 1. Insert Purchase Header
-            PreparedStatement psPurchase = conn.prepareStatement(sqlPurchase, Statement.RETURN_GENERATED_KEYS);
-            Timestamp currentTimestamp = Timestamp.valueOf(LocalDateTime.now());
-
-            psPurchase.setInt(1, purchaseModel.getSupplierID());
-            psPurchase.setTimestamp(2, Timestamp.valueOf(purchaseModel.getPurchaseDate()));
-            psPurchase.setString(3, purchaseModel.getInvoiceNo());
-            psPurchase.setDouble(4, purchaseModel.getTotalAmount());
-            psPurchase.setDouble(5, purchaseModel.getPaidAmount());
-            psPurchase.setString(6, purchaseModel.getRemarks());
-            psPurchase.setTimestamp(7, currentTimestamp);
-
-            psPurchase.executeUpdate();
-
-            // Get generated PurchaseID
-            int purchaseId = 0;
-            ResultSet rs = psPurchase.getGeneratedKeys();
-            if (rs.next()) {
-                purchaseId = rs.getInt(1);
-            } else {
-                conn.rollback();
-                JOptionPane.showMessageDialog(null, "Failed to retrieve Purchase ID.", "Error", JOptionPane.ERROR_MESSAGE);
-                return false;
-            }
-
-            // 2. Insert Purchase Details and Update Stock
-            PreparedStatement psDetail = conn.prepareStatement(sqlDetail, Statement.RETURN_GENERATED_KEYS);
-            PreparedStatement psStock = conn.prepareStatement(sqlStock);
-
-            for (PurchaseDetailModel detail : purchaseModel.getDetails()) {
-                // A. Insert Purchase Detail
-                psDetail.setInt(1, purchaseId);
-                psDetail.setInt(2, detail.getProductID());
-                psDetail.setDouble(3, detail.getQuantity());
-                psDetail.setDouble(4, detail.getRate());
-                psDetail.setDouble(5, detail.getTotal());
-                psDetail.executeUpdate(); // Execute immediately to get the ID
-
-                int purchaseDetailsId;
-                try (ResultSet rs1 = psDetail.getGeneratedKeys()) {
-                    if (rs1.next()) {
-                        purchaseDetailsId = rs1.getInt(1);
-                    } else {
-                        // Crucial: Throwing exception forces rollback
-                        throw new SQLException("Failed to retrieve Purchase Detail ID.");
+            return transactions.execute("savePurchase", tx -> {
+                Connection conn = tx.getConnection();
+
+                // 1. Insert Purchase Header
+                int purchaseId;
+                try (PreparedStatement psPurchase = conn.prepareStatement(sqlPurchase, Statement.RETURN_GENERATED_KEYS)) {
+                    Timestamp currentTimestamp = Timestamp.valueOf(LocalDateTime.now());
+
+                    psPurchase.setInt(1, purchaseModel.getSupplierID());
+                    psPurchase.setTimestamp(2, Timestamp.valueOf(purchaseModel.getPurchaseDate()));
+                    psPurchase.setString(3, purchaseModel.getInvoiceNo());
+                    psPurchase.setDouble(4, purchaseModel.getTotalAmount());
+                    psPurchase.setDouble(5, purchaseModel.getPaidAmount());
+                    psPurchase.setString(6, purchaseModel.getRemarks());
+                    psPurchase.setTimestamp(7, currentTimestamp);
+
+                    psPurchase.executeUpdate();
+
+                    // Get generated PurchaseID
+                    try (ResultSet rs = psPurchase.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            purchaseId = rs.getInt(1);
+                        } else {
+                            throw new SQLException("Failed to retrieve Purchase ID.");
+                        }
                     }
                 }
 
-                // B. Insert Stock Ledger Entry (QtyIn)
-                psStock.setInt(1, detail.getProductID());
-                psStock.setInt(2, purchaseId);
-                psStock.setInt(3, purchaseDetailsId);
-                psStock.setDouble(4, detail.getQuantity()); // QtyIn
-                psStock.setDouble(5, detail.getRate());
-                // FIX: Execute immediately after setting parameters, don't use executeBatch here
-                if(psStock.executeUpdate() == 0) {
-                    throw new SQLException("Failed to insert stock ledger entry for Product ID: " + detail.getProductID());
-                }
-
-                // C. Update TBLProducts.CurrentStock (Adds quantity)
-//                updateProductStock(conn, detail.getProductID(), detail.getQuantity());
-            }
+                // 2. Insert Purchase Details and Update Stock
+                // One multi-row INSERT for the details and one batch for the ledger, regardless of line count
+                Map<Integer, Double> stockDeltas = insertDetailsAndStock(conn, purchaseId, purchaseModel.getDetails());
 
-            // 3. Update Supplier Balance
-            double totalAmount = purchaseModel.getTotalAmount();
-            double paidAmount = purchaseModel.getPaidAmount();
-            int supplierId = purchaseModel.getSupplierID();
+                // 3. Update Supplier Balance
+                double totalAmount = purchaseModel.getTotalAmount();
+                double paidAmount = purchaseModel.getPaidAmount();
+                int supplierId = purchaseModel.getSupplierID();
 
-            double netChange = totalAmount - paidAmount;
+                double netChange = totalAmount - paidAmount;
 
-            String sqlBalance = "UPDATE TBLSuppliers SET OpeningBalance = OpeningBalance + ? WHERE SupplierID = ?";
-            try (PreparedStatement psBalance = conn.prepareStatement(sqlBalance)) {
-                psBalance.setDouble(1, netChange);
-                psBalance.setInt(2, supplierId);
-
-                if (psBalance.executeUpdate() == 0) {
-                    throw new SQLException("Failed to update supplier outstanding balance.");
-                }
-            }
-
-            conn.commit(); // Commit transaction
-            JOptionPane.showMessageDialog(null, "Purchase transaction saved successfully! ID: " + purchaseId, "Success", JOptionPane.INFORMATION_MESSAGE);
-            return true;
+                updateSupplierBalanceInTransaction(conn, supplierId, netChange, purchaseId);
+                changeFeedDao.append(conn, ChangeEntity.PURCHASE, ChangeOp.INSERT, purchaseId);
 
+                tx.afterCommit(() -> {
+                    StockAvailability.getInstance().applyCommitted(stockDeltas);
+                    RowCountCache.getInstance().adjust(RowCount.PURCHASES, 1);
+                });
+                return purchaseId;
+            });
         } catch (SQLException e) {
-            try {
-                if (conn != null) conn.rollback(); // Rollback on error
-            } catch (SQLException rollbackEx) {
-                System.err.println("Rollback failed: " + rollbackEx.getMessage());
-            }
             System.err.println("Database error during savePurchase: " + e.getMessage());
-            JOptionPane.showMessageDialog(null, "Database error: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        } finally {
-            try {
-                if (conn != null) conn.setAutoCommit(true); // Restore auto-commit
-            } catch (SQLException closeEx) {
-                // Ignore
-            }
+            throw e;
         }
     }
 
     /**
-     * Fetches a paginated list of Purchase header records, including the Supplier name.
-     * @param offset Starting point of the records.
+     * Fetches one page of Purchase header records (newest first), including the Supplier name.
+     * Keyset pagination: continues right after {@code after} instead of skipping rows with OFFSET.
+     * @param after Key of the last row of the previous page, or null for the first page.
      * @param limit Maximum number of records to return.
      * @return List of PurchaseModel.
      */
-    public List<PurchaseModel> getPurchases(int offset, int limit) {
+    @Override
+    public List<PurchaseModel> getPurchasesAfter(PageCursor after, int limit) {
         // SQL to join TBLPurchase with TBLSuppliers to get the SupplierName
         String sql = "SELECT p.PurchaseID, p.SupplierID, p.PurchaseDate, p.InvoiceNo, p.TotalAmount," +
 //                " p.DiscountType, p.DiscountValue," +
                 " p.TotalAmount, p.PaidAmount, s.SupplierName " +
                 "FROM TBLPurchase p " +
                 "JOIN TBLSuppliers s ON p.SupplierID = s.SupplierID " +
-                "ORDER BY p.PurchaseDate DESC LIMIT ? OFFSET ?";
+                (after == null ? "" : "WHERE " + PURCHASE_KEYSET.olderThan("p")) +
+                PURCHASE_KEYSET.orderNewestFirst("p") + " LIMIT ?";
 
         List<PurchaseModel> purchases = new ArrayList<>();
 
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int index = after == null ? 1 : KeysetQuery.bind(ps, 1, after);
+                ps.setInt(index, limit);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        purchases.add(mapHeaderRow(rs));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Database error fetching purchases: " + e.getMessage());
+        }
+        return purchases;
+    }
+
+    /**
+     * Fetches the headers of the given purchases, as listed by {@link #getPurchasesAfter}; IDs that no longer exist are left out.
+     */
+    @Override
+    public List<PurchaseModel> getPurchasesByIds(List<Integer> purchaseIds) {
+        List<PurchaseModel> purchases = new ArrayList<>();
+        if (purchaseIds.isEmpty()) {
+            return purchases;
+        }
+        String sql = "SELECT p.PurchaseID, p.SupplierID, p.PurchaseDate, p.InvoiceNo, p.TotalAmount, p.PaidAmount, s.SupplierName " +
+                "FROM TBLPurchase p " +
+                "JOIN TBLSuppliers s ON p.SupplierID = s.SupplierID " +
+                "WHERE p.PurchaseID IN (" + String.join(", ", Collections.nCopies(purchaseIds.size(), "?")) + ")";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ps.setInt(1, limit);
-            ps.setInt(2, offset);
-
+            for (int i = 0; i < purchaseIds.size(); i++) {
+                ps.setInt(i + 1, purchaseIds.get(i));
+            }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    purchases.add(PurchaseModel.builder()
-                            .purchaseID(rs.getInt("PurchaseID"))
-                            .supplierID(rs.getInt("SupplierID"))
-                            .purchaseDate(rs.getTimestamp("PurchaseDate").toLocalDateTime())
-                            .invoiceNo(rs.getString("InvoiceNo"))
-//                            .discountType(rs.getString("DiscountType"))
-//                            .discountValue(rs.getDouble("DiscountValue"))
-                            .totalAmount(rs.getDouble("TotalAmount"))
-                            .paidAmount(rs.getDouble("PaidAmount"))
-                            .supplierName(rs.getString("SupplierName")) // Set the joined field
-                            .build());
+                    purchases.add(mapHeaderRow(rs));
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Database error fetching purchases: " + e.getMessage());
+            System.err.println("Database error fetching purchases by ID: " + e.getMessage());
         }
         return purchases;
     }
 
+    private static PurchaseModel mapHeaderRow(ResultSet rs) throws SQLException {
+        return PurchaseModel.builder()
+                .purchaseID(rs.getInt("PurchaseID"))
+                .supplierID(rs.getInt("SupplierID"))
+                .purchaseDate(rs.getTimestamp("PurchaseDate").toLocalDateTime())
+                .invoiceNo(rs.getString("InvoiceNo"))
+//                .discountType(rs.getString("DiscountType"))
+//                .discountValue(rs.getDouble("DiscountValue"))
+                .totalAmount(rs.getDouble("TotalAmount"))
+                .paidAmount(rs.getDouble("PaidAmount"))
+                .supplierName(rs.getString("SupplierName")) // Set the joined field
+                .build();
+    }
+
+    /**
+     * Moves {@code rows} purchases towards older entries from {@code from} (null = newest), walking only the (PurchaseDate, PurchaseID) index.
+     * @return The key of the row reached, or null past the end.
+     */
+    @Override
+    public PageCursor seekOlderPurchase(PageCursor from, int rows) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            return PURCHASE_KEYSET.seekOlder(conn, from, rows);
+        }
+    }
+
+    /**
+     * Moves {@code rows} purchases towards newer entries from {@code from} (null = oldest).
+     * @return The key of the row reached, or null past the start.
+     */
+    @Override
+    public PageCursor seekNewerPurchase(PageCursor from, int rows) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            return PURCHASE_KEYSET.seekNewer(conn, from, rows);
+        }
+    }
+
+    /**
+     * Number of purchases listed before {@code cursor}; used to find the page of a date.
+     */
+    @Override
+    public int countPurchasesNewerThan(PageCursor cursor) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            return PURCHASE_KEYSET.countNewerThan(conn, cursor);
+        }
+    }
+
     /**
      * Gets the total number of records in TBLPurchase for pagination.
      * @return The total count.
      */
+    @Override
     public int getPurchaseCount() {
-        String sql = "SELECT COUNT(*) FROM TBLPurchase";
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             Statement st = conn.createStatement();
-             ResultSet rs = st.executeQuery(sql)) {
-
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching purchase count: " + e.getMessage());
-        }
-        return 0;
+        return RowCountCache.getInstance().get(RowCount.PURCHASES);
     }
 
     /**
@@ -337,6 +380,7 @@ public class PurchaseDao {
      * @param purchaseId The ID of the purchase to fetch.
      * @return The PurchaseModel with details, or null if not found.
      */
+    @Override
     public PurchaseModel getPurchaseById(int purchaseId) {
         // 1. Fetch Header Details
         String sqlHeader = "SELECT PurchaseID, SupplierID, PurchaseDate, InvoiceNo, TotalAmount, PaidAmount, Remarks, CreatedDate " +
@@ -363,7 +407,7 @@ public class PurchaseDao {
                             .build();
 
                     // 2. Fetch Purchase Detail Lines
-                    List<PurchaseDetailModel> details = getPurchaseDetails(conn, purchaseId);
+                    List<PurchaseDetailModel> details = getPurchaseDetails(conn, purchaseId, purchase.getPurchaseDate());
                     purchase.setDetails(details);
                 }
             }
@@ -378,19 +422,20 @@ public class PurchaseDao {
      * Helper method to fetch purchase detail lines for a given Purchase ID.
      * @param conn The active database connection.
      * @param purchaseId The ID of the purchase header.
+     * @param purchaseDate The purchase's date; selects the archive partition for archived purchases.
      * @return List of PurchaseDetailModel.
      */
-    private List<PurchaseDetailModel> getPurchaseDetails(Connection conn, int purchaseId) throws SQLException {
+    private List<PurchaseDetailModel> getPurchaseDetails(Connection conn, int purchaseId, LocalDateTime purchaseDate) throws SQLException {
         // NOTE: Assuming TBLProducts has ProductName.
         String sqlDetail = "SELECT pd.PurchaseDetailID, pd.ProductID, pd.Quantity, pd.Rate, pd.Total, p.ProductName " +
-                "FROM TBLPurchaseDetail pd " +
+                "FROM " + LedgerArchiveDao.detailSource(LedgerArchiveDao.Invoice.PURCHASE) + " pd " +
                 "JOIN TBLProducts p ON pd.ProductID = p.ProductID " +
-                "WHERE pd.PurchaseID = ?";
+                "ORDER BY pd.PurchaseDetailID";
 
         List<PurchaseDetailModel> details = new ArrayList<>();
 
         try (PreparedStatement psDetail = conn.prepareStatement(sqlDetail)) {
-            psDetail.setInt(1, purchaseId);
+            LedgerArchiveDao.bindDetailSource(psDetail, 1, purchaseId, purchaseDate);
 
             try (ResultSet rsDetail = psDetail.executeQuery()) {
                 while (rsDetail.next()) {
@@ -412,205 +457,303 @@ public class PurchaseDao {
     // Inside PurchaseDao.java
 
     /**
-     * Records a payment against a specific purchase and updates the supplier's balance.
-     * This operation is executed as a transaction to ensure data consistency across TBLPurchase and TBLSuppliers.
-     * * @param purchaseId The ID of the purchase receiving the payment.
+     * Records a payment against a specific purchase. It is saved like any supplier payment
+     * ({@link SupplierPaymentDao#settlePayments}): a TBLSupplierPayments row allocated to this purchase, and any
+     * amount beyond its balance allocated to the supplier's oldest open purchases.
+     * @param purchaseId The ID of the purchase receiving the payment.
      * @param paymentAmount The amount paid.
-     * @return true if the transaction was successful.
+     * @throws SQLException If the purchase does not exist or the payment could not be saved.
      */
-    public boolean updateSupplierPayment(int purchaseId, double paymentAmount) {
-        Connection conn = null;
+    @Override
+    public void updateSupplierPayment(int purchaseId, double paymentAmount) throws SQLException {
+        PurchaseModel purchase = getPurchaseSupplier(purchaseId);
+        if (purchase == null) {
+            throw new SQLException("Purchase ID " + purchaseId + " not found.");
+        }
+        SupplierPaymentModel payment = new SupplierPaymentModel(purchase.getSupplierID(), paymentAmount, "Payment for purchase " + purchase.getInvoiceNo());
+        payment.getAllocateTo().put(purchaseId, paymentAmount);
+        supplierPaymentDao.settlePayments(Collections.singletonList(payment));
+    }
 
-        try {
-            conn = MySQLConnection.getInstance().getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // --- 1. Update TBLPurchase: Increase PaidAmount ---
-            String sqlPurchase = "UPDATE TBLPurchase SET PaidAmount = PaidAmount + ? WHERE PurchaseID = ?";
-            try (PreparedStatement psPurchase = conn.prepareStatement(sqlPurchase)) {
-                psPurchase.setDouble(1, paymentAmount);
-                psPurchase.setInt(2, purchaseId);
-
-                if (psPurchase.executeUpdate() == 0) {
-                    // This means the PurchaseID was not found
-                    throw new SQLException("Failed to update purchase paid amount. Purchase ID not found.");
+    /**
+     * @return SupplierID and InvoiceNo of the purchase, or null if it does not exist.
+     */
+    private PurchaseModel getPurchaseSupplier(int purchaseId) throws SQLException {
+        String sql = "SELECT SupplierID, InvoiceNo FROM TBLPurchase WHERE PurchaseID = ?";
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, purchaseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return PurchaseModel.builder()
+                            .purchaseID(purchaseId)
+                            .supplierID(rs.getInt("SupplierID"))
+                            .invoiceNo(rs.getString("InvoiceNo"))
+                            .build();
                 }
             }
+        }
+        return null;
+    }
+    // Inside PurchaseDao.java
 
-            // --- 2. Look up SupplierID from TBLPurchase ---
-            String sqlLookup = "SELECT SupplierID FROM TBLPurchase WHERE PurchaseID = ?";
-            int supplierId;
-            try (PreparedStatement psLookup = conn.prepareStatement(sqlLookup)) {
-                psLookup.setInt(1, purchaseId);
-                ResultSet rs = psLookup.executeQuery();
-                if (!rs.next()) {
-                    // Should not happen if step 1 succeeded, but good practice to check
-                    throw new SQLException("Supplier ID not found for the given Purchase ID.");
+    /**
+     * Updates an existing purchase by writing only the difference to the stored one.
+     * Unchanged lines are not touched; removed and changed lines get one compensating 'PURCHASE_ADJUST'
+     * ledger entry each, and added lines are inserted like on a new purchase.
+     * The stored purchase is read with {@code FOR UPDATE} inside the transaction, so the diff cannot race another edit.
+     * <p>
+     * Supplier payments raise PaidAmount while the purchase may be open for editing, so when the model carries the
+     * {@link PurchaseModel#getLoadedPaidAmount() loaded amount} only the edit's change is applied to the locked row.
+     * An edit that takes PaidAmount below the payments allocated to the purchase, or moves a purchase with allocated
+     * payments to another supplier, is refused with an {@link AllocatedInvoiceException}.
+     * @param purchaseModel The PurchaseModel containing the updated header and new details.
+     * @return The row changes written, or null if the update failed.
+     */
+    @Override
+    public InvoiceUpdateResult updatePurchase(PurchaseModel purchaseModel) {
+        int purchaseId = purchaseModel.getPurchaseID();
+
+        try {
+            InvoiceUpdateResult result = transactions.execute("updatePurchase", tx -> {
+                Connection conn = tx.getConnection();
+
+                // --- A. LOCK AND READ THE STORED PURCHASE ---
+                LedgerArchiveDao.lockNotArchived(conn, LedgerArchiveDao.Invoice.PURCHASE, purchaseId);
+                PurchaseModel oldPurchase = lockPurchaseForUpdate(conn, purchaseId);
+                if (oldPurchase == null) {
+                    return null; // Nothing was written; reported below
+                }
+                // Kept local: the unit may be retried, and purchaseModel must stay as the caller passed it
+                double paidAmount = purchaseModel.getLoadedPaidAmount() == null ? purchaseModel.getPaidAmount()
+                        : oldPurchase.getPaidAmount() + purchaseModel.getPaidAmount() - purchaseModel.getLoadedPaidAmount();
+                double allocated = lockAllocatedPayments(conn, purchaseId);
+                if (allocated > 0 && oldPurchase.getSupplierID() != purchaseModel.getSupplierID()) {
+                    throw new AllocatedInvoiceException("Supplier payments are allocated to purchase " + purchaseModel.getInvoiceNo()
+                            + ", so its supplier cannot be changed.");
+                }
+                if (paidAmount < allocated - 0.005) {
+                    throw new AllocatedInvoiceException(String.format("Supplier payments of %.2f are allocated to purchase %s; "
+                            + "the paid amount cannot go below that.", allocated, purchaseModel.getInvoiceNo()));
                 }
-                supplierId = rs.getInt("SupplierID");
-            }
 
-            // --- 3. Update Supplier OutstandingBalance: Payment REDUCES Liability ---
-            // Note: The payment REDUCES the outstanding balance/debt.
-            String sqlBalance = "UPDATE TBLSuppliers SET OpeningBalance = OpeningBalance - ? WHERE SupplierID = ?";
-            try (PreparedStatement psBalance = conn.prepareStatement(sqlBalance)) {
-                psBalance.setDouble(1, paymentAmount);
-                psBalance.setInt(2, supplierId);
+                // --- B. SUPPLIER LEDGER: apply only the change of (Total - Paid) ---
+                double oldNetChange = oldPurchase.getTotalAmount() - oldPurchase.getPaidAmount();
+                double newNetChange = purchaseModel.getTotalAmount() - paidAmount;
+                if (oldPurchase.getSupplierID() == purchaseModel.getSupplierID()) {
+                    if (newNetChange != oldNetChange) {
+                        updateSupplierBalanceInTransaction(conn, purchaseModel.getSupplierID(), newNetChange - oldNetChange, purchaseId);
+                    }
+                } else {
+                    updateSupplierBalanceInTransaction(conn, oldPurchase.getSupplierID(), -oldNetChange, purchaseId);
+                    updateSupplierBalanceInTransaction(conn, purchaseModel.getSupplierID(), newNetChange, purchaseId);
+                }
 
-                if (psBalance.executeUpdate() == 0) {
-                    // This means the SupplierID was not found
-                    throw new SQLException("Failed to update supplier ledger balance. Supplier ID not found.");
+                // --- C. UPDATE PURCHASE HEADER (TBLPurchase) ---
+                String sqlUpdateHeader = "UPDATE TBLPurchase SET SupplierID=?, PurchaseDate=?, InvoiceNo=?, TotalAmount=?, PaidAmount=?, Remarks=? WHERE PurchaseID=?";
+                try (PreparedStatement ps = conn.prepareStatement(sqlUpdateHeader)) {
+                    ps.setInt(1, purchaseModel.getSupplierID());
+                    ps.setTimestamp(2, Timestamp.valueOf(purchaseModel.getPurchaseDate()));
+                    ps.setString(3, purchaseModel.getInvoiceNo());
+//                    ps.setDouble(4, purchaseModel.getActualAmount());
+    //                ps.setString(5, purchaseModel.getDiscountType());
+//                    ps.setDouble(6, purchaseModel.getDiscountValue());
+                    ps.setDouble(4, purchaseModel.getTotalAmount());
+                    ps.setDouble(5, paidAmount);
+                    ps.setString(6, purchaseModel.getRemarks());
+                    ps.setInt(7, purchaseId);
+
+                    if (ps.executeUpdate() == 0) {
+                        throw new SQLException("Failed to update purchase header.");
+                    }
                 }
-            }
+                changeFeedDao.append(conn, ChangeEntity.PURCHASE, ChangeOp.UPDATE, purchaseId);
 
-            // --- 4. Commit Transaction ---
-            conn.commit();
-            return true;
+                // --- D. DETAILS: only added, removed and changed lines ---
+                DetailDiff<PurchaseDetailModel> diff = DetailDiff.of(oldPurchase.getDetails(), purchaseModel.getDetails(),
+                        PurchaseDetailModel::getPurchaseDetailID, PurchaseDetailModel::getProductID, PurchaseDao::sameLine);
+                List<StockLedgerModel> adjustments = new ArrayList<>();
 
-        } catch (SQLException e) {
-            System.err.println("Payment transaction failed. Rolling back: " + e.getMessage());
-            try {
-                if (conn != null) {
-                    conn.rollback();
+                List<Integer> removedIds = new ArrayList<>();
+                for (PurchaseDetailModel old : diff.getRemoved()) {
+                    removedIds.add(old.getPurchaseDetailID());
+                    adjustments.add(purchaseAdjustment(purchaseId, old.getPurchaseDetailID(), old.getProductID(), -old.getQuantity(), old.getRate()));
                 }
-            } catch (SQLException ex) {
-                System.err.println("Rollback failed: " + ex.getMessage());
-            }
-            JOptionPane.showMessageDialog(null, "Payment record failed due to a database error. Details: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true); // Restore default
-                    conn.close();
+                DetailDiff.deleteByIds(conn, "TBLPurchaseDetail", "PurchaseDetailID", removedIds);
+
+                if (!diff.getChanged().isEmpty()) {
+                    String sqlUpdateDetail = "UPDATE TBLPurchaseDetail SET Quantity=?, Rate=?, Total=? WHERE PurchaseDetailID=?";
+                    try (PreparedStatement ps = conn.prepareStatement(sqlUpdateDetail)) {
+                        for (DetailDiff.Change<PurchaseDetailModel> change : diff.getChanged()) {
+                            PurchaseDetailModel old = change.getStored();
+                            PurchaseDetailModel line = change.getEdited();
+                            line.setPurchaseDetailID(old.getPurchaseDetailID());
+                            ps.setDouble(1, line.getQuantity());
+                            ps.setDouble(2, line.getRate());
+                            ps.setDouble(3, line.getTotal());
+                            ps.setInt(4, old.getPurchaseDetailID());
+                            ps.addBatch();
+
+                            double qtyReceived = line.getQuantity() - old.getQuantity();
+                            if (qtyReceived != 0) {
+                                adjustments.add(purchaseAdjustment(purchaseId, old.getPurchaseDetailID(), line.getProductID(), qtyReceived, line.getRate()));
+                            }
+                        }
+                        ps.executeBatch();
+                    }
                 }
-            } catch (SQLException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
+
+                Map<Integer, Double> stockDeltas = insertDetailsAndStock(conn, purchaseId, diff.getAdded());
+                StockLedgerDao.mergeDeltas(stockDeltas, stockLedgerDao.insertEntries(conn, adjustments));
+
+                tx.afterCommit(() -> StockAvailability.getInstance().applyCommitted(stockDeltas));
+                return new InvoiceUpdateResult(diff.getAdded().size(), diff.getChanged().size(), diff.getRemoved().size(),
+                        diff.getUnchanged(), diff.getAdded().size() + adjustments.size());
+            });
+            if (result == null) {
+                JOptionPane.showMessageDialog(null, "Cannot find original purchase to update.", "DB Error", JOptionPane.ERROR_MESSAGE);
             }
+            return result;
+        } catch (SQLException e) {
+            System.err.println("Purchase Update Transaction failed. Rolled back: " + e.getMessage());
+            JOptionPane.showMessageDialog(null, e instanceof ArchivedInvoiceException || e instanceof AllocatedInvoiceException ? e.getMessage()
+                    : "Purchase update failed due to a database error.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            return null;
         }
     }
-    // Inside PurchaseDao.java
+
+    private static boolean sameLine(PurchaseDetailModel stored, PurchaseDetailModel edited) {
+        return stored.getQuantity() == edited.getQuantity()
+                && stored.getRate() == edited.getRate()
+                && stored.getTotal() == edited.getTotal();
+    }
 
     /**
-     * Updates an existing purchase transaction, managing ledger reversal and detail replacement.
-     * @param purchaseModel The PurchaseModel containing the updated header and new details.
-     * @return true if the update transaction was successful.
+     * Compensating ledger entry for an edited purchase line.
+     * @param qtyReceived Additional quantity received (positive = QtyIn, negative = stock taken back out as QtyOut).
      */
-    public boolean updatePurchase(PurchaseModel purchaseModel) {
-        Connection conn = null;
-        int purchaseId = purchaseModel.getPurchaseID();
+    private static StockLedgerModel purchaseAdjustment(int purchaseId, int purchaseDetailId, int productId, double qtyReceived, double rate) {
+        return StockLedgerModel.builder()
+                .productID(productId)
+                .refType("PURCHASE_ADJUST")
+                .refID(purchaseId)
+                .refDetailID(purchaseDetailId)
+                .qtyIn(qtyReceived > 0 ? qtyReceived : 0)
+                .qtyOut(qtyReceived < 0 ? -qtyReceived : 0)
+                .rate(rate)
+                .build();
+    }
 
-        // 1. Fetch OLD totals for reversal
-        PurchaseModel oldPurchase = getOldPurchaseTotals(purchaseId);
-        if (oldPurchase == null) {
-            JOptionPane.showMessageDialog(null, "Cannot find original purchase to update.", "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+    /**
+     * Reads the header fields and the detail lines of a purchase inside the caller's transaction, locking the rows.
+     * @return null if the purchase does not exist.
+     */
+    private PurchaseModel lockPurchaseForUpdate(Connection conn, int purchaseId) throws SQLException {
+        PurchaseModel purchase = lockPurchaseHeader(conn, purchaseId);
+        if (purchase == null) {
+            return null;
         }
 
-        try {
-            conn = MySQLConnection.getInstance().getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // --- A. LEDGER REVERSAL ---
-            double oldNetChange = oldPurchase.getTotalAmount() - oldPurchase.getPaidAmount();
-            // Reversal: Subtracting a debt (negative netChange) increases the balance, so we add the negative.
-            updateSupplierBalanceInTransaction(conn, oldPurchase.getSupplierID(), -oldNetChange);
-
-            // --- B. DELETE OLD DETAILS ---
-            String sqlDeleteDetails = "DELETE FROM TBLPurchaseDetail WHERE PurchaseID = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sqlDeleteDetails)) {
-                ps.setInt(1, purchaseId);
-                ps.executeUpdate();
-            }
-
-            // --- C. UPDATE PURCHASE HEADER (TBLPurchase) ---
-            String sqlUpdateHeader = "UPDATE TBLPurchase SET SupplierID=?, PurchaseDate=?, InvoiceNo=?, TotalAmount=?, PaidAmount=?, Remarks=? WHERE PurchaseID=?";
-            try (PreparedStatement ps = conn.prepareStatement(sqlUpdateHeader)) {
-                ps.setInt(1, purchaseModel.getSupplierID());
-                ps.setTimestamp(2, Timestamp.valueOf(purchaseModel.getPurchaseDate()));
-                ps.setString(3, purchaseModel.getInvoiceNo());
-//                ps.setDouble(4, purchaseModel.getActualAmount());
-//                ps.setString(5, purchaseModel.getDiscountType());
-//                ps.setDouble(6, purchaseModel.getDiscountValue());
-                ps.setDouble(4, purchaseModel.getTotalAmount());
-                ps.setDouble(5, purchaseModel.getPaidAmount());
-                ps.setString(6, purchaseModel.getRemarks());
-                ps.setInt(7, purchaseId);
-
-                if (ps.executeUpdate() == 0) {
-                    throw new SQLException("Failed to update purchase header.");
+        String sqlDetails = "SELECT PurchaseDetailID, ProductID, Quantity, Rate, Total FROM TBLPurchaseDetail WHERE PurchaseID = ? ORDER BY PurchaseDetailID FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sqlDetails)) {
+            ps.setInt(1, purchaseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    purchase.getDetails().add(PurchaseDetailModel.builder()
+                            .purchaseDetailID(rs.getInt("PurchaseDetailID"))
+                            .purchaseID(purchaseId)
+                            .productID(rs.getInt("ProductID"))
+                            .quantity(rs.getDouble("Quantity"))
+                            .rate(rs.getDouble("Rate"))
+                            .total(rs.getDouble("Total"))
+                            .build());
                 }
             }
+        }
+        return purchase;
+    }
 
-            // --- D. INSERT NEW DETAILS ---
-            String sqlInsertDetails = "INSERT INTO TBLPurchaseDetail (PurchaseID, ProductID, Quantity, Rate, Total) VALUES (?, ?, ?, ?, ?)";
-            try (PreparedStatement psDetail = conn.prepareStatement(sqlInsertDetails)) {
-                for (PurchaseDetailModel detail : purchaseModel.getDetails()) {
-                    psDetail.setInt(1, purchaseId);
-                    psDetail.setInt(2, detail.getProductID());
-                    psDetail.setDouble(3, detail.getQuantity());
-                    psDetail.setDouble(4, detail.getRate());
-                    psDetail.setDouble(5, detail.getTotal());
-                    psDetail.addBatch();
+    /**
+     * Reads SupplierID, TotalAmount and PaidAmount of a purchase inside the caller's transaction, locking the row.
+     * @return null if the purchase does not exist.
+     */
+    private static PurchaseModel lockPurchaseHeader(Connection conn, int purchaseId) throws SQLException {
+        String sql = "SELECT SupplierID, TotalAmount, PaidAmount FROM TBLPurchase WHERE PurchaseID = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, purchaseId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
                 }
-                psDetail.executeBatch();
+                return PurchaseModel.builder()
+                        .purchaseID(purchaseId)
+                        .supplierID(rs.getInt("SupplierID"))
+                        .totalAmount(rs.getDouble("TotalAmount"))
+                        .paidAmount(rs.getDouble("PaidAmount"))
+                        .details(new ArrayList<>())
+                        .build();
             }
-
-            // --- E. APPLY NEW LEDGER CHANGE ---
-            double newNetChange = purchaseModel.getTotalAmount() - purchaseModel.getPaidAmount();
-            updateSupplierBalanceInTransaction(conn, purchaseModel.getSupplierID(), newNetChange);
-
-            // --- F. COMMIT ---
-            conn.commit();
-            return true;
-
-        } catch (SQLException e) {
-            System.err.println("Purchase Update Transaction failed. Rolling back: " + e.getMessage());
-            try { if (conn != null) conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
-            JOptionPane.showMessageDialog(null, "Purchase update failed due to a database error.", "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        } finally {
-            try { if (conn != null) conn.setAutoCommit(true); conn.close(); } catch (SQLException e) { e.printStackTrace(); }
         }
     }
-    // Inside PurchaseDao.java
 
     /**
-     * Fetches only the necessary header fields of an existing purchase for ledger reversal.
+     * Total of the supplier payments allocated to a purchase, read with the allocation rows locked.
      */
-    private PurchaseModel getOldPurchaseTotals(int purchaseId) {
-        String sql = "SELECT TotalAmount, PaidAmount, SupplierID FROM TBLPurchase WHERE PurchaseID = ?";
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
+    private static double lockAllocatedPayments(Connection conn, int purchaseId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(Amount), 0) FROM TBLSupplierPaymentAllocation WHERE PurchaseID = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, purchaseId);
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return PurchaseModel.builder()
-                            .totalAmount(rs.getDouble("TotalAmount"))
-                            .paidAmount(rs.getDouble("PaidAmount"))
-                            .supplierID(rs.getInt("SupplierID"))
-                            .build();
-                }
+                rs.next();
+                return rs.getDouble(1);
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching old purchase totals: " + e.getMessage());
         }
-        return null;
     }
 
     /**
-     * Helper method to update the supplier balance using an existing connection/transaction.
+     * Inserts purchase details and the matching QtyIn stock ledger entries within an active transaction.
+     * Detail rows are written with one multi-row INSERT (generated PurchaseDetailIDs are mapped back in order)
+     * and ledger rows with one batch.
+     * @return The per-product stock change, published to the stock cache after commit.
      */
-    private void updateSupplierBalanceInTransaction(Connection conn, int supplierId, double netChange) throws SQLException {
-        String sqlBalance = "UPDATE TBLSuppliers SET OpeningBalance = OpeningBalance + ? WHERE SupplierID = ?";
-        try (PreparedStatement psBalance = conn.prepareStatement(sqlBalance)) {
-            psBalance.setDouble(1, netChange);
-            psBalance.setInt(2, supplierId);
-
-            if (psBalance.executeUpdate() == 0) {
-                throw new SQLException("Failed to update supplier outstanding balance (ID: " + supplierId + ")");
-            }
+    private Map<Integer, Double> insertDetailsAndStock(Connection conn, int purchaseId, List<PurchaseDetailModel> details) throws SQLException {
+        if (details.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        // A. Insert Purchase Details
+        List<Object[]> detailRows = new ArrayList<>(details.size());
+        for (PurchaseDetailModel detail : details) {
+            detailRows.add(new Object[]{purchaseId, detail.getProductID(), detail.getQuantity(), detail.getRate(), detail.getTotal()});
+        }
+        int[] purchaseDetailIds = MultiRowInsert.insertReturningKeys(conn, "TBLPurchaseDetail", DETAIL_COLUMNS, detailRows);
+
+        // B. Insert Stock Ledger Entries (QtyIn)
+        List<StockLedgerModel> ledgerEntries = new ArrayList<>(details.size());
+        for (int i = 0; i < details.size(); i++) {
+            PurchaseDetailModel detail = details.get(i);
+            detail.setPurchaseDetailID(purchaseDetailIds[i]);
+            detail.setPurchaseID(purchaseId);
+            ledgerEntries.add(StockLedgerModel.builder()
+                    .productID(detail.getProductID())
+                    .refType("PURCHASE")
+                    .refID(purchaseId)
+                    .refDetailID(purchaseDetailIds[i])
+                    .qtyIn(detail.getQuantity()) // QtyIn
+                    .rate(detail.getRate())
+                    .build());
         }
+        // C. Also adds the quantities to TBLStockBalance
+        return stockLedgerDao.insertEntries(conn, ledgerEntries);
+    }
+
+    /**
+     * Helper method to update the supplier balance using an existing connection/transaction.
+     * The change is appended to the balance journal (no lock on the TBLSuppliers row); the background
+     * roll-up folds it into OpeningBalance.
+     */
+    private void updateSupplierBalanceInTransaction(Connection conn, int supplierId, double netChange, int purchaseId) throws SQLException {
+        balanceJournalDao.post(conn, BalanceJournalDao.Party.SUPPLIER, supplierId, netChange, "PURCHASE", purchaseId);
+        changeFeedDao.append(conn, ChangeEntity.SUPPLIER, ChangeOp.UPDATE, supplierId);
     }
 }
\ No newline at end of file
@@ -1,8 +1,17 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.cache.StockAvailability;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
+import raven.modal.demo.model.InvoiceUpdateResult;
+import raven.modal.demo.model.PageCursor;
 import raven.modal.demo.model.SaleDetailModel;
 import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.model.StockLedgerModel;
 import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.repository.SaleRepository;
 
 import javax.swing.*;
 import java.sql.Connection;
@@ -12,107 +21,102 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class SaleDao {
+public class SaleDao implements SaleRepository {
+
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
+    private static final String[] DETAIL_COLUMNS = {"SaleID", "ProductID", "Quantity", "Rate", "Total"};
+    private static final KeysetQuery SALE_KEYSET = new KeysetQuery("TBLSale", "SaleDate", "SaleID");
+
+    private final StockLedgerDao stockLedgerDao = new StockLedgerDao();
+    private final BalanceJournalDao balanceJournalDao = new BalanceJournalDao();
+    private final TransactionExecutor transactions = TransactionExecutor.getInstance();
 
     /**
      * Saves a new sale transaction.
      * This is a complex transaction involving TBLSale, TBLSaleDetail, TBLStockLedger, and TBLCustomers.
+     * Runs on the {@link SaveQueue} thread, so failures are rolled back and rethrown rather than shown in a dialog.
+     * @return The generated SaleID.
      */
-    public boolean saveSale(SaleModel saleModel) {
-        Connection conn = null;
+    @Override
+    public int saveSale(SaleModel saleModel) throws SQLException {
+        return saveSale(saleModel, null);
+    }
 
+    /**
+     * Saves a new sale unless a sale with the same {@code clientRef} was saved already, so a save whose outcome
+     * is unknown (the connection dropped during the commit) can be run again, e.g. from the offline journal.
+     * @param clientRef Key the terminal gave the sale, or null to save it unconditionally.
+     * @return The generated SaleID, or the ID of the sale saved earlier under {@code clientRef}.
+     */
+    public int saveSale(SaleModel saleModel, String clientRef) throws SQLException {
         // 1. Calculate the net change to the Customer's balance
         // A Sale DECREASES the customer's balance (they owe less)
         // Net change = Total Owed (TotalAmount) - Total Paid (ReceivedAmount)
         double netReceivableChange = saleModel.getTotalAmount() - saleModel.getReceivedAmount();
 
         try {
-            conn = MySQLConnection.getInstance().getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // --- A. INSERT SALE HEADER (TBLSale) ---
-            String sqlHeader = "INSERT INTO TBLSale (CustomerID, SaleDate, InvoiceNo, TotalAmount, ReceivedAmount, Remarks) VALUES (?, ?, ?, ?, ?, ?)";
-            int saleId;
-            try (PreparedStatement ps = conn.prepareStatement(sqlHeader, Statement.RETURN_GENERATED_KEYS)) {
-                ps.setInt(1, saleModel.getCustomerID());
-                ps.setTimestamp(2, Timestamp.valueOf(saleModel.getSaleDate()));
-                ps.setString(3, saleModel.getInvoiceNo());
-                ps.setDouble(4, saleModel.getTotalAmount());
-                ps.setDouble(5, saleModel.getReceivedAmount());
-                ps.setString(6, saleModel.getRemarks());
-                ps.executeUpdate();
-
-                try (ResultSet rs = ps.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        saleId = rs.getInt(1);
-                        saleModel.setSaleID(saleId);
-                    } else {
-                        throw new SQLException("Failed to retrieve Sale ID.");
+            return transactions.execute("saveSale", tx -> {
+                Connection conn = tx.getConnection();
+
+                if (clientRef != null) {
+                    // The unique index makes a concurrent save of the same sale wait here, then see the committed row
+                    try (PreparedStatement ps = conn.prepareStatement("SELECT SaleID FROM TBLSale WHERE ClientRef = ? FOR UPDATE")) {
+                        ps.setString(1, clientRef);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            if (rs.next()) {
+                                saleModel.setSaleID(rs.getInt(1));
+                                return rs.getInt(1);
+                            }
+                        }
                     }
                 }
-            }
-
-            // --- B. INSERT SALE DETAILS AND UPDATE STOCK LEDGER ---
-            String sqlDetail = "INSERT INTO TBLSaleDetail (SaleID, ProductID, Quantity, Rate, Total) VALUES (?, ?, ?, ?, ?)";
-            String sqlStock = "INSERT INTO TBLStockLedger (ProductID, RefType, RefID, RefDetailID, QtyOut, Rate) VALUES (?, 'SALE', ?, ?, ?, ?)";
-
-            try (PreparedStatement psDetail = conn.prepareStatement(sqlDetail, Statement.RETURN_GENERATED_KEYS);
-                 PreparedStatement psStock = conn.prepareStatement(sqlStock)) {
 
-                for (SaleDetailModel detail : saleModel.getDetails()) {
-                    // i. Insert Sale Detail
-                    psDetail.setInt(1, saleId);
-                    psDetail.setInt(2, detail.getProductID());
-                    psDetail.setDouble(3, detail.getQuantity());
-                    psDetail.setDouble(4, detail.getRate());
-                    psDetail.setDouble(5, detail.getTotal());
-                    psDetail.executeUpdate();
-
-                    int saleDetailId;
-                    try (ResultSet rs = psDetail.getGeneratedKeys()) {
+                // --- A. INSERT SALE HEADER (TBLSale) ---
+                String sqlHeader = "INSERT INTO TBLSale (CustomerID, SaleDate, InvoiceNo, TotalAmount, ReceivedAmount, Remarks, ClientRef) VALUES (?, ?, ?, ?, ?, ?, ?)";
+                int saleId;
+                try (PreparedStatement ps = conn.prepareStatement(sqlHeader, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setInt(1, saleModel.getCustomerID());
+                    ps.setTimestamp(2, Timestamp.valueOf(saleModel.getSaleDate()));
+                    ps.setString(3, saleModel.getInvoiceNo());
+                    ps.setDouble(4, saleModel.getTotalAmount());
+                    ps.setDouble(5, saleModel.getReceivedAmount());
+                    ps.setString(6, saleModel.getRemarks());
+                    ps.setString(7, clientRef);
+                    ps.executeUpdate();
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
                         if (rs.next()) {
-                            saleDetailId = rs.getInt(1);
+                            saleId = rs.getInt(1);
+                            saleModel.setSaleID(saleId);
                         } else {
-                            throw new SQLException("Failed to retrieve Sale Detail ID.");
+                            throw new SQLException("Failed to retrieve Sale ID.");
                         }
                     }
-
-                    // ii. Insert Stock Ledger Entry (QtyOut)
-                    psStock.setInt(1, detail.getProductID());
-                    psStock.setInt(2, saleId);
-                    psStock.setInt(3, saleDetailId);
-                    psStock.setDouble(4, detail.getQuantity()); // QtyOut
-                    psStock.setDouble(5, detail.getRate());
-                    psStock.executeUpdate();
-
-                    // TODO: CRITICAL STEP: Update TBLProducts.CurrentStock - Omitted for now, but necessary
                 }
-            }
-
-            // --- C. UPDATE CUSTOMER LEDGER (TBLCustomers) ---
-            // A Sale INCREASES the customer's OutstandingBalance (they owe more)
-            updateCustomerBalanceInTransaction(conn, saleModel.getCustomerID(), netReceivableChange);
-
-            // --- D. COMMIT TRANSACTION ---
-            conn.commit();
-            return true;
 
+                // --- B. INSERT SALE DETAILS AND UPDATE STOCK LEDGER ---
+                // One multi-row INSERT for the details and one batch for the ledger, regardless of line count
+                Map<Integer, Double> stockDeltas = insertNewDetailsAndStock(conn, saleId, saleModel.getDetails());
+
+                // --- C. UPDATE CUSTOMER LEDGER (TBLCustomers) ---
+                // A Sale INCREASES the customer's OutstandingBalance (they owe more)
+                updateCustomerBalanceInTransaction(conn, saleModel.getCustomerID(), netReceivableChange, saleId);
+                changeFeedDao.append(conn, ChangeEntity.SALE, ChangeOp.INSERT, saleId);
+
+                tx.afterCommit(() -> {
+                    StockAvailability.getInstance().applyCommitted(stockDeltas);
+                    RowCountCache.getInstance().adjust(RowCount.SALES, 1);
+                });
+                return saleId;
+            });
         } catch (SQLException e) {
-            System.err.println("Sale Save Transaction failed. Rolling back: " + e.getMessage());
-            try {
-                if (conn != null) conn.rollback();
-            } catch (SQLException ex) { ex.printStackTrace(); }
-            JOptionPane.showMessageDialog(null, "Sale record failed due to a database error. Details: " + e.getMessage(), "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                }
-            } catch (SQLException e) { e.printStackTrace(); }
+            System.err.println("Sale Save Transaction failed. Rolled back: " + e.getMessage());
+            throw e;
         }
     }
 
@@ -120,75 +124,60 @@ public class SaleDao {
 
     /**
      * Helper method to update the customer balance using an existing connection/transaction.
+     * The change is appended to the balance journal, so concurrent sales to the same customer do not
+     * queue on the TBLCustomers row; the background roll-up folds it into OpeningBalance.
      */
-    private void updateCustomerBalanceInTransaction(Connection conn, int customerId, double netChange) throws SQLException {
-        // TBLCustomers.OutstandingBalance is increased by the net receivable change (Total - Received)
-        String sqlBalance = "UPDATE TBLCustomers SET OpeningBalance = OpeningBalance + ? WHERE CustomerID = ?";
-        try (PreparedStatement psBalance = conn.prepareStatement(sqlBalance)) {
-            psBalance.setDouble(1, netChange);
-            psBalance.setInt(2, customerId);
-
-            if (psBalance.executeUpdate() == 0) {
-                throw new SQLException("Failed to update customer outstanding balance (ID: " + customerId + ")");
-            }
-        }
+    private void updateCustomerBalanceInTransaction(Connection conn, int customerId, double netChange, int saleId) throws SQLException {
+        // The customer's outstanding balance is increased by the net receivable change (Total - Received)
+        balanceJournalDao.post(conn, BalanceJournalDao.Party.CUSTOMER, customerId, netChange, "SALE", saleId);
+        changeFeedDao.append(conn, ChangeEntity.CUSTOMER, ChangeOp.UPDATE, customerId);
     }
 
     /**
      * Checks the current stock level for a product.
-     * In a real system, this would often be complex (FIFO, LIFO, etc.), but here
-     * we will calculate it by summing QtyIn and subtracting QtyOut from TBLStockLedger.
+     * Reads the materialized TBLStockBalance row (kept current inside every sale/purchase transaction)
+     * instead of summing the whole TBLStockLedger history.
      */
+    @Override
     public double getAvailableStock(int productId) {
-        // NOTE: This query calculates stock based on the TBLStockLedger history.
-        // If TBLProducts holds the current stock, use that field instead for performance.
-        String sql = "SELECT SUM(QtyIn) - SUM(QtyOut) AS CurrentStock FROM TBLStockLedger WHERE ProductID = ?";
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setInt(1, productId);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getDouble("CurrentStock");
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error fetching available stock: " + e.getMessage());
-        }
-        return 0.0;
+        return stockLedgerDao.getStockOnHand(productId);
     }
     /**
-     * Fetches a paginated list of sales history.
+     * Fetches one page of sales history (newest first).
+     * Keyset pagination: continues right after {@code after} instead of skipping rows with OFFSET.
+     * @param after Key of the last row of the previous page, or null for the first page.
      */
-    public List<SaleModel> getSales(int offset, int limit) {
+    @Override
+    public List<SaleModel> getSalesAfter(PageCursor after, int limit) {
         String sql = "SELECT s.*, c.CustomerName " +
                 "FROM TBLSale s " +
                 "JOIN TBLCustomers c ON s.CustomerID = c.CustomerID " +
-                "ORDER BY s.SaleDate DESC LIMIT ? OFFSET ?";
+                (after == null ? "" : "WHERE " + SALE_KEYSET.olderThan("s")) +
+                SALE_KEYSET.orderNewestFirst("s") + " LIMIT ?";
 
         List<SaleModel> sales = new ArrayList<>();
 
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                int index = after == null ? 1 : KeysetQuery.bind(ps, 1, after);
+                ps.setInt(index, limit);
 
-            ps.setInt(1, limit);
-            ps.setInt(2, offset);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        double total = rs.getDouble("TotalAmount");
+                        double received = rs.getDouble("ReceivedAmount");
 
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    double total = rs.getDouble("TotalAmount");
-                    double received = rs.getDouble("ReceivedAmount");
-
-                    sales.add(SaleModel.builder()
-                            .saleID(rs.getInt("SaleID"))
-                            .customerID(rs.getInt("CustomerID"))
-                            .customerName(rs.getString("CustomerName"))
-                            .saleDate(rs.getTimestamp("SaleDate").toLocalDateTime())
-                            .invoiceNo(rs.getString("InvoiceNo"))
-                            .totalAmount(total)
-                            .receivedAmount(received)
-                            .remarks(rs.getString("Remarks"))
-                            .build());
+                        sales.add(SaleModel.builder()
+                                .saleID(rs.getInt("SaleID"))
+                                .customerID(rs.getInt("CustomerID"))
+                                .customerName(rs.getString("CustomerName"))
+                                .saleDate(rs.getTimestamp("SaleDate").toLocalDateTime())
+                                .invoiceNo(rs.getString("InvoiceNo"))
+                                .totalAmount(total)
+                                .receivedAmount(received)
+                                .remarks(rs.getString("Remarks"))
+                                .build());
+                    }
                 }
             }
         } catch (SQLException e) {
@@ -196,31 +185,54 @@ public class SaleDao {
         }
         return sales;
     }
-    // TODO: Implement getSales(), getSaleCount(), getSaleForEdit(), updateSale(), deleteSale()
+
+    /**
+     * Moves {@code rows} sales towards older entries from {@code from} (null = newest), walking only the (SaleDate, SaleID) index.
+     * @return The key of the row reached, or null past the end.
+     */
+    @Override
+    public PageCursor seekOlderSale(PageCursor from, int rows) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            return SALE_KEYSET.seekOlder(conn, from, rows);
+        }
+    }
+
+    /**
+     * Moves {@code rows} sales towards newer entries from {@code from} (null = oldest).
+     * @return The key of the row reached, or null past the start.
+     */
+    @Override
+    public PageCursor seekNewerSale(PageCursor from, int rows) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            return SALE_KEYSET.seekNewer(conn, from, rows);
+        }
+    }
+
+    /**
+     * Number of sales listed before {@code cursor}; used to find the page of a date.
+     */
+    @Override
+    public int countSalesNewerThan(PageCursor cursor) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            return SALE_KEYSET.countNewerThan(conn, cursor);
+        }
+    }
+
 // Inside SaleDao.java
 
     /**
      * Returns the total number of sale records.
      */
+    @Override
     public int getSaleCount() {
-        String sql = "SELECT COUNT(*) FROM TBLSale";
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql);
-             ResultSet rs = ps.executeQuery()) {
-
-            if (rs.next()) {
-                return rs.getInt(1);
-            }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching sale count: " + e.getMessage());
-        }
-        return 0;
+        return RowCountCache.getInstance().get(RowCount.SALES);
     }
     // Inside SaleDao.java
 
     /**
      * Fetches sale header and all associated details for editing.
      */
+    @Override
     public SaleModel getSaleForEdit(int saleId) {
         SaleModel sale = null;
         try (Connection conn = MySQLConnection.getInstance().getConnection()) {
@@ -246,6 +258,7 @@ public class SaleDao {
                                 // Assuming TotalAmount includes GST, ActualAmount is net/taxable base
                                 .totalAmount(rs.getDouble("TotalAmount"))
                                 .receivedAmount(rs.getDouble("ReceivedAmount"))
+                                .loadedReceivedAmount(rs.getDouble("ReceivedAmount"))
                                 .remarks(rs.getString("Remarks"))
                                 .details(new ArrayList<>())
                                 // TODO: Load discountType, discountValue from TBLSale if added later
@@ -257,14 +270,15 @@ public class SaleDao {
             }
 
             // 2. Fetch Detail Data (Line Items)
+            // Lines of sales in archived periods come from TBLSaleDetailArchive
             String sqlDetails = "SELECT sd.*, p.ProductName, pt.quarterQty as UnitPerCarton " +
-                    "FROM TBLSaleDetail sd " +
+                    "FROM " + LedgerArchiveDao.detailSource(LedgerArchiveDao.Invoice.SALE) + " sd " +
                     "JOIN TBLProducts p ON sd.ProductID = p.ProductID " +
                     "JOIN TBLPeckingType pt ON p.PeckingTypeId = pt.PeekingTypeId " +
-                    "WHERE sd.SaleID = ?";
+                    "ORDER BY sd.SaleDetailID";
 
             try (PreparedStatement psDetails = conn.prepareStatement(sqlDetails)) {
-                psDetails.setInt(1, saleId);
+                LedgerArchiveDao.bindDetailSource(psDetails, 1, saleId, sale.getSaleDate());
                 try (ResultSet rs = psDetails.executeQuery()) {
                     while (rs.next()) {
                         SaleDetailModel detail = SaleDetailModel.builder()
@@ -291,279 +305,323 @@ public class SaleDao {
     // Inside SaleDao.java
 
     /**
-     * Updates an existing sale transaction. Reverses old stock/ledger and applies new.
+     * Updates an existing sale by writing only the difference to the stored one.
+     * Unchanged lines are not touched; removed and changed lines get one compensating 'SALE_ADJUST'
+     * ledger entry each, and added lines are inserted like on a new sale.
+     * The stored sale is read with {@code FOR UPDATE} inside the transaction, so the diff cannot race another edit.
+     * <p>
+     * Receipts raise ReceivedAmount while the sale may be open for editing, so when the model carries the
+     * {@link SaleModel#getLoadedReceivedAmount() loaded amount} only the edit's change is applied to the locked row.
+     * An edit that takes ReceivedAmount below the receipts allocated to the sale, or moves a sale with allocated
+     * receipts to another customer, is refused with an {@link AllocatedInvoiceException}.
+     * @return The row changes written, or null if the update failed.
      */
-    public boolean updateSale(SaleModel saleModel) {
-        Connection conn = null;
+    @Override
+    public InvoiceUpdateResult updateSale(SaleModel saleModel) {
         int saleId = saleModel.getSaleID();
 
-        // 1. Fetch OLD totals for reversal
-        SaleModel oldSale = getOldSaleTotals(saleId); // Need to implement this helper
-        if (oldSale == null) {
-            JOptionPane.showMessageDialog(null, "Cannot find original sale to update.", "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        }
+        try {
+            InvoiceUpdateResult result = transactions.execute("updateSale", tx -> {
+                Connection conn = tx.getConnection();
+
+                // --- A. LOCK AND READ THE STORED SALE ---
+                LedgerArchiveDao.lockNotArchived(conn, LedgerArchiveDao.Invoice.SALE, saleId);
+                SaleModel oldSale = lockSaleForUpdate(conn, saleId);
+                if (oldSale == null) {
+                    return null; // Nothing was written; reported below
+                }
+                // Kept local: the unit may be retried, and saleModel must stay as the caller passed it
+                double receivedAmount = saleModel.getLoadedReceivedAmount() == null ? saleModel.getReceivedAmount()
+                        : oldSale.getReceivedAmount() + saleModel.getReceivedAmount() - saleModel.getLoadedReceivedAmount();
+                double allocated = lockAllocatedReceipts(conn, saleId);
+                if (allocated > 0 && oldSale.getCustomerID() != saleModel.getCustomerID()) {
+                    throw new AllocatedInvoiceException("Receipts are allocated to sale " + saleModel.getInvoiceNo()
+                            + ", so its customer cannot be changed.");
+                }
+                if (receivedAmount < allocated - 0.005) {
+                    throw new AllocatedInvoiceException(String.format("Receipts of %.2f are allocated to sale %s; "
+                            + "the received amount cannot go below that.", allocated, saleModel.getInvoiceNo()));
+                }
 
-        // New Net Receivable change
-        double newNetReceivableChange = saleModel.getTotalAmount() - saleModel.getReceivedAmount();
-        // Old Net Receivable change
-        double oldNetReceivableChange = oldSale.getTotalAmount() - oldSale.getReceivedAmount();
+                // --- B. CUSTOMER LEDGER: apply only the change of (Total - Received) ---
+                double oldNetReceivableChange = oldSale.getTotalAmount() - oldSale.getReceivedAmount();
+                double newNetReceivableChange = saleModel.getTotalAmount() - receivedAmount;
+                if (oldSale.getCustomerID() == saleModel.getCustomerID()) {
+                    if (newNetReceivableChange != oldNetReceivableChange) {
+                        updateCustomerBalanceInTransaction(conn, saleModel.getCustomerID(), newNetReceivableChange - oldNetReceivableChange, saleId);
+                    }
+                } else {
+                    updateCustomerBalanceInTransaction(conn, oldSale.getCustomerID(), -oldNetReceivableChange, saleId);
+                    updateCustomerBalanceInTransaction(conn, saleModel.getCustomerID(), newNetReceivableChange, saleId);
+                }
 
-        try {
-            conn = MySQLConnection.getInstance().getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // --- A. LEDGER REVERSAL ---
-            // Reversal: The original sale ADDED oldNetReceivableChange. Subtract it back.
-            updateCustomerBalanceInTransaction(conn, oldSale.getCustomerID(), -oldNetReceivableChange);
-
-            // --- B. STOCK REVERSAL & DETAIL DELETION ---
-            // Reversing stock for a sale means inserting a QtyIn entry (a 'Sale Reversal')
-            reverseStockAndDetails(conn, saleId, oldSale.getDetails()); // Need to implement this helper
-
-            // --- C. UPDATE HEADER (TBLSale) ---
-            // NOTE: SQL needs to match the fields in TBLSale (InvoiceNo, TotalAmount, ReceivedAmount, Remarks, etc.)
-            String sqlUpdateHeader = "UPDATE TBLSale SET CustomerID=?, SaleDate=?, InvoiceNo=?, TotalAmount=?, ReceivedAmount=?, Remarks=? WHERE SaleID=?";
-            try (PreparedStatement ps = conn.prepareStatement(sqlUpdateHeader)) {
-                ps.setInt(1, saleModel.getCustomerID());
-                ps.setTimestamp(2, Timestamp.valueOf(saleModel.getSaleDate()));
-                ps.setString(3, saleModel.getInvoiceNo());
-                ps.setDouble(4, saleModel.getTotalAmount());
-                ps.setDouble(5, saleModel.getReceivedAmount());
-                ps.setString(6, saleModel.getRemarks());
-                ps.setInt(7, saleId);
-
-                if (ps.executeUpdate() == 0) {
-                    throw new SQLException("Failed to update sale header.");
+                // --- C. UPDATE HEADER (TBLSale) ---
+                String sqlUpdateHeader = "UPDATE TBLSale SET CustomerID=?, SaleDate=?, InvoiceNo=?, TotalAmount=?, ReceivedAmount=?, Remarks=? WHERE SaleID=?";
+                try (PreparedStatement ps = conn.prepareStatement(sqlUpdateHeader)) {
+                    ps.setInt(1, saleModel.getCustomerID());
+                    ps.setTimestamp(2, Timestamp.valueOf(saleModel.getSaleDate()));
+                    ps.setString(3, saleModel.getInvoiceNo());
+                    ps.setDouble(4, saleModel.getTotalAmount());
+                    ps.setDouble(5, receivedAmount);
+                    ps.setString(6, saleModel.getRemarks());
+                    ps.setInt(7, saleId);
+
+                    if (ps.executeUpdate() == 0) {
+                        throw new SQLException("Failed to update sale header.");
+                    }
                 }
-            }
+                changeFeedDao.append(conn, ChangeEntity.SALE, ChangeOp.UPDATE, saleId);
 
-            // --- D. INSERT NEW DETAILS AND UPDATE STOCK LEDGER ---
-            insertNewDetailsAndStock(conn, saleId, saleModel.getDetails()); // Need to implement this helper
+                // --- D. DETAILS: only added, removed and changed lines ---
+                DetailDiff<SaleDetailModel> diff = DetailDiff.of(oldSale.getDetails(), saleModel.getDetails(),
+                        SaleDetailModel::getSaleDetailID, SaleDetailModel::getProductID, SaleDao::sameLine);
+                List<StockLedgerModel> adjustments = new ArrayList<>();
 
-            // --- E. APPLY NEW LEDGER CHANGE ---
-            // Apply: The new sale ADDS the newNetReceivableChange.
-            updateCustomerBalanceInTransaction(conn, saleModel.getCustomerID(), newNetReceivableChange);
+                List<Integer> removedIds = new ArrayList<>();
+                for (SaleDetailModel old : diff.getRemoved()) {
+                    removedIds.add(old.getSaleDetailID());
+                    adjustments.add(saleAdjustment(saleId, old.getSaleDetailID(), old.getProductID(), -old.getQuantity(), old.getRate()));
+                }
+                DetailDiff.deleteByIds(conn, "TBLSaleDetail", "SaleDetailID", removedIds);
+
+                if (!diff.getChanged().isEmpty()) {
+                    String sqlUpdateDetail = "UPDATE TBLSaleDetail SET Quantity=?, Rate=?, Total=? WHERE SaleDetailID=?";
+                    try (PreparedStatement ps = conn.prepareStatement(sqlUpdateDetail)) {
+                        for (DetailDiff.Change<SaleDetailModel> change : diff.getChanged()) {
+                            SaleDetailModel old = change.getStored();
+                            SaleDetailModel line = change.getEdited();
+                            line.setSaleDetailID(old.getSaleDetailID());
+                            ps.setDouble(1, line.getQuantity());
+                            ps.setDouble(2, line.getRate());
+                            ps.setDouble(3, line.getTotal());
+                            ps.setInt(4, old.getSaleDetailID());
+                            ps.addBatch();
+
+                            double qtySold = line.getQuantity() - old.getQuantity();
+                            if (qtySold != 0) {
+                                adjustments.add(saleAdjustment(saleId, old.getSaleDetailID(), line.getProductID(), qtySold, line.getRate()));
+                            }
+                        }
+                        ps.executeBatch();
+                    }
+                }
 
-            // --- F. COMMIT ---
-            conn.commit();
-            return true;
+                Map<Integer, Double> stockDeltas = insertNewDetailsAndStock(conn, saleId, diff.getAdded());
+                StockLedgerDao.mergeDeltas(stockDeltas, stockLedgerDao.insertEntries(conn, adjustments));
 
+                tx.afterCommit(() -> StockAvailability.getInstance().applyCommitted(stockDeltas));
+                return new InvoiceUpdateResult(diff.getAdded().size(), diff.getChanged().size(), diff.getRemoved().size(),
+                        diff.getUnchanged(), diff.getAdded().size() + adjustments.size());
+            });
+            if (result == null) {
+                JOptionPane.showMessageDialog(null, "Cannot find original sale to update.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            }
+            return result;
         } catch (SQLException e) {
-            System.err.println("Sale Update Transaction failed. Rolling back: " + e.getMessage());
-            try { if (conn != null) conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
-            JOptionPane.showMessageDialog(null, "Sale update failed due to a database error.", "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        } finally {
-            try { if (conn != null) conn.setAutoCommit(true); conn.close(); } catch (SQLException e) { e.printStackTrace(); }
+            System.err.println("Sale Update Transaction failed. Rolled back: " + e.getMessage());
+            JOptionPane.showMessageDialog(null, e instanceof ArchivedInvoiceException || e instanceof AllocatedInvoiceException ? e.getMessage()
+                    : "Sale update failed due to a database error.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            return null;
         }
     }
-    // Inside SaleDao.java
+
+    private static boolean sameLine(SaleDetailModel stored, SaleDetailModel edited) {
+        return stored.getQuantity() == edited.getQuantity()
+                && stored.getRate() == edited.getRate()
+                && stored.getTotal() == edited.getTotal();
+    }
 
     /**
-     * Deletes a sale transaction, performing ledger and stock reversal.
+     * Compensating ledger entry for an edited sale line.
+     * @param qtySold Additional quantity sold (positive = QtyOut, negative = stock returned as QtyIn).
      */
-    public boolean deleteSale(int saleId) {
-        Connection conn = null;
+    private static StockLedgerModel saleAdjustment(int saleId, int saleDetailId, int productId, double qtySold, double rate) {
+        return StockLedgerModel.builder()
+                .productID(productId)
+                .refType("SALE_ADJUST")
+                .refID(saleId)
+                .refDetailID(saleDetailId)
+                .qtyIn(qtySold < 0 ? -qtySold : 0)
+                .qtyOut(qtySold > 0 ? qtySold : 0)
+                .rate(rate)
+                .build();
+    }
 
-        // 1. Fetch OLD totals and details for reversal
-        SaleModel oldSale = getOldSaleForReversal(saleId); // Need a helper that gets both header and details
-        if (oldSale == null) {
-            JOptionPane.showMessageDialog(null, "Cannot find original sale to delete.", "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
+    /**
+     * Reads the header fields and the detail lines of a sale inside the caller's transaction, locking the rows.
+     * @return null if the sale does not exist.
+     */
+    private SaleModel lockSaleForUpdate(Connection conn, int saleId) throws SQLException {
+        SaleModel sale = lockSaleHeader(conn, saleId);
+        if (sale == null) {
+            return null;
         }
 
-        // Old Net Receivable change
-        double oldNetReceivableChange = oldSale.getTotalAmount() - oldSale.getReceivedAmount();
-
-        try {
-            conn = MySQLConnection.getInstance().getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // --- A. LEDGER REVERSAL ---
-            // Reversal: Subtract the change that the original sale added.
-            updateCustomerBalanceInTransaction(conn, oldSale.getCustomerID(), -oldNetReceivableChange);
-
-            // --- B. STOCK REVERSAL & DETAIL DELETION ---
-            reverseStockAndDetails(conn, saleId, oldSale.getDetails());
-
-            // --- C. DELETE SALE HEADER (TBLSale) ---
-            String sqlDeleteHeader = "DELETE FROM TBLSale WHERE SaleID = ?";
-            try (PreparedStatement ps = conn.prepareStatement(sqlDeleteHeader)) {
-                ps.setInt(1, saleId);
-                if (ps.executeUpdate() == 0) {
-                    throw new SQLException("Failed to delete sale header.");
+        String sqlDetails = "SELECT SaleDetailID, ProductID, Quantity, Rate, Total FROM TBLSaleDetail WHERE SaleID = ? ORDER BY SaleDetailID FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sqlDetails)) {
+            ps.setInt(1, saleId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    sale.getDetails().add(SaleDetailModel.builder()
+                            .saleDetailID(rs.getInt("SaleDetailID"))
+                            .saleID(saleId)
+                            .productID(rs.getInt("ProductID"))
+                            .quantity(rs.getDouble("Quantity"))
+                            .rate(rs.getDouble("Rate"))
+                            .total(rs.getDouble("Total"))
+                            .build());
                 }
             }
-
-            // --- D. COMMIT ---
-            conn.commit();
-            return true;
-
-        } catch (SQLException e) {
-            System.err.println("Sale Deletion Transaction failed. Rolling back: " + e.getMessage());
-            try { if (conn != null) conn.rollback(); } catch (SQLException ex) { ex.printStackTrace(); }
-            JOptionPane.showMessageDialog(null, "Sale deletion failed due to a database error.", "DB Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        } finally {
-            try {
-                if (conn != null) {
-                    conn.setAutoCommit(true);
-                    conn.close();
-                }
-            } catch (SQLException e) { e.printStackTrace(); }
         }
+        return sale;
     }
-    // Inside SaleDao.java
 
     /**
-     * Inserts QtyIn entries to TBLStockLedger to reverse the sale's stock impact,
-     * then deletes TBLSaleDetail and TBLStockLedger entries linked to the SaleID.
+     * Reads CustomerID, TotalAmount and ReceivedAmount of a sale inside the caller's transaction, locking the row.
+     * @return null if the sale does not exist.
      */
-    private void reverseStockAndDetails(Connection conn, int saleId, List<SaleDetailModel> oldDetails) throws SQLException {
-
-        // 1. Insert QtyIn to reverse the original stock outflow
-        String sqlStockIn = "INSERT INTO TBLStockLedger (ProductID, RefType, RefID, QtyIn, Rate) VALUES (?, 'SALE_REVERSAL', ?, ?, ?)";
-        try (PreparedStatement psStockIn = conn.prepareStatement(sqlStockIn)) {
-            for (SaleDetailModel detail : oldDetails) {
-                psStockIn.setInt(1, detail.getProductID());
-                psStockIn.setInt(2, saleId);
-                psStockIn.setDouble(3, detail.getQuantity()); // QtyIn
-                psStockIn.setDouble(4, detail.getRate());
-                psStockIn.addBatch();
-
-                // TODO: CRITICAL STEP: Update TBLProducts.CurrentStock - Add back the quantity
-            }
-            psStockIn.executeBatch();
-        }
-
-        // 2. Delete old TBLSaleDetail entries
-        String sqlDeleteDetails = "DELETE FROM TBLSaleDetail WHERE SaleID = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sqlDeleteDetails)) {
+    private static SaleModel lockSaleHeader(Connection conn, int saleId) throws SQLException {
+        String sql = "SELECT CustomerID, TotalAmount, ReceivedAmount FROM TBLSale WHERE SaleID = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, saleId);
-            ps.executeUpdate();
-        }
-
-        // 3. Delete old TBLStockLedger entries (The original QtyOut records)
-        // NOTE: Deleting the original QtyOut records while keeping the QtyIn reversal
-        // simplifies history, but might be debated. For now, we will delete the original
-        // TBLStockLedger records linked to the SaleID as well, leaving only the reversal entry.
-        String sqlDeleteStock = "DELETE FROM TBLStockLedger WHERE RefID = ? AND RefType = 'SALE'";
-        try (PreparedStatement ps = conn.prepareStatement(sqlDeleteStock)) {
-            ps.setInt(1, saleId);
-            ps.executeUpdate();
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return SaleModel.builder()
+                        .saleID(saleId)
+                        .customerID(rs.getInt("CustomerID"))
+                        .totalAmount(rs.getDouble("TotalAmount"))
+                        .receivedAmount(rs.getDouble("ReceivedAmount"))
+                        .details(new ArrayList<>())
+                        .build();
+            }
         }
     }
-    // Helper method
+
     /**
-     * Fetches only the necessary header fields of an existing sale for ledger reversal.
-     * Used to calculate the old net receivable change (TotalAmount - ReceivedAmount).
+     * Total of the receipts allocated to a sale, read with the allocation rows locked.
      */
-    private SaleModel getOldSaleTotals(int saleId) {
-        String sql = "SELECT CustomerID, TotalAmount, ReceivedAmount FROM TBLSale WHERE SaleID = ?";
-
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
+    private static double lockAllocatedReceipts(Connection conn, int saleId) throws SQLException {
+        String sql = "SELECT COALESCE(SUM(Amount), 0) FROM TBLCustomerReceiptAllocation WHERE SaleID = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, saleId);
-
             try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    return SaleModel.builder()
-                            .saleID(saleId)
-                            .customerID(rs.getInt("CustomerID"))
-                            .totalAmount(rs.getDouble("TotalAmount"))
-                            .receivedAmount(rs.getDouble("ReceivedAmount"))
-                            .build();
-                }
+                rs.next();
+                return rs.getDouble(1);
             }
-        } catch (SQLException e) {
-            System.err.println("Error fetching old sale totals: " + e.getMessage());
         }
-        return null;
     }
+    // Inside SaleDao.java
+
     /**
-     * Fetches header and details for stock/ledger reversal during update/delete.
-     * Fetches required fields to reverse stock (QtyOut) and ledger.
+     * Deletes a sale transaction, performing ledger and stock reversal.
      */
-    private SaleModel getOldSaleForReversal(int saleId) {
-        SaleModel sale = getOldSaleTotals(saleId); // Reuse the header fetching logic
-        if (sale == null) {
-            return null;
-        }
+    @Override
+    public boolean deleteSale(int saleId) {
+        try {
+            Boolean deleted = transactions.execute("deleteSale", tx -> {
+                Connection conn = tx.getConnection();
+                LedgerArchiveDao.lockNotArchived(conn, LedgerArchiveDao.Invoice.SALE, saleId);
+
+                // Read the totals for the reversal with the row locked, so a receipt cannot change them meanwhile
+                SaleModel oldSale = lockSaleHeader(conn, saleId);
+                if (oldSale == null) {
+                    return null; // Nothing was written; reported below
+                }
+                double oldNetReceivableChange = oldSale.getTotalAmount() - oldSale.getReceivedAmount();
 
-        // Fetch only the details required for reversal (ProductID, Quantity, Rate)
-        String sqlDetails = "SELECT SaleDetailID, ProductID, Quantity, Rate FROM TBLSaleDetail WHERE SaleID = ?";
+                // --- A. LEDGER REVERSAL ---
+                // Reversal: Subtract the change that the original sale added.
+                updateCustomerBalanceInTransaction(conn, oldSale.getCustomerID(), -oldNetReceivableChange, saleId);
 
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement psDetails = conn.prepareStatement(sqlDetails)) {
+                // --- B. STOCK REVERSAL & DETAIL DELETION ---
+                Map<Integer, Double> stockDeltas = deleteDetailsAndStock(conn, saleId);
 
-            psDetails.setInt(1, saleId);
+                // Receipts applied to this sale stay on the customer's balance as an unallocated advance
+                String sqlDeleteAllocations = "DELETE FROM TBLCustomerReceiptAllocation WHERE SaleID = ?";
+                try (PreparedStatement ps = conn.prepareStatement(sqlDeleteAllocations)) {
+                    ps.setInt(1, saleId);
+                    ps.executeUpdate();
+                }
 
-            List<SaleDetailModel> details = new ArrayList<>();
-            try (ResultSet rs = psDetails.executeQuery()) {
-                while (rs.next()) {
-                    details.add(SaleDetailModel.builder()
-                            .saleDetailID(rs.getInt("SaleDetailID"))
-                            .productID(rs.getInt("ProductID"))
-                            .quantity(rs.getDouble("Quantity")) // Qty to reverse
-                            .rate(rs.getDouble("Rate"))
-                            .build());
+                // --- C. DELETE SALE HEADER (TBLSale) ---
+                String sqlDeleteHeader = "DELETE FROM TBLSale WHERE SaleID = ?";
+                try (PreparedStatement ps = conn.prepareStatement(sqlDeleteHeader)) {
+                    ps.setInt(1, saleId);
+                    if (ps.executeUpdate() == 0) {
+                        throw new SQLException("Failed to delete sale header.");
+                    }
                 }
+                changeFeedDao.append(conn, ChangeEntity.SALE, ChangeOp.DELETE, saleId);
+
+                tx.afterCommit(() -> {
+                    StockAvailability.getInstance().applyCommitted(stockDeltas);
+                    RowCountCache.getInstance().adjust(RowCount.SALES, -1);
+                });
+                return true;
+            });
+            if (deleted == null) {
+                JOptionPane.showMessageDialog(null, "Cannot find original sale to delete.", "DB Error", JOptionPane.ERROR_MESSAGE);
+                return false;
             }
-            sale.setDetails(details);
-
+            return true;
         } catch (SQLException e) {
-            System.err.println("Error fetching old sale details for reversal: " + e.getMessage());
-            return null;
+            System.err.println("Sale Deletion Transaction failed. Rolled back: " + e.getMessage());
+            JOptionPane.showMessageDialog(null, e instanceof ArchivedInvoiceException ? e.getMessage()
+                    : "Sale deletion failed due to a database error.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            return false;
         }
-        return sale;
+    }
+    // Inside SaleDao.java
+
+    /**
+     * Deletes the sale's TBLSaleDetail rows and all of its TBLStockLedger entries; the ledger DAO backs
+     * their quantities out of TBLStockBalance. 'SALE_REVERSAL' rows were written by older versions.
+     */
+    private Map<Integer, Double> deleteDetailsAndStock(Connection conn, int saleId) throws SQLException {
+        String sqlDeleteDetails = "DELETE FROM TBLSaleDetail WHERE SaleID = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sqlDeleteDetails)) {
+            ps.setInt(1, saleId);
+            ps.executeUpdate();
+        }
+        return stockLedgerDao.deleteEntries(conn, saleId, "SALE", "SALE_ADJUST", "SALE_REVERSAL");
     }
     /**
      * Inserts new sale details and corresponding QtyOut stock ledger entries.
      * Executes within an active transaction (uses provided Connection conn).
+     * All detail rows go out as one multi-row INSERT (generated SaleDetailIDs are mapped back in order)
+     * and all ledger rows as one batch, so the round trips do not grow with the number of lines.
+     * @return The per-product stock change, published to the stock cache after commit.
      */
-    private void insertNewDetailsAndStock(Connection conn, int saleId, List<SaleDetailModel> newDetails) throws SQLException {
-
-        // SQL for TBLSaleDetail insertion (Total amount is the Net price after line discount)
-        String sqlDetail = "INSERT INTO TBLSaleDetail (SaleID, ProductID, Quantity, Rate, Total) VALUES (?, ?, ?, ?, ?)";
-
-        // SQL for TBLStockLedger insertion (This is the QtyOut entry)
-        String sqlStock = "INSERT INTO TBLStockLedger (ProductID, RefType, RefID, RefDetailID, QtyOut, Rate) VALUES (?, 'SALE', ?, ?, ?, ?)";
-
-        try (PreparedStatement psDetail = conn.prepareStatement(sqlDetail, Statement.RETURN_GENERATED_KEYS);
-             PreparedStatement psStock = conn.prepareStatement(sqlStock)) {
-
-            for (SaleDetailModel detail : newDetails) {
-
-                // i. Insert Sale Detail
-                psDetail.setInt(1, saleId);
-                psDetail.setInt(2, detail.getProductID());
-                psDetail.setDouble(3, detail.getQuantity());
-                psDetail.setDouble(4, detail.getRate());
-                psDetail.setDouble(5, detail.getTotal());
-                psDetail.executeUpdate();
-
-                int saleDetailId;
-                try (ResultSet rs = psDetail.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        saleDetailId = rs.getInt(1);
-                    } else {
-                        throw new SQLException("Failed to retrieve new Sale Detail ID during update insertion.");
-                    }
-                }
-
-                // ii. Insert Stock Ledger Entry (QtyOut)
-                psStock.setInt(1, detail.getProductID());
-                psStock.setInt(2, saleId);
-                psStock.setInt(3, saleDetailId);
-                psStock.setDouble(4, detail.getQuantity()); // QtyOut
-                psStock.setDouble(5, detail.getRate());
-                psStock.executeUpdate();
+    private Map<Integer, Double> insertNewDetailsAndStock(Connection conn, int saleId, List<SaleDetailModel> newDetails) throws SQLException {
+        if (newDetails.isEmpty()) {
+            return new HashMap<>();
+        }
 
-                // TODO: CRITICAL STEP: Update TBLProducts.CurrentStock - Subtract the quantity
-            }
+        // i. Insert Sale Details (Total amount is the Net price after line discount)
+        List<Object[]> detailRows = new ArrayList<>(newDetails.size());
+        for (SaleDetailModel detail : newDetails) {
+            detailRows.add(new Object[]{saleId, detail.getProductID(), detail.getQuantity(), detail.getRate(), detail.getTotal()});
+        }
+        int[] saleDetailIds = MultiRowInsert.insertReturningKeys(conn, "TBLSaleDetail", DETAIL_COLUMNS, detailRows);
+
+        // ii. Insert Stock Ledger Entries (QtyOut)
+        List<StockLedgerModel> ledgerEntries = new ArrayList<>(newDetails.size());
+        for (int i = 0; i < newDetails.size(); i++) {
+            SaleDetailModel detail = newDetails.get(i);
+            detail.setSaleDetailID(saleDetailIds[i]);
+            detail.setSaleID(saleId);
+            ledgerEntries.add(StockLedgerModel.builder()
+                    .productID(detail.getProductID())
+                    .refType("SALE")
+                    .refID(saleId)
+                    .refDetailID(saleDetailIds[i])
+                    .qtyOut(detail.getQuantity()) // QtyOut
+                    .rate(detail.getRate())
+                    .build());
         }
+        return stockLedgerDao.insertEntries(conn, ledgerEntries);
     }
 
 }
@@ -0,0 +1,61 @@
+package raven.modal.demo.dao;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs invoice saves (sale/purchase transactions) off the Event Dispatch Thread.
+ * <p>
+ * Saves run one at a time on a single thread, in the order they were handed off, so two invoices of the
+ * same terminal never compete for the same stock and balance rows. The forms submit an invoice snapshot,
+ * clear themselves for the next entry and follow the outcome through the returned future.
+ */
+public class SaveQueue {
+
+    private final ExecutorService executor;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private SaveQueue() {
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "mart-save");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class InstanceHolder {
+        static final SaveQueue instance = new SaveQueue();
+    }
+
+    public static SaveQueue getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Queues a save behind the ones already handed off.
+     * @return A future completing with the save's result, or exceptionally with the DAO's exception.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> save) {
+        pending.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return save.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                pending.decrementAndGet();
+            }
+        }, executor);
+    }
+
+    /**
+     * @return Number of saves queued or running.
+     */
+    public int getPending() {
+        return pending.get();
+    }
+}
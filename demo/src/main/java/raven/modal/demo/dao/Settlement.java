@@ -0,0 +1,172 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
+import raven.modal.demo.model.PaymentAllocationModel;
+import raven.modal.demo.model.SettlementResult;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+/**
+ * The settlement run shared by {@link SupplierPaymentDao} (payments against purchases) and
+ * {@link CustomerReceiptDao} (receipts against sales). Each side only supplies its tables, journal party,
+ * journal RefType and change feed entities; the flow takes a fixed number of statements however many invoices
+ * it settles:
+ * <ol>
+ *     <li>one multi-row insert of the payment headers,</li>
+ *     <li>one locking read of the open invoices of all parties involved ({@link OpenInvoices#load}),</li>
+ *     <li>the split computed in memory by a {@link FifoAllocator} per party, named invoices first,</li>
+ *     <li>one batched UPDATE with a single paid change per invoice ({@link OpenInvoices#applyPaid}),</li>
+ *     <li>multi-row inserts of the allocations, the balance journal and the change feed.</li>
+ * </ol>
+ */
+enum Settlement {
+    SUPPLIER_PAYMENT("TBLSupplierPayments", new String[]{"SupplierID", "PaymentDate", "Amount", "Remarks"},
+            "TBLSupplierPaymentAllocation", new String[]{"PaymentID", "PurchaseID", "Amount"},
+            OpenInvoices.PURCHASE, BalanceJournalDao.Party.SUPPLIER, "PAYMENT",
+            ChangeEntity.SUPPLIER_PAYMENT, ChangeEntity.PURCHASE, ChangeEntity.SUPPLIER,
+            "payment to supplier", "purchase", "supplier"),
+    CUSTOMER_RECEIPT("TBLCustomerReceipts", new String[]{"CustomerID", "ReceiptDate", "Amount", "Remarks"},
+            "TBLCustomerReceiptAllocation", new String[]{"ReceiptID", "SaleID", "Amount"},
+            OpenInvoices.SALE, BalanceJournalDao.Party.CUSTOMER, "RECEIPT",
+            ChangeEntity.CUSTOMER_RECEIPT, ChangeEntity.SALE, ChangeEntity.CUSTOMER,
+            "receipt for customer", "sale", "customer");
+
+    private static final BalanceJournalDao balanceJournalDao = new BalanceJournalDao();
+    private static final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
+    private final String paymentTable;
+    private final String[] paymentColumns;
+    private final String allocationTable;
+    private final String[] allocationColumns;
+    private final OpenInvoices openInvoices;
+    private final BalanceJournalDao.Party party;
+    private final String refType;
+    private final ChangeEntity paymentEntity;
+    private final ChangeEntity invoiceEntity;
+    private final ChangeEntity partyEntity;
+    private final String paymentName;   // For error messages, e.g. "payment to supplier"
+    private final String invoiceName;
+    private final String partyName;
+
+    Settlement(String paymentTable, String[] paymentColumns, String allocationTable, String[] allocationColumns,
+               OpenInvoices openInvoices, BalanceJournalDao.Party party, String refType,
+               ChangeEntity paymentEntity, ChangeEntity invoiceEntity, ChangeEntity partyEntity,
+               String paymentName, String invoiceName, String partyName) {
+        this.paymentTable = paymentTable;
+        this.paymentColumns = paymentColumns;
+        this.allocationTable = allocationTable;
+        this.allocationColumns = allocationColumns;
+        this.openInvoices = openInvoices;
+        this.party = party;
+        this.refType = refType;
+        this.paymentEntity = paymentEntity;
+        this.invoiceEntity = invoiceEntity;
+        this.partyEntity = partyEntity;
+        this.paymentName = paymentName;
+        this.invoiceName = invoiceName;
+        this.partyName = partyName;
+    }
+
+    /**
+     * Records the payments and settles them in the caller's transaction, then sets {@link Payment#id} of each.
+     */
+    SettlementResult settle(Connection conn, List<Payment> payments) throws SQLException {
+        // --- A. Record the payment headers ---
+        List<Object[]> paymentRows = new ArrayList<>(payments.size());
+        for (Payment payment : payments) {
+            LocalDateTime date = payment.date == null ? LocalDateTime.now() : payment.date;
+            paymentRows.add(new Object[]{payment.partyId, Timestamp.valueOf(date), payment.amount, payment.remarks});
+        }
+        int[] paymentIds = MultiRowInsert.insertReturningKeys(conn, paymentTable, paymentColumns, paymentRows);
+
+        // --- B. Allocation: named invoices first, then FIFO, computed from one read ---
+        Map<Integer, FifoAllocator> allocators = new TreeMap<>();
+        for (Payment payment : payments) {
+            allocators.put(payment.partyId, new FifoAllocator());
+        }
+        openInvoices.load(conn, allocators);
+
+        List<PaymentAllocationModel> allocations = new ArrayList<>();
+        double unallocated = 0;
+        for (int i = 0; i < payments.size(); i++) {
+            Payment payment = payments.get(i);
+            FifoAllocator allocator = allocators.get(payment.partyId);
+            double remaining = payment.amount;
+            if (payment.allocateTo != null) {
+                for (Map.Entry<Integer, Double> entry : payment.allocateTo.entrySet()) {
+                    if (entry.getValue() > remaining) {
+                        throw new SQLException("Allocations of " + paymentName + " " + payment.partyId + " exceed its amount.");
+                    }
+                    try {
+                        // An amount beyond the invoice's balance stays on the payment and is allocated FIFO below
+                        remaining -= entry.getValue() - allocator.allocateTo(paymentIds[i], entry.getKey(), entry.getValue(), allocations);
+                    } catch (IllegalArgumentException e) {
+                        throw new SQLException("Invoice " + entry.getKey() + " is not an open " + invoiceName + " of "
+                                + partyName + " " + payment.partyId + ".");
+                    }
+                }
+            }
+            unallocated += allocator.allocate(paymentIds[i], remaining, allocations);
+        }
+
+        // --- C. Apply the paid amounts, one batch for all invoices ---
+        int invoicesSettled = openInvoices.applyPaid(conn, allocators);
+
+        List<Object[]> allocationRows = new ArrayList<>(allocations.size());
+        double allocated = 0;
+        for (PaymentAllocationModel allocation : allocations) {
+            allocationRows.add(new Object[]{allocation.getPaymentID(), allocation.getInvoiceID(), allocation.getAmount()});
+            allocated += allocation.getAmount();
+        }
+        MultiRowInsert.insert(conn, allocationTable, allocationColumns, allocationRows);
+
+        // --- D. Reduce the parties' balances (journaled, rolled up in the background) ---
+        int[] partyIds = new int[payments.size()];
+        double[] amounts = new double[payments.size()];
+        for (int i = 0; i < payments.size(); i++) {
+            partyIds[i] = payments.get(i).partyId;
+            amounts[i] = -payments.get(i).amount;
+        }
+        balanceJournalDao.postAll(conn, party, partyIds, amounts, refType, paymentIds);
+
+        // --- E. Change feed: the payments, the invoices they paid and the parties' balances ---
+        changeFeedDao.append(conn, paymentEntity, ChangeOp.INSERT, paymentIds);
+        changeFeedDao.append(conn, invoiceEntity, ChangeOp.UPDATE,
+                allocations.stream().mapToInt(PaymentAllocationModel::getInvoiceID).distinct().toArray());
+        changeFeedDao.append(conn, partyEntity, ChangeOp.UPDATE, IntStream.of(partyIds).distinct().toArray());
+
+        for (int i = 0; i < payments.size(); i++) {
+            payments.get(i).id = paymentIds[i];
+        }
+        return new SettlementResult(payments.size(), invoicesSettled, allocations.size(), allocated, unallocated);
+    }
+
+    /**
+     * One supplier payment or customer receipt, as {@link #settle} needs it.
+     */
+    static final class Payment {
+        final int partyId;
+        final LocalDateTime date;
+        final double amount;
+        final String remarks;
+        final Map<Integer, Double> allocateTo; // Invoice ID -> amount to apply to it before FIFO; may be null
+        int id;                                // Set by settle
+
+        Payment(int partyId, LocalDateTime date, double amount, String remarks, Map<Integer, Double> allocateTo) {
+            this.partyId = partyId;
+            this.date = date;
+            this.amount = amount;
+            this.remarks = remarks;
+            this.allocateTo = allocateTo;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.model.StockPositionModel;
+import raven.modal.demo.mysql.MySQLConnection;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Month-end closing snapshots of TBLStockLedger.
+ * <p>
+ * Closing a month writes every product's quantity and purchase cost basis at the month end into
+ * TBLStockClosingLine (with one TBLStockClosing header row per period). Stock-as-of-date and valuation
+ * queries then read the latest closing on or before the date plus only the ledger movements after it,
+ * instead of aggregating the whole ledger. Each closing is built from the previous one plus the month's
+ * movements, so closing a month costs one month of ledger rows.
+ * <p>
+ * Movements are dated by their document (SaleDate / PurchaseDate); entries of other RefTypes by their
+ * CreatedDate. An invoice saved, edited or deleted with a date inside a closed month makes that closing
+ * stale: {@link #verify()} finds such periods and {@link #rebuildFrom(LocalDate)} rewrites them.
+ */
+public class StockClosingDao {
+
+    private static final String SALE_TYPES = "'SALE', 'SALE_ADJUST', 'SALE_REVERSAL'";
+    private static final String PURCHASE_TYPES = "'PURCHASE', 'PURCHASE_ADJUST'";
+    private static final LocalDate BEGINNING = LocalDate.of(1970, 1, 1);
+    private static final double TOLERANCE = 0.0001;
+
+    /**
+     * Closes the given month, starting from the previous closing.
+     * Rewrites the month if it was closed already; use {@link #rebuildFrom} when later months are closed too.
+     * @return The period end written.
+     */
+    public LocalDate closeMonth(YearMonth month) throws SQLException {
+        LocalDate periodEnd = month.atEndOfMonth();
+        if (!periodEnd.isBefore(LocalDate.now())) {
+            throw new SQLException("Cannot close " + month + " before it has ended.");
+        }
+        return TransactionExecutor.getInstance().execute("closeStockMonth", tx -> {
+            Connection conn = tx.getConnection();
+            LocalDate later = findPeriod(conn, "PeriodEnd > ?", "ASC", periodEnd);
+            if (later != null) {
+                throw new SQLException("Period " + later + " is already closed; rebuild from " + periodEnd + " instead.");
+            }
+            closeFromPrevious(conn, periodEnd);
+            return periodEnd;
+        });
+    }
+
+    /**
+     * Closes every ended month after the latest closing (or since the first ledger movement if nothing
+     * was closed yet). Cheap when there is nothing to do, so it can run at every start-up.
+     * @return Number of months closed.
+     */
+    public int closeEndedMonths() throws SQLException {
+        YearMonth lastEnded = YearMonth.now().minusMonths(1);
+        YearMonth next;
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            LocalDate latest = findPeriod(conn, "PeriodEnd <= ?", "DESC", LocalDate.now());
+            if (latest != null) {
+                next = YearMonth.from(latest).plusMonths(1);
+            } else {
+                LocalDate first = getFirstMovementDate(conn);
+                if (first == null) {
+                    return 0;
+                }
+                next = YearMonth.from(first);
+            }
+        }
+
+        int closed = 0;
+        for (YearMonth month = next; !month.isAfter(lastEnded); month = month.plusMonths(1)) {
+            LocalDate periodEnd = month.atEndOfMonth();
+            boolean written = TransactionExecutor.getInstance().execute("closeStockMonth", tx -> {
+                Connection conn = tx.getConnection();
+                // Another terminal may have closed it meanwhile
+                if (findPeriod(conn, "PeriodEnd >= ?", "ASC", periodEnd) != null) {
+                    return false;
+                }
+                closeFromPrevious(conn, periodEnd);
+                return true;
+            });
+            if (written) {
+                closed++;
+            }
+        }
+        return closed;
+    }
+
+    /**
+     * Runs {@link #closeEndedMonths()} on the {@link DaoExecutor}, e.g. at start-up.
+     */
+    public void closeEndedMonthsAsync() {
+        DaoExecutor.getInstance().submit(this::closeEndedMonths).whenComplete((months, e) -> {
+            if (e != null) {
+                System.err.println("Month-end stock closing failed: " + e.getMessage());
+            } else if (months > 0) {
+                System.out.println("Closed stock for " + months + " month(s)");
+            }
+        });
+    }
+
+    /**
+     * Stock of every product at the end of {@code date}: the latest closing on or before it plus the movements since.
+     * @return ProductID -> position, for every product that ever had a movement.
+     */
+    public Map<Integer, StockPositionModel> getStockAsOf(LocalDate date) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            LocalDate closing = findPeriod(conn, "PeriodEnd <= ?", "DESC", date);
+            Map<Integer, StockPositionModel> positions = closing == null ? new TreeMap<>() : loadClosing(conn, closing, null);
+            addMovements(conn, positions, closing, date, null);
+            return positions;
+        }
+    }
+
+    /**
+     * Stock of one product at the end of {@code date}.
+     */
+    public StockPositionModel getStockAsOf(int productId, LocalDate date) throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            LocalDate closing = findPeriod(conn, "PeriodEnd <= ?", "DESC", date);
+            Map<Integer, StockPositionModel> positions = closing == null ? new TreeMap<>() : loadClosing(conn, closing, productId);
+            addMovements(conn, positions, closing, date, productId);
+            StockPositionModel position = positions.get(productId);
+            return position != null ? position : StockPositionModel.builder().productID(productId).build();
+        }
+    }
+
+    /**
+     * Recomputes every closed period from the ledger (one pass over it, month by month) and compares it
+     * with the stored closing; a mismatch means movements were added, changed or removed after closing.
+     * @return Period ends whose stored closing is stale, oldest first.
+     */
+    public List<LocalDate> verify() throws SQLException {
+        return TransactionExecutor.getInstance().execute("verifyStockClosings", tx -> {
+            Connection conn = tx.getConnection();
+            List<LocalDate> stale = new ArrayList<>();
+            Map<Integer, StockPositionModel> expected = new TreeMap<>();
+            LocalDate previous = null;
+            for (LocalDate periodEnd : getClosedPeriods(conn)) {
+                addMovements(conn, expected, previous, periodEnd, null);
+                if (!samePositions(expected, loadClosing(conn, periodEnd, null))) {
+                    stale.add(periodEnd);
+                }
+                previous = periodEnd;
+            }
+            return stale;
+        });
+    }
+
+    /**
+     * Rewrites the closing of {@code from} and of every later closed period, in order, in one transaction.
+     * @return Number of periods rewritten.
+     */
+    public int rebuildFrom(LocalDate from) throws SQLException {
+        return TransactionExecutor.getInstance().execute("rebuildStockClosings", tx -> {
+            Connection conn = tx.getConnection();
+            LocalDate previous = findPeriod(conn, "PeriodEnd < ?", "DESC", from);
+            Map<Integer, StockPositionModel> positions = previous == null ? new TreeMap<>() : loadClosing(conn, previous, null);
+            int rebuilt = 0;
+            for (LocalDate periodEnd : getClosedPeriods(conn)) {
+                if (periodEnd.isBefore(from)) {
+                    continue;
+                }
+                addMovements(conn, positions, previous, periodEnd, null);
+                writeClosing(conn, periodEnd, positions);
+                previous = periodEnd;
+                rebuilt++;
+            }
+            return rebuilt;
+        });
+    }
+
+    /**
+     * @return All closed period ends, oldest first.
+     */
+    public List<LocalDate> getClosedPeriods() throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            return getClosedPeriods(conn);
+        }
+    }
+
+    private List<LocalDate> getClosedPeriods(Connection conn) throws SQLException {
+        List<LocalDate> periods = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT PeriodEnd FROM TBLStockClosing ORDER BY PeriodEnd");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                periods.add(rs.getDate("PeriodEnd").toLocalDate());
+            }
+        }
+        return periods;
+    }
+
+    private void closeFromPrevious(Connection conn, LocalDate periodEnd) throws SQLException {
+        LocalDate previous = findPeriod(conn, "PeriodEnd < ?", "DESC", periodEnd);
+        Map<Integer, StockPositionModel> positions = previous == null ? new TreeMap<>() : loadClosing(conn, previous, null);
+        addMovements(conn, positions, previous, periodEnd, null);
+        writeClosing(conn, periodEnd, positions);
+    }
+
+    /**
+     * @param condition e.g. {@code "PeriodEnd <= ?"}; binds {@code date}.
+     * @param order     "DESC" for the latest match, "ASC" for the earliest.
+     * @return The matching period end, or null.
+     */
+    private static LocalDate findPeriod(Connection conn, String condition, String order, LocalDate date) throws SQLException {
+        String sql = "SELECT PeriodEnd FROM TBLStockClosing WHERE " + condition + " ORDER BY PeriodEnd " + order + " LIMIT 1";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(date));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getDate("PeriodEnd").toLocalDate() : null;
+            }
+        }
+    }
+
+    private static Map<Integer, StockPositionModel> loadClosing(Connection conn, LocalDate periodEnd, Integer productId) throws SQLException {
+        Map<Integer, StockPositionModel> positions = new TreeMap<>();
+        String sql = "SELECT ProductID, ClosingQty, ReceivedQty, ReceivedCost FROM TBLStockClosingLine WHERE PeriodEnd = ?" +
+                (productId == null ? "" : " AND ProductID = ?");
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(periodEnd));
+            if (productId != null) {
+                ps.setInt(2, productId);
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("ProductID");
+                    positions.put(id, StockPositionModel.builder()
+                            .productID(id)
+                            .quantity(rs.getDouble("ClosingQty"))
+                            .receivedQty(rs.getDouble("ReceivedQty"))
+                            .receivedCost(rs.getDouble("ReceivedCost"))
+                            .build());
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Adds the ledger movements dated after {@code after} (exclusive, null = from the beginning) up to the end
+     * of {@code until} to the positions. Each RefType family is read through its document's date index.
+     */
+    private static void addMovements(Connection conn, Map<Integer, StockPositionModel> positions, LocalDate after,
+                                     LocalDate until, Integer productId) throws SQLException {
+        String product = productId == null ? "" : " AND l.ProductID = ?";
+        // Sale and purchase rows of archived invoices live in TBLStockLedgerArchive
+        LocalDate archivedThrough = LedgerArchiveDao.getArchivedThrough(conn);
+        String ledger = LedgerArchiveDao.ledgerSource(archivedThrough != null && (after == null || after.isBefore(archivedThrough)));
+        String sql = "SELECT m.ProductID, SUM(m.Qty) AS Qty, " +
+                "SUM(CASE WHEN m.IsCost = 1 THEN m.Qty ELSE 0 END) AS ReceivedQty, " +
+                "SUM(CASE WHEN m.IsCost = 1 THEN m.Qty * m.Rate ELSE 0 END) AS ReceivedCost FROM (" +
+                "SELECT l.ProductID, l.QtyIn - l.QtyOut AS Qty, l.Rate, 0 AS IsCost FROM " + ledger + " l " +
+                "JOIN TBLSale s ON s.SaleID = l.RefID " +
+                "WHERE l.RefType IN (" + SALE_TYPES + ") AND s.SaleDate >= ? AND s.SaleDate < ?" + product +
+                " UNION ALL " +
+                "SELECT l.ProductID, l.QtyIn - l.QtyOut, l.Rate, 1 FROM " + ledger + " l " +
+                "JOIN TBLPurchase p ON p.PurchaseID = l.RefID " +
+                "WHERE l.RefType IN (" + PURCHASE_TYPES + ") AND p.PurchaseDate >= ? AND p.PurchaseDate < ?" + product +
+                " UNION ALL " +
+                "SELECT l.ProductID, l.QtyIn - l.QtyOut, l.Rate, 0 FROM TBLStockLedger l " +
+                "WHERE l.RefType NOT IN (" + SALE_TYPES + ", " + PURCHASE_TYPES + ") AND l.CreatedDate >= ? AND l.CreatedDate < ?" + product +
+                ") m GROUP BY m.ProductID";
+
+        Timestamp from = Timestamp.valueOf((after == null ? BEGINNING : after.plusDays(1)).atStartOfDay());
+        Timestamp to = Timestamp.valueOf(until.plusDays(1).atStartOfDay());
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int branch = 0; branch < 3; branch++) {
+                ps.setTimestamp(index++, from);
+                ps.setTimestamp(index++, to);
+                if (productId != null) {
+                    ps.setInt(index++, productId);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("ProductID");
+                    StockPositionModel position = positions.computeIfAbsent(id,
+                            k -> StockPositionModel.builder().productID(k).build());
+                    position.setQuantity(position.getQuantity() + rs.getDouble("Qty"));
+                    position.setReceivedQty(position.getReceivedQty() + rs.getDouble("ReceivedQty"));
+                    position.setReceivedCost(position.getReceivedCost() + rs.getDouble("ReceivedCost"));
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the closing of one period with the given positions; all-zero products are not stored.
+     */
+    private static void writeClosing(Connection conn, LocalDate periodEnd, Map<Integer, StockPositionModel> positions) throws SQLException {
+        Date period = Date.valueOf(periodEnd);
+        for (String table : new String[]{"TBLStockClosingLine", "TBLStockClosing"}) {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + table + " WHERE PeriodEnd = ?")) {
+                ps.setDate(1, period);
+                ps.executeUpdate();
+            }
+        }
+
+        int products = 0;
+        double totalValue = 0;
+        String sqlLine = "INSERT INTO TBLStockClosingLine (PeriodEnd, ProductID, ClosingQty, ReceivedQty, ReceivedCost, ClosingValue) " +
+                "VALUES (?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sqlLine)) {
+            for (StockPositionModel position : positions.values()) {
+                if (isZero(position)) {
+                    continue;
+                }
+                ps.setDate(1, period);
+                ps.setInt(2, position.getProductID());
+                ps.setDouble(3, position.getQuantity());
+                ps.setDouble(4, position.getReceivedQty());
+                ps.setDouble(5, position.getReceivedCost());
+                ps.setDouble(6, position.getValue());
+                ps.addBatch();
+                products++;
+                totalValue += position.getValue();
+            }
+            ps.executeBatch();
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TBLStockClosing (PeriodEnd, ProductCount, TotalValue) VALUES (?, ?, ?)")) {
+            ps.setDate(1, period);
+            ps.setInt(2, products);
+            ps.setDouble(3, totalValue);
+            ps.executeUpdate();
+        }
+    }
+
+    private static boolean samePositions(Map<Integer, StockPositionModel> expected, Map<Integer, StockPositionModel> stored) {
+        for (StockPositionModel position : expected.values()) {
+            StockPositionModel other = stored.get(position.getProductID());
+            if (other == null ? !isZero(position)
+                    : !same(position.getQuantity(), other.getQuantity())
+                    || !same(position.getReceivedQty(), other.getReceivedQty())
+                    || !same(position.getReceivedCost(), other.getReceivedCost())) {
+                return false;
+            }
+        }
+        // A stored product without any movement left is stale too
+        for (Integer productId : stored.keySet()) {
+            if (!expected.containsKey(productId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isZero(StockPositionModel position) {
+        return same(position.getQuantity(), 0) && same(position.getReceivedQty(), 0) && same(position.getReceivedCost(), 0);
+    }
+
+    private static boolean same(double a, double b) {
+        return Math.abs(a - b) < TOLERANCE;
+    }
+
+    private static LocalDate getFirstMovementDate(Connection conn) throws SQLException {
+        String sql = "SELECT (SELECT MIN(SaleDate) FROM TBLSale), (SELECT MIN(PurchaseDate) FROM TBLPurchase), " +
+                "(SELECT MIN(CreatedDate) FROM TBLStockLedger)";
+        LocalDate first = null;
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            if (rs.next()) {
+                for (int i = 1; i <= 3; i++) {
+                    Timestamp date = rs.getTimestamp(i);
+                    if (date != null && (first == null || date.toLocalDateTime().toLocalDate().isBefore(first))) {
+                        first = date.toLocalDateTime().toLocalDate();
+                    }
+                }
+            }
+        }
+        return first;
+    }
+}
@@ -0,0 +1,200 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.model.StockLedgerModel;
+import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.repository.StockLedgerRepository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes TBLStockLedger rows on behalf of the sale/purchase transactions and keeps the materialized
+ * per-product balance in TBLStockBalance in step with them.
+ * Every write method takes the caller's connection so the entries and the balance commit or roll back with the invoice.
+ */
+public class StockLedgerDao implements StockLedgerRepository {
+
+    private static final String SQL_INSERT = "INSERT INTO TBLStockLedger (ProductID, RefType, RefID, RefDetailID, QtyIn, QtyOut, Rate) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String SQL_APPLY_BALANCE = "INSERT INTO TBLStockBalance (ProductID, QtyOnHand) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE QtyOnHand = QtyOnHand + VALUES(QtyOnHand)";
+
+    /**
+     * Inserts all ledger entries as a single JDBC batch.
+     * With rewriteBatchedStatements=true on the connection URL the driver sends it as one multi-row INSERT.
+     * @return The net quantity change per ProductID, to be published once the transaction commits.
+     */
+    public Map<Integer, Double> insertEntries(Connection conn, List<StockLedgerModel> entries) throws SQLException {
+        Map<Integer, Double> deltas = new TreeMap<>();
+        if (entries.isEmpty()) {
+            return deltas;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(SQL_INSERT)) {
+            for (StockLedgerModel entry : entries) {
+                ps.setInt(1, entry.getProductID());
+                ps.setString(2, entry.getRefType());
+                ps.setInt(3, entry.getRefID());
+                if (entry.getRefDetailID() != null) {
+                    ps.setInt(4, entry.getRefDetailID());
+                } else {
+                    ps.setNull(4, Types.INTEGER);
+                }
+                ps.setDouble(5, entry.getQtyIn());
+                ps.setDouble(6, entry.getQtyOut());
+                ps.setDouble(7, entry.getRate());
+                ps.addBatch();
+            }
+            int[] results = ps.executeBatch();
+            for (int result : results) {
+                if (result == 0) {
+                    throw new SQLException("Failed to insert stock ledger entry.");
+                }
+            }
+        }
+
+        for (StockLedgerModel entry : entries) {
+            deltas.merge(entry.getProductID(), entry.getQtyIn() - entry.getQtyOut(), Double::sum);
+        }
+        applyBalanceDeltas(conn, deltas);
+        return deltas;
+    }
+
+    /**
+     * Deletes the ledger entries of one document (e.g. all 'SALE' and 'SALE_ADJUST' rows of a SaleID) and takes
+     * their quantities back out of the materialized balance.
+     * @param refTypes The RefTypes written for the document.
+     * @return The net quantity change per ProductID, to be published once the transaction commits.
+     */
+    public Map<Integer, Double> deleteEntries(Connection conn, int refId, String... refTypes) throws SQLException {
+        Map<Integer, Double> deltas = new TreeMap<>();
+        String typeFilter = "RefType IN (" + String.join(", ", Collections.nCopies(refTypes.length, "?")) + ")";
+        String sqlNet = "SELECT ProductID, SUM(QtyIn) - SUM(QtyOut) AS NetQty FROM TBLStockLedger " +
+                "WHERE RefID = ? AND " + typeFilter + " GROUP BY ProductID";
+        try (PreparedStatement ps = conn.prepareStatement(sqlNet)) {
+            bindRef(ps, refId, refTypes);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    deltas.put(rs.getInt("ProductID"), -rs.getDouble("NetQty"));
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            return deltas;
+        }
+
+        String sqlDelete = "DELETE FROM TBLStockLedger WHERE RefID = ? AND " + typeFilter;
+        try (PreparedStatement ps = conn.prepareStatement(sqlDelete)) {
+            bindRef(ps, refId, refTypes);
+            ps.executeUpdate();
+        }
+        applyBalanceDeltas(conn, deltas);
+        return deltas;
+    }
+
+    private static void bindRef(PreparedStatement ps, int refId, String[] refTypes) throws SQLException {
+        ps.setInt(1, refId);
+        for (int i = 0; i < refTypes.length; i++) {
+            ps.setString(i + 2, refTypes[i]);
+        }
+    }
+
+    /**
+     * Current stock of a product: a single primary-key read of TBLStockBalance.
+     */
+    @Override
+    public double getStockOnHand(int productId) {
+        String sql = "SELECT QtyOnHand FROM TBLStockBalance WHERE ProductID = ?";
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+
+            ps.setInt(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getDouble("QtyOnHand");
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching stock on hand: " + e.getMessage());
+        }
+        return 0.0;
+    }
+
+    /**
+     * Loads the whole materialized balance (ProductID -> QtyOnHand); used to seed the in-memory stock cache.
+     */
+    @Override
+    public Map<Integer, Double> getAllStockOnHand() throws SQLException {
+        Map<Integer, Double> stock = new HashMap<>();
+        String sql = "SELECT ProductID, QtyOnHand FROM TBLStockBalance";
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+
+            while (rs.next()) {
+                stock.put(rs.getInt("ProductID"), rs.getDouble("QtyOnHand"));
+            }
+        }
+        return stock;
+    }
+
+    /**
+     * Adds {@code source} deltas into {@code target}; used to collect the stock changes of a whole transaction.
+     */
+    public static void mergeDeltas(Map<Integer, Double> target, Map<Integer, Double> source) {
+        source.forEach((productId, qty) -> target.merge(productId, qty, Double::sum));
+    }
+
+    /**
+     * Recomputes TBLStockBalance from the full TBLStockLedger history (including archived rows) in one transaction.
+     * Use after manual ledger edits, a restore, or when enabling the balance table on an existing database.
+     * @return Number of products written to the balance table.
+     */
+    @Override
+    public int rebuildStockBalance() throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.executeUpdate("DELETE FROM TBLStockBalance");
+                int rows = st.executeUpdate("INSERT INTO TBLStockBalance (ProductID, QtyOnHand) " +
+                        "SELECT ProductID, SUM(QtyIn) - SUM(QtyOut) FROM " + LedgerArchiveDao.ledgerSource(true) + " l GROUP BY ProductID");
+                conn.commit();
+                return rows;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Upserts the per-product quantity deltas into TBLStockBalance as one batch.
+     * Rows are touched in ProductID order so concurrent invoices lock them in the same order.
+     */
+    private void applyBalanceDeltas(Connection conn, Map<Integer, Double> deltas) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(SQL_APPLY_BALANCE)) {
+            for (Map.Entry<Integer, Double> delta : deltas.entrySet()) {
+                if (delta.getValue() == 0) {
+                    continue;
+                }
+                ps.setInt(1, delta.getKey());
+                ps.setDouble(2, delta.getValue());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+}
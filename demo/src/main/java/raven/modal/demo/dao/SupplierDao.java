@@ -1,7 +1,14 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
 import raven.modal.demo.model.SupplierModel;
 import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.repository.SupplierRepository;
 
 import javax.swing.*;
 import java.sql.CallableStatement;
@@ -13,18 +20,26 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class SupplierDao {
+public class SupplierDao implements SupplierRepository {
+
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
+    private static final String SUPPLIER_BALANCE = BalanceJournalDao.balanceColumn(BalanceJournalDao.Party.SUPPLIER, "s");
+
+    private final BalanceJournalDao balanceJournalDao = new BalanceJournalDao();
 
     /**
      * Fetches only those suppliers who have a remaining OutstandingBalance > 0.
      * This is used for the Payment dialog.
      * @return List of SupplierModel with outstanding balances.
      */
+    @Override
     public List<SupplierModel> getRemainingBalanceSuppliers() {
         // ASSUMPTION: The TBLSuppliers table has columns: SupplierID, Name, OutstandingBalance
-        String sql = "SELECT SupplierID, SupplierName, OpeningBalance FROM TBLSuppliers WHERE OpeningBalance > 0 ORDER BY SupplierName ASC";
+        String sql = "SELECT s.SupplierID, s.SupplierName FROM TBLSuppliers s WHERE " + SUPPLIER_BALANCE + " > 0 ORDER BY s.SupplierName ASC";
         List<SupplierModel> suppliers = new ArrayList<>();
 
         try (Connection conn = MySQLConnection.getInstance().getConnection();
@@ -52,21 +67,17 @@ public class SupplierDao {
      * @param paidAmount The amount paid at the time of purchase (debt reduced).
      * @return true if the update was successful.
      */
+    @Override
     public boolean updateSupplierBalance(int supplierId, double totalAmount, double paidAmount) {
         // The purchase increases the supplier's balance (liability/debt).
         // The paid amount decreases the supplier's balance.
         double netChange = totalAmount - paidAmount;
 
-        // SQL: Update the balance by adding the net change (Total - Paid).
-        String sql = "UPDATE TBLSuppliers SET OpeningBalance = OpeningBalance + ? WHERE SupplierID = ?";
-
-        try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-
-            ps.setDouble(1, netChange);
-            ps.setInt(2, supplierId);
-
-            return ps.executeUpdate() > 0;
+        // Journal the net change (Total - Paid); the background roll-up adds it to OpeningBalance.
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            balanceJournalDao.post(conn, BalanceJournalDao.Party.SUPPLIER, supplierId, netChange, "PURCHASE", 0);
+            changeFeedDao.appendQuietly(conn, ChangeEntity.SUPPLIER, ChangeOp.UPDATE, supplierId);
+            return true;
 
         } catch (SQLException e) {
             System.err.println("Database error updating supplier balance: " + e.getMessage());
@@ -76,7 +87,13 @@ public class SupplierDao {
     }
 
     // ✅ Get suppliers with pagination
+    @Override
     public List<SupplierModel> getActiveSuppliersForDropdown() {
+        return LookupCache.getInstance().getList(LookupType.SUPPLIERS, this::loadActiveSuppliers,
+                List.of(SupplierModel.builder().supplierID(0).supplierName("--- Select Vendor ---").build()));
+    }
+
+    private List<SupplierModel> loadActiveSuppliers() throws SQLException {
         String sql = "SELECT SupplierID, SupplierName FROM TBLSuppliers ORDER BY SupplierID";
         List<SupplierModel> suppliers = new ArrayList<>();
 
@@ -93,15 +110,14 @@ public class SupplierDao {
                         .supplierName(rs.getString("SupplierName"))
                         .build());
             }
-        } catch (SQLException e) {
-            System.err.println("Database error fetching active Supplier: " + e.getMessage());
         }
         return suppliers;
     }
 
+    @Override
     public List<SupplierModel> getSuppliers(int offset, int limit) {
         List<SupplierModel> list = new ArrayList<>();
-        String sql = "SELECT * FROM TBLSuppliers ORDER BY SupplierID LIMIT ? OFFSET ?";
+        String sql = "SELECT s.*, " + SUPPLIER_BALANCE + " AS CurrentBalance FROM TBLSuppliers s ORDER BY s.SupplierID LIMIT ? OFFSET ?";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
@@ -110,15 +126,7 @@ public class SupplierDao {
 
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    SupplierModel model = new SupplierModel();
-                    model.setSupplierID(rs.getInt("SupplierID"));
-                    model.setSupplierName(rs.getString("SupplierName"));
-                    model.setContactNo(rs.getString("ContactNo"));
-                    model.setAddress(rs.getString("Address"));
-                    model.setEmail(rs.getString("Email"));
-                    model.setOpeningBalance(rs.getDouble("OpeningBalance"));
-                    model.setCreatedDate(rs.getTimestamp("CreatedDate").toLocalDateTime());
-                    list.add(model);
+                    list.add(mapListRow(rs));
                 }
             }
         } catch (SQLException e) {
@@ -127,33 +135,83 @@ public class SupplierDao {
         return list;
     }
 
-    public int updateSupplier(SupplierModel supplier) {
-        String sql = "{ CALL SP_IUD_Vendor(?, ?, ?, ?, ?, ?, ?, ?, ?) }";
-
+    @Override
+    public List<SupplierModel> getSuppliersByIds(List<Integer> supplierIds) {
+        List<SupplierModel> list = new ArrayList<>();
+        if (supplierIds.isEmpty()) {
+            return list;
+        }
+        String sql = "SELECT s.*, " + SUPPLIER_BALANCE + " AS CurrentBalance FROM TBLSuppliers s WHERE s.SupplierID IN ("
+                + String.join(", ", Collections.nCopies(supplierIds.size(), "?")) + ")";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
-             CallableStatement cs = conn.prepareCall(sql)) {
-
-            cs.setInt(1, supplier.getSupplierID());
-            cs.setString(2, supplier.getSupplierName());
-            cs.setString(3, supplier.getContactNo());
-            cs.setString(4, supplier.getAddress());
-            cs.setString(5, supplier.getEmail());
-            cs.setDouble(6, supplier.getOpeningBalance());
-            cs.setInt(7, 1);
-            cs.setTimestamp(8, Timestamp.valueOf(LocalDateTime.now()));
-            cs.setString(9, "Update");
+             PreparedStatement ps = conn.prepareStatement(sql)) {
 
-            ResultSet rs = cs.executeQuery();
-            if (rs.next()) {
-                return rs.getInt("Result");
+            for (int i = 0; i < supplierIds.size(); i++) {
+                ps.setInt(i + 1, supplierIds.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapListRow(rs));
+                }
             }
+        } catch (SQLException e) {
+            System.err.println("Database error fetching suppliers by ID: " + e.getMessage());
+        }
+        return list;
+    }
+
+    private static SupplierModel mapListRow(ResultSet rs) throws SQLException {
+        SupplierModel model = new SupplierModel();
+        model.setSupplierID(rs.getInt("SupplierID"));
+        model.setSupplierName(rs.getString("SupplierName"));
+        model.setContactNo(rs.getString("ContactNo"));
+        model.setAddress(rs.getString("Address"));
+        model.setEmail(rs.getString("Email"));
+        model.setOpeningBalance(rs.getDouble("CurrentBalance"));
+        model.setCreatedDate(rs.getTimestamp("CreatedDate").toLocalDateTime());
+        return model;
+    }
 
+    @Override
+    public int updateSupplier(SupplierModel supplier) {
+        String sql = "{ CALL SP_IUD_Vendor(?, ?, ?, ?, ?, ?, ?, ?, ?) }";
+
+        try {
+            // One transaction: the journal entries stay locked until the balance is written, so a rollup
+            // batch cannot fold them into OpeningBalance in between and have them subtracted twice
+            return TransactionExecutor.getInstance().execute("updateSupplier", tx -> {
+                Connection conn = tx.getConnection();
+                // The form shows the current balance; store it minus the journal entries not rolled up yet
+                double unrolled = balanceJournalDao.getUnrolledAmount(conn, BalanceJournalDao.Party.SUPPLIER, supplier.getSupplierID());
+                try (CallableStatement cs = conn.prepareCall(sql)) {
+                    cs.setInt(1, supplier.getSupplierID());
+                    cs.setString(2, supplier.getSupplierName());
+                    cs.setString(3, supplier.getContactNo());
+                    cs.setString(4, supplier.getAddress());
+                    cs.setString(5, supplier.getEmail());
+                    cs.setDouble(6, supplier.getOpeningBalance() - unrolled);
+                    cs.setInt(7, 1);
+                    cs.setTimestamp(8, Timestamp.valueOf(LocalDateTime.now()));
+                    cs.setString(9, "Update");
+
+                    int result = 0;
+                    try (ResultSet rs = cs.executeQuery()) {
+                        if (rs.next()) {
+                            result = rs.getInt("Result");
+                        }
+                    }
+                    changeFeedDao.appendQuietly(conn, ChangeEntity.SUPPLIER, ChangeOp.UPDATE, supplier.getSupplierID());
+                    tx.afterCommit(() -> LookupCache.getInstance().invalidate(LookupType.SUPPLIERS));
+                    return result;
+                }
+            });
         } catch (SQLException e) {
             handleSqlError(e, "updating vendor");
         }
         return 0;
     }
 
+    @Override
     public int deleteSupplier(int supplierId) {
         String sql = "{ CALL SP_IUD_Vendor(?, ?, ?, ?, ?, ?, ?, ?, ?) }";
 
@@ -171,6 +229,10 @@ public class SupplierDao {
             cs.setString(9, "Delete");
 
             ResultSet rs = cs.executeQuery();
+            // The procedure's result code does not say whether a row was removed, so recount
+            RowCountCache.getInstance().invalidate(RowCount.SUPPLIERS);
+            LookupCache.getInstance().invalidate(LookupType.SUPPLIERS);
+            changeFeedDao.appendQuietly(conn, ChangeEntity.SUPPLIER, ChangeOp.DELETE, supplierId);
             if (rs.next()) {
                 return rs.getInt("Result");
             }
@@ -181,6 +243,7 @@ public class SupplierDao {
         return 0;
     }
 
+    @Override
     public int addSupplier(SupplierModel supplier) {
         String sql = "{ CALL SP_IUD_Vendor(?, ?, ?, ?, ?, ?, ?, ?, ?) }";
 
@@ -198,8 +261,14 @@ public class SupplierDao {
             cs.setString(9, "Save");
 
             ResultSet rs = cs.executeQuery();
+            LookupCache.getInstance().invalidate(LookupType.SUPPLIERS);
             if (rs.next()) {
-                return rs.getInt("Result");  // returns new ID or -3 (duplicate)
+                int result = rs.getInt("Result");  // returns new ID or -3 (duplicate)
+                if (result > 0) {
+                    changeFeedDao.appendQuietly(conn, ChangeEntity.SUPPLIER, ChangeOp.INSERT, result);
+                    RowCountCache.getInstance().adjust(RowCount.SUPPLIERS, 1);
+                }
+                return result;
             }
 
         } catch (SQLException e) {
@@ -224,8 +293,10 @@ public class SupplierDao {
                     JOptionPane.ERROR_MESSAGE);
         }
     }
+    @Override
     public SupplierModel getSupplierById(int supplierId) {
-        String sql = "SELECT SupplierID, SupplierName, ContactNo, Email, Address, OpeningBalance, CreatedDate FROM TBLSuppliers WHERE SupplierID = ?";
+        String sql = "SELECT s.SupplierID, s.SupplierName, s.ContactNo, s.Email, s.Address, " + SUPPLIER_BALANCE + " AS CurrentBalance, s.CreatedDate " +
+                "FROM TBLSuppliers s WHERE s.SupplierID = ?";
         SupplierModel supplier = null;
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -239,7 +310,7 @@ public class SupplierDao {
                             .contactNo(rs.getString("ContactNo"))
                             .email(rs.getString("Email"))
                             .address(rs.getString("Address"))
-                            .openingBalance(rs.getDouble("OpeningBalance"))
+                            .openingBalance(rs.getDouble("CurrentBalance"))
                             .createdDate(rs.getTimestamp("CreatedDate").toLocalDateTime())
                             .build();
                 }
@@ -250,17 +321,18 @@ public class SupplierDao {
         return supplier;
     }
     /**
-     * Fetches the current OutstandingBalance for a specific supplier.
+     * Fetches the current OutstandingBalance for a specific supplier (rolled-up balance plus pending journal entries).
      */
+    @Override
     public double getSupplierBalance(int supplierId) {
-        String sql = "SELECT OpeningBalance FROM TBLSuppliers WHERE SupplierID = ?";
+        String sql = "SELECT " + SUPPLIER_BALANCE + " AS CurrentBalance FROM TBLSuppliers s WHERE s.SupplierID = ?";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
 
             ps.setInt(1, supplierId);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    return rs.getDouble("OpeningBalance");
+                    return rs.getDouble("CurrentBalance");
                 }
             }
         } catch (SQLException e) {
@@ -1,112 +1,53 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.model.SettlementResult;
 import raven.modal.demo.model.SupplierPaymentModel;
-import raven.modal.demo.mysql.MySQLConnection;
+import raven.modal.demo.repository.SupplierPaymentRepository;
 
-import javax.swing.*;
 import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
-public class SupplierPaymentDao {
+public class SupplierPaymentDao implements SupplierPaymentRepository {
+
+    private final TransactionExecutor transactions = TransactionExecutor.getInstance();
 
     /**
      * Saves a new supplier payment, allocating the amount to the oldest outstanding
      * purchase invoices (FIFO) and updating the supplier's master balance.
-     * * NOTE: TBLPurchase must have a 'BalanceDue' column for this to work.
      */
-    public boolean saveSupplierPayment(SupplierPaymentModel paymentModel) {
-        Connection conn = null;
-        try {
-            conn = MySQLConnection.getInstance().getConnection();
-            conn.setAutoCommit(false); // Start transaction
-
-            // --- A. Record the Payment Header (TBLSupplierPayments) ---
-            String sqlPayment = "INSERT INTO TBLSupplierPayments (SupplierID, PaymentDate, Amount, Remarks) " +
-                    "VALUES (?, ?, ?, ?)";
-
-            int paymentId = 0;
-            try (PreparedStatement psPayment = conn.prepareStatement(sqlPayment, Statement.RETURN_GENERATED_KEYS)) {
-                psPayment.setInt(1, paymentModel.getSupplierID());
-                psPayment.setTimestamp(2, Timestamp.valueOf(paymentModel.getPaymentDate()));
-                psPayment.setDouble(3, paymentModel.getAmount());
-                psPayment.setString(4, paymentModel.getRemarks());
-                psPayment.executeUpdate();
-
-                try (ResultSet rs = psPayment.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        paymentId = rs.getInt(1);
-                    } else {
-                        throw new SQLException("Failed to retrieve Payment ID.");
-                    }
-                }
-            }
-
-            // --- B. Payment Allocation (FIFO) ---
-            double paymentRemaining = paymentModel.getAmount();
-
-            // 1. Get partially paid purchases (ORDERED BY PurchaseDate ASC)
-            String sqlGetOutstanding = "SELECT PurchaseID, (TotalAmount - PaidAmount) AS BalanceDue " +
-                    "FROM TBLPurchase " +
-                    "WHERE SupplierID = ? AND (TotalAmount - PaidAmount) > 0 " +
-                    "ORDER BY PurchaseDate ASC";
-
-            try (PreparedStatement psOutstanding = conn.prepareStatement(sqlGetOutstanding)) {
-                psOutstanding.setInt(1, paymentModel.getSupplierID());
-                try (ResultSet rs = psOutstanding.executeQuery()) {
-
-                    while (rs.next() && paymentRemaining > 0) {
-                        int purchaseId = rs.getInt("PurchaseID");
-                        double invoiceBalance = rs.getDouble("BalanceDue");
-
-                        double amountToApply = Math.min(paymentRemaining, invoiceBalance);
-
-                        // 2. Update the specific Purchase record
-                        String sqlUpdatePurchase = "UPDATE TBLPurchase SET PaidAmount = PaidAmount + ? " +
-                                "WHERE PurchaseID = ?";
-                        try (PreparedStatement psUpdate = conn.prepareStatement(sqlUpdatePurchase)) {
-                            psUpdate.setDouble(1, amountToApply);
-                            psUpdate.setInt(2, purchaseId);
-                            psUpdate.executeUpdate();
-                        }
-
-                        paymentRemaining -= amountToApply;
-                    }
-                }
-            }
-
-            // --- C. Update Supplier's Cumulative OutstandingBalance ---
-            String sqlBalance = "UPDATE TBLSuppliers SET OpeningBalance = OpeningBalance - ? WHERE SupplierID = ?";
-            try (PreparedStatement psBalance = conn.prepareStatement(sqlBalance)) {
-                psBalance.setDouble(1, paymentModel.getAmount());
-                psBalance.setInt(2, paymentModel.getSupplierID());
-
-                if (psBalance.executeUpdate() == 0) {
-                    throw new SQLException("Failed to update supplier outstanding balance.");
-                }
-            }
+    @Override
+    public void saveSupplierPayment(SupplierPaymentModel paymentModel) throws SQLException {
+        settlePayments(Collections.singletonList(paymentModel));
+    }
 
-            conn.commit(); // Commit transaction
-            return true;
+    /**
+     * Saves the payments and their allocation (named purchases first, then FIFO) in a fixed number of statements,
+     * however many invoices they settle; see {@link Settlement}. The open purchases are read through
+     * TBLPurchase.BalanceDue and IX_TBLPurchase_Supplier_Open (migration V3), the allocations go to
+     * TBLSupplierPaymentAllocation (migration V4).
+     * The reads and inserts are split every {@value MultiRowInsert#MAX_ROWS_PER_STATEMENT} rows for very large runs.
+     */
+    @Override
+    public SettlementResult settlePayments(List<SupplierPaymentModel> payments) throws SQLException {
+        if (payments.isEmpty()) {
+            return new SettlementResult(0, 0, 0, 0, 0);
+        }
+        return transactions.execute("settleSupplierPayments", tx -> settle(tx.getConnection(), payments));
+    }
 
-        } catch (SQLException e) {
-            System.err.println("Database error during saveSupplierPayment. Rolling back: " + e.getMessage());
-            try {
-                if (conn != null) conn.rollback();
-            } catch (SQLException rollbackEx) {
-                System.err.println("Rollback failed: " + rollbackEx.getMessage());
-            }
-            JOptionPane.showMessageDialog(null, "Payment failed due to a database error.", "Error", JOptionPane.ERROR_MESSAGE);
-            return false;
-        } finally {
-            try {
-                if (conn != null) conn.setAutoCommit(true); conn.close();
-            } catch (SQLException closeEx) {
-                // Ignore
-            }
+    private SettlementResult settle(Connection conn, List<SupplierPaymentModel> payments) throws SQLException {
+        List<Settlement.Payment> settled = new ArrayList<>(payments.size());
+        for (SupplierPaymentModel payment : payments) {
+            settled.add(new Settlement.Payment(payment.getSupplierID(), payment.getPaymentDate(), payment.getAmount(),
+                    payment.getRemarks(), payment.getAllocateTo()));
+        }
+        SettlementResult result = Settlement.SUPPLIER_PAYMENT.settle(conn, settled);
+        for (int i = 0; i < payments.size(); i++) {
+            payments.get(i).setPaymentID(settled.get(i).id);
         }
+        return result;
     }
 }
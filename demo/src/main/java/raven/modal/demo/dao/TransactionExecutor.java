@@ -0,0 +1,273 @@
+package raven.modal.demo.dao;
+
+import raven.modal.demo.mysql.MySQLConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a unit of DAO work in one database transaction.
+ * <p>
+ * Borrows a pooled connection, sets the isolation level, commits or rolls back, restores the connection and
+ * returns it to the pool. When MySQL picks the transaction as a deadlock victim or a lock wait times out, the
+ * whole unit is rolled back and run again on a fresh transaction after a jittered exponential backoff, so two
+ * tills colliding on the same stock rows both get through instead of one failing with a dialog.
+ * <p>
+ * Because the work may run more than once, it must only touch the database through the given transaction;
+ * in-memory side effects (caches, counters) go to {@link Transaction#afterCommit} and run once, after the
+ * final commit.
+ */
+public class TransactionExecutor {
+
+    /** MySQL ER_LOCK_DEADLOCK. */
+    private static final int ER_LOCK_DEADLOCK = 1213;
+    /** MySQL ER_LOCK_WAIT_TIMEOUT. */
+    private static final int ER_LOCK_WAIT_TIMEOUT = 1205;
+    /** SQLSTATE class of serialization failures. */
+    private static final String SQLSTATE_SERIALIZATION_FAILURE = "40001";
+
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MILLIS = 25;
+    private static final long MAX_BACKOFF_MILLIS = 1000;
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    private TransactionExecutor() {
+    }
+
+    private static final class InstanceHolder {
+        static final TransactionExecutor instance = new TransactionExecutor();
+    }
+
+    public static TransactionExecutor getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Work run inside a transaction. Throwing rolls the transaction back.
+     */
+    @FunctionalInterface
+    public interface TransactionWork<T> {
+        T execute(Transaction tx) throws SQLException;
+    }
+
+    /**
+     * The transaction handed to a {@link TransactionWork}.
+     */
+    public static final class Transaction {
+
+        private final Connection connection;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+
+        private Transaction(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * The connection of this transaction; do not commit, roll back or close it.
+         */
+        public Connection getConnection() {
+            return connection;
+        }
+
+        /**
+         * Registers an action that runs once the transaction has committed, e.g. a cache update.
+         * Actions of an attempt that is rolled back are discarded.
+         */
+        public void afterCommit(Runnable action) {
+            afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Runs the work at the connection's default isolation level (REPEATABLE READ on InnoDB).
+     * @param name Name the latency and retry counters are kept under, e.g. "saveSale".
+     * @throws SQLException The last error once the transaction was rolled back and no retry is left.
+     */
+    public <T> T execute(String name, TransactionWork<T> work) throws SQLException {
+        return execute(name, -1, work);
+    }
+
+    /**
+     * Runs the work at the given isolation level, e.g. {@link Connection#TRANSACTION_READ_COMMITTED}.
+     * @param isolation A {@code Connection.TRANSACTION_*} level, or -1 to keep the connection's default.
+     */
+    public <T> T execute(String name, int isolation, TransactionWork<T> work) throws SQLException {
+        Counters stats = counters.computeIfAbsent(name, k -> new Counters());
+        long start = System.nanoTime();
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    T result = runOnce(isolation, work);
+                    stats.commits.increment();
+                    return result;
+                } catch (SQLException e) {
+                    if (attempt >= MAX_ATTEMPTS || !isRetryable(e)) {
+                        stats.failures.increment();
+                        throw e;
+                    }
+                    stats.retries.increment();
+                    long backoff = backoffMillis(attempt);
+                    System.err.println("Transaction " + name + " hit a lock conflict (" + e.getErrorCode() + "), retry "
+                            + attempt + "/" + (MAX_ATTEMPTS - 1) + " in " + backoff + "ms: " + e.getMessage());
+                    sleep(backoff, e);
+                } catch (RuntimeException e) {
+                    stats.failures.increment();
+                    throw e;
+                }
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            stats.executions.increment();
+            stats.totalNanos.add(elapsed);
+            stats.maxNanos.accumulateAndGet(elapsed, Math::max);
+        }
+    }
+
+    private <T> T runOnce(int isolation, TransactionWork<T> work) throws SQLException {
+        Connection conn = MySQLConnection.getInstance().getConnection();
+        if (conn == null) {
+            throw new SQLTransientConnectionException("No database connection available.");
+        }
+        int previousIsolation = conn.getTransactionIsolation();
+        try {
+            if (isolation >= 0 && isolation != previousIsolation) {
+                conn.setTransactionIsolation(isolation);
+            }
+            conn.setAutoCommit(false); // Start transaction
+            Transaction tx = new Transaction(conn);
+            T result;
+            try {
+                result = work.execute(tx);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackEx) {
+                    System.err.println("Rollback failed: " + rollbackEx.getMessage());
+                    e.addSuppressed(rollbackEx);
+                }
+                throw e;
+            }
+            for (Runnable action : tx.afterCommit) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    // Already committed: a failing cache update must not turn the save into an error
+                    System.err.println("After-commit action failed: " + e.getMessage());
+                }
+            }
+            return result;
+        } finally {
+            try {
+                conn.setAutoCommit(true);
+                if (conn.getTransactionIsolation() != previousIsolation) {
+                    conn.setTransactionIsolation(previousIsolation);
+                }
+            } catch (SQLException e) {
+                System.err.println("Could not reset connection: " + e.getMessage());
+            }
+            try {
+                conn.close(); // Return the connection to the pool
+            } catch (SQLException e) {
+                System.err.println("Error closing connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * True for deadlocks and lock-wait timeouts anywhere in the cause chain; these leave no partial
+     * work behind once rolled back, so running the transaction again is safe.
+     */
+    static boolean isRetryable(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+                SQLException sql = (SQLException) t;
+                if (sql.getErrorCode() == ER_LOCK_DEADLOCK || sql.getErrorCode() == ER_LOCK_WAIT_TIMEOUT
+                        || SQLSTATE_SERIALIZATION_FAILURE.equals(sql.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True if the database could not be reached (no pooled connection, or SQLSTATE class 08 anywhere in the
+     * cause chain). The work did not run, or its outcome is unknown if the link dropped during the commit.
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientConnectionException || t instanceof SQLNonTransientConnectionException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && state.startsWith("08")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exponential backoff with full jitter: a random delay in [base, base * 2^(attempt-1)], so colliding
+     * transactions do not retry in lockstep and collide again.
+     */
+    private static long backoffMillis(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+        return ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MILLIS, ceiling + 1);
+    }
+
+    private static void sleep(long millis, SQLException cause) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    /**
+     * @return Counters of one named transaction; all zero if it never ran.
+     */
+    public TransactionStats getStats(String name) {
+        Counters stats = counters.get(name);
+        return stats == null ? new TransactionStats(name, 0, 0, 0, 0, 0, 0) : stats.snapshot(name);
+    }
+
+    /**
+     * @return Counters of every transaction that ran, by name.
+     */
+    public Map<String, TransactionStats> getStats() {
+        Map<String, TransactionStats> all = new TreeMap<>();
+        counters.forEach((name, stats) -> all.put(name, stats.snapshot(name)));
+        return all;
+    }
+
+    private static final class Counters {
+
+        final LongAdder executions = new LongAdder();
+        final LongAdder commits = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        TransactionStats snapshot(String name) {
+            return new TransactionStats(name, executions.sum(), commits.sum(), failures.sum(), retries.sum(),
+                    totalNanos.sum(), maxNanos.get());
+        }
+    }
+}
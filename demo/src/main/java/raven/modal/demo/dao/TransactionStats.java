@@ -0,0 +1,34 @@
+package raven.modal.demo.dao;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of the {@link TransactionExecutor} counters of one named transaction.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionStats {
+
+    private final String name;
+    private final long executions;       // Calls to execute(), however many attempts they took
+    private final long commits;
+    private final long failures;         // Calls that ended rolled back (after any retries)
+    private final long retries;          // Extra attempts after a deadlock or lock-wait timeout
+    private final long totalNanos;       // Wall time of all calls, including retries and backoff
+    private final long maxNanos;
+
+    public double getAverageMillis() {
+        return executions == 0 ? 0 : (totalNanos / (double) executions) / 1_000_000.0;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: executions=%d, commits=%d, failures=%d, retries=%d, avg=%.2fms, max=%.2fms",
+                name, executions, commits, failures, retries, getAverageMillis(), getMaxMillis());
+    }
+}
@@ -1,5 +1,11 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeOp;
 import raven.modal.demo.model.UnitModel;
 import raven.modal.demo.mysql.MySQLConnection;
 
@@ -8,6 +14,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -15,14 +22,19 @@ import java.util.Map;
 
 public class UnitDao {
 
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+
     public boolean addUnit(UnitModel unit) {
         String sql = "INSERT INTO TBLUnits (UnitName) VALUES (?)";
         try (Connection conn = MySQLConnection.getInstance().getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             ps.setString(1, unit.getUnitName());
             int rows = ps.executeUpdate();
+            LookupCache.getInstance().invalidate(LookupType.UNITS);
             if (rows > 0) {
+                changeFeedDao.appendInsertedQuietly(conn, ps, ChangeEntity.UNIT);
+                RowCountCache.getInstance().adjust(RowCount.UNITS, 1);
                 JOptionPane.showMessageDialog(null,
                         "Unit has been " + unit.getUnitName() + " added successfully!",
                         "Update Success",
@@ -69,6 +81,10 @@ public class UnitDao {
         return list;
     }
     public Map<String, Integer> getAllUnits() {
+        return LookupCache.getInstance().getMap(LookupType.UNITS, this::loadAllUnits);
+    }
+
+    private Map<String, Integer> loadAllUnits() throws SQLException {
         Map<String, Integer> unitMap = new HashMap<>();
         String sql = "SELECT * FROM TBLUnits ORDER BY UnitID";
 
@@ -80,9 +96,6 @@ public class UnitDao {
                     unitMap.put(rs.getString("UnitName"), rs.getInt("UnitID"));
                 }
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
         return unitMap;
     }
@@ -135,8 +148,10 @@ public class UnitDao {
             ps.setInt(2, unit.getUnitID());
 
             int rowsAffected = ps.executeUpdate();
+            LookupCache.getInstance().invalidate(LookupType.UNITS);
 
             if (rowsAffected > 0) {
+                changeFeedDao.appendQuietly(conn, ChangeEntity.UNIT, ChangeOp.UPDATE, unit.getUnitID());
                 JOptionPane.showMessageDialog(null,
                         "Unit ID " + unit.getUnitID() + " updated successfully!",
                         "Update Success",
@@ -199,8 +214,11 @@ public class UnitDao {
             try (PreparedStatement deletePs = conn.prepareStatement(deleteSql)) {
                 deletePs.setInt(1, unitId);
                 int rowsAffected = deletePs.executeUpdate();
+                LookupCache.getInstance().invalidate(LookupType.UNITS);
 
                 if (rowsAffected > 0) {
+                    changeFeedDao.appendQuietly(conn, ChangeEntity.UNIT, ChangeOp.DELETE, unitId);
+                    RowCountCache.getInstance().adjust(RowCount.UNITS, -1);
                     JOptionPane.showMessageDialog(null,
                             "Unit ID " + unitId + " deleted successfully.",
                             "Delete Success",
@@ -1,5 +1,7 @@
 package raven.modal.demo.dao;
 
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
 import raven.modal.demo.mysql.MySQLConnection;
 
 import java.sql.Connection;
@@ -8,7 +10,14 @@ import java.sql.SQLException;
 import java.sql.Statement;
 
 public class UtilsDao {
+    /**
+     * Row count of a table for pagination. Tables known to {@link RowCount} are served from {@link RowCountCache}.
+     */
     public static int getCount(String tableName) {
+        RowCount cached = RowCount.forTable(tableName);
+        if (cached != null) {
+            return RowCountCache.getInstance().get(cached);
+        }
         String sql = "SELECT COUNT(*) FROM "+ tableName;
         try (Connection conn = MySQLConnection.getInstance().getConnection();
              Statement st = conn.createStatement();
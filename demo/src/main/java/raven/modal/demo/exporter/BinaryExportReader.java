@@ -0,0 +1,132 @@
+package raven.modal.demo.exporter;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Reads a file written in {@link ExportFormat#BINARY}, one row at a time.
+ * Values come back as {@code Long}, {@code Double}, {@code String} or {@code LocalDateTime}, or null.
+ */
+public final class BinaryExportReader implements Closeable {
+
+    private final DataInputStream in;
+    private final String table;
+    private final String[] columns;
+    private final ColumnKind[] kinds;
+    private final byte[] nulls;
+    private long rows;
+    private boolean finished;
+
+    public BinaryExportReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        byte[] magic = new byte[BinaryRowWriter.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, BinaryRowWriter.MAGIC)) {
+            throw new IOException("Not a binary export file");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != BinaryRowWriter.VERSION) {
+            throw new IOException("Unsupported binary export version " + version);
+        }
+        table = readString();
+        columns = new String[(int) readVarLong()];
+        kinds = new ColumnKind[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = readString();
+            kinds[i] = ColumnKind.ofCode(this.in.readUnsignedByte());
+        }
+        nulls = new byte[(columns.length + 7) / 8];
+    }
+
+    /**
+     * Name of the {@link ExportTable} the file was exported from.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    public String[] getColumns() {
+        return columns.clone();
+    }
+
+    /**
+     * @return The values of the next row, or {@code null} after the last one.
+     * @throws EOFException If the file ends before its trailer, i.e. the export did not complete.
+     */
+    public Object[] next() throws IOException {
+        if (finished) {
+            return null;
+        }
+        int marker = in.readUnsignedByte();
+        if (marker == BinaryRowWriter.END) {
+            long expected = readVarLong();
+            if (expected != rows) {
+                throw new IOException("Trailer says " + expected + " rows, read " + rows);
+            }
+            finished = true;
+            return null;
+        }
+        if (marker != BinaryRowWriter.ROW) {
+            throw new IOException("Corrupt binary export at row " + rows);
+        }
+        in.readFully(nulls);
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            if ((nulls[i >> 3] & (1 << (i & 7))) != 0) {
+                continue;
+            }
+            switch (kinds[i]) {
+                case LONG:
+                    values[i] = readSignedVarLong();
+                    break;
+                case DOUBLE:
+                    values[i] = in.readDouble();
+                    break;
+                case TIMESTAMP:
+                    values[i] = LocalDateTime.ofInstant(Instant.ofEpochMilli(readSignedVarLong()), ZoneOffset.UTC);
+                    break;
+                default:
+                    values[i] = readString();
+            }
+        }
+        rows++;
+        return values;
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private long readSignedVarLong() throws IOException {
+        long value = readVarLong();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private String readString() throws IOException {
+        byte[] bytes = new byte[(int) readVarLong()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,115 @@
+package raven.modal.demo.exporter;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Compact binary export, read back by {@link BinaryExportReader}. Layout:
+ * <pre>
+ * header  "MARTEXP" version(1 byte) table(string) columnCount(varint) { name(string) kind(1 byte) }*
+ * row     1(1 byte) nullBitmap(ceil(columns / 8) bytes, bit set = NULL) { value of each non-NULL column }
+ * trailer 0(1 byte) rowCount(varint)
+ * </pre>
+ * Values: {@link ColumnKind#LONG} zigzag varint, {@link ColumnKind#DOUBLE} 8 bytes big-endian,
+ * {@link ColumnKind#STRING} varint length + UTF-8, {@link ColumnKind#TIMESTAMP} zigzag varint epoch milliseconds
+ * of the local date-time read as UTC. A file without the trailer was cut short.
+ */
+final class BinaryRowWriter implements RowWriter {
+
+    static final byte[] MAGIC = {'M', 'A', 'R', 'T', 'E', 'X', 'P'};
+    static final int VERSION = 1;
+    static final int ROW = 1;
+    static final int END = 0;
+
+    private final ChannelOutput out;
+    private ColumnKind[] kinds;
+    private byte[] nulls;
+    private long[] longs;      // Values of the current row, reused: NULLs are only known once read,
+    private double[] doubles;  // and the bitmap goes before the values
+    private String[] strings;
+
+    BinaryRowWriter(ChannelOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(ExportTable table, ResultSetMetaData columns) throws IOException, SQLException {
+        kinds = new ColumnKind[columns.getColumnCount()];
+        nulls = new byte[(kinds.length + 7) / 8];
+        longs = new long[kinds.length];
+        doubles = new double[kinds.length];
+        strings = new String[kinds.length];
+        out.writeBytes(MAGIC);
+        out.writeByte(VERSION);
+        out.writeString(table.name());
+        out.writeVarLong(kinds.length);
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = ColumnKind.of(columns.getColumnType(i + 1));
+            out.writeString(columns.getColumnLabel(i + 1));
+            out.writeByte(kinds[i].getCode());
+        }
+    }
+
+    @Override
+    public void row(ResultSet rs) throws IOException, SQLException {
+        Arrays.fill(nulls, (byte) 0);
+        for (int i = 0; i < kinds.length; i++) {
+            int column = i + 1;
+            boolean isNull;
+            switch (kinds[i]) {
+                case LONG:
+                    longs[i] = rs.getLong(column);
+                    isNull = rs.wasNull();
+                    break;
+                case DOUBLE:
+                    doubles[i] = rs.getDouble(column);
+                    isNull = rs.wasNull();
+                    break;
+                case TIMESTAMP: {
+                    Timestamp value = rs.getTimestamp(column);
+                    isNull = value == null;
+                    if (!isNull) {
+                        longs[i] = value.toLocalDateTime().toInstant(ZoneOffset.UTC).toEpochMilli();
+                    }
+                    break;
+                }
+                default:
+                    strings[i] = rs.getString(column);
+                    isNull = strings[i] == null;
+            }
+            if (isNull) {
+                nulls[i >> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+
+        out.writeByte(ROW);
+        out.writeBytes(nulls);
+        for (int i = 0; i < kinds.length; i++) {
+            if ((nulls[i >> 3] & (1 << (i & 7))) != 0) {
+                continue;
+            }
+            switch (kinds[i]) {
+                case LONG:
+                case TIMESTAMP:
+                    out.writeSignedVarLong(longs[i]);
+                    break;
+                case DOUBLE:
+                    out.writeDouble(doubles[i]);
+                    break;
+                default:
+                    out.writeString(strings[i]);
+            }
+        }
+    }
+
+    @Override
+    public void end(long rows) throws IOException {
+        out.writeByte(END);
+        out.writeVarLong(rows);
+    }
+}
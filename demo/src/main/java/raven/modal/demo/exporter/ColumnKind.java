@@ -0,0 +1,56 @@
+package raven.modal.demo.exporter;
+
+import java.sql.Types;
+
+/**
+ * How a column's values are encoded; the code is stored in the header of binary exports.
+ */
+enum ColumnKind {
+    LONG(1),
+    DOUBLE(2),
+    STRING(3),
+    TIMESTAMP(4);   // Local date-time as epoch milliseconds, no zone (DATETIME has none either)
+
+    private final int code;
+
+    ColumnKind(int code) {
+        this.code = code;
+    }
+
+    int getCode() {
+        return code;
+    }
+
+    static ColumnKind of(int sqlType) {
+        switch (sqlType) {
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return LONG;
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return DOUBLE;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return TIMESTAMP;
+            default:
+                return STRING;
+        }
+    }
+
+    static ColumnKind ofCode(int code) {
+        for (ColumnKind kind : values()) {
+            if (kind.code == code) {
+                return kind;
+            }
+        }
+        throw new IllegalArgumentException("Unknown column kind " + code);
+    }
+}
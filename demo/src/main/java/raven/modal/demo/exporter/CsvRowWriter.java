@@ -0,0 +1,71 @@
+package raven.modal.demo.exporter;
+
+import raven.modal.demo.importer.CsvReader;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * RFC 4180 CSV with a header row; numbers in plain notation, date-times as ISO-8601, NULL as an empty field.
+ */
+final class CsvRowWriter implements RowWriter {
+
+    private static final String LINE_END = "\r\n";
+
+    private final ChannelOutput out;
+    private ColumnKind[] kinds;
+    private String[] fields;
+
+    CsvRowWriter(ChannelOutput out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(ExportTable table, ResultSetMetaData columns) throws IOException, SQLException {
+        kinds = new ColumnKind[columns.getColumnCount()];
+        fields = new String[kinds.length];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = ColumnKind.of(columns.getColumnType(i + 1));
+            fields[i] = columns.getColumnLabel(i + 1);
+        }
+        out.writeText(CsvReader.format(fields) + LINE_END);
+    }
+
+    @Override
+    public void row(ResultSet rs) throws IOException, SQLException {
+        for (int i = 0; i < kinds.length; i++) {
+            int column = i + 1;
+            switch (kinds[i]) {
+                case LONG: {
+                    long value = rs.getLong(column);
+                    fields[i] = rs.wasNull() ? "" : Long.toString(value);
+                    break;
+                }
+                case DOUBLE: {
+                    double value = rs.getDouble(column);
+                    fields[i] = rs.wasNull() ? "" : BigDecimal.valueOf(value).toPlainString();
+                    break;
+                }
+                case TIMESTAMP: {
+                    Timestamp value = rs.getTimestamp(column);
+                    fields[i] = value == null ? "" : value.toLocalDateTime().toString();
+                    break;
+                }
+                default: {
+                    String value = rs.getString(column);
+                    fields[i] = value == null ? "" : value;
+                }
+            }
+        }
+        out.writeText(CsvReader.format(fields) + LINE_END);
+    }
+
+    @Override
+    public void end(long rows) {
+        // CSV has no trailer
+    }
+}
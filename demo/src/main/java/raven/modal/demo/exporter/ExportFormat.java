@@ -0,0 +1,40 @@
+package raven.modal.demo.exporter;
+
+import java.util.Locale;
+
+/**
+ * File formats of {@link HistoryExporter}.
+ */
+public enum ExportFormat {
+    CSV("csv", "CSV"),
+    /**
+     * Varint-encoded rows, smaller and faster to parse than the CSV; see {@link BinaryRowWriter} for the layout
+     * and {@link BinaryExportReader} to read it back.
+     */
+    BINARY("bin", "Binary");
+
+    private final String extension;
+    private final String title;
+
+    ExportFormat(String extension, String title) {
+        this.extension = extension;
+        this.title = title;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    RowWriter newWriter(ChannelOutput out) {
+        return this == CSV ? new CsvRowWriter(out) : new BinaryRowWriter(out);
+    }
+
+    public static ExportFormat parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    @Override
+    public String toString() {
+        return title;
+    }
+}
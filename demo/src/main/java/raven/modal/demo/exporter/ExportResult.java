@@ -0,0 +1,32 @@
+package raven.modal.demo.exporter;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * Outcome of a {@link HistoryExporter} run.
+ */
+@Getter
+@AllArgsConstructor
+public class ExportResult {
+
+    private final ExportTable table;
+    private final long rows;
+    private final long bytes;
+    private final long millis;
+    private final boolean cancelled;   // The partial file has been deleted
+    private final File file;
+
+    public double getRowsPerSecond() {
+        return millis == 0 ? rows : rows * 1000.0 / millis;
+    }
+
+    /**
+     * Short summary for status messages, e.g. "1,250,000 rows, 48.2 MB (310,000 rows/s)".
+     */
+    public String getSummary() {
+        return String.format("%,d rows, %,.1f MB (%,.0f rows/s)", rows, bytes / (1024.0 * 1024.0), getRowsPerSecond());
+    }
+}
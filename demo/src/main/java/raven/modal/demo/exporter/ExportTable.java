@@ -0,0 +1,97 @@
+package raven.modal.demo.exporter;
+
+import java.util.Locale;
+
+/**
+ * History tables that can be exported, each as one or more queries over a date range. Detail lines and ledger
+ * rows of archived periods (LedgerArchiveDao) are read from the archive tables first, then from the live ones,
+ * so an export covers a range whether or not it has been archived. Each query binds the range start (inclusive)
+ * and end (exclusive). Rows come in an order some index already has (date, or ID for payments and ledger
+ * archives), so MySQL can stream them without sorting the whole range first.
+ */
+public enum ExportTable {
+    PURCHASES(new Query(
+            "SELECT p.PurchaseID, p.SupplierID, s.SupplierName, p.PurchaseDate, p.InvoiceNo, p.TotalAmount, p.PaidAmount, p.Remarks",
+            "FROM TBLPurchase p JOIN TBLSuppliers s ON s.SupplierID = p.SupplierID WHERE p.PurchaseDate >= ? AND p.PurchaseDate < ?",
+            "ORDER BY p.PurchaseDate, p.PurchaseID")),
+    PURCHASE_DETAILS(detailQuery("TBLPurchase", "TBLPurchaseDetailArchive", "PurchaseID", "PurchaseDate", "PurchaseDetailID"),
+            detailQuery("TBLPurchase", "TBLPurchaseDetail", "PurchaseID", "PurchaseDate", "PurchaseDetailID")),
+    SALES(new Query(
+            "SELECT sa.SaleID, sa.CustomerID, c.CustomerName, sa.SaleDate, sa.InvoiceNo, sa.TotalAmount, sa.ReceivedAmount, sa.Remarks",
+            "FROM TBLSale sa JOIN TBLCustomers c ON c.CustomerID = sa.CustomerID WHERE sa.SaleDate >= ? AND sa.SaleDate < ?",
+            "ORDER BY sa.SaleDate, sa.SaleID")),
+    SALE_DETAILS(detailQuery("TBLSale", "TBLSaleDetailArchive", "SaleID", "SaleDate", "SaleDetailID"),
+            detailQuery("TBLSale", "TBLSaleDetail", "SaleID", "SaleDate", "SaleDetailID")),
+    // Orders that follow an index, so no sort is needed: the archive's (DocYear, LedgerID) key, the live IX_TBLStockLedger_CreatedDate
+    STOCK_LEDGER(ledgerQuery("TBLStockLedgerArchive", "ORDER BY DocYear, LedgerID"), ledgerQuery("TBLStockLedger", "ORDER BY CreatedDate")),
+    SUPPLIER_PAYMENTS(new Query(
+            "SELECT PaymentID, SupplierID, PaymentDate, Amount, Remarks",
+            "FROM TBLSupplierPayments WHERE PaymentDate >= ? AND PaymentDate < ?",
+            "ORDER BY PaymentID")),
+    CUSTOMER_RECEIPTS(new Query(
+            "SELECT ReceiptID, CustomerID, ReceiptDate, Amount, Remarks",
+            "FROM TBLCustomerReceipts WHERE ReceiptDate >= ? AND ReceiptDate < ?",
+            "ORDER BY ReceiptID"));
+
+    private final Query[] queries;
+
+    ExportTable(Query... queries) {
+        this.queries = queries;
+    }
+
+    Query[] getQueries() {
+        return queries;
+    }
+
+    /**
+     * File name stem, e.g. {@code purchase-details}.
+     */
+    public String getFileName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+
+    @Override
+    public String toString() {
+        String name = name().toLowerCase(Locale.ROOT).replace('_', ' ');
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static Query detailQuery(String headerTable, String detailTable, String idColumn, String dateColumn, String detailIdColumn) {
+        return new Query(
+                "SELECT d." + detailIdColumn + ", d." + idColumn + ", h." + dateColumn + ", d.ProductID, d.Quantity, d.Rate, d.Total",
+                "FROM " + headerTable + " h JOIN " + detailTable + " d ON d." + idColumn + " = h." + idColumn +
+                        " WHERE h." + dateColumn + " >= ? AND h." + dateColumn + " < ?",
+                "ORDER BY h." + dateColumn + ", h." + idColumn + ", d." + detailIdColumn);
+    }
+
+    private static Query ledgerQuery(String table, String orderBy) {
+        return new Query(
+                "SELECT LedgerID, ProductID, RefType, RefID, RefDetailID, QtyIn, QtyOut, Rate, CreatedDate",
+                "FROM " + table + " WHERE CreatedDate >= ? AND CreatedDate < ?",
+                orderBy);
+    }
+
+    /**
+     * A SELECT split in parts, so its row count can be estimated with the same FROM/WHERE.
+     */
+    static final class Query {
+
+        private final String select;
+        private final String from;
+        private final String orderBy;
+
+        Query(String select, String from, String orderBy) {
+            this.select = select;
+            this.from = from;
+            this.orderBy = orderBy;
+        }
+
+        String getSql() {
+            return select + " " + from + " " + orderBy;
+        }
+
+        String getCountSql() {
+            return "SELECT COUNT(*) " + from;
+        }
+    }
+}
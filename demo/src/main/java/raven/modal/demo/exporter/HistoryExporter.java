@@ -0,0 +1,158 @@
+package raven.modal.demo.exporter;
+
+import raven.modal.demo.mysql.MySQLConnection;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+/**
+ * Exports one history table over a date range to a CSV or binary file, in constant memory however many rows it has.
+ * <p>
+ * Each query runs forward-only and read-only with a fetch size of {@link Integer#MIN_VALUE}, which makes
+ * Connector/J stream rows off the socket one at a time instead of reading the whole result into the heap.
+ * Rows are encoded straight into a {@link ChannelOutput} and reach the disk in large sequential writes.
+ * <p>
+ * {@link #cancel()} may be called from any thread; it stops the running query and the partial file is deleted.
+ */
+public class HistoryExporter {
+
+    private static final int PROGRESS_ROWS = 10_000;
+
+    /**
+     * Called on the exporting thread every {@value #PROGRESS_ROWS} rows and once at the end.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param expectedRows Rows in the range when the export started; it may grow while the export runs.
+         */
+        void progress(long rows, long expectedRows);
+    }
+
+    private final ExportTable table;
+    private final ExportFormat format;
+    private final LocalDate from;
+    private final LocalDate to;
+    private final File file;
+    private ProgressListener listener = (rows, expectedRows) -> { };
+
+    private volatile boolean cancelled;
+    private volatile PreparedStatement running;
+
+    /**
+     * @param from First day exported.
+     * @param to   Last day exported (inclusive).
+     */
+    public HistoryExporter(ExportTable table, ExportFormat format, LocalDate from, LocalDate to, File file) {
+        this.table = table;
+        this.format = format;
+        this.from = from;
+        this.to = to;
+        this.file = file;
+    }
+
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Default file name, e.g. {@code sales-2024-01-01-2024-12-31.csv}.
+     */
+    public static String defaultFileName(ExportTable table, ExportFormat format, LocalDate from, LocalDate to) {
+        return table.getFileName() + "-" + from + "-" + to + "." + format.getExtension();
+    }
+
+    public void cancel() {
+        cancelled = true;
+        PreparedStatement statement = running;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException e) {
+                System.err.println("Error cancelling export: " + e.getMessage());
+            }
+        }
+    }
+
+    public ExportResult run() throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        Timestamp fromTime = Timestamp.valueOf(from.atStartOfDay());
+        Timestamp toTime = Timestamp.valueOf(to.plusDays(1).atStartOfDay());
+        long rows = 0;
+        long bytes;
+        try (Connection conn = MySQLConnection.getInstance().getConnection();
+             ChannelOutput out = new ChannelOutput(file.toPath())) {
+            long expectedRows = count(conn, fromTime, toTime);
+            listener.progress(0, expectedRows);
+
+            RowWriter writer = format.newWriter(out);
+            boolean begun = false;
+            for (ExportTable.Query query : table.getQueries()) {
+                if (cancelled) {
+                    break;
+                }
+                try (PreparedStatement ps = conn.prepareStatement(query.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    ps.setFetchSize(Integer.MIN_VALUE); // Stream row by row
+                    ps.setTimestamp(1, fromTime);
+                    ps.setTimestamp(2, toTime);
+                    running = ps;
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!begun) {
+                            writer.begin(table, rs.getMetaData());
+                            begun = true;
+                        }
+                        while (!cancelled && rs.next()) {
+                            writer.row(rs);
+                            if (++rows % PROGRESS_ROWS == 0) {
+                                listener.progress(rows, expectedRows);
+                            }
+                        }
+                    }
+                } catch (SQLException e) {
+                    if (!cancelled) {
+                        throw e;
+                    }
+                    // The statement was cancelled
+                } finally {
+                    running = null;
+                }
+            }
+            if (!cancelled) {
+                writer.end(rows);
+                listener.progress(rows, expectedRows);
+            }
+            out.flush();
+            bytes = out.getBytesWritten();
+        } catch (IOException | SQLException e) {
+            Files.deleteIfExists(file.toPath());
+            throw e;
+        }
+        if (cancelled) {
+            Files.deleteIfExists(file.toPath());
+        }
+        return new ExportResult(table, rows, bytes, System.currentTimeMillis() - start, cancelled, file);
+    }
+
+    private long count(Connection conn, Timestamp fromTime, Timestamp toTime) throws SQLException {
+        long count = 0;
+        for (ExportTable.Query query : table.getQueries()) {
+            try (PreparedStatement ps = conn.prepareStatement(query.getCountSql())) {
+                ps.setTimestamp(1, fromTime);
+                ps.setTimestamp(2, toTime);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        count += rs.getLong(1);
+                    }
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,27 @@
+package raven.modal.demo.exporter;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Encodes exported rows in one {@link ExportFormat}.
+ */
+interface RowWriter {
+
+    /**
+     * Called once, before the first row, with the columns of the export's queries (all queries of a table have the same columns).
+     */
+    void begin(ExportTable table, ResultSetMetaData columns) throws IOException, SQLException;
+
+    /**
+     * Writes the current row of {@code rs}.
+     */
+    void row(ResultSet rs) throws IOException, SQLException;
+
+    /**
+     * Called once after the last row of a complete export.
+     */
+    void end(long rows) throws IOException;
+}
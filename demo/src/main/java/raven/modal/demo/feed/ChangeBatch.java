@@ -0,0 +1,69 @@
+package raven.modal.demo.feed;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The changes read by one poll, with at most one event per row: several changes of a row collapse into the net
+ * change (insert + update = insert, insert + delete = nothing, otherwise the last one) at the latest version.
+ */
+public final class ChangeBatch {
+
+    private final List<ChangeEvent> events;
+    private final Set<ChangeEntity> entities = EnumSet.noneOf(ChangeEntity.class);
+
+    private ChangeBatch(List<ChangeEvent> events) {
+        this.events = Collections.unmodifiableList(events);
+        for (ChangeEvent event : events) {
+            entities.add(event.getEntity());
+        }
+    }
+
+    /**
+     * @param events Feed rows in version order.
+     */
+    static ChangeBatch coalesce(List<ChangeEvent> events) {
+        Map<String, ChangeEvent> net = new LinkedHashMap<>();
+        for (ChangeEvent event : events) {
+            String key = event.getEntity().name() + "|" + event.getEntityId();
+            ChangeEvent previous = net.get(key);
+            ChangeOp op = event.getOp();
+            if (previous != null && previous.getOp() == ChangeOp.INSERT) {
+                if (op == ChangeOp.DELETE) {
+                    net.remove(key); // Never seen by subscribers
+                    continue;
+                }
+                op = ChangeOp.INSERT;
+            }
+            net.put(key, new ChangeEvent(event.getVersion(), event.getEntity(), event.getEntityId(), op));
+        }
+        return new ChangeBatch(new ArrayList<>(net.values()));
+    }
+
+    public List<ChangeEvent> getEvents() {
+        return events;
+    }
+
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    public boolean contains(ChangeEntity entity) {
+        return entities.contains(entity);
+    }
+
+    public List<ChangeEvent> getEvents(ChangeEntity entity) {
+        List<ChangeEvent> list = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            if (event.getEntity() == entity) {
+                list.add(event);
+            }
+        }
+        return list;
+    }
+}
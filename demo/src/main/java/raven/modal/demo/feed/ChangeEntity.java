@@ -0,0 +1,59 @@
+package raven.modal.demo.feed;
+
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+
+/**
+ * Entities that appear in the change feed, with the cached lookups and row counts a change to them makes stale.
+ * Stored by name in TBLChangeFeed.Entity.
+ */
+public enum ChangeEntity {
+    BRAND(lookups(LookupType.BRANDS), counts(RowCount.BRANDS), false),
+    CATEGORY(lookups(LookupType.CATEGORIES), counts(RowCount.ACTIVE_CATEGORIES), true),
+    COMPANY(lookups(LookupType.COMPANIES), counts(RowCount.COMPANIES, RowCount.ACTIVE_COMPANIES), true),
+    CUSTOMER(lookups(LookupType.CUSTOMERS), counts(RowCount.CUSTOMERS), false),
+    PECKING_TYPE(lookups(LookupType.PECKING_TYPES, LookupType.PRODUCTS), counts(RowCount.ACTIVE_PECKING_TYPES), true), // Products carry the quarterQty
+    PRODUCT(lookups(LookupType.PRODUCTS), counts(RowCount.PRODUCTS), false),
+    SUPPLIER(lookups(LookupType.SUPPLIERS), counts(RowCount.SUPPLIERS), false),
+    UNIT(lookups(LookupType.UNITS), counts(RowCount.UNITS), false),
+    PURCHASE(lookups(), counts(RowCount.PURCHASES), false),
+    SALE(lookups(), counts(RowCount.SALES), false),
+    SUPPLIER_PAYMENT(lookups(), counts(), false),
+    CUSTOMER_RECEIPT(lookups(), counts(), false);
+
+    private final LookupType[] lookupTypes;
+    private final RowCount[] rowCounts;
+    private final boolean countsFiltered;
+
+    /**
+     * @param countsFiltered The counts filter on IsActive, so an update can change them too.
+     */
+    ChangeEntity(LookupType[] lookupTypes, RowCount[] rowCounts, boolean countsFiltered) {
+        this.lookupTypes = lookupTypes;
+        this.rowCounts = rowCounts;
+        this.countsFiltered = countsFiltered;
+    }
+
+    LookupType[] getLookupTypes() {
+        return lookupTypes;
+    }
+
+    RowCount[] getRowCounts() {
+        return rowCounts;
+    }
+
+    /**
+     * Whether a change of this kind can change the entity's row counts.
+     */
+    boolean changesCount(ChangeOp op) {
+        return op != ChangeOp.UPDATE || countsFiltered;
+    }
+
+    private static LookupType[] lookups(LookupType... types) {
+        return types;
+    }
+
+    private static RowCount[] counts(RowCount... counts) {
+        return counts;
+    }
+}
@@ -0,0 +1,19 @@
+package raven.modal.demo.feed;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * One row of the change feed.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class ChangeEvent {
+
+    private final long version;   // TBLChangeFeed.ChangeID: later changes of a row have higher versions
+    private final ChangeEntity entity;
+    private final int entityId;
+    private final ChangeOp op;
+}
@@ -0,0 +1,183 @@
+package raven.modal.demo.feed;
+
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.dao.ChangeFeedDao;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tails TBLChangeFeed so each terminal sees the other terminals' writes without reloading whole pages.
+ * <p>
+ * One background thread polls every {@value #POLL_MILLIS} ms for changes after its cursor, invalidates the
+ * {@link LookupCache} lists and {@link RowCountCache} counts they make stale, then hands the batch to the
+ * subscribers (the open table panels), which patch just the affected rows.
+ * <p>
+ * ChangeIDs are assigned when a transaction inserts its feed rows, not when it commits, so a lower ID can become
+ * visible after a higher one. The cursor therefore only moves over consecutive IDs; changes seen above a gap are
+ * delivered at once and remembered, and the gap is re-read on every poll until it fills or is older than
+ * {@value #GAP_TIMEOUT_MILLIS} ms (a rolled-back transaction, or an ID the server skipped).
+ * Changes are delivered at least once: a subscriber may see its own terminal's writes, and a change twice.
+ */
+public class ChangeFeed {
+
+    private static final long POLL_MILLIS = 1000;
+    private static final int BATCH_ROWS = 1000;
+    private static final long GAP_TIMEOUT_MILLIS = 60_000;   // Longer than a write transaction waits for a lock
+    private static final long PRUNE_INTERVAL_MILLIS = 60 * 60 * 1000;
+    private static final int RETENTION_HOURS = 24;
+    private static final int PRUNE_BATCH = 10_000;
+
+    private final ChangeFeedDao changeFeedDao = new ChangeFeedDao();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor;
+    private volatile boolean started;
+
+    // Poller thread only
+    private boolean positioned;
+    private long cursor;                                  // Every version <= cursor has been delivered or given up on
+    private final TreeSet<Long> seen = new TreeSet<>();   // Versions > cursor already delivered
+    private long gapSince;                                // When the gap at cursor + 1 was first seen; 0 if none
+    private long lastPrune;
+
+    private ChangeFeed() {
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mart-change-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class InstanceHolder {
+        static final ChangeFeed instance = new ChangeFeed();
+    }
+
+    public static ChangeFeed getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Starts tailing from the latest change; earlier changes are already reflected in what the forms load.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        executor.scheduleWithFixedDelay(this::poll, 0, POLL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isStarted() {
+        return started;
+    }
+
+    public void subscribe(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void poll() {
+        try {
+            if (!positioned) {
+                cursor = changeFeedDao.getLatestVersion();
+                positioned = true;
+                return;
+            }
+            List<ChangeEvent> events = new ArrayList<>();
+            List<Long> versions = new ArrayList<>();
+            long tailFrom = cursor;
+            if (!seen.isEmpty()) {
+                tailFrom = seen.last();
+                collect(changeFeedDao.read(cursor, tailFrom, BATCH_ROWS, versions), events); // Changes committed into the gap
+            }
+            collect(changeFeedDao.read(tailFrom, Long.MAX_VALUE, BATCH_ROWS, versions), events);
+            seen.addAll(versions);
+            advance();
+
+            if (!events.isEmpty()) {
+                publish(ChangeBatch.coalesce(events));
+            }
+            prune();
+        } catch (Exception e) {
+            System.err.println("Change feed poll failed: " + e.getMessage());
+        }
+    }
+
+    private void collect(List<ChangeEvent> read, List<ChangeEvent> events) {
+        for (ChangeEvent event : read) {
+            if (!seen.contains(event.getVersion())) {
+                events.add(event);
+            }
+        }
+    }
+
+    private void advance() {
+        while (!seen.isEmpty() && seen.first() == cursor + 1) {
+            cursor = seen.pollFirst();
+        }
+        if (seen.isEmpty()) {
+            gapSince = 0;
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (gapSince == 0) {
+            gapSince = now;
+        } else if (now - gapSince > GAP_TIMEOUT_MILLIS) {
+            // Give up on the gap
+            cursor = seen.pollFirst();
+            while (!seen.isEmpty() && seen.first() == cursor + 1) {
+                cursor = seen.pollFirst();
+            }
+            gapSince = seen.isEmpty() ? 0 : now;
+        }
+    }
+
+    private void publish(ChangeBatch batch) {
+        Set<LookupType> lookups = EnumSet.noneOf(LookupType.class);
+        Set<RowCount> counts = EnumSet.noneOf(RowCount.class);
+        for (ChangeEvent event : batch.getEvents()) {
+            ChangeEntity entity = event.getEntity();
+            lookups.addAll(List.of(entity.getLookupTypes()));
+            if (entity.changesCount(event.getOp())) {
+                counts.addAll(List.of(entity.getRowCounts()));
+            }
+        }
+        lookups.forEach(LookupCache.getInstance()::invalidate);
+        counts.forEach(RowCountCache.getInstance()::invalidate);
+
+        for (ChangeListener listener : listeners) {
+            try {
+                listener.changed(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Change listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void prune() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < PRUNE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPrune = now;
+        LocalDateTime before = LocalDateTime.now().minusHours(RETENTION_HOURS);
+        while (changeFeedDao.prune(before, PRUNE_BATCH) == PRUNE_BATCH) {
+            // Keep each delete short
+        }
+    }
+}
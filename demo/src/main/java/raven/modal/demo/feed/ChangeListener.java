@@ -0,0 +1,11 @@
+package raven.modal.demo.feed;
+
+/**
+ * Receives the changes {@link ChangeFeed} reads from the database, on the feed's poller thread.
+ * UI subscribers hand the batch to the EDT themselves.
+ */
+@FunctionalInterface
+public interface ChangeListener {
+
+    void changed(ChangeBatch batch);
+}
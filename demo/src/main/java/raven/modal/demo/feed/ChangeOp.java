@@ -0,0 +1,29 @@
+package raven.modal.demo.feed;
+
+/**
+ * What happened to a row, stored as one character in TBLChangeFeed.Op.
+ */
+public enum ChangeOp {
+    INSERT('I'),
+    UPDATE('U'),
+    DELETE('D');
+
+    private final char code;
+
+    ChangeOp(char code) {
+        this.code = code;
+    }
+
+    public String getCode() {
+        return String.valueOf(code);
+    }
+
+    public static ChangeOp ofCode(String code) {
+        for (ChangeOp op : values()) {
+            if (code != null && code.length() == 1 && code.charAt(0) == op.code) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("Unknown change op " + code);
+    }
+}
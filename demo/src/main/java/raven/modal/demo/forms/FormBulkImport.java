@@ -0,0 +1,123 @@
+package raven.modal.demo.forms;
+
+import com.formdev.flatlaf.FlatClientProperties;
+import net.miginfocom.swing.MigLayout;
+import raven.modal.demo.importer.CsvImporter;
+import raven.modal.demo.importer.ImportResult;
+import raven.modal.demo.importer.ImportType;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.StorageEngine;
+import raven.modal.demo.system.Form;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.io.File;
+
+/**
+ * Imports products, customers or suppliers from a CSV file through {@link CsvImporter}.
+ */
+public class FormBulkImport extends Form {
+
+    private JComboBox<ImportType> cbType;
+    private JTextField txtFile;
+    private JProgressBar progressBar;
+    private JLabel lbStatus;
+    private JButton btnBrowse, btnImport;
+
+    public FormBulkImport() {
+        init();
+    }
+
+    private void init() {
+        setLayout(new MigLayout("wrap, fillx, insets 30 50", "[fill]"));
+
+        JLabel title = new JLabel("Bulk Import (CSV)");
+        title.putClientProperty(FlatClientProperties.STYLE, "font:bold +5");
+        add(title, "gapy 0 15");
+
+        add(new JLabel("<html>The first row must name the columns. Products need ProductCode, ProductName, Brand, Category and PeckingType "
+                + "(Company and IsActive optional); customers need CustomerName and suppliers SupplierName "
+                + "(ContactNo, Address, Email, OpeningBalance optional).</html>"), "w 500, gapy 0 10");
+
+        JPanel inputPanel = new JPanel(new MigLayout("wrap 3, fillx, insets 0", "[right][grow][]"));
+        cbType = new JComboBox<>(ImportType.values());
+        txtFile = new JTextField();
+        txtFile.setEditable(false);
+        btnBrowse = new JButton("Browse...");
+        btnBrowse.addActionListener(e -> chooseFile());
+
+        inputPanel.add(new JLabel("Import:"));
+        inputPanel.add(cbType, "span 2, h 30!");
+        inputPanel.add(new JLabel("File:"));
+        inputPanel.add(txtFile, "h 30!");
+        inputPanel.add(btnBrowse, "h 30!");
+        add(inputPanel);
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        add(progressBar, "h 20!, gapy 10");
+        lbStatus = new JLabel(" ");
+        add(lbStatus);
+
+        btnImport = new JButton("Import");
+        btnImport.addActionListener(e -> runImport());
+        add(btnImport, "align right, growx 0, gapy 10");
+    }
+
+    private void chooseFile() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Select CSV File");
+        fileChooser.setFileFilter(new FileNameExtensionFilter("CSV files (*.csv)", "csv"));
+        if (fileChooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            txtFile.setText(fileChooser.getSelectedFile().getAbsolutePath());
+        }
+    }
+
+    private void runImport() {
+        if (Repositories.getInstance().getEngine() != StorageEngine.MYSQL) {
+            JOptionPane.showMessageDialog(this, "Bulk import writes to MySQL; start the application with --storage=mysql.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        File file = new File(txtFile.getText());
+        if (txtFile.getText().isEmpty() || !file.isFile()) {
+            JOptionPane.showMessageDialog(this, "Please select a CSV file.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        ImportType type = (ImportType) cbType.getSelectedItem();
+        CsvImporter importer = new CsvImporter(type, file, CsvImporter.defaultRejectsFile(file), Runtime.getRuntime().availableProcessors());
+        importer.setProgressListener((soFar, fraction) -> SwingUtilities.invokeLater(() -> {
+            progressBar.setValue((int) (fraction * 100));
+            lbStatus.setText(String.format("%,d rows read: %s", soFar.getRowsRead(), soFar.getSummary()));
+        }));
+
+        setControlsEnabled(false);
+        progressBar.setValue(0);
+        // Run the import on a separate thread to prevent freezing the UI
+        new Thread(() -> {
+            try {
+                ImportResult result = importer.run();
+                SwingUtilities.invokeLater(() -> {
+                    String message = "Import finished: " + result.getSummary() + ".";
+                    if (result.getRejectsFile() != null) {
+                        message += "\nRejected rows were written to " + result.getRejectsFile().getAbsolutePath();
+                    }
+                    JOptionPane.showMessageDialog(this, message, "Import", result.getRowsRejected() == 0
+                            ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+                    setControlsEnabled(true);
+                });
+            } catch (Exception e) {
+                System.err.println("Bulk import failed: " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(this, "Import failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    setControlsEnabled(true);
+                });
+            }
+        }, "mart-import-main").start();
+    }
+
+    private void setControlsEnabled(boolean enabled) {
+        cbType.setEnabled(enabled);
+        btnBrowse.setEnabled(enabled);
+        btnImport.setEnabled(enabled);
+    }
+}
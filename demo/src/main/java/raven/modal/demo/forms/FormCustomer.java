@@ -2,8 +2,9 @@ package raven.modal.demo.forms;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
-import raven.modal.demo.dao.CustomerDao;
 import raven.modal.demo.model.CustomerModel;
+import raven.modal.demo.repository.CustomerRepository;
+import raven.modal.demo.repository.Repositories;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.JComponentUtils;
@@ -21,7 +22,7 @@ public class FormCustomer extends Form {
     private JLabel titleLabel; // Added to hold the title
 
     private int customerId = 0;
-    private final CustomerDao customerDao = new CustomerDao();
+    private final CustomerRepository customerDao = Repositories.getInstance().customers();
 
     public FormCustomer(int customerId) {
         this.customerId = customerId;
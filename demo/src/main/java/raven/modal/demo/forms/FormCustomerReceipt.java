@@ -0,0 +1,221 @@
+package raven.modal.demo.forms;
+
+import com.formdev.flatlaf.FlatClientProperties;
+import net.miginfocom.swing.MigLayout;
+import raven.modal.demo.model.CustomerModel;
+import raven.modal.demo.model.CustomerReceiptModel;
+import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.repository.CustomerReceiptRepository;
+import raven.modal.demo.repository.CustomerRepository;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.system.Form;
+import raven.modal.demo.utils.combox.ComboBoxUtils;
+import raven.modal.demo.utils.combox.JComponentUtils;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.sql.SQLException;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Records money received from a customer. Amounts typed in the "Apply" column go to those sales first;
+ * the rest of the receipt settles the oldest open sales.
+ */
+public class FormCustomerReceipt extends Form {
+
+    private static final int COL_APPLY = 5;
+    private static final int COL_SALE_ID = 6;
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final CustomerRepository customerDao = Repositories.getInstance().customers();
+    private final CustomerReceiptRepository receiptDao = Repositories.getInstance().customerReceipts();
+
+    private JComboBox<CustomerModel> cbCustomer;
+    private JTextField txtRemainingBalance, txtReceiptAmount;
+    private JTextArea txtRemarks;
+    private JTable openSalesTable;
+    private DefaultTableModel openSalesModel;
+    private JButton btnReceive, btnCancel;
+
+    public FormCustomerReceipt() {
+        init();
+    }
+
+    @Override
+    public void formOpen() {
+        loadCustomers();
+    }
+
+    private void init() {
+        setLayout(new MigLayout("wrap, fill, insets 20", "[fill]", "[][][grow,fill][]"));
+
+        JLabel title = new JLabel("Record Customer Receipt");
+        title.putClientProperty(FlatClientProperties.STYLE, "font:bold +5");
+        add(title, "gapy 0 10");
+
+        // --- Input Panel ---
+        JPanel inputPanel = new JPanel(new MigLayout("wrap 4, fillx, insets 0", "[right][grow][right][grow]"));
+
+        txtRemainingBalance = new JTextField();
+        txtReceiptAmount = new JTextField();
+        txtRemainingBalance.setEditable(false);
+
+        cbCustomer = new JComboBox<>();
+        cbCustomer.addActionListener(e -> updateCustomer());
+
+        inputPanel.add(new JLabel("Customer:"));
+        inputPanel.add(cbCustomer, "span 3, h 30!");
+
+        inputPanel.add(new JLabel("Remaining Balance:"));
+        inputPanel.add(txtRemainingBalance, "h 30!");
+
+        inputPanel.add(new JLabel("Amount Received:"));
+        inputPanel.add(txtReceiptAmount, "h 30!");
+        JComponentUtils.setNumberOnly(txtReceiptAmount);
+
+        txtRemarks = new JTextArea(3, 20);
+        txtRemarks.setLineWrap(true);
+        txtRemarks.setWrapStyleWord(true);
+        JScrollPane scrollRemarks = new JScrollPane(txtRemarks);
+
+        inputPanel.add(new JLabel("Remarks:"), "newline");
+        inputPanel.add(scrollRemarks, "span 3, h 60!, growx");
+
+        add(inputPanel);
+
+        // --- Open Sales ---
+        openSalesModel = new DefaultTableModel(new Object[]{"Invoice No", "Date", "Total", "Received", "Due", "Apply", "SaleID"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int col) {
+                return col == COL_APPLY; // Only the Apply column is editable
+            }
+        };
+        openSalesTable = new JTable(openSalesModel);
+        openSalesTable.removeColumn(openSalesTable.getColumnModel().getColumn(COL_SALE_ID));
+        add(new JScrollPane(openSalesTable), "h 150::");
+
+        // --- Button Panel ---
+        JPanel buttonPanel = new JPanel(new MigLayout("right, insets 0", "[][]"));
+        btnCancel = new JButton("Cancel");
+        btnReceive = new JButton("Record Receipt");
+
+        btnCancel.addActionListener(e -> SwingUtilities.getWindowAncestor(this).dispose());
+        btnReceive.addActionListener(e -> recordReceipt());
+
+        buttonPanel.add(btnReceive);
+        buttonPanel.add(btnCancel);
+
+        add(buttonPanel, "align right, gapy 10 0");
+    }
+
+    private void loadCustomers() {
+        List<CustomerModel> customers = customerDao.getActiveCustomersForDropdown();
+        cbCustomer.setModel(new DefaultComboBoxModel<>(customers.toArray(new CustomerModel[0])));
+        ComboBoxUtils.setupComboBoxRenderer(cbCustomer, model -> ((CustomerModel) model).getCustomerName());
+        updateCustomer();
+    }
+
+    private void updateCustomer() {
+        openSalesModel.setRowCount(0);
+        CustomerModel selectedCustomer = (CustomerModel) cbCustomer.getSelectedItem();
+        if (selectedCustomer == null || selectedCustomer.getCustomerId() == null || selectedCustomer.getCustomerId() == 0) {
+            txtRemainingBalance.setText("0.00");
+            return;
+        }
+        CustomerModel customer = customerDao.getCustomerById(selectedCustomer.getCustomerId());
+        double balance = customer == null || customer.getOpeningBalance() == null ? 0 : customer.getOpeningBalance();
+        txtRemainingBalance.setText(String.format("%.2f", balance));
+        txtReceiptAmount.setText(String.format("%.2f", Math.max(balance, 0))); // Suggest receiving the full balance
+
+        for (SaleModel sale : receiptDao.getOpenSales(selectedCustomer.getCustomerId())) {
+            openSalesModel.addRow(new Object[]{
+                    sale.getInvoiceNo(),
+                    sale.getSaleDate() == null ? "" : sale.getSaleDate().format(DATE_FORMAT),
+                    String.format("%.2f", sale.getTotalAmount()),
+                    String.format("%.2f", sale.getReceivedAmount()),
+                    String.format("%.2f", sale.getTotalAmount() - sale.getReceivedAmount()),
+                    "",
+                    sale.getSaleID()
+            });
+        }
+    }
+
+    private void recordReceipt() {
+        CustomerModel selectedCustomer = (CustomerModel) cbCustomer.getSelectedItem();
+        if (selectedCustomer == null || selectedCustomer.getCustomerId() == null || selectedCustomer.getCustomerId() == 0) {
+            JOptionPane.showMessageDialog(this, "Please select a customer.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (openSalesTable.isEditing()) {
+            openSalesTable.getCellEditor().stopCellEditing();
+        }
+
+        double receiptAmount;
+        try {
+            receiptAmount = Double.parseDouble(txtReceiptAmount.getText());
+            if (receiptAmount <= 0) {
+                JOptionPane.showMessageDialog(this, "Received amount must be greater than zero.", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Invalid received amount.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        CustomerReceiptModel receipt = new CustomerReceiptModel(selectedCustomer.getCustomerId(), receiptAmount, txtRemarks.getText());
+
+        // Explicit allocation from the Apply column
+        double applied = 0;
+        for (int row = 0; row < openSalesModel.getRowCount(); row++) {
+            String text = String.valueOf(openSalesModel.getValueAt(row, COL_APPLY)).trim();
+            if (text.isEmpty()) {
+                continue;
+            }
+            double amount;
+            try {
+                amount = Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                JOptionPane.showMessageDialog(this, "Invalid amount for invoice " + openSalesModel.getValueAt(row, 0) + ".", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            double due = Double.parseDouble(String.valueOf(openSalesModel.getValueAt(row, 4)));
+            if (amount < 0 || amount > due) {
+                JOptionPane.showMessageDialog(this, "Amount for invoice " + openSalesModel.getValueAt(row, 0) + " must be between 0 and " + String.format("%.2f", due) + ".", "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            if (amount > 0) {
+                receipt.getAllocateTo().put((Integer) openSalesModel.getValueAt(row, COL_SALE_ID), amount);
+                applied += amount;
+            }
+        }
+        if (applied > receiptAmount) {
+            JOptionPane.showMessageDialog(this, "Applied amounts (" + String.format("%.2f", applied) + ") exceed the amount received.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
+        try {
+            receiptDao.saveReceipt(receipt);
+        } catch (SQLException e) {
+            System.err.println("Customer receipt failed. Rolled back: " + e.getMessage());
+            JOptionPane.showMessageDialog(this, "Receipt failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        JOptionPane.showMessageDialog(this, "Receipt of " + String.format("%.2f", receiptAmount) + " recorded successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+        clearForm();
+    }
+
+    /**
+     * Resets the input fields and reloads the selected customer's balance and open sales.
+     */
+    public void clearForm() {
+        txtReceiptAmount.setText("");
+        txtRemarks.setText("");
+        updateCustomer();
+    }
+
+    @Override
+    public void formRefresh() {
+        loadCustomers();
+    }
+}
@@ -0,0 +1,154 @@
+package raven.modal.demo.forms;
+
+import com.formdev.flatlaf.FlatClientProperties;
+import net.miginfocom.swing.MigLayout;
+import raven.modal.demo.exporter.ExportFormat;
+import raven.modal.demo.exporter.ExportResult;
+import raven.modal.demo.exporter.ExportTable;
+import raven.modal.demo.exporter.HistoryExporter;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.StorageEngine;
+import raven.modal.demo.system.Form;
+
+import javax.swing.*;
+import java.io.File;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Exports purchases, sales, their details, the stock ledger or payments over a date range through {@link HistoryExporter}.
+ */
+public class FormExport extends Form {
+
+    private JComboBox<ExportTable> cbTable;
+    private JComboBox<ExportFormat> cbFormat;
+    private JTextField txtFrom, txtTo;
+    private JProgressBar progressBar;
+    private JLabel lbStatus;
+    private JButton btnExport, btnCancel;
+    private HistoryExporter exporter;
+
+    public FormExport() {
+        init();
+    }
+
+    private void init() {
+        setLayout(new MigLayout("wrap, fillx, insets 30 50", "[fill]"));
+
+        JLabel title = new JLabel("Export History");
+        title.putClientProperty(FlatClientProperties.STYLE, "font:bold +5");
+        add(title, "gapy 0 15");
+
+        JPanel inputPanel = new JPanel(new MigLayout("wrap 2, fillx, insets 0", "[right][grow]"));
+        cbTable = new JComboBox<>(ExportTable.values());
+        cbFormat = new JComboBox<>(ExportFormat.values());
+        LocalDate today = LocalDate.now();
+        txtFrom = new JTextField(today.withDayOfYear(1).toString());
+        txtTo = new JTextField(today.toString());
+        txtFrom.putClientProperty(FlatClientProperties.PLACEHOLDER_TEXT, "yyyy-MM-dd");
+        txtTo.putClientProperty(FlatClientProperties.PLACEHOLDER_TEXT, "yyyy-MM-dd");
+
+        inputPanel.add(new JLabel("Table:"));
+        inputPanel.add(cbTable, "h 30!");
+        inputPanel.add(new JLabel("Format:"));
+        inputPanel.add(cbFormat, "h 30!");
+        inputPanel.add(new JLabel("From:"));
+        inputPanel.add(txtFrom, "h 30!");
+        inputPanel.add(new JLabel("To:"));
+        inputPanel.add(txtTo, "h 30!");
+        add(inputPanel);
+
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        add(progressBar, "h 20!, gapy 10");
+        lbStatus = new JLabel(" ");
+        add(lbStatus);
+
+        btnExport = new JButton("Export...");
+        btnExport.addActionListener(e -> runExport());
+        btnCancel = new JButton("Cancel");
+        btnCancel.setEnabled(false);
+        btnCancel.addActionListener(e -> {
+            if (exporter != null) {
+                lbStatus.setText("Cancelling...");
+                exporter.cancel();
+            }
+        });
+        add(btnExport, "split 2, align right, growx 0, gapy 10");
+        add(btnCancel, "growx 0");
+    }
+
+    private void runExport() {
+        if (Repositories.getInstance().getEngine() != StorageEngine.MYSQL) {
+            JOptionPane.showMessageDialog(this, "Export reads from MySQL; start the application with --storage=mysql.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        LocalDate from;
+        LocalDate to;
+        try {
+            from = LocalDate.parse(txtFrom.getText().trim());
+            to = LocalDate.parse(txtTo.getText().trim());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Please enter dates as yyyy-MM-dd.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (from.isAfter(to)) {
+            JOptionPane.showMessageDialog(this, "The start date is after the end date.", "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        ExportTable table = (ExportTable) cbTable.getSelectedItem();
+        ExportFormat format = (ExportFormat) cbFormat.getSelectedItem();
+
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Save Export");
+        fileChooser.setSelectedFile(new File(HistoryExporter.defaultFileName(table, format, from, to)));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+
+        HistoryExporter exporter = new HistoryExporter(table, format, from, to, file);
+        exporter.setProgressListener((rows, expectedRows) -> SwingUtilities.invokeLater(() -> {
+            progressBar.setValue(expectedRows == 0 ? 100 : (int) Math.min(100, rows * 100 / expectedRows));
+            lbStatus.setText(String.format("%,d of %,d rows", rows, expectedRows));
+        }));
+        this.exporter = exporter;
+
+        setRunning(true);
+        progressBar.setValue(0);
+        // Run the export on a separate thread to prevent freezing the UI
+        new Thread(() -> {
+            try {
+                ExportResult result = exporter.run();
+                SwingUtilities.invokeLater(() -> {
+                    if (result.isCancelled()) {
+                        lbStatus.setText("Export cancelled.");
+                    } else {
+                        lbStatus.setText("Exported " + result.getSummary() + ".");
+                        JOptionPane.showMessageDialog(this, "Exported " + result.getSummary() + " to\n" + file.getAbsolutePath(),
+                                "Export", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                    setRunning(false);
+                });
+            } catch (Exception e) {
+                System.err.println("Export failed: " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    JOptionPane.showMessageDialog(this, "Export failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                    setRunning(false);
+                });
+            }
+        }, "mart-export").start();
+    }
+
+    private void setRunning(boolean running) {
+        cbTable.setEnabled(!running);
+        cbFormat.setEnabled(!running);
+        txtFrom.setEnabled(!running);
+        txtTo.setEnabled(!running);
+        btnExport.setEnabled(!running);
+        btnCancel.setEnabled(running);
+        if (!running) {
+            exporter = null;
+        }
+    }
+}
@@ -6,12 +6,13 @@ import raven.modal.demo.dao.BrandDao;
 import raven.modal.demo.dao.CategoryDao;
 import raven.modal.demo.dao.CompanyDao;
 import raven.modal.demo.dao.PeckingTypeDao;
-import raven.modal.demo.dao.ProductDao;
 import raven.modal.demo.model.BrandModel;
 import raven.modal.demo.model.CategoryModel;
 import raven.modal.demo.model.CompanyModel;
 import raven.modal.demo.model.PeckingTypeModel;
 import raven.modal.demo.model.ProductModel;
+import raven.modal.demo.repository.ProductRepository;
+import raven.modal.demo.repository.Repositories;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.ComboBoxUtils;
@@ -40,7 +41,7 @@ public class FormProducts extends Form {
     private final CategoryDao categoryDao = new CategoryDao();
     private final PeckingTypeDao peekingTypeDao = new PeckingTypeDao();
     private final BrandDao brandDao = new BrandDao();
-    private final ProductDao productDao = new ProductDao();
+    private final ProductRepository productDao = Repositories.getInstance().products();
 
     public FormProducts(int productId) {
         this.productId = productId;
@@ -3,18 +3,23 @@ package raven.modal.demo.forms;
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
 import raven.modal.demo.utils.Constants;
-import raven.modal.demo.dao.ProductDao;
-import raven.modal.demo.dao.PurchaseDao;
-import raven.modal.demo.dao.SupplierDao;
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.dao.SaveQueue;
+import raven.modal.demo.model.InvoiceUpdateResult;
 import raven.modal.demo.model.ProductModel;
 import raven.modal.demo.model.PurchaseDetailModel;
 import raven.modal.demo.model.PurchaseModel;
 import raven.modal.demo.model.SupplierModel;
+import raven.modal.demo.repository.ProductRepository;
+import raven.modal.demo.repository.PurchaseRepository;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.SupplierRepository;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.tables.ActionItem;
 import raven.modal.demo.tables.TableActionCellEditor;
 import raven.modal.demo.tables.TableActionCellRenderer;
 import raven.modal.demo.tables.TableActions;
+import raven.modal.demo.utils.SavePromise;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.ComboBoxUtils;
 import raven.modal.demo.utils.combox.InvoiceUtil;
@@ -28,9 +33,12 @@ import java.awt.event.ActionEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @SystemForm(name = "Purchase Form", description = "Record and edit new inventory purchases", tags = {"purchase", "form", "inventory"})
 public class FormPurchase extends Form implements TableActions {
@@ -52,12 +60,17 @@ public class FormPurchase extends Form implements TableActions {
     private JButton btnSave, btnSaveAndPrint, btnClose;
 
     private int purchaseId = 0;
-    private final ProductDao productDao = new ProductDao();
-    private final SupplierDao supplierDao = new SupplierDao();
-    private final PurchaseDao purchaseDao = new PurchaseDao();
+    private String invoiceNo; // Of the purchase being edited; edits keep their number
+    private Double loadedPaidAmount; // Of the purchase being edited; the update applies the change of the paid amount
+    private final ProductRepository productDao = Repositories.getInstance().products();
+    private final SupplierRepository supplierDao = Repositories.getInstance().suppliers();
+    private final PurchaseRepository purchaseDao = Repositories.getInstance().purchases();
 
     // Current product selected in the detail input bar
     private ProductModel selectedProduct;
+    private long lookupVersion;
+    // Purchases whose background save failed while the form already held the next one; restored one by one on clear
+    private final Deque<PurchaseDraft> failedDrafts = new ArrayDeque<>();
 
     public FormPurchase(int purchaseId) {
         this.purchaseId = purchaseId;
@@ -85,7 +98,7 @@ public class FormPurchase extends Form implements TableActions {
         add(createFooterPanel(), "gapy 10");
 
         // Setup table model
-        detailModel = new DefaultTableModel(new Object[]{"Sr#", "Product", "Qty", "Unit Price", "Total", "Action", "ProductID", "PeckingTypeID"}, 0) {
+        detailModel = new DefaultTableModel(new Object[]{"Sr#", "Product", "Qty", "Unit Price", "Total", "Action", "ProductID", "PeckingTypeID", "PurchaseDetailID"}, 0) {
             @Override
             public boolean isCellEditable(int row, int col) {
                 // Only Action column is editable
@@ -119,6 +132,8 @@ public class FormPurchase extends Form implements TableActions {
         detailTable.getColumnModel().getColumn(6).setMaxWidth(0);
         detailTable.getColumnModel().getColumn(7).setMinWidth(0);
         detailTable.getColumnModel().getColumn(7).setMaxWidth(0);
+        detailTable.getColumnModel().getColumn(8).setMinWidth(0);
+        detailTable.getColumnModel().getColumn(8).setMaxWidth(0);
 
         detailTable.getTableHeader().putClientProperty(FlatClientProperties.STYLE, ""
                 + "height:30;"
@@ -139,15 +154,36 @@ public class FormPurchase extends Form implements TableActions {
     // --- Initial Data Loading ---
 
     private void loadInitialData() {
-        // Load Suppliers for Vendor dropdown
-        List<SupplierModel> suppliers = supplierDao.getActiveSuppliersForDropdown();
-        cmbVendor.setModel(new DefaultComboBoxModel<>(suppliers.toArray(new SupplierModel[0])));
+        loadVendors();
         // Utility to render model objects by name
         ComboBoxUtils.setupComboBoxRenderer(cmbVendor, model -> ((SupplierModel)model).getSupplierName());
 
         cmbDiscountType.setModel(new DefaultComboBoxModel<>(Constants.DISCOUNT_TYPES));
     }
 
+    /**
+     * Fills the vendor dropdown from the lookup cache, keeping the selected vendor.
+     */
+    private void loadVendors() {
+        lookupVersion = LookupCache.getInstance().getVersion();
+        SupplierModel selected = (SupplierModel) cmbVendor.getSelectedItem();
+
+        // Load Suppliers for Vendor dropdown
+        List<SupplierModel> suppliers = supplierDao.getActiveSuppliersForDropdown();
+        cmbVendor.setModel(new DefaultComboBoxModel<>(suppliers.toArray(new SupplierModel[0])));
+        if (selected != null) {
+            ComboBoxUtils.setComboBoxSelection(cmbVendor, selected.getSupplierID(), SupplierModel::getSupplierID);
+        }
+    }
+
+    @Override
+    public void formOpen() {
+        // A vendor may have been added/edited since this form was last shown
+        if (lookupVersion != LookupCache.getInstance().getVersion()) {
+            loadVendors();
+        }
+    }
+
     // --- UI Panel Creation Methods ---
 
     private JPanel createDetailInputPanel() {
@@ -394,7 +430,8 @@ public class FormPurchase extends Form implements TableActions {
                 String.format("%.2f", totalRowPrice),
                 "Action Placeholder", // Action column
                 selectedProduct.getProductId(), // Hidden ID
-                selectedProduct.getPeckingTypeId() // Hidden ID
+                selectedProduct.getPeckingTypeId(), // Hidden ID
+                0 // Hidden PurchaseDetailID: a new line
         });
 
         // Clear row input fields
@@ -443,6 +480,7 @@ public class FormPurchase extends Form implements TableActions {
             try {
                 // The 'Unit Price' column (index 3) acts as the Rate in TBLPurchaseDetail
                 details.add(PurchaseDetailModel.builder()
+                        .purchaseDetailID((int) detailModel.getValueAt(i, 8)) // Index 8: Hidden PurchaseDetailID (0 = new line)
                         .productID((int) detailModel.getValueAt(i, 6)) // Index 6: Hidden ProductID
                         .quantity(Double.parseDouble(detailModel.getValueAt(i, 2).toString())) // Index 2: Total Qty
                         .rate(Double.parseDouble(detailModel.getValueAt(i, 3).toString())) // Index 3: Unit Price (Rate)
@@ -455,32 +493,89 @@ public class FormPurchase extends Form implements TableActions {
             }
         }
 
+        // Null if no number is reserved yet; the save queue assigns one then, so the EDT never waits for the database
+        String invoiceNo = this.invoiceNo != null ? this.invoiceNo : InvoiceUtil.reservedInvoiceNumber();
+
         // 3. Create PurchaseModel
         PurchaseModel purchaseModel = PurchaseModel.builder()
                 .purchaseID(purchaseId)
                 .supplierID(selectedSupplier.getSupplierID())
                 .purchaseDate(LocalDateTime.now())
-                .invoiceNo(InvoiceUtil.generateInvoiceNumber()) // Assuming InvoiceNo is not captured, or se ua default
+                .invoiceNo(invoiceNo)
                 .actualAmount(actualAmount)
                 .discountType(discountType)
                 .discountValue(discountValue)
                 .totalAmount(totalAmount)
                 .paidAmount(paidAmount)
+                .loadedPaidAmount(loadedPaidAmount)
                 .remarks(Objects.toString(txtComment.getText(), ""))
-                .details(details) // NOW THIS IS POPULATED!
+                .details(List.copyOf(details)) // NOW THIS IS POPULATED!
                 .build();
         if (purchaseId > 0) {
-             purchaseDao.updatePurchase(purchaseModel); // TODO: Implement Update
-             JOptionPane.showMessageDialog(this, "Purchase Updated successfully!.", "Info", JOptionPane.INFORMATION_MESSAGE);
+             InvoiceUpdateResult result = purchaseDao.updatePurchase(purchaseModel);
+             if (result == null) {
+                 return; // The DAO already reported the error; keep the dialog open
+             }
+             JOptionPane.showMessageDialog(this, "Purchase Updated successfully! Lines: " + result.getSummary() + ".", "Info", JOptionPane.INFORMATION_MESSAGE);
             // Close the form/dialog
             SwingUtilities.getWindowAncestor(this).dispose();
         } else {
-            purchaseDao.savePurchase(purchaseModel);
+            // Hand the snapshot to the save queue and free the form for the next entry straight away
+            PurchaseDraft draft = new PurchaseDraft(purchaseModel, copyDetailRows());
+            String name = invoiceNo != null ? "purchase " + invoiceNo : "the purchase";
+            CompletableFuture<Integer> save = SaveQueue.getInstance().submit(() -> {
+                if (purchaseModel.getInvoiceNo() == null) {
+                    purchaseModel.setInvoiceNo(InvoiceUtil.generateInvoiceNumber());
+                }
+                return purchaseDao.savePurchase(purchaseModel);
+            });
+            SavePromise.show(this, "Saving " + name + "...", save,
+                    id -> "Purchase #" + id + " saved",
+                    "Purchase " + (invoiceNo != null ? invoiceNo + " " : "") + "was not saved, the draft was kept",
+                    e -> restoreDraft(draft));
             clearForm();
         }
 
     }
 
+    /**
+     * Puts a purchase whose save failed back into the form, or queues it if the form is busy with another purchase.
+     */
+    private void restoreDraft(PurchaseDraft draft) {
+        if (detailModel.getRowCount() == 0) {
+            applyDraft(draft);
+        } else {
+            failedDrafts.add(draft);
+        }
+    }
+
+    private void applyDraft(PurchaseDraft draft) {
+        PurchaseModel purchase = draft.purchase;
+        ComboBoxUtils.setComboBoxSelection(cmbVendor, purchase.getSupplierID(), SupplierModel::getSupplierID);
+        cmbDiscountType.setSelectedItem(purchase.getDiscountType());
+        txtDiscountValue.setText(String.format("%.2f", purchase.getDiscountValue()));
+        txtComment.setText(purchase.getRemarks());
+        detailModel.setRowCount(0);
+        for (Object[] row : draft.rows) {
+            detailModel.addRow(row);
+        }
+        updateActualAmount();
+        txtPayingAmount.setText(String.format("%.2f", purchase.getPaidAmount()));
+        validatePaidAmount();
+    }
+
+    private List<Object[]> copyDetailRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < detailModel.getRowCount(); i++) {
+            Object[] row = new Object[detailModel.getColumnCount()];
+            for (int col = 0; col < row.length; col++) {
+                row[col] = detailModel.getValueAt(i, col);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
     private void loadPurchaseData(int id) {
         PurchaseModel purchase = purchaseDao.getPurchaseForEdit(id);
 
@@ -489,6 +584,9 @@ public class FormPurchase extends Form implements TableActions {
             return;
         }
 
+        invoiceNo = purchase.getInvoiceNo();
+        loadedPaidAmount = purchase.getLoadedPaidAmount();
+
         // Set Vendor/Supplier (must match the model structure in cmbVendor)
         SupplierModel selectedSupplier = new SupplierModel(purchase.getSupplierID(), purchase.getSupplierName());
         cmbVendor.setSelectedItem(selectedSupplier);
@@ -531,7 +629,8 @@ public class FormPurchase extends Form implements TableActions {
                     // NOTE: PeckingTypeId is not available in PurchaseDetailModel directly,
                     // but we can infer it or rely on the product being fully fetched during edit action.
                     // For now, let's leave it as 0 or fetch it if needed for the edit action.
-                    0 // Index 7 (PeckingTypeID) is not strictly needed for display/save update
+                    0, // Index 7 (PeckingTypeID) is not strictly needed for display/save update
+                    detail.getPurchaseDetailID() // Index 8: lets the update touch only the lines that changed
             });
         }
 
@@ -553,6 +652,9 @@ public class FormPurchase extends Form implements TableActions {
         txtPayingAmount.setText("0");
         txtUnitPrice.setText("0.00");
         detailModel.setRowCount(0);
+        if (!failedDrafts.isEmpty()) {
+            applyDraft(failedDrafts.poll());
+        }
     }
 
     /**
@@ -749,4 +851,18 @@ public class FormPurchase extends Form implements TableActions {
             // Ignore if the user is in the middle of typing an invalid number
         }
     }
+
+    /**
+     * A purchase handed to the save queue: the invoice snapshot and the table rows to restore it.
+     */
+    private static final class PurchaseDraft {
+
+        private final PurchaseModel purchase;
+        private final List<Object[]> rows;
+
+        private PurchaseDraft(PurchaseModel purchase, List<Object[]> rows) {
+            this.purchase = purchase;
+            this.rows = rows;
+        }
+    }
 }
\ No newline at end of file
@@ -3,18 +3,24 @@ package raven.modal.demo.forms;
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
 import raven.modal.demo.utils.Constants;
-import raven.modal.demo.dao.CustomerDao;
-import raven.modal.demo.dao.ProductDao;
-import raven.modal.demo.dao.SaleDao;
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.StockAvailability;
+import raven.modal.demo.dao.SaveQueue;
+import raven.modal.demo.journal.OfflineSales;
 import raven.modal.demo.model.CustomerModel;
 import raven.modal.demo.model.ProductModel;
 import raven.modal.demo.model.SaleDetailModel;
 import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.repository.CustomerRepository;
+import raven.modal.demo.repository.ProductRepository;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.SaleRepository;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.tables.ActionItem;
 import raven.modal.demo.tables.TableActionCellEditor;
 import raven.modal.demo.tables.TableActionCellRenderer;
 import raven.modal.demo.tables.TableActions;
+import raven.modal.demo.utils.SavePromise;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.ComboBoxUtils;
 import raven.modal.demo.utils.combox.InvoiceUtil;
@@ -22,15 +28,20 @@ import raven.modal.demo.utils.combox.JComponentUtils;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
 
 import javax.swing.*;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.time.LocalDateTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @SystemForm(name = "New Sale", description = "Record new customer sales and track inventory", tags = {"sale", "form", "customer"})
@@ -52,14 +63,20 @@ public class FormSale extends Form implements TableActions {
     private JTextField txtActualAmount, txtDiscountValue, txtTotalAmount, txtReceivingAmount;
     private JTextField txtGSTRate, txtGSTAmount; // New GST fields
     private JButton btnSave, btnSaveAndPrint, clearBtn;
+    private JLabel lblOffline;
 
     private int saleId = 0;
-    private final ProductDao productDao = new ProductDao();
-    private final CustomerDao customerDao = new CustomerDao();
-    private final SaleDao saleDao = new SaleDao(); // Need to create this DAO
+    private final ProductRepository productDao = Repositories.getInstance().products();
+    private final CustomerRepository customerDao = Repositories.getInstance().customers();
+    private final SaleRepository saleDao = Repositories.getInstance().sales();
+    private final StockAvailability stockAvailability = StockAvailability.getInstance();
+    private String cartId = stockAvailability.openCart(); // Holds this form's stock reservations
+    // Sales whose background save failed while the form already held the next sale; restored one by one on clear
+    private final Deque<SaleDraft> failedDrafts = new ArrayDeque<>();
 
     private ProductModel selectedProduct;
     private List<ProductModel> allProductsCache;
+    private long lookupVersion;
 
     public FormSale(int saleId) {
         this.saleId = saleId;
@@ -198,7 +215,10 @@ public class FormSale extends Form implements TableActions {
 
 
         // Button Row
-        JPanel buttonPanel = new JPanel(new MigLayout("right, insets 10 0 0 0", "[][][]"));
+        JPanel buttonPanel = new JPanel(new MigLayout("right, insets 10 0 0 0", "[][][][]"));
+        lblOffline = new JLabel();
+        lblOffline.putClientProperty(FlatClientProperties.STYLE, "foreground:$Component.warning.focusedBorderColor");
+        watchOfflineSales();
         clearBtn = new JButton("Clear");
         btnSave = new JButton("Save");
         btnSaveAndPrint = new JButton("Save & Print");
@@ -214,6 +234,7 @@ public class FormSale extends Form implements TableActions {
         btnSaveAndPrint.addActionListener(e -> saveSale(true));
         clearBtn.addActionListener(e -> clearForm());
 
+        buttonPanel.add(lblOffline, "gapright 10");
         buttonPanel.add(clearBtn);
         buttonPanel.add(btnSave);
         buttonPanel.add(btnSaveAndPrint);
@@ -229,18 +250,73 @@ public class FormSale extends Form implements TableActions {
     // --- Data and Table Setup ---
 
     private void loadInitialData() {
-        // Load Customers for Customer dropdown
-        List<CustomerModel> customers = customerDao.getActiveCustomersForDropdown();
-        cmbCustomer.setModel(new DefaultComboBoxModel<>(customers.toArray(new CustomerModel[0])));
+        loadLookups();
         ComboBoxUtils.setupComboBoxRenderer(cmbCustomer, model -> ((CustomerModel)model).getCustomerName());
 
         cmbDiscountType.setModel(new DefaultComboBoxModel<>(Constants.DISCOUNT_TYPES));
+    }
+
+    /**
+     * Fills the customer dropdown and the product list from the lookup cache, keeping the selected customer.
+     */
+    private void loadLookups() {
+        lookupVersion = LookupCache.getInstance().getVersion();
+        CustomerModel selected = (CustomerModel) cmbCustomer.getSelectedItem();
+
+        // Load Customers for Customer dropdown
+        List<CustomerModel> customers = customerDao.getActiveCustomersForDropdown();
+        cmbCustomer.setModel(new DefaultComboBoxModel<>(customers.toArray(new CustomerModel[0])));
+        if (selected != null) {
+            ComboBoxUtils.setComboBoxSelection(cmbCustomer, selected.getCustomerId(), CustomerModel::getCustomerId);
+        }
 
         // Load all products for the searchable combo box
         allProductsCache = productDao.getAllActiveProducts();
         // The combo box model will be dynamically populated by performSearch/setupProductSearchCombo
     }
 
+    /**
+     * Shows how many sales wait in the offline journal while the form is in a window.
+     */
+    private void watchOfflineSales() {
+        Runnable listener = () -> SwingUtilities.invokeLater(this::showOfflineSales);
+        lblOffline.addAncestorListener(new AncestorListener() {
+            @Override
+            public void ancestorAdded(AncestorEvent event) {
+                OfflineSales.getInstance().addChangeListener(listener);
+                showOfflineSales();
+            }
+
+            @Override
+            public void ancestorRemoved(AncestorEvent event) {
+                OfflineSales.getInstance().removeChangeListener(listener);
+            }
+
+            @Override
+            public void ancestorMoved(AncestorEvent event) {
+            }
+        });
+    }
+
+    private void showOfflineSales() {
+        OfflineSales offlineSales = OfflineSales.getInstance();
+        int backlog = offlineSales.getBacklog();
+        if (backlog > 0) {
+            lblOffline.setText(backlog + (backlog == 1 ? " sale" : " sales") + " waiting for the database"
+                    + (offlineSales.isOffline() ? " (offline)" : ""));
+        } else {
+            lblOffline.setText(offlineSales.isOffline() ? "Database unreachable" : "");
+        }
+    }
+
+    @Override
+    public void formOpen() {
+        // Customers or products may have been added/edited since this form was last shown
+        if (lookupVersion != LookupCache.getInstance().getVersion()) {
+            loadLookups();
+        }
+    }
+
     private void setupDetailTableModel() {
         // New columns: Discount is added, Total is calculated differently (after line discount)
         String[] columns = {"Sr#", "Product", "Qty", "Unit Price", "Discount", "Total", "Action", "ProductID", "PeckingTypeID"};
@@ -361,16 +437,16 @@ public class FormSale extends Form implements TableActions {
             return;
         }
 
-        // TODO: CRITICAL STOCK CHECK (Placeholder)
-//         double availableStock = saleDao.getAvailableStock(selectedProduct.getProductId());
-//         if (totalQuantity > availableStock) {
-//             JOptionPane.showMessageDialog(this, "Insufficient stock: Only " + availableStock + " available.", "Stock Error", JOptionPane.ERROR_MESSAGE);
-//             return;
-//         }
-
         int unitsPerCarton = selectedProduct.getUnitsPerCarton();
         double totalQuantity = (cartons * unitsPerCarton) + units;
 
+        // --- Stock Check: reserve against the in-memory availability (no DB round trip) ---
+        if (!stockAvailability.reserve(cartId, selectedProduct.getProductId(), totalQuantity)) {
+            double availableStock = stockAvailability.getAvailable(selectedProduct.getProductId());
+            JOptionPane.showMessageDialog(this, "Insufficient stock: Only " + availableStock + " available.", "Stock Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+
         // Calculate total price after discount
         double grossPrice = totalQuantity * unitPrice;
         double netPrice = grossPrice - lineDiscount;
@@ -411,6 +487,12 @@ public class FormSale extends Form implements TableActions {
         txtReceivingAmount.setText("0.00");
         cmbCustomer.setSelectedIndex(0);
         detailModel.setRowCount(0);
+        // Give the reserved stock back and start a fresh cart
+        stockAvailability.releaseCart(cartId);
+        cartId = stockAvailability.openCart();
+        if (!failedDrafts.isEmpty()) {
+            applyDraft(failedDrafts.poll());
+        }
     }
 
     private void updateActualAmount() {
@@ -518,31 +600,85 @@ public class FormSale extends Form implements TableActions {
             }
         }
 
+        // Null if no number is reserved yet (e.g. the database is unreachable); the save assigns one then
+        String invoiceNo = InvoiceUtil.reservedInvoiceNumber();
+
         // Create SaleModel
         SaleModel saleModel = SaleModel.builder()
                 .saleID(saleId)
                 .customerID(selectedCustomer.getCustomerId())
                 .saleDate(LocalDateTime.now())
-                .invoiceNo(InvoiceUtil.generateInvoiceNumber()) // Use utility or capture from UI
+                .invoiceNo(invoiceNo)
                 .actualAmount(actualAmount) // This is the net value before header discount and GST
                 .discountType((String) cmbDiscountType.getSelectedItem())
                 .discountValue(discountValue)
                 .totalAmount(totalAmount) // Final amount including GST
                 .receivedAmount(receivedAmount)
                 .remarks(Objects.toString(txtComment.getText(), ""))
-                .details(details)
+                .details(List.copyOf(details))
                 .build();
 
         if (saleId > 0) {
              saleDao.updateSale(saleModel);
         } else {
-            saleDao.saveSale(saleModel);
-            JOptionPane.showMessageDialog(this, "New Sale has been done!", "Success Sale", JOptionPane.INFORMATION_MESSAGE);
+            // Hand the snapshot to the save queue and free the form for the next customer straight away.
+            // The draft keeps the cart, so its stock stays reserved until the sale is committed or restored.
+            SaleDraft draft = new SaleDraft(saleModel, cartId, copyDetailRows());
+            cartId = stockAvailability.openCart();
+            // A sale journaled while the database is unreachable keeps its stock reserved until it is replayed
+            String name = invoiceNo != null ? "sale " + invoiceNo : "the sale";
+            CompletableFuture<Integer> save = SaveQueue.getInstance().submit(
+                    () -> OfflineSales.getInstance().save(saleModel, () -> stockAvailability.releaseCart(draft.cartId)));
+            SavePromise.show(this, "Saving " + name + "...", save,
+                    id -> id > 0 ? "Sale #" + id + " saved" : "Database unreachable, " + name + " was kept offline",
+                    "Sale " + (invoiceNo != null ? invoiceNo + " " : "") + "was not saved, the draft was kept",
+                    e -> restoreDraft(draft));
             clearForm();
         }
 
     }
 
+    /**
+     * Puts a sale whose save failed back into the form, or queues it if the form is busy with another sale.
+     */
+    private void restoreDraft(SaleDraft draft) {
+        if (detailModel.getRowCount() == 0) {
+            applyDraft(draft);
+        } else {
+            failedDrafts.add(draft);
+        }
+    }
+
+    private void applyDraft(SaleDraft draft) {
+        stockAvailability.releaseCart(cartId);
+        cartId = draft.cartId;
+
+        SaleModel sale = draft.sale;
+        ComboBoxUtils.setComboBoxSelection(cmbCustomer, sale.getCustomerID(), CustomerModel::getCustomerId);
+        cmbDiscountType.setSelectedItem(sale.getDiscountType());
+        txtDiscountValue.setText(String.format("%.2f", sale.getDiscountValue()));
+        txtComment.setText(sale.getRemarks());
+        detailModel.setRowCount(0);
+        for (Object[] row : draft.rows) {
+            detailModel.addRow(row);
+        }
+        updateActualAmount();
+        txtReceivingAmount.setText(String.format("%.2f", sale.getReceivedAmount()));
+        validateReceivingAmount();
+    }
+
+    private List<Object[]> copyDetailRows() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < detailModel.getRowCount(); i++) {
+            Object[] row = new Object[detailModel.getColumnCount()];
+            for (int col = 0; col < row.length; col++) {
+                row[col] = detailModel.getValueAt(i, col);
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
     private void setupInputListeners() {
         // Listener for Detail Row Total Calculation
         KeyAdapter detailKeyAdapter = new KeyAdapter() {
@@ -595,6 +731,10 @@ public class FormSale extends Form implements TableActions {
     }
 
     public void onDelete(int row) {
+        // Release the line's reservation (Quantity at index 2, ProductID at hidden index 7)
+        int productId = Integer.parseInt(detailModel.getValueAt(row, 7).toString());
+        double quantity = Double.parseDouble(detailModel.getValueAt(row, 2).toString());
+        stockAvailability.release(cartId, productId, quantity);
         detailModel.removeRow(row);
         // Re-sequence Sr# column
         for(int i = 0; i < detailModel.getRowCount(); i++) {
@@ -602,4 +742,20 @@ public class FormSale extends Form implements TableActions {
         }
         updateActualAmount(); // Recalculate totals
     }
+
+    /**
+     * A sale handed to the save queue: the invoice snapshot, the cart holding its stock, and the table rows to restore it.
+     */
+    private static final class SaleDraft {
+
+        private final SaleModel sale;
+        private final String cartId;
+        private final List<Object[]> rows;
+
+        private SaleDraft(SaleModel sale, String cartId, List<Object[]> rows) {
+            this.sale = sale;
+            this.cartId = cartId;
+            this.rows = rows;
+        }
+    }
 }
\ No newline at end of file
@@ -2,8 +2,9 @@ package raven.modal.demo.forms;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
-import raven.modal.demo.dao.SupplierDao;
 import raven.modal.demo.model.SupplierModel;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.SupplierRepository;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.JComponentUtils;
@@ -22,7 +23,7 @@ public class FormSupplier extends Form {
     private JLabel titleLabel; // To update title in edit mode
 
     private int supplierId = 0; // 0 for ADD mode
-    private final SupplierDao supplierDao = new SupplierDao();
+    private final SupplierRepository supplierDao = Repositories.getInstance().suppliers();
 
     public FormSupplier(int supplierId) {
         this.supplierId = supplierId;
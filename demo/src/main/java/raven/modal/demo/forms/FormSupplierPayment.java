@@ -2,21 +2,23 @@ package raven.modal.demo.forms;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
-import raven.modal.demo.dao.SupplierDao;
-import raven.modal.demo.dao.SupplierPaymentDao;
 import raven.modal.demo.model.SupplierModel;
 import raven.modal.demo.model.SupplierPaymentModel;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.SupplierPaymentRepository;
+import raven.modal.demo.repository.SupplierRepository;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.combox.ComboBoxUtils;
 import raven.modal.demo.utils.combox.JComponentUtils;
 
 import javax.swing.*;
+import java.sql.SQLException;
 import java.util.List;
 
 public class FormSupplierPayment extends Form {
 
-    private final SupplierDao supplierDao = new SupplierDao();
-    private final SupplierPaymentDao paymentDao = new SupplierPaymentDao();
+    private final SupplierRepository supplierDao = Repositories.getInstance().suppliers();
+    private final SupplierPaymentRepository paymentDao = Repositories.getInstance().supplierPayments();
 
     private JComboBox<SupplierModel> cbSupplier;
     private JTextField txtRemainingBalance, txtPaymentAmount;
@@ -143,12 +145,17 @@ public class FormSupplierPayment extends Form {
                 txtRemarks.getText()
         );
 
-        if (paymentDao.saveSupplierPayment(payment)) {
-            JOptionPane.showMessageDialog(this, "Payment of " + String.format("%.2f", paymentAmount) + " recorded successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
-            clearForm();
-            //            SwingUtilities.getWindowAncestor(this).dispose(); // Close dialog
-            // TODO: Refresh the parent panel's table data
+        try {
+            paymentDao.saveSupplierPayment(payment);
+        } catch (SQLException e) {
+            System.err.println("Supplier payment failed. Rolled back: " + e.getMessage());
+            JOptionPane.showMessageDialog(this, "Payment failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        JOptionPane.showMessageDialog(this, "Payment of " + String.format("%.2f", paymentAmount) + " recorded successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
+        clearForm();
+        //            SwingUtilities.getWindowAncestor(this).dispose(); // Close dialog
+        // TODO: Refresh the parent panel's table data
     }
     /**
      * Resets all input fields and reloads the supplier data to reflect the new balances.
@@ -2,10 +2,11 @@ package raven.modal.demo.forms;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
-import raven.modal.demo.dao.PurchaseDao;
 import raven.modal.demo.model.PurchaseDetailModel;
 import raven.modal.demo.model.PurchaseModel;
 import raven.modal.demo.reports.InvoiceGenerator;
+import raven.modal.demo.repository.PurchaseRepository;
+import raven.modal.demo.repository.Repositories;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
 
@@ -16,7 +17,7 @@ import java.time.format.DateTimeFormatter;
 
 public class FormViewPurchase extends Form {
 
-    private final PurchaseDao purchaseDao = new PurchaseDao();
+    private final PurchaseRepository purchaseDao = Repositories.getInstance().purchases();
     private final int purchaseId;
 
     // Header Components (Read-only)
@@ -0,0 +1,359 @@
+package raven.modal.demo.importer;
+
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.dao.TransactionExecutor;
+import raven.modal.demo.mysql.MySQLConnection;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk import of products, customers or suppliers from a CSV file of any size.
+ * <p>
+ * The calling thread streams the file with a {@link CsvReader} and hands chunks of {@value #CHUNK_ROWS} records
+ * to a pool of validator threads, which check the values and resolve company/brand/category/pecking-type names
+ * through a {@link MasterDataIndex} loaded once up front. Validated chunks are written back on the calling thread
+ * in file order: one batched INSERT per chunk, in its own transaction, so a failure loses at most the chunk in
+ * progress. At most {@code 2 * threads} chunks are in flight, so memory stays flat however large the file is.
+ * <p>
+ * Rows that fail validation, duplicate a product code or are refused by the database go to the rejected-rows file
+ * (their line number, the reason and the original fields) instead of stopping the import.
+ */
+public class CsvImporter {
+
+    static final int CHUNK_ROWS = 1000;
+
+    /**
+     * Called on the importing thread after every chunk.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param fraction Share of the file read so far, 0 to 1.
+         */
+        void progress(ImportResult soFar, double fraction);
+    }
+
+    private final ImportType type;
+    private final File file;
+    private final File rejectsFile;
+    private final int threads;
+    private ProgressListener listener = (soFar, fraction) -> { };
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private String[] header;
+    private Writer rejects;
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsRejected;
+    private long start;
+
+    /**
+     * @param rejectsFile Where rejected rows go; created only if a row is rejected.
+     */
+    public CsvImporter(ImportType type, File file, File rejectsFile, int threads) {
+        this.type = type;
+        this.file = file;
+        this.rejectsFile = rejectsFile;
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setProgressListener(ProgressListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Default name of the rejected-rows file: {@code products.csv} -> {@code products.rejected.csv}.
+     */
+    public static File defaultRejectsFile(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(file.getAbsoluteFile().getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + ".rejected.csv");
+    }
+
+    public ImportResult run() throws IOException, SQLException {
+        start = System.currentTimeMillis();
+        long fileSize = Math.max(1, file.length());
+        MasterDataIndex index;
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            index = MasterDataIndex.load(conn, type == ImportType.PRODUCTS);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "mart-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (CsvReader reader = new CsvReader(new InputStreamReader(new CountingInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+            header = reader.next();
+            if (header == null) {
+                throw new IOException(file.getName() + " is empty");
+            }
+            Map<String, Integer> columns = columns(header);
+
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            List<String[]> records = new ArrayList<>(CHUNK_ROWS);
+            List<Long> lines = new ArrayList<>(CHUNK_ROWS);
+            String[] record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+                lines.add(reader.getRecordLine());
+                rowsRead++;
+                if (records.size() == CHUNK_ROWS) {
+                    inFlight.add(submit(pool, columns, index, records, lines));
+                    records = new ArrayList<>(CHUNK_ROWS);
+                    lines = new ArrayList<>(CHUNK_ROWS);
+                    if (inFlight.size() >= threads * 2) {
+                        write(inFlight.poll(), index, fileSize);
+                    }
+                }
+            }
+            if (!records.isEmpty()) {
+                inFlight.add(submit(pool, columns, index, records, lines));
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), index, fileSize);
+            }
+        } finally {
+            pool.shutdownNow();
+            if (rejects != null) {
+                rejects.close();
+            }
+            if (rowsImported > 0) {
+                RowCountCache.getInstance().invalidate(type.getRowCount());
+                LookupCache.getInstance().invalidate(type.getLookupType());
+            }
+        }
+        ImportResult result = snapshot();
+        listener.progress(result, 1);
+        return result;
+    }
+
+    private Map<String, Integer> columns(String[] header) throws IOException {
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            String name = header[i].replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT); // Excel writes a BOM
+            columns.putIfAbsent(name, i);
+        }
+        for (String required : type.getRequiredHeaders()) {
+            if (!columns.containsKey(required.toLowerCase(Locale.ROOT))) {
+                throw new IOException(file.getName() + " has no " + required + " column; " + type + " files need "
+                        + String.join(", ", type.getRequiredHeaders()));
+            }
+        }
+        return columns;
+    }
+
+    // --- Validation (pool threads) ---
+
+    private Future<Chunk> submit(ExecutorService pool, Map<String, Integer> columns, MasterDataIndex index,
+                                 List<String[]> records, List<Long> lines) {
+        return pool.submit(() -> {
+            Chunk chunk = new Chunk();
+            for (int i = 0; i < records.size(); i++) {
+                try {
+                    chunk.rows.add(type.toRow(new ImportType.Record(columns, records.get(i)), index));
+                    chunk.rowLines.add(lines.get(i));
+                    chunk.rowFields.add(records.get(i));
+                } catch (RowRejectedException e) {
+                    chunk.rejected.add(new Rejection(lines.get(i), e.getMessage(), records.get(i)));
+                }
+            }
+            return chunk;
+        });
+    }
+
+    // --- Writing (calling thread, file order) ---
+
+    private void write(Future<Chunk> future, MasterDataIndex index, long fileSize) throws IOException, SQLException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Validation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        List<Object[]> rows = new ArrayList<>(chunk.rows.size());
+        List<Integer> positions = new ArrayList<>(chunk.rows.size());
+        for (int i = 0; i < chunk.rows.size(); i++) {
+            String key = type.uniqueKey(chunk.rows.get(i));
+            if (key != null && !index.claimProductCode(key)) {
+                chunk.rejected.add(new Rejection(chunk.rowLines.get(i), "Duplicate ProductCode '" + key + "'", chunk.rowFields.get(i)));
+            } else {
+                rows.add(chunk.rows.get(i));
+                positions.add(i);
+            }
+        }
+
+        if (!rows.isEmpty()) {
+            Map<Integer, String> failed = TransactionExecutor.getInstance().execute("importChunk", tx -> insert(tx.getConnection(), rows));
+            for (Map.Entry<Integer, String> failure : failed.entrySet()) {
+                int i = positions.get(failure.getKey());
+                String key = type.uniqueKey(chunk.rows.get(i));
+                if (key != null) {
+                    index.releaseProductCode(key);
+                }
+                chunk.rejected.add(new Rejection(chunk.rowLines.get(i), failure.getValue(), chunk.rowFields.get(i)));
+            }
+            rowsImported += rows.size() - failed.size();
+        }
+
+        chunk.rejected.sort(Comparator.comparingLong(rejection -> rejection.line));
+        for (Rejection rejection : chunk.rejected) {
+            reject(rejection);
+        }
+        listener.progress(snapshot(), Math.min(1, bytesRead.get() / (double) fileSize));
+    }
+
+    /**
+     * Inserts the rows as one batch. When the database refuses the batch because of a row's data (a duplicate
+     * key added since the index was loaded, a value too long), the rows are inserted one by one instead and
+     * the refused ones reported. Runs again from scratch if the executor retries the transaction.
+     * @return Index of each refused row -> database message.
+     */
+    private Map<Integer, String> insert(Connection conn, List<Object[]> rows) throws SQLException {
+        Map<Integer, String> failed = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(type.getInsertSql())) {
+            Savepoint beforeBatch = conn.setSavepoint();
+            try {
+                for (Object[] row : rows) {
+                    bind(ps, row);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                return failed;
+            } catch (SQLException e) {
+                if (!isDataError(e)) {
+                    throw e;
+                }
+                conn.rollback(beforeBatch);
+                ps.clearBatch();
+            }
+            for (int i = 0; i < rows.size(); i++) {
+                try {
+                    bind(ps, rows.get(i));
+                    ps.executeUpdate();
+                } catch (SQLException e) {
+                    if (!isDataError(e)) {
+                        throw e;
+                    }
+                    failed.put(i, e.getMessage());
+                }
+            }
+        }
+        return failed;
+    }
+
+    private static void bind(PreparedStatement ps, Object[] row) throws SQLException {
+        for (int i = 0; i < row.length; i++) {
+            ps.setObject(i + 1, row[i]);
+        }
+    }
+
+    /**
+     * SQLSTATE class 22 (data exception) or 23 (integrity constraint violation): the row is at fault, not the connection.
+     */
+    private static boolean isDataError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("22") || state.startsWith("23"));
+    }
+
+    private void reject(Rejection rejection) throws IOException {
+        if (rejects == null) {
+            rejects = Files.newBufferedWriter(rejectsFile.toPath(), StandardCharsets.UTF_8);
+            String[] columns = new String[header.length + 2];
+            columns[0] = "Line";
+            columns[1] = "Reason";
+            System.arraycopy(header, 0, columns, 2, header.length);
+            rejects.write(CsvReader.format(columns));
+            rejects.write(System.lineSeparator());
+        }
+        String[] line = new String[rejection.fields.length + 2];
+        line[0] = String.valueOf(rejection.line);
+        line[1] = rejection.reason;
+        System.arraycopy(rejection.fields, 0, line, 2, rejection.fields.length);
+        rejects.write(CsvReader.format(line));
+        rejects.write(System.lineSeparator());
+        rowsRejected++;
+    }
+
+    private ImportResult snapshot() {
+        return new ImportResult(type, rowsRead, rowsImported, rowsRejected, System.currentTimeMillis() - start,
+                rejects == null ? null : rejectsFile);
+    }
+
+    private static final class Chunk {
+        final List<Object[]> rows = new ArrayList<>();
+        final List<Long> rowLines = new ArrayList<>();
+        final List<String[]> rowFields = new ArrayList<>();
+        final List<Rejection> rejected = new ArrayList<>();
+    }
+
+    private static final class Rejection {
+        final long line;
+        final String reason;
+        final String[] fields;
+
+        Rejection(long line, String reason, String[] fields) {
+            this.line = line;
+            this.reason = reason;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Counts the bytes the reader has consumed, for the progress fraction.
+     */
+    private final class CountingInputStream extends FilterInputStream {
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                bytesRead.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                bytesRead.addAndGet(n);
+            }
+            return n;
+        }
+    }
+}
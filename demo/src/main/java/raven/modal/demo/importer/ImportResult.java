@@ -0,0 +1,32 @@
+package raven.modal.demo.importer;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.File;
+
+/**
+ * Progress or outcome of a {@link CsvImporter} run.
+ */
+@Getter
+@AllArgsConstructor
+public class ImportResult {
+
+    private final ImportType type;
+    private final long rowsRead;
+    private final long rowsImported;
+    private final long rowsRejected;
+    private final long millis;
+    private final File rejectsFile;   // Rejected rows with line number and reason; null while nothing was rejected
+
+    public double getRowsPerSecond() {
+        return millis == 0 ? rowsRead : rowsRead * 1000.0 / millis;
+    }
+
+    /**
+     * Short summary for status messages, e.g. "9,870 imported, 130 rejected (12,500 rows/s)".
+     */
+    public String getSummary() {
+        return String.format("%,d imported, %,d rejected (%,.0f rows/s)", rowsImported, rowsRejected, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,204 @@
+package raven.modal.demo.importer;
+
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What a CSV file holds: its columns (matched by header name, case-insensitively, in any order),
+ * how a record becomes the values of one INSERT row, and which caches the import invalidates.
+ */
+public enum ImportType {
+
+    /**
+     * {@code ProductCode, ProductName, Brand, Category, PeckingType} and optionally {@code Company, IsActive}.
+     * Without a company the brand title must be unique; the product gets the brand's company.
+     */
+    PRODUCTS("TBLProducts", RowCount.PRODUCTS, LookupType.PRODUCTS,
+            new String[]{"ProductCode", "ProductName", "IsActive", "BrandId", "CategoryId", "PeckingTypeId", "CompanyId"},
+            "ProductCode", "ProductName", "Brand", "Category", "PeckingType") {
+        @Override
+        Object[] toRow(Record record, MasterDataIndex index) throws RowRejectedException {
+            Integer companyId = null;
+            String company = record.get("Company");
+            if (!company.isEmpty()) {
+                companyId = index.company(company);
+                if (companyId == null) {
+                    throw new RowRejectedException("Unknown company '" + company + "'");
+                }
+            }
+            String brand = record.required("Brand");
+            Integer brandId = index.brand(companyId, brand);
+            if (brandId == null) {
+                throw new RowRejectedException(companyId == null
+                        ? "Unknown or ambiguous brand '" + brand + "' (add a Company column)"
+                        : "Brand '" + brand + "' does not belong to company '" + company + "'");
+            }
+            String category = record.required("Category");
+            Integer categoryId = index.category(category);
+            if (categoryId == null) {
+                throw new RowRejectedException("Unknown category '" + category + "'");
+            }
+            String peckingType = record.required("PeckingType");
+            Integer peckingTypeId = index.peckingType(peckingType);
+            if (peckingTypeId == null) {
+                throw new RowRejectedException("Unknown pecking type '" + peckingType + "'");
+            }
+            return new Object[]{record.required("ProductCode"), record.required("ProductName"), record.bool("IsActive", true),
+                    brandId, categoryId, peckingTypeId, companyId != null ? companyId : index.companyOfBrand(brandId)};
+        }
+
+        @Override
+        String uniqueKey(Object[] row) {
+            return (String) row[0];
+        }
+    },
+
+    /**
+     * {@code CustomerName} and optionally {@code ContactNo, Address, Email, OpeningBalance, TaxPer}.
+     */
+    CUSTOMERS("TBLCustomers", RowCount.CUSTOMERS, LookupType.CUSTOMERS,
+            new String[]{"CustomerName", "ContactNo", "Address", "Email", "OpeningBalance", "TaxPer", "CreatedDate"},
+            "CustomerName") {
+        @Override
+        Object[] toRow(Record record, MasterDataIndex index) throws RowRejectedException {
+            return new Object[]{record.required("CustomerName"), record.get("ContactNo"), record.get("Address"), record.get("Email"),
+                    record.number("OpeningBalance"), record.number("TaxPer"), Timestamp.valueOf(LocalDateTime.now())};
+        }
+    },
+
+    /**
+     * {@code SupplierName} and optionally {@code ContactNo, Address, Email, OpeningBalance}.
+     */
+    SUPPLIERS("TBLSuppliers", RowCount.SUPPLIERS, LookupType.SUPPLIERS,
+            new String[]{"SupplierName", "ContactNo", "Address", "Email", "OpeningBalance", "CreatedDate"},
+            "SupplierName") {
+        @Override
+        Object[] toRow(Record record, MasterDataIndex index) throws RowRejectedException {
+            return new Object[]{record.required("SupplierName"), record.get("ContactNo"), record.get("Address"), record.get("Email"),
+                    record.number("OpeningBalance"), Timestamp.valueOf(LocalDateTime.now())};
+        }
+    };
+
+    private final String table;
+    private final RowCount rowCount;
+    private final LookupType lookupType;
+    private final String[] insertColumns;
+    private final String[] requiredHeaders;
+
+    ImportType(String table, RowCount rowCount, LookupType lookupType, String[] insertColumns, String... requiredHeaders) {
+        this.table = table;
+        this.rowCount = rowCount;
+        this.lookupType = lookupType;
+        this.insertColumns = insertColumns;
+        this.requiredHeaders = requiredHeaders;
+    }
+
+    /**
+     * Validates one record and resolves its names.
+     * @return The values of {@link #getInsertSql()}, in column order.
+     */
+    abstract Object[] toRow(Record record, MasterDataIndex index) throws RowRejectedException;
+
+    /**
+     * Key that must be unique over the table and the file, checked in file order by the writer; null if none.
+     */
+    String uniqueKey(Object[] row) {
+        return null;
+    }
+
+    String getInsertSql() {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (")
+                .append(String.join(", ", insertColumns)).append(") VALUES (");
+        for (int i = 0; i < insertColumns.length; i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        return sql.append(')').toString();
+    }
+
+    String[] getRequiredHeaders() {
+        return requiredHeaders;
+    }
+
+    public RowCount getRowCount() {
+        return rowCount;
+    }
+
+    public LookupType getLookupType() {
+        return lookupType;
+    }
+
+    public static ImportType parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * One CSV record with its columns looked up by header name.
+     */
+    static final class Record {
+
+        private final Map<String, Integer> columns;
+        private final String[] fields;
+
+        Record(Map<String, Integer> columns, String[] fields) {
+            this.columns = columns;
+            this.fields = fields;
+        }
+
+        /**
+         * @return The trimmed value, or "" if the column is missing or empty.
+         */
+        String get(String column) {
+            Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+            return index == null || index >= fields.length ? "" : fields[index].trim();
+        }
+
+        String required(String column) throws RowRejectedException {
+            String value = get(column);
+            if (value.isEmpty()) {
+                throw new RowRejectedException(column + " is required");
+            }
+            return value;
+        }
+
+        double number(String column) throws RowRejectedException {
+            String value = get(column);
+            if (value.isEmpty()) {
+                return 0;
+            }
+            try {
+                return Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new RowRejectedException(column + " '" + value + "' is not a number");
+            }
+        }
+
+        boolean bool(String column, boolean defaultValue) throws RowRejectedException {
+            String value = get(column).toLowerCase(Locale.ROOT);
+            switch (value) {
+                case "":
+                    return defaultValue;
+                case "1":
+                case "true":
+                case "yes":
+                case "y":
+                    return true;
+                case "0":
+                case "false":
+                case "no":
+                case "n":
+                    return false;
+                default:
+                    throw new RowRejectedException(column + " '" + value + "' is not true/false");
+            }
+        }
+
+        String[] getFields() {
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package raven.modal.demo.importer;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Names of the master data an import file refers to, mapped to their IDs. Loaded once before the import,
+ * then only read by the validator threads; product codes are claimed by the single writer thread, in file order.
+ * Names match case-insensitively and ignore surrounding blanks.
+ */
+final class MasterDataIndex {
+
+    private static final int AMBIGUOUS = -1;
+
+    private final Map<String, Integer> companies = new HashMap<>();
+    private final Map<String, Integer> brands = new HashMap<>();          // Title -> ID, AMBIGUOUS if several companies use it
+    private final Map<String, Integer> companyBrands = new HashMap<>();   // "companyId|title" -> ID
+    private final Map<Integer, Integer> brandCompanies = new HashMap<>(); // Brand ID -> company ID
+    private final Map<String, Integer> categories = new HashMap<>();
+    private final Map<String, Integer> peckingTypes = new HashMap<>();
+    private final Set<String> productCodes = new HashSet<>(); // Existing codes plus codes claimed by the file (writer thread only)
+
+    static MasterDataIndex load(Connection conn, boolean withProductCodes) throws SQLException {
+        MasterDataIndex index = new MasterDataIndex();
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SELECT CompanyID, CompanyName FROM TBLCompanies")) {
+                while (rs.next()) {
+                    index.companies.putIfAbsent(key(rs.getString(2)), rs.getInt(1));
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT BrandId, BrandTitle, CompanyId FROM TBLBrands")) {
+                while (rs.next()) {
+                    int brandId = rs.getInt(1);
+                    String title = key(rs.getString(2));
+                    int companyId = rs.getInt(3);
+                    index.brands.merge(title, brandId, (a, b) -> AMBIGUOUS);
+                    index.companyBrands.putIfAbsent(companyId + "|" + title, brandId);
+                    index.brandCompanies.put(brandId, companyId);
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT CategoryID, CategoryName FROM TBLCategories")) {
+                while (rs.next()) {
+                    index.categories.putIfAbsent(key(rs.getString(2)), rs.getInt(1));
+                }
+            }
+            try (ResultSet rs = st.executeQuery("SELECT PeekingTypeId, PeekingTypeName FROM TBLPeckingType")) {
+                while (rs.next()) {
+                    index.peckingTypes.putIfAbsent(key(rs.getString(2)), rs.getInt(1));
+                }
+            }
+            if (withProductCodes) {
+                try (ResultSet rs = st.executeQuery("SELECT ProductCode FROM TBLProducts")) {
+                    while (rs.next()) {
+                        index.productCodes.add(key(rs.getString(1)));
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    Integer company(String name) {
+        return companies.get(key(name));
+    }
+
+    /**
+     * @param companyId The row's company, or null to resolve the title on its own (fails if several companies use it).
+     */
+    Integer brand(Integer companyId, String title) {
+        if (companyId != null) {
+            return companyBrands.get(companyId + "|" + key(title));
+        }
+        Integer brandId = brands.get(key(title));
+        return brandId == null || brandId == AMBIGUOUS ? null : brandId;
+    }
+
+    int companyOfBrand(int brandId) {
+        return brandCompanies.get(brandId);
+    }
+
+    Integer category(String name) {
+        return categories.get(key(name));
+    }
+
+    Integer peckingType(String name) {
+        return peckingTypes.get(key(name));
+    }
+
+    /**
+     * Reserves a product code for a row of the file.
+     * @return false if the code is already used by a product or an earlier row.
+     */
+    boolean claimProductCode(String code) {
+        return productCodes.add(key(code));
+    }
+
+    /**
+     * Gives back the code of a row that was not imported after all.
+     */
+    void releaseProductCode(String code) {
+        productCodes.remove(key(code));
+    }
+
+    private static String key(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,11 @@
+package raven.modal.demo.importer;
+
+/**
+ * A CSV row that cannot be imported; the message is written to the rejected-rows file.
+ */
+class RowRejectedException extends Exception {
+
+    RowRejectedException(String reason) {
+        super(reason);
+    }
+}
@@ -0,0 +1,17 @@
+package raven.modal.demo.journal;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import raven.modal.demo.model.SaleModel;
+
+/**
+ * A sale in the offline journal that has not been saved to the database yet.
+ */
+@Getter
+@AllArgsConstructor
+final class JournalEntry {
+
+    private final long sequence;
+    private final String clientRef;  // Saved with the sale (TBLSale.ClientRef), so a replay never saves it twice
+    private final SaleModel sale;
+}
@@ -0,0 +1,259 @@
+package raven.modal.demo.journal;
+
+import raven.modal.demo.dao.InvoiceSequence;
+import raven.modal.demo.dao.SaleDao;
+import raven.modal.demo.dao.TransactionExecutor;
+import raven.modal.demo.importer.CsvReader;
+import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.SaleRepository;
+import raven.modal.demo.repository.StorageEngine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Saves sales so the till keeps working while MySQL is unreachable.
+ * <p>
+ * A sale is saved straight to the database when it is reachable and nothing is waiting in the journal. Otherwise,
+ * or when the save fails because the connection is down, it is appended to the local {@link SaleJournal} and
+ * counts as taken. A "mart-journal-replay" thread then saves the journaled sales in the order they were taken,
+ * every {@value #REPLAY_INTERVAL_MILLIS} ms until the backlog is empty. Each sale carries a client reference
+ * (TBLSale.ClientRef), so a sale whose first save did commit before the connection dropped is not saved twice.
+ * A journaled sale the database refuses (e.g. its customer was deleted meanwhile) is written to
+ * {@code sale-journal.rejected.csv} next to the journal and dropped from the backlog.
+ * <p>
+ * Sales taken offline without a reserved invoice number get one when they are replayed.
+ * With the in-memory storage engine sales are always saved directly.
+ * The journal lives in {@code ~/.mart}, or in the directory given by {@code -Dmart.journal.dir}.
+ */
+public class OfflineSales {
+
+    private static final String DIR_PROPERTY = "mart.journal.dir";
+    private static final long REPLAY_INTERVAL_MILLIS = 5000;
+
+    private final SaleRepository sales = Repositories.getInstance().sales();
+    private final boolean mysql = Repositories.getInstance().getEngine() == StorageEngine.MYSQL;
+    private final Path file = Paths.get(System.getProperty(DIR_PROPERTY, Paths.get(System.getProperty("user.home"), ".mart").toString()), "sale-journal.dat");
+    private final ScheduledExecutorService replayer;
+    private final Map<Long, Runnable> onSaved = new ConcurrentHashMap<>(); // Journal sequence -> callback of a sale taken in this run
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private SaleJournal journal;   // Opened on first use; guarded by this
+    private volatile boolean offline;
+    private volatile int backlog;
+    private boolean started;
+
+    private OfflineSales() {
+        replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mart-journal-replay");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class InstanceHolder {
+        static final OfflineSales instance = new OfflineSales();
+    }
+
+    public static OfflineSales getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Opens the journal and starts replaying what an earlier run left in it.
+     */
+    public synchronized void start() {
+        if (!mysql || started) {
+            return;
+        }
+        started = true;
+        try {
+            journal();
+        } catch (IOException e) {
+            System.err.println("Could not open the sale journal: " + e.getMessage());
+        }
+        replayer.scheduleWithFixedDelay(this::replay, 0, REPLAY_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Saves a sale, or journals it if the database is unreachable. Runs on the {@link raven.modal.demo.dao.SaveQueue}.
+     * @param onSaved Runs once the sale is in the database (at once, or when the journal is replayed), or was
+     *                rejected during the replay; e.g. to drop the cart's stock reservation.
+     * @return The SaleID, or 0 if the sale was journaled.
+     * @throws SQLException If the database refused the sale (not for connection failures).
+     * @throws IOException If the sale had to be journaled and the journal could not be written.
+     */
+    public int save(SaleModel sale, Runnable onSaved) throws SQLException, IOException {
+        if (!mysql) {
+            int saleId = sales.saveSale(sale);
+            onSaved.run();
+            return saleId;
+        }
+        String clientRef = UUID.randomUUID().toString();
+        if (!offline && backlog == 0) {
+            try {
+                if (sale.getInvoiceNo() == null) {
+                    sale.setInvoiceNo(InvoiceSequence.getInstance().next());
+                }
+                int saleId = ((SaleDao) sales).saveSale(sale, clientRef);
+                onSaved.run();
+                return saleId;
+            } catch (SQLException e) {
+                if (!TransactionExecutor.isConnectionFailure(e)) {
+                    throw e;
+                }
+                System.err.println("Database unreachable, journaling sale " + sale.getInvoiceNo() + ": " + e.getMessage());
+                offline = true;
+            }
+        }
+        synchronized (this) {
+            JournalEntry entry = journal().append(clientRef, sale);
+            this.onSaved.put(entry.getSequence(), onSaved);
+            backlog = journal.getBacklog();
+        }
+        fireChanged();
+        if (!offline) {
+            replayer.execute(this::replay); // Online but behind: catch up now rather than at the next tick
+        }
+        return 0;
+    }
+
+    /**
+     * @return True from a failed connection until the next sale reaches the database.
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * @return Number of journaled sales not in the database yet.
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    /**
+     * @param listener Runs on a background thread whenever the backlog or the offline state changes.
+     */
+    public void addChangeListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void replay() {
+        List<JournalEntry> entries;
+        synchronized (this) {
+            if (journal == null || journal.getBacklog() == 0) {
+                if (offline) {
+                    offline = false; // Nothing to catch up on; let the next sale try the database
+                    fireChanged();
+                }
+                return;
+            }
+            entries = journal.getPending();
+        }
+        int replayed = 0;
+        try {
+            for (JournalEntry entry : entries) {
+                SaleModel sale = entry.getSale();
+                int saleId;
+                try {
+                    if (sale.getInvoiceNo() == null) {
+                        sale.setInvoiceNo(InvoiceSequence.getInstance().next());
+                    }
+                    saleId = ((SaleDao) sales).saveSale(sale, entry.getClientRef());
+                } catch (SQLException e) {
+                    if (TransactionExecutor.isConnectionFailure(e)) {
+                        offline = true;
+                        break;
+                    }
+                    System.err.println("Journaled sale " + sale.getInvoiceNo() + " was rejected: " + e.getMessage());
+                    writeRejected(entry, e.getMessage());
+                    synchronized (this) {
+                        journal.rejected(entry, e.getMessage());
+                    }
+                    settled(entry);
+                    continue;
+                }
+                synchronized (this) {
+                    journal.applied(entry, saleId);
+                }
+                settled(entry);
+                offline = false;
+                replayed++;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not update the sale journal: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Sale journal replay failed: " + e.getMessage());
+        }
+        synchronized (this) {
+            backlog = journal.getBacklog();
+        }
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " journaled sale(s), " + backlog + " waiting");
+        }
+        fireChanged();
+    }
+
+    private void settled(JournalEntry entry) {
+        Runnable callback = onSaved.remove(entry.getSequence());
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    private void writeRejected(JournalEntry entry, String reason) throws IOException {
+        Path rejects = file.resolveSibling("sale-journal.rejected.csv");
+        boolean header = !Files.exists(rejects);
+        SaleModel sale = entry.getSale();
+        String lines = sale.getDetails().stream()
+                .map(detail -> detail.getProductID() + " x " + detail.getQuantity() + " @ " + detail.getRate())
+                .collect(Collectors.joining("; "));
+        try (Writer out = Files.newBufferedWriter(rejects, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (header) {
+                out.write(CsvReader.format("RejectedDate", "ClientRef", "SaleDate", "InvoiceNo", "CustomerID", "TotalAmount",
+                        "ReceivedAmount", "Lines", "Error") + System.lineSeparator());
+            }
+            out.write(CsvReader.format(LocalDateTime.now().toString(), entry.getClientRef(), sale.getSaleDate().toString(),
+                    sale.getInvoiceNo(), String.valueOf(sale.getCustomerID()), String.valueOf(sale.getTotalAmount()),
+                    String.valueOf(sale.getReceivedAmount()), lines, reason) + System.lineSeparator());
+        }
+    }
+
+    private SaleJournal journal() throws IOException {
+        if (journal == null) {
+            journal = SaleJournal.open(file);
+            backlog = journal.getBacklog();
+            if (backlog > 0) {
+                System.out.println(backlog + " journaled sale(s) from an earlier run wait to be saved");
+            }
+        }
+        return journal;
+    }
+
+    private void fireChanged() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package raven.modal.demo.journal;
+
+import raven.modal.demo.model.SaleDetailModel;
+import raven.modal.demo.model.SaleModel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary form of a sale as {@link raven.modal.demo.dao.SaleDao#saveSale} needs it, for the journal's SALE records.
+ */
+final class SaleCodec {
+
+    private SaleCodec() {
+    }
+
+    static byte[] encode(String clientRef, SaleModel sale) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(clientRef);
+            out.writeInt(sale.getCustomerID());
+            writeNullable(out, sale.getCustomerName());
+            out.writeUTF(sale.getSaleDate().toString());
+            writeNullable(out, sale.getInvoiceNo());
+            out.writeDouble(sale.getActualAmount());
+            writeNullable(out, sale.getDiscountType());
+            out.writeDouble(sale.getDiscountValue());
+            out.writeDouble(sale.getTotalAmount());
+            out.writeDouble(sale.getReceivedAmount());
+            writeNullable(out, sale.getRemarks());
+            out.writeInt(sale.getDetails().size());
+            for (SaleDetailModel detail : sale.getDetails()) {
+                out.writeInt(detail.getProductID());
+                writeNullable(out, detail.getProductName());
+                out.writeDouble(detail.getQuantity());
+                out.writeDouble(detail.getRate());
+                out.writeDouble(detail.getLineDiscount());
+                out.writeDouble(detail.getTotal());
+                out.writeInt(detail.getUnitsPerCarton());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static JournalEntry decode(long sequence, byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            String clientRef = in.readUTF();
+            SaleModel sale = SaleModel.builder()
+                    .customerID(in.readInt())
+                    .customerName(readNullable(in))
+                    .saleDate(LocalDateTime.parse(in.readUTF()))
+                    .invoiceNo(readNullable(in))
+                    .actualAmount(in.readDouble())
+                    .discountType(readNullable(in))
+                    .discountValue(in.readDouble())
+                    .totalAmount(in.readDouble())
+                    .receivedAmount(in.readDouble())
+                    .remarks(readNullable(in))
+                    .build();
+            int lines = in.readInt();
+            List<SaleDetailModel> details = new ArrayList<>(lines);
+            for (int i = 0; i < lines; i++) {
+                details.add(SaleDetailModel.builder()
+                        .productID(in.readInt())
+                        .productName(readNullable(in))
+                        .quantity(in.readDouble())
+                        .rate(in.readDouble())
+                        .lineDiscount(in.readDouble())
+                        .total(in.readDouble())
+                        .unitsPerCarton(in.readInt())
+                        .build());
+            }
+            sale.setDetails(details);
+            return new JournalEntry(sequence, clientRef, sale);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,236 @@
+package raven.modal.demo.journal;
+
+import raven.modal.demo.model.SaleModel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of the sales taken while the database was unreachable, and of what became of them.
+ * <p>
+ * The file is memory-mapped: an append is a copy into the mapping plus a {@link MappedByteBuffer#force(int, int)}
+ * of the record's bytes, so a sale is on disk before the till moves on. Layout: {@code "MARTJNL"}, a version byte,
+ * then records of {@code record length, CRC32, type, sequence, payload} ending at the first zero length.
+ * A SALE record holds the sale ({@link SaleCodec}); an APPLIED or REJECTED record settles the SALE with the same
+ * sequence number. A record whose checksum does not match was torn by a crash mid-append and ends the journal.
+ * Once every sale is settled the file is cleared in place.
+ * <p>
+ * Not thread-safe; {@link OfflineSales} serializes access. The file is locked, so only one instance uses it.
+ */
+final class SaleJournal implements Closeable {
+
+    private static final byte[] MAGIC = {'M', 'A', 'R', 'T', 'J', 'N', 'L'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + 1;
+    private static final int RECORD_HEADER_BYTES = 4 + 4 + 1 + 8; // Length, CRC32, type, sequence
+    private static final int INITIAL_SIZE = 1 << 20;
+    private static final int CLEAR_AT = 64 * 1024;                 // Clear a fully settled journal past this size
+
+    private static final byte SALE = 1;
+    private static final byte APPLIED = 2;
+    private static final byte REJECTED = 3;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final FileLock lock;
+    private MappedByteBuffer map;
+    private int position;
+    private long nextSequence = 1;
+    private final TreeMap<Long, JournalEntry> pending = new TreeMap<>();
+
+    private SaleJournal(Path file, FileChannel channel, FileLock lock) {
+        this.file = file;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Opens the journal, creating it if needed, and reads the sales that are not settled yet.
+     * @throws IOException If the file cannot be opened, is locked by another instance or is not a sale journal.
+     */
+    static SaleJournal open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new IOException("The sale journal " + file + " is in use by another instance.");
+        }
+        SaleJournal journal = new SaleJournal(file, channel, lock);
+        try {
+            journal.load();
+        } catch (IOException e) {
+            journal.close();
+            throw e;
+        }
+        return journal;
+    }
+
+    private void load() throws IOException {
+        boolean created = channel.size() == 0;
+        map = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_SIZE));
+        if (created) {
+            putBytes(0, MAGIC);
+            map.put(MAGIC.length, VERSION);
+            map.force(0, HEADER_BYTES);
+            position = HEADER_BYTES;
+            return;
+        }
+        byte[] magic = new byte[MAGIC.length];
+        getBytes(0, magic);
+        if (!Arrays.equals(magic, MAGIC) || map.get(MAGIC.length) != VERSION) {
+            throw new IOException(file + " is not a sale journal.");
+        }
+
+        position = HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= map.capacity()) {
+            int recordBytes = map.getInt(position);
+            if (recordBytes == 0) {
+                break;
+            }
+            int length = recordBytes - RECORD_HEADER_BYTES;
+            if (length < 0 || position + recordBytes > map.capacity()
+                    || map.getInt(position + 4) != checksum(position, length)) {
+                System.err.println("Sale journal " + file + " ends with a damaged record at offset " + position + "; it was ignored.");
+                clear(position, map.capacity());
+                break;
+            }
+            byte type = map.get(position + 8);
+            long sequence = map.getLong(position + 9);
+            if (type == SALE) {
+                byte[] payload = new byte[length];
+                getBytes(position + RECORD_HEADER_BYTES, payload);
+                pending.put(sequence, SaleCodec.decode(sequence, payload));
+            } else {
+                pending.remove(sequence);
+            }
+            nextSequence = Math.max(nextSequence, sequence + 1);
+            position += recordBytes;
+        }
+    }
+
+    /**
+     * Appends a sale and forces it to disk.
+     * @return The entry, to settle with {@link #applied} or {@link #rejected} once replayed.
+     */
+    JournalEntry append(String clientRef, SaleModel sale) throws IOException {
+        long sequence = nextSequence++;
+        byte[] payload = SaleCodec.encode(clientRef, sale);
+        write(SALE, sequence, payload);
+        JournalEntry entry = new JournalEntry(sequence, clientRef, sale);
+        pending.put(sequence, entry);
+        return entry;
+    }
+
+    void applied(JournalEntry entry, int saleId) throws IOException {
+        settle(APPLIED, entry, ByteBuffer.allocate(4).putInt(saleId).array());
+    }
+
+    void rejected(JournalEntry entry, String reason) throws IOException {
+        settle(REJECTED, entry, String.valueOf(reason).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void settle(byte type, JournalEntry entry, byte[] payload) throws IOException {
+        write(type, entry.getSequence(), payload);
+        pending.remove(entry.getSequence());
+        if (pending.isEmpty() && position > CLEAR_AT) {
+            clear(HEADER_BYTES, position);
+            position = HEADER_BYTES;
+        }
+    }
+
+    /**
+     * @return The sales not settled yet, oldest first.
+     */
+    List<JournalEntry> getPending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    int getBacklog() {
+        return pending.size();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    private void write(byte type, long sequence, byte[] payload) throws IOException {
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+        if (position + recordBytes + 4 > map.capacity()) {
+            long size = Math.max((long) map.capacity() * 2, position + recordBytes + 4L);
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("The sale journal " + file + " is full.");
+            }
+            map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        // Body first and the length last, so a record is only ever seen once its bytes are in place
+        map.put(position + 8, type);
+        map.putLong(position + 9, sequence);
+        putBytes(position + RECORD_HEADER_BYTES, payload);
+        map.putInt(position + 4, checksum(position, payload.length));
+        map.putInt(position, recordBytes);
+        map.force(position, recordBytes);
+        position += recordBytes;
+    }
+
+    /**
+     * CRC32 of a record's type, sequence and payload.
+     */
+    private int checksum(int recordStart, int length) {
+        CRC32 crc = new CRC32();
+        byte[] bytes = new byte[1 + 8 + length];
+        getBytes(recordStart + 8, bytes);
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    private void clear(int from, int to) {
+        byte[] zeros = new byte[Math.min(64 * 1024, to - from)];
+        for (int offset = from; offset < to; offset += zeros.length) {
+            ByteBuffer target = map.duplicate();
+            target.position(offset);
+            target.put(zeros, 0, Math.min(zeros.length, to - offset));
+        }
+        map.force(from, to - from);
+    }
+
+    private void getBytes(int index, byte[] dst) {
+        ByteBuffer source = map.duplicate();
+        source.position(index);
+        source.get(dst);
+    }
+
+    private void putBytes(int index, byte[] src) {
+        ByteBuffer target = map.duplicate();
+        target.position(index);
+        target.put(src);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -16,7 +16,10 @@ import lombok.Getter;
 import raven.extras.AvatarIcon;
 import raven.modal.demo.Demo;
 import raven.modal.demo.forms.FormBackupRestore;
+import raven.modal.demo.forms.FormBulkImport;
 import raven.modal.demo.forms.FormCustomer;
+import raven.modal.demo.forms.FormCustomerReceipt;
+import raven.modal.demo.forms.FormExport;
 import raven.modal.demo.forms.FormProducts;
 import raven.modal.demo.forms.FormPurchase;
 import raven.modal.demo.forms.FormSale;
@@ -204,7 +207,8 @@ public class MyDrawerBuilder extends SimpleDrawerBuilder {
                         .subMenu("Purchase History", PurchaseTablePanel.class)
                         .subMenu("Purchase Payment", FormSupplierPayment.class),
                 new Item("Sale", "sale-1.svg")
-                        .subMenu("Add Sale", FormSale.class),
+                        .subMenu("Add Sale", FormSale.class)
+                        .subMenu("Customer Receipt", FormCustomerReceipt.class),
                 new Item("Suppliers", "supplier-1.svg")
                         .subMenu("Add Supplier", FormSupplier.class)
                         .subMenu("View All Suppliers", SupplierTablePanel.class),
@@ -218,7 +222,9 @@ public class MyDrawerBuilder extends SimpleDrawerBuilder {
                         .subMenu("Brand", BrandTablePanel.class)
                         .subMenu( new Item("Product")
                                 .subMenu("Add Product", FormProducts.class)
-                                .subMenu("View All Products", ProductTablePanel.class)),
+                                .subMenu("View All Products", ProductTablePanel.class))
+                        .subMenu("Bulk Import", FormBulkImport.class)
+                        .subMenu("Export History", FormExport.class),
                 new Item( "Backup Manager", "backup.svg", FormBackupRestore.class),
                 new Item("Logout", "logout.svg")
         };
@@ -0,0 +1,32 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * Rows moved by one archive run.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class ArchiveRunResult {
+
+    private final LocalDate archivedThrough;  // Invoices dated up to the end of this day were archived
+    private final int sales;
+    private final int purchases;
+    private final int detailRows;              // TBLSaleDetail + TBLPurchaseDetail rows moved
+    private final int ledgerRows;              // TBLStockLedger rows moved
+    private final int chunks;                  // Transactions used
+    private final long millis;
+
+    /**
+     * Short summary for the console, e.g. "120 sales, 40 purchases (900 lines, 950 ledger rows) in 12 chunks, 840ms".
+     */
+    public String getSummary() {
+        return sales + " sales, " + purchases + " purchases (" + detailRows + " lines, " + ledgerRows + " ledger rows) in "
+                + chunks + " chunks, " + millis + "ms";
+    }
+}
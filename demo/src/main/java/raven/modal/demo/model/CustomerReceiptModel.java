@@ -0,0 +1,38 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Data
+@Builder
+public class CustomerReceiptModel {
+    private int receiptID;
+    private int customerID;
+    private LocalDateTime receiptDate;
+    private double amount;
+    private String remarks;
+
+    /**
+     * Sales the customer says this receipt pays (SaleID -> amount), settled first; whatever is left of
+     * the receipt goes to the oldest open sales.
+     */
+    @Builder.Default
+    private Map<Integer, Double> allocateTo = new LinkedHashMap<>();
+
+    public CustomerReceiptModel(int customerID, double amount, String remarks) {
+        this.customerID = customerID;
+        this.amount = amount;
+        this.remarks = remarks;
+        this.receiptDate = LocalDateTime.now();
+        this.allocateTo = new LinkedHashMap<>();
+    }
+
+}
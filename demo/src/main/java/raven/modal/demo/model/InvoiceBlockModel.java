@@ -0,0 +1,22 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * A range of one day's invoice numbers reserved by one terminal (TBLInvoiceBlock).
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class InvoiceBlockModel {
+
+    private final long blockId;
+    private final LocalDate date;
+    private final int firstNo;
+    private final int lastNo;   // Inclusive
+    private final String terminal;
+}
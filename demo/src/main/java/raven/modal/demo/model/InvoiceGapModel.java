@@ -0,0 +1,26 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDate;
+
+/**
+ * Consecutive reserved invoice numbers that no saved sale or purchase carries.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class InvoiceGapModel {
+
+    private final LocalDate date;
+    private final int firstNo;
+    private final int lastNo;   // Inclusive
+    private final String terminal;
+    private final boolean issued; // False for the unused end of a block: never handed out. True: handed out, but cancelled, not saved or deleted
+
+    public int getCount() {
+        return lastNo - firstNo + 1;
+    }
+}
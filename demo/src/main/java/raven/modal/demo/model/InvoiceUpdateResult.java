@@ -0,0 +1,34 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Row changes written by a sale/purchase update, used to confirm that an edit only touched the lines that changed.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class InvoiceUpdateResult {
+
+    private final int addedLines;
+    private final int changedLines;
+    private final int removedLines;
+    private final int unchangedLines;
+    private final int ledgerEntries;  // Rows written to TBLStockLedger
+
+    /**
+     * Detail rows inserted, updated or deleted.
+     */
+    public int getDetailRowsWritten() {
+        return addedLines + changedLines + removedLines;
+    }
+
+    /**
+     * Short summary for status messages, e.g. "1 added, 2 changed, 0 removed".
+     */
+    public String getSummary() {
+        return addedLines + " added, " + changedLines + " changed, " + removedLines + " removed";
+    }
+}
@@ -0,0 +1,22 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Position in a history list ordered by (date DESC, id DESC): the key of one row.
+ * Keyset queries continue strictly after or before it instead of counting rows with OFFSET.
+ */
+@Getter
+@AllArgsConstructor
+@EqualsAndHashCode
+@ToString
+public class PageCursor {
+
+    private final LocalDateTime date;
+    private final int id;
+}
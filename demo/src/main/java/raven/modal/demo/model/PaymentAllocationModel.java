@@ -0,0 +1,18 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Part of a payment applied to one outstanding invoice.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class PaymentAllocationModel {
+
+    private final int paymentID;
+    private final int invoiceID;   // PurchaseID for supplier payments
+    private final double amount;
+}
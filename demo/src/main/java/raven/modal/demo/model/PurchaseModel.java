@@ -25,6 +25,7 @@ public class PurchaseModel {
     private double discountValue;  // The actual percentage or fixed amount
     private double totalAmount; // Corresponds to Total Amount (Final total after discount)
     private double paidAmount; // Corresponds to Paying Amount
+    private Double loadedPaidAmount; // PaidAmount when the purchase was opened for editing; null = paidAmount is absolute
     private String remarks; // Corresponds to Comment
 
     @Builder.Default
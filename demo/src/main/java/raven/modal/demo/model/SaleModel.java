@@ -27,6 +27,7 @@ public class SaleModel {
     private double discountValue;    // Header discount value (fixed or percentage)
     private double totalAmount;      // Final amount (after header discount + GST)
     private double receivedAmount;   // Amount paid by customer
+    private Double loadedReceivedAmount; // ReceivedAmount when the sale was opened for editing; null = receivedAmount is absolute
 
     private String remarks;
     private LocalDateTime createdDate;
@@ -0,0 +1,27 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Outcome of a settlement run: payments recorded and how much of them went to outstanding invoices.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class SettlementResult {
+
+    private final int payments;
+    private final int invoicesSettled;     // Invoices that received part of a payment
+    private final int allocations;         // Rows written to the allocation table
+    private final double allocatedAmount;
+    private final double unallocatedAmount; // Paid beyond the outstanding invoices (an advance on the party balance)
+
+    /**
+     * Short summary for status messages, e.g. "3 payments over 12 invoices, 250.00 unallocated".
+     */
+    public String getSummary() {
+        return payments + " payments over " + invoicesSettled + " invoices, " + String.format("%.2f", unallocatedAmount) + " unallocated";
+    }
+}
@@ -0,0 +1,38 @@
+package raven.modal.demo.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Stock of one product at a point in time: a month-end closing row of TBLStockClosingLine,
+ * or such a row plus the ledger movements since.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockPositionModel {
+
+    private int productID;
+    private double quantity;       // Quantity on hand
+    private double receivedQty;    // Net quantity purchased so far (PURCHASE and PURCHASE_ADJUST rows), the cost basis
+    private double receivedCost;   // Net purchase cost of receivedQty
+
+    /**
+     * Weighted average purchase cost per unit.
+     */
+    public double getAverageCost() {
+        return receivedQty == 0 ? 0 : receivedCost / receivedQty;
+    }
+
+    /**
+     * Quantity on hand valued at the weighted average purchase cost.
+     */
+    public double getValue() {
+        return quantity * getAverageCost();
+    }
+}
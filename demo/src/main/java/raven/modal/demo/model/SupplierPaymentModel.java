@@ -5,6 +5,8 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @AllArgsConstructor
 @Data
@@ -16,11 +18,19 @@ public class SupplierPaymentModel {
     private double amount;
     private String remarks;
 
+    /**
+     * Purchases this payment is meant for (PurchaseID -> amount), settled first; whatever is left of
+     * the payment goes to the oldest open purchases.
+     */
+    @Builder.Default
+    private Map<Integer, Double> allocateTo = new LinkedHashMap<>();
+
     public SupplierPaymentModel(int supplierID, double amount, String remarks) {
         this.supplierID = supplierID;
         this.amount = amount;
         this.remarks = remarks;
         this.paymentDate = LocalDateTime.now();
+        this.allocateTo = new LinkedHashMap<>();
     }
 
 }
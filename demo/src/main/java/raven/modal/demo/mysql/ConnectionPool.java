@@ -0,0 +1,230 @@
+package raven.modal.demo.mysql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A small bounded JDBC connection pool.
+ * <ul>
+ *     <li>At most {@code maxPoolSize} physical connections; borrowers wait up to {@code borrowTimeout}.</li>
+ *     <li>Connections idle longer than {@code validationIdle} are validated before being handed out.</li>
+ *     <li>Connections older than {@code maxLifetime} are retired on return or by the housekeeper.</li>
+ *     <li>Borrows held longer than {@code leakDetectionThreshold} are reported with the borrower's stack.</li>
+ *     <li>Each connection keeps an LRU cache of prepared statements.</li>
+ * </ul>
+ */
+public class ConnectionPool {
+
+    private final PoolConfig config;
+    private final Semaphore permits;
+    // LIFO so the most recently used (warm, validated) connection is reused first
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final ConcurrentHashMap<PooledConnection, Boolean> borrowed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean shutdown;
+
+    // --- Metrics ---
+    private final LongAdder totalCreated = new LongAdder();
+    private final LongAdder totalRetired = new LongAdder();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder borrowTimeouts = new LongAdder();
+    private final LongAdder totalBorrowWaitNanos = new LongAdder();
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    public ConnectionPool(PoolConfig config) {
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxPoolSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mart-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = config.getHousekeepingInterval();
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection. The caller must {@code close()} it to give it back.
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down.");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(config.getBorrowTimeout(), TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.increment();
+                throw new SQLTransientConnectionException("Timed out after " + config.getBorrowTimeout()
+                        + "ms waiting for a database connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledConnection pooled = takeIdle();
+            if (pooled == null) {
+                pooled = create();
+            }
+            recordBorrowWait(System.nanoTime() - start);
+            borrowed.put(pooled, Boolean.TRUE);
+            return pooled.borrow(config.getLeakDetectionThreshold() > 0);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Called by the connection proxy when the borrower closes it.
+     */
+    void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (shutdown || isExpired(pooled)) {
+                retire(pooled);
+                return;
+            }
+            try {
+                pooled.reset();
+                idle.offerFirst(pooled);
+            } catch (SQLException e) {
+                System.err.println("Discarding pooled connection that failed to reset: " + e.getMessage());
+                retire(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public PoolStats getStats() {
+        return new PoolStats(
+                borrowed.size(),
+                idle.size(),
+                config.getMaxPoolSize(),
+                totalCreated.sum(),
+                totalRetired.sum(),
+                borrowCount.sum(),
+                borrowTimeouts.sum(),
+                totalBorrowWaitNanos.sum(),
+                maxBorrowWaitNanos.get(),
+                leaksDetected.sum(),
+                statementCacheHits.sum(),
+                statementCacheMisses.sum());
+    }
+
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            retire(pooled);
+        }
+    }
+
+    void recordStatementCacheHit() {
+        statementCacheHits.increment();
+    }
+
+    void recordStatementCacheMiss() {
+        statementCacheMisses.increment();
+    }
+
+    // --- Internals ---
+
+    private PooledConnection takeIdle() {
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            if (isExpired(pooled)) {
+                retire(pooled);
+                continue;
+            }
+            long idleFor = System.currentTimeMillis() - pooled.getLastReturnedAt();
+            if (idleFor > config.getValidationIdle() && !pooled.isValid(config.getValidationTimeoutSeconds())) {
+                retire(pooled);
+                continue;
+            }
+            return pooled;
+        }
+        return null;
+    }
+
+    private PooledConnection create() throws SQLException {
+        Connection physical = DriverManager.getConnection(config.getUrl(), config.getUser(), config.getPassword());
+        try {
+            PooledConnection pooled = new PooledConnection(this, physical, config.getStatementCacheSize());
+            totalCreated.increment();
+            return pooled;
+        } catch (SQLException e) {
+            physical.close();
+            throw e;
+        }
+    }
+
+    private void retire(PooledConnection pooled) {
+        pooled.closePhysical();
+        totalRetired.increment();
+    }
+
+    private boolean isExpired(PooledConnection pooled) {
+        return System.currentTimeMillis() - pooled.getCreatedAt() > config.getMaxLifetime();
+    }
+
+    private void recordBorrowWait(long waitNanos) {
+        borrowCount.increment();
+        totalBorrowWaitNanos.add(waitNanos);
+        maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    private void housekeep() {
+        try {
+            // 1. Retire idle connections that passed their max lifetime
+            Iterator<PooledConnection> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledConnection pooled = it.next();
+                if (isExpired(pooled) && idle.removeFirstOccurrence(pooled)) {
+                    retire(pooled);
+                }
+            }
+
+            // 2. Leak detection: report (once) any borrow held too long
+            long threshold = config.getLeakDetectionThreshold();
+            if (threshold > 0) {
+                long now = System.currentTimeMillis();
+                for (PooledConnection pooled : borrowed.keySet()) {
+                    if (!pooled.isLeakReported() && now - pooled.getBorrowedAt() > threshold) {
+                        pooled.setLeakReported(true);
+                        leaksDetected.increment();
+                        System.err.println("Possible connection leak: connection held for "
+                                + (now - pooled.getBorrowedAt()) + "ms without being closed.");
+                        Throwable stack = pooled.getBorrowStack();
+                        if (stack != null) {
+                            stack.printStackTrace();
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+}
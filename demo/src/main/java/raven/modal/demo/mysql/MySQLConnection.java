@@ -3,17 +3,22 @@ package raven.modal.demo.mysql;
 import lombok.Getter;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 @Getter
 public class MySQLConnection {
 
-    private static final String DB_URL = "jdbc:mysql://localhost:110/martDB"; // ✅ also fix your port (see below)
+    private static final String DB_URL = "jdbc:mysql://localhost:110/martDB?rewriteBatchedStatements=true"; // ✅ also fix your port (see below)
     private static final String USER = "root";
     private static final String PASS = "root";
+    // ✅ -Dmart.db.url / .user / .password point the app (or the benchmarks) at another server
+    private static final String URL_PROPERTY = "mart.db.url";
+    private static final String USER_PROPERTY = "mart.db.user";
+    private static final String PASS_PROPERTY = "mart.db.password";
     private static final String DRIVER_CLASS = "com.mysql.cj.jdbc.Driver";
 
+    private final ConnectionPool pool;
+
     private MySQLConnection() {
         try {
             Class.forName(DRIVER_CLASS);
@@ -21,6 +26,12 @@ public class MySQLConnection {
             System.err.println("JDBC Driver not found.");
             e.printStackTrace();
         }
+        pool = new ConnectionPool(PoolConfig.builder()
+                .url(System.getProperty(URL_PROPERTY, DB_URL))
+                .user(System.getProperty(USER_PROPERTY, USER))
+                .password(System.getProperty(PASS_PROPERTY, PASS))
+                .build());
+        Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown, "mart-pool-shutdown"));
     }
 
     private static final class InstanceHolder {
@@ -31,14 +42,18 @@ public class MySQLConnection {
         return InstanceHolder.instance;
     }
 
-    // ✅ Always create a *new* connection
+    // ✅ Borrows a pooled connection; closing it returns it to the pool
     public Connection getConnection() {
         try {
-            return DriverManager.getConnection(DB_URL, USER, PASS);
+            return pool.getConnection();
         } catch (SQLException e) {
-            System.err.println("Could not establish new DB connection.");
+            System.err.println("Could not obtain DB connection from pool.");
             e.printStackTrace();
             return null;
         }
     }
+
+    public PoolStats getPoolStats() {
+        return pool.getStats();
+    }
 }
@@ -0,0 +1,33 @@
+package raven.modal.demo.mysql;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Tuning knobs for {@link ConnectionPool}. All durations are in milliseconds.
+ */
+@Getter
+@Builder
+public class PoolConfig {
+
+    private final String url;
+    private final String user;
+    private final String password;
+
+    @Builder.Default
+    private int maxPoolSize = 10;          // Hard upper bound of physical connections
+    @Builder.Default
+    private long borrowTimeout = 10_000;   // How long a caller waits for a free connection
+    @Builder.Default
+    private long validationIdle = 30_000;  // Validate a connection that sat idle longer than this
+    @Builder.Default
+    private int validationTimeoutSeconds = 2;
+    @Builder.Default
+    private long maxLifetime = 30 * 60_000;     // Retire connections older than this
+    @Builder.Default
+    private long leakDetectionThreshold = 60_000; // Report a borrow held longer than this (0 = off)
+    @Builder.Default
+    private long housekeepingInterval = 15_000;
+    @Builder.Default
+    private int statementCacheSize = 64;   // Prepared statements cached per connection (0 = off)
+}
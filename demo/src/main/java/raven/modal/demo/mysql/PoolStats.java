@@ -0,0 +1,42 @@
+package raven.modal.demo.mysql;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Immutable snapshot of the {@link ConnectionPool} counters.
+ */
+@Getter
+@AllArgsConstructor
+public class PoolStats {
+
+    private final int active;            // Connections currently borrowed
+    private final int idle;              // Connections waiting in the pool
+    private final int maxPoolSize;
+    private final long totalCreated;
+    private final long totalRetired;
+    private final long borrowCount;
+    private final long borrowTimeouts;
+    private final long totalBorrowWaitNanos;
+    private final long maxBorrowWaitNanos;
+    private final long leaksDetected;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    public double getAverageBorrowWaitMillis() {
+        return borrowCount == 0 ? 0 : (totalBorrowWaitNanos / (double) borrowCount) / 1_000_000.0;
+    }
+
+    public double getMaxBorrowWaitMillis() {
+        return maxBorrowWaitNanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d, idle=%d/%d, created=%d, retired=%d, borrows=%d, timeouts=%d, "
+                        + "avgWait=%.2fms, maxWait=%.2fms, leaks=%d, stmtCache=%d/%d",
+                active, idle, maxPoolSize, totalCreated, totalRetired, borrowCount, borrowTimeouts,
+                getAverageBorrowWaitMillis(), getMaxBorrowWaitMillis(), leaksDetected,
+                statementCacheHits, statementCacheHits + statementCacheMisses);
+    }
+}
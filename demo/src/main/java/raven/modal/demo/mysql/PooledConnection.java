@@ -0,0 +1,319 @@
+package raven.modal.demo.mysql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One physical JDBC connection owned by {@link ConnectionPool}.
+ * <p>
+ * Callers never see this class, they get a {@link Connection} proxy whose {@code close()} hands the
+ * connection back to the pool. {@code prepareStatement(...)} calls are served from a small per-connection
+ * LRU cache; the statement proxy's {@code close()} parks the statement in the cache instead of closing it.
+ */
+class PooledConnection {
+
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final long createdAt;
+    private final int statementCacheSize;
+
+    // Idle prepared statements keyed by SQL + prepare flags, in LRU order
+    private final LinkedHashMap<String, PreparedStatement> statementCache;
+    // Statements handed out during the current borrow, reclaimed when the connection is returned
+    private final Map<PreparedStatement, String> openStatements = new ConcurrentHashMap<>();
+
+    private volatile long lastReturnedAt;
+    private volatile long borrowedAt;
+    private volatile Throwable borrowStack;
+    private volatile boolean leakReported;
+    private volatile Connection proxy;
+
+    private final boolean defaultAutoCommit;
+    private final int defaultIsolation;
+    private final boolean defaultReadOnly;
+
+    PooledConnection(ConnectionPool pool, Connection physical, int statementCacheSize) throws SQLException {
+        this.pool = pool;
+        this.physical = physical;
+        this.statementCacheSize = statementCacheSize;
+        this.createdAt = System.currentTimeMillis();
+        this.lastReturnedAt = createdAt;
+        this.defaultAutoCommit = physical.getAutoCommit();
+        this.defaultIsolation = physical.getTransactionIsolation();
+        this.defaultReadOnly = physical.isReadOnly();
+        this.statementCache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() > PooledConnection.this.statementCacheSize) {
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // --- Borrow / Return lifecycle ---
+
+    Connection borrow(boolean captureStack) {
+        borrowedAt = System.currentTimeMillis();
+        borrowStack = captureStack ? new Throwable("Connection borrowed here") : null;
+        leakReported = false;
+        proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler());
+        return proxy;
+    }
+
+    /**
+     * Restores the connection to the state it had when it was opened.
+     * Uncommitted work is rolled back so it never leaks into the next borrower's transaction.
+     */
+    void reset() throws SQLException {
+        for (Map.Entry<PreparedStatement, String> open : openStatements.entrySet()) {
+            recycleStatement(open.getKey(), open.getValue());
+        }
+        openStatements.clear();
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+        }
+        if (physical.getAutoCommit() != defaultAutoCommit) {
+            physical.setAutoCommit(defaultAutoCommit);
+        }
+        if (physical.getTransactionIsolation() != defaultIsolation) {
+            physical.setTransactionIsolation(defaultIsolation);
+        }
+        if (physical.isReadOnly() != defaultReadOnly) {
+            physical.setReadOnly(defaultReadOnly);
+        }
+        physical.clearWarnings();
+        lastReturnedAt = System.currentTimeMillis();
+        borrowStack = null;
+        proxy = null;
+    }
+
+    void closePhysical() {
+        synchronized (statementCache) {
+            for (PreparedStatement ps : statementCache.values()) {
+                closeQuietly(ps);
+            }
+            statementCache.clear();
+        }
+        for (PreparedStatement ps : openStatements.keySet()) {
+            closeQuietly(ps);
+        }
+        openStatements.clear();
+        try {
+            physical.close();
+        } catch (SQLException ignored) {
+        }
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return !physical.isClosed() && physical.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    long getLastReturnedAt() {
+        return lastReturnedAt;
+    }
+
+    long getBorrowedAt() {
+        return borrowedAt;
+    }
+
+    Throwable getBorrowStack() {
+        return borrowStack;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported(boolean leakReported) {
+        this.leakReported = leakReported;
+    }
+
+    // --- Statement cache ---
+
+    private PreparedStatement prepare(Method method, Object[] args) throws Throwable {
+        String key = statementKey(args);
+        PreparedStatement ps = null;
+        if (statementCacheSize > 0) {
+            synchronized (statementCache) {
+                ps = statementCache.remove(key);
+            }
+        }
+        if (ps != null && !ps.isClosed()) {
+            pool.recordStatementCacheHit();
+        } else {
+            pool.recordStatementCacheMiss();
+            ps = (PreparedStatement) invoke(physical, method, args);
+        }
+        openStatements.put(ps, key);
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new StatementHandler(ps, key));
+    }
+
+    private void recycleStatement(PreparedStatement ps, String key) {
+        openStatements.remove(ps);
+        if (statementCacheSize <= 0) {
+            closeQuietly(ps);
+            return;
+        }
+        try {
+            if (ps.isClosed()) {
+                return;
+            }
+            ps.clearParameters();
+            ps.clearBatch();
+            ps.clearWarnings();
+        } catch (SQLException e) {
+            closeQuietly(ps);
+            return;
+        }
+        synchronized (statementCache) {
+            PreparedStatement previous = statementCache.put(key, ps);
+            if (previous != null && previous != ps) {
+                // Same SQL was prepared twice during one borrow; keep the newest copy only
+                closeQuietly(previous);
+            }
+        }
+    }
+
+    private static String statementKey(Object[] args) {
+        StringBuilder key = new StringBuilder((String) args[0]);
+        for (int i = 1; i < args.length; i++) {
+            Object arg = args[i];
+            key.append('\u0000');
+            if (arg instanceof int[]) {
+                key.append(Arrays.toString((int[]) arg));
+            } else if (arg instanceof String[]) {
+                key.append(Arrays.toString((String[]) arg));
+            } else {
+                key.append(arg);
+            }
+        }
+        return key.toString();
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+        }
+    }
+
+    // --- Proxies ---
+
+    private class ConnectionHandler implements InvocationHandler {
+
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                case "unwrap":
+                    if (((Class<?>) args[0]).isInstance(p)) {
+                        return p;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool.");
+            }
+            if ("prepareStatement".equals(name)) {
+                return prepare(method, args);
+            }
+            return PooledConnection.invoke(physical, method, args);
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+
+        private final PreparedStatement delegate;
+        private final String key;
+        private final Connection owner;
+        private boolean closed;
+
+        StatementHandler(PreparedStatement delegate, String key) {
+            this.delegate = delegate;
+            this.key = key;
+            this.owner = proxy;
+        }
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (owner == proxy) {
+                            recycleStatement(delegate, key);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || owner != proxy || delegate.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                case "toString":
+                    return "CachedStatement[" + delegate + "]";
+                default:
+                    break;
+            }
+            if (closed || owner != proxy) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            return PooledConnection.invoke(delegate, method, args);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package raven.modal.demo.mysql;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies the versioned schema scripts in {@value #SCRIPT_DIR} in order and records each one in TBLSchemaVersion.
+ * <p>
+ * A script runs once per database. Its SHA-256 checksum is stored with the version, and a script that was
+ * edited after it was applied stops the run: add a new version instead. Run {@link #migrate()} at startup,
+ * before any DAO is used; concurrent starts are serialized with a MySQL named lock.
+ * <p>
+ * "Already exists" errors (table, column, index) are logged and skipped, so the scripts also apply cleanly
+ * to databases where earlier versions of the application created those objects on first use.
+ */
+public class SchemaMigrator {
+
+    private static final String SCRIPT_DIR = "/raven/modal/demo/db/migration/";
+    private static final String[] SCRIPTS = {
+            "V1__support_tables.sql",
+            "V2__query_path_indexes.sql",
+            "V3__purchase_balance_due.sql",
+            "V4__supplier_payment_allocation.sql",
+            "V5__customer_receipts.sql",
+            "V6__change_feed.sql",
+            "V7__invoice_sequence.sql",
+            "V8__sale_client_ref.sql"
+    };
+
+    private static final String SQL_CREATE_VERSION_TABLE = "CREATE TABLE IF NOT EXISTS TBLSchemaVersion (" +
+            "Version INT NOT NULL PRIMARY KEY, " +
+            "Script VARCHAR(200) NOT NULL, " +
+            "Checksum CHAR(64) NOT NULL, " +
+            "ExecutionMillis BIGINT NOT NULL, " +
+            "AppliedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)";
+    private static final String LOCK_NAME = "martDB.schema_migration";
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+    private static final int ER_TABLE_EXISTS = 1050;
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    private SchemaMigrator() {
+    }
+
+    private static final class InstanceHolder {
+        static final SchemaMigrator instance = new SchemaMigrator();
+    }
+
+    public static SchemaMigrator getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    /**
+     * Applies every script newer than the database's version.
+     * @return The schema version after the run.
+     */
+    public int migrate() throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            acquireLock(conn);
+            try {
+                try (Statement st = conn.createStatement()) {
+                    st.execute(SQL_CREATE_VERSION_TABLE);
+                }
+                Map<Integer, String> applied = loadApplied(conn);
+                int version = 0;
+                int count = 0;
+                for (String script : SCRIPTS) {
+                    int scriptVersion = versionOf(script);
+                    String text = readScript(script);
+                    String checksum = checksum(text);
+                    String appliedChecksum = applied.remove(scriptVersion);
+                    if (appliedChecksum == null) {
+                        apply(conn, scriptVersion, script, text, checksum);
+                        count++;
+                    } else if (!appliedChecksum.equals(checksum)) {
+                        throw new SQLException("Migration " + script + " was modified after it was applied (checksum "
+                                + appliedChecksum + ", now " + checksum + "). Add a new version instead.");
+                    }
+                    version = scriptVersion;
+                }
+                if (!applied.isEmpty()) {
+                    System.err.println("Database has schema versions this build does not know: " + applied.keySet());
+                }
+                if (count > 0) {
+                    System.out.println("Schema migrated to version " + version + " (" + count + " script(s) in "
+                            + (System.currentTimeMillis() - start) + "ms)");
+                }
+                return version;
+            } finally {
+                releaseLock(conn);
+            }
+        }
+    }
+
+    /**
+     * @return The highest version recorded in TBLSchemaVersion, 0 for a database that was never migrated.
+     */
+    public int getCurrentVersion() throws SQLException {
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            if (conn == null) {
+                throw new SQLException("No database connection available.");
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute(SQL_CREATE_VERSION_TABLE);
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(MAX(Version), 0) FROM TBLSchemaVersion");
+                 ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Runs the statements of one script, then records the version. DDL commits implicitly in MySQL, so a failed
+     * script is not rolled back; fix the cause and start again, the statements that went through are skipped
+     * as "already exists".
+     */
+    private void apply(Connection conn, int version, String script, String text, String checksum) throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Statement st = conn.createStatement()) {
+            for (String sql : splitStatements(text)) {
+                try {
+                    st.execute(sql);
+                } catch (SQLException e) {
+                    int code = e.getErrorCode();
+                    if (code == ER_TABLE_EXISTS || code == ER_DUP_FIELDNAME || code == ER_DUP_KEYNAME) {
+                        System.err.println(script + ": skipped, already present (" + e.getMessage() + ")");
+                    } else {
+                        throw new SQLException("Migration " + script + " failed: " + e.getMessage(), e.getSQLState(), code, e);
+                    }
+                }
+            }
+        }
+        String sql = "INSERT INTO TBLSchemaVersion (Version, Script, Checksum, ExecutionMillis) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, version);
+            ps.setString(2, script);
+            ps.setString(3, checksum);
+            ps.setLong(4, System.currentTimeMillis() - start);
+            ps.executeUpdate();
+        }
+    }
+
+    private Map<Integer, String> loadApplied(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement("SELECT Version, Checksum FROM TBLSchemaVersion");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt("Version"), rs.getString("Checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private void acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another client to finish migrating the schema.");
+                }
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Could not release schema migration lock: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Version number from a script name of the form {@code V<version>__<description>.sql}.
+     */
+    static int versionOf(String script) {
+        int end = script.indexOf("__");
+        if (!script.startsWith("V") || end < 2) {
+            throw new IllegalArgumentException("Migration script name must look like V1__description.sql: " + script);
+        }
+        return Integer.parseInt(script.substring(1, end));
+    }
+
+    /**
+     * Statements of a script: {@code --} comment lines removed, split on semicolons at the end of a line.
+     */
+    static List<String> splitStatements(String text) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : text.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                String sql = current.toString().trim();
+                statements.add(sql.substring(0, sql.length() - 1));
+                current.setLength(0);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private String readScript(String script) throws SQLException {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(SCRIPT_DIR + script)) {
+            if (in == null) {
+                throw new SQLException("Migration script not found on the classpath: " + SCRIPT_DIR + script);
+            }
+            // Normalized so a checkout with CRLF line endings does not change the checksum
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration script " + script + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static String checksum(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
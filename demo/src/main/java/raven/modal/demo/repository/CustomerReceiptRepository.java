@@ -0,0 +1,32 @@
+package raven.modal.demo.repository;
+
+import raven.modal.demo.model.CustomerReceiptModel;
+import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.model.SettlementResult;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Money received from customers, allocated to the sales the receipt names and then to the customer's oldest open sales.
+ */
+public interface CustomerReceiptRepository {
+
+    /**
+     * @throws SQLException If the receipt was refused or could not be saved; nothing was saved then.
+     */
+    void saveReceipt(CustomerReceiptModel receipt) throws SQLException;
+
+    /**
+     * Records many receipts, for any number of customers, as one transaction (an end-of-day collection run).
+     * Receipts of the same customer are allocated in list order, each continuing where the previous one stopped.
+     * @return The settlement totals.
+     * @throws SQLException If any receipt was refused or the run could not be saved; nothing was saved then.
+     */
+    SettlementResult postReceipts(List<CustomerReceiptModel> receipts) throws SQLException;
+
+    /**
+     * Sales of the customer with an outstanding balance, oldest first (header fields only, no details).
+     */
+    List<SaleModel> getOpenSales(int customerId);
+}
@@ -0,0 +1,37 @@
+package raven.modal.demo.repository;
+
+import raven.modal.demo.model.CustomerModel;
+
+import java.util.List;
+
+/**
+ * Customers. {@link CustomerModel#getOpeningBalance()} of the returned rows is the current balance.
+ */
+public interface CustomerRepository {
+
+    /**
+     * ID and name of every customer, preceded by a "--- Select Customer ---" placeholder with ID 0.
+     */
+    List<CustomerModel> getActiveCustomersForDropdown();
+
+    boolean addCustomer(CustomerModel customer);
+
+    List<CustomerModel> getAllCustomers(int offset, int limit);
+
+    /**
+     * The given customers as {@link #getAllCustomers} returns them, in any order; IDs that no longer exist are left out.
+     */
+    List<CustomerModel> getCustomersByIds(List<Integer> customerIds);
+
+    /**
+     * @return The customer, or null if it does not exist.
+     */
+    CustomerModel getCustomerById(int customerId);
+
+    /**
+     * Saves the customer; its opening balance is taken as the new current balance.
+     */
+    boolean updateCustomer(CustomerModel customer);
+
+    boolean deleteCustomer(int customerId);
+}
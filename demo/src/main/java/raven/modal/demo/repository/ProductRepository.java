@@ -0,0 +1,41 @@
+package raven.modal.demo.repository;
+
+import raven.modal.demo.model.ProductModel;
+
+import java.util.List;
+
+/**
+ * Product master data. Implemented by {@link raven.modal.demo.dao.ProductDao} (MySQL) and the in-memory engine.
+ * Write methods report the outcome to the user themselves, like the forms expect.
+ */
+public interface ProductRepository {
+
+    /**
+     * Active products whose name or code contains {@code query}, at most 10.
+     */
+    List<ProductModel> searchActiveProducts(String query);
+
+    /**
+     * All active products ordered by name, for the product combo boxes.
+     */
+    List<ProductModel> getAllActiveProducts();
+
+    List<ProductModel> getAllProducts(int offset, int limit);
+
+    /**
+     * The given products as {@link #getAllProducts} returns them, in any order; IDs that no longer exist
+     * or are no longer active are left out.
+     */
+    List<ProductModel> getProductsByIds(List<Integer> productIds);
+
+    void addProduct(ProductModel product);
+
+    void updateProduct(ProductModel product);
+
+    /**
+     * @return The product, or null if it does not exist.
+     */
+    ProductModel getProductById(int productId);
+
+    void deleteProductById(int productId);
+}
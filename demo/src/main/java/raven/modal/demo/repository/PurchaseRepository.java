@@ -0,0 +1,60 @@
+package raven.modal.demo.repository;
+
+import raven.modal.demo.model.InvoiceUpdateResult;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.PurchaseModel;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Purchase invoices with their lines. Saving, editing and deleting a purchase also moves stock
+ * and the supplier's balance.
+ */
+public interface PurchaseRepository {
+
+    boolean deletePurchase(int purchaseId);
+
+    /**
+     * Header (with supplier name) and lines (with product name and units per carton) of one purchase.
+     * @return null if it does not exist.
+     */
+    PurchaseModel getPurchaseForEdit(int purchaseId);
+
+    /**
+     * @return The new PurchaseID.
+     */
+    int savePurchase(PurchaseModel purchaseModel) throws SQLException;
+
+    /**
+     * One page of purchases, newest first, continuing after {@code after} (null = first page).
+     */
+    List<PurchaseModel> getPurchasesAfter(PageCursor after, int limit);
+
+    /**
+     * The given purchases as {@link #getPurchasesAfter} returns them (headers with the supplier name), in any order;
+     * IDs that no longer exist are left out.
+     */
+    List<PurchaseModel> getPurchasesByIds(List<Integer> purchaseIds);
+
+    PageCursor seekOlderPurchase(PageCursor from, int rows) throws SQLException;
+
+    PageCursor seekNewerPurchase(PageCursor from, int rows) throws SQLException;
+
+    int countPurchasesNewerThan(PageCursor cursor) throws SQLException;
+
+    int getPurchaseCount();
+
+    PurchaseModel getPurchaseById(int purchaseId);
+
+    /**
+     * Records a payment against one purchase and takes it off the supplier's balance.
+     * @throws SQLException If the purchase does not exist or the payment could not be saved.
+     */
+    void updateSupplierPayment(int purchaseId, double paymentAmount) throws SQLException;
+
+    /**
+     * @return The line changes written, or null if the update failed.
+     */
+    InvoiceUpdateResult updatePurchase(PurchaseModel purchaseModel);
+}
@@ -0,0 +1,119 @@
+package raven.modal.demo.repository;
+
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.dao.CustomerDao;
+import raven.modal.demo.dao.CustomerReceiptDao;
+import raven.modal.demo.dao.ProductDao;
+import raven.modal.demo.dao.PurchaseDao;
+import raven.modal.demo.dao.SaleDao;
+import raven.modal.demo.dao.StockLedgerDao;
+import raven.modal.demo.dao.SupplierDao;
+import raven.modal.demo.dao.SupplierPaymentDao;
+import raven.modal.demo.repository.memory.MemoryCustomerReceiptRepository;
+import raven.modal.demo.repository.memory.MemoryCustomerRepository;
+import raven.modal.demo.repository.memory.MemoryProductRepository;
+import raven.modal.demo.repository.memory.MemoryPurchaseRepository;
+import raven.modal.demo.repository.memory.MemorySaleRepository;
+import raven.modal.demo.repository.memory.MemoryStockLedgerRepository;
+import raven.modal.demo.repository.memory.MemoryStore;
+import raven.modal.demo.repository.memory.MemorySupplierPaymentRepository;
+import raven.modal.demo.repository.memory.MemorySupplierRepository;
+
+/**
+ * The repositories of the {@link StorageEngine} chosen at startup. Forms, tables and caches get their
+ * repositories here instead of creating DAOs, so the whole application switches engine together.
+ */
+public class Repositories {
+
+    private final StorageEngine engine;
+    private final MemoryStore memoryStore;
+    private final ProductRepository products;
+    private final CustomerRepository customers;
+    private final SupplierRepository suppliers;
+    private final PurchaseRepository purchases;
+    private final SaleRepository sales;
+    private final StockLedgerRepository stockLedger;
+    private final SupplierPaymentRepository supplierPayments;
+    private final CustomerReceiptRepository customerReceipts;
+
+    private Repositories() {
+        engine = StorageEngine.fromSystemProperty();
+        if (engine == StorageEngine.MEMORY) {
+            MemoryStore store = new MemoryStore();
+            memoryStore = store;
+            products = new MemoryProductRepository(store);
+            customers = new MemoryCustomerRepository(store);
+            suppliers = new MemorySupplierRepository(store);
+            purchases = new MemoryPurchaseRepository(store);
+            sales = new MemorySaleRepository(store);
+            stockLedger = new MemoryStockLedgerRepository(store);
+            supplierPayments = new MemorySupplierPaymentRepository(store);
+            customerReceipts = new MemoryCustomerReceiptRepository(store);
+
+            // Tables the store does not hold (brands, units, ...) are still counted in MySQL
+            RowCountCache.CountSource mysql = RowCountCache.getInstance().getSource();
+            RowCountCache.getInstance().setSource(count -> MemoryStore.holds(count) ? store.getRowCount(count) : mysql.count(count));
+        } else {
+            memoryStore = null;
+            products = new ProductDao();
+            customers = new CustomerDao();
+            suppliers = new SupplierDao();
+            purchases = new PurchaseDao();
+            sales = new SaleDao();
+            stockLedger = new StockLedgerDao();
+            supplierPayments = new SupplierPaymentDao();
+            customerReceipts = new CustomerReceiptDao();
+        }
+    }
+
+    private static final class InstanceHolder {
+        static final Repositories instance = new Repositories();
+    }
+
+    public static Repositories getInstance() {
+        return InstanceHolder.instance;
+    }
+
+    public StorageEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return The store behind the in-memory repositories, or {@code null} when the engine is {@link StorageEngine#MYSQL}.
+     */
+    public MemoryStore getMemoryStore() {
+        return memoryStore;
+    }
+
+    public ProductRepository products() {
+        return products;
+    }
+
+    public CustomerRepository customers() {
+        return customers;
+    }
+
+    public SupplierRepository suppliers() {
+        return suppliers;
+    }
+
+    public PurchaseRepository purchases() {
+        return purchases;
+    }
+
+    public SaleRepository sales() {
+        return sales;
+    }
+
+    public StockLedgerRepository stockLedger() {
+        return stockLedger;
+    }
+
+    public SupplierPaymentRepository supplierPayments() {
+        return supplierPayments;
+    }
+
+    public CustomerReceiptRepository customerReceipts() {
+        return customerReceipts;
+    }
+}
@@ -0,0 +1,48 @@
+package raven.modal.demo.repository;
+
+import raven.modal.demo.model.InvoiceUpdateResult;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.SaleModel;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Sale invoices with their lines. Saving, editing and deleting a sale also moves stock
+ * and the customer's balance.
+ */
+public interface SaleRepository {
+
+    /**
+     * @return The new SaleID; also set on the model and its lines.
+     */
+    int saveSale(SaleModel saleModel) throws SQLException;
+
+    double getAvailableStock(int productId);
+
+    /**
+     * One page of sales, newest first, continuing after {@code after} (null = first page).
+     */
+    List<SaleModel> getSalesAfter(PageCursor after, int limit);
+
+    PageCursor seekOlderSale(PageCursor from, int rows) throws SQLException;
+
+    PageCursor seekNewerSale(PageCursor from, int rows) throws SQLException;
+
+    int countSalesNewerThan(PageCursor cursor) throws SQLException;
+
+    int getSaleCount();
+
+    /**
+     * Header (with customer name) and lines (with product name and units per carton) of one sale.
+     * @return null if it does not exist.
+     */
+    SaleModel getSaleForEdit(int saleId);
+
+    /**
+     * @return The line changes written, or null if the update failed.
+     */
+    InvoiceUpdateResult updateSale(SaleModel saleModel);
+
+    boolean deleteSale(int saleId);
+}
@@ -0,0 +1,23 @@
+package raven.modal.demo.repository;
+
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Stock on hand derived from the stock ledger. The ledger itself is written by the sale and purchase repositories.
+ */
+public interface StockLedgerRepository {
+
+    double getStockOnHand(int productId);
+
+    /**
+     * ProductID -> quantity on hand for every product with ledger entries.
+     */
+    Map<Integer, Double> getAllStockOnHand() throws SQLException;
+
+    /**
+     * Recomputes the stock on hand from the full ledger.
+     * @return Number of products written.
+     */
+    int rebuildStockBalance() throws SQLException;
+}
@@ -0,0 +1,27 @@
+package raven.modal.demo.repository;
+
+/**
+ * Where the repositories keep their rows. Chosen once at startup with {@code -Dmart.storage=mysql|memory}
+ * (or {@code --storage=memory} on the command line).
+ */
+public enum StorageEngine {
+
+    MYSQL,
+    /**
+     * Everything in process memory and lost on exit; for benchmarks and trying the UI without a database.
+     */
+    MEMORY;
+
+    public static final String PROPERTY = "mart.storage";
+
+    public static StorageEngine fromSystemProperty() {
+        String value = System.getProperty(PROPERTY, "mysql").trim();
+        for (StorageEngine engine : values()) {
+            if (engine.name().equalsIgnoreCase(value)) {
+                return engine;
+            }
+        }
+        System.err.println("Unknown " + PROPERTY + " '" + value + "', using " + MYSQL);
+        return MYSQL;
+    }
+}
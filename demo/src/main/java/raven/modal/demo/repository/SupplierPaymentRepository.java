@@ -0,0 +1,26 @@
+package raven.modal.demo.repository;
+
+import raven.modal.demo.model.SettlementResult;
+import raven.modal.demo.model.SupplierPaymentModel;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Supplier payments, allocated to the supplier's oldest outstanding purchases first.
+ */
+public interface SupplierPaymentRepository {
+
+    /**
+     * @throws SQLException If the payment was refused or could not be saved; nothing was saved then.
+     */
+    void saveSupplierPayment(SupplierPaymentModel paymentModel) throws SQLException;
+
+    /**
+     * Records many payments, for any number of suppliers, as one transaction. Payments of the same supplier
+     * are allocated in list order, each continuing where the previous one stopped.
+     * @return The settlement totals.
+     * @throws SQLException If any payment was refused or the run could not be saved; nothing was saved then.
+     */
+    SettlementResult settlePayments(List<SupplierPaymentModel> payments) throws SQLException;
+}
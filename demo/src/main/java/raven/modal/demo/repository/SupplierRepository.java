@@ -0,0 +1,55 @@
+package raven.modal.demo.repository;
+
+import raven.modal.demo.model.SupplierModel;
+
+import java.util.List;
+
+/**
+ * Suppliers (vendors). {@link SupplierModel#getOpeningBalance()} of the returned rows is the current balance.
+ */
+public interface SupplierRepository {
+
+    /**
+     * Suppliers with an outstanding balance, ordered by name; for the payment dialog.
+     */
+    List<SupplierModel> getRemainingBalanceSuppliers();
+
+    /**
+     * Adds {@code totalAmount - paidAmount} to the supplier's balance.
+     */
+    boolean updateSupplierBalance(int supplierId, double totalAmount, double paidAmount);
+
+    /**
+     * ID and name of every supplier, preceded by a "--- Select Vendor ---" placeholder with ID 0.
+     */
+    List<SupplierModel> getActiveSuppliersForDropdown();
+
+    List<SupplierModel> getSuppliers(int offset, int limit);
+
+    /**
+     * The given suppliers as {@link #getSuppliers} returns them, in any order; IDs that no longer exist are left out.
+     */
+    List<SupplierModel> getSuppliersByIds(List<Integer> supplierIds);
+
+    /**
+     * @return A positive result code on success.
+     */
+    int updateSupplier(SupplierModel supplier);
+
+    /**
+     * @return A positive result code on success.
+     */
+    int deleteSupplier(int supplierId);
+
+    /**
+     * @return The new SupplierID, -3 if the name is taken, or 0 on failure.
+     */
+    int addSupplier(SupplierModel supplier);
+
+    /**
+     * @return The supplier, or null if it does not exist.
+     */
+    SupplierModel getSupplierById(int supplierId);
+
+    double getSupplierBalance(int supplierId);
+}
@@ -0,0 +1,137 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.dao.FifoAllocator;
+import raven.modal.demo.model.CustomerReceiptModel;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.PaymentAllocationModel;
+import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.model.SettlementResult;
+import raven.modal.demo.repository.CustomerReceiptRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * In-memory {@link CustomerReceiptRepository}: named sales first, then the customer's sale index oldest first,
+ * split with the same {@link FifoAllocator} as the MySQL implementation.
+ */
+public class MemoryCustomerReceiptRepository implements CustomerReceiptRepository {
+
+    private final MemoryStore store;
+
+    public MemoryCustomerReceiptRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void saveReceipt(CustomerReceiptModel receipt) throws SQLException {
+        postReceipts(Collections.singletonList(receipt));
+    }
+
+    @Override
+    public SettlementResult postReceipts(List<CustomerReceiptModel> receipts) throws SQLException {
+        synchronized (store.writeLock) {
+            // Validate everything before the first write, the store has no rollback
+            Map<Integer, FifoAllocator> allocators = new HashMap<>();
+            for (CustomerReceiptModel receipt : receipts) {
+                if (!store.customers.containsKey(receipt.getCustomerID())) {
+                    throw new SQLException("Customer " + receipt.getCustomerID() + " not found.");
+                }
+                if (!namesOpenSales(receipt)) {
+                    throw new SQLException("Receipt for customer " + receipt.getCustomerID()
+                            + " names a sale that is not open, or more than the amount received.");
+                }
+                allocators.computeIfAbsent(receipt.getCustomerID(), this::openSales);
+            }
+
+            List<PaymentAllocationModel> allocations = new ArrayList<>();
+            double unallocated = 0;
+            for (CustomerReceiptModel receipt : receipts) {
+                CustomerReceiptModel stored = new CustomerReceiptModel(store.receiptIds.incrementAndGet(), receipt.getCustomerID(),
+                        receipt.getReceiptDate() == null ? LocalDateTime.now() : receipt.getReceiptDate(),
+                        receipt.getAmount(), receipt.getRemarks(), new LinkedHashMap<>(named(receipt)));
+                store.receipts.put(stored.getReceiptID(), stored);
+                receipt.setReceiptID(stored.getReceiptID());
+
+                FifoAllocator allocator = allocators.get(receipt.getCustomerID());
+                int from = allocations.size();
+                double remaining = receipt.getAmount();
+                for (Map.Entry<Integer, Double> entry : named(receipt).entrySet()) {
+                    remaining -= entry.getValue() - allocator.allocateTo(stored.getReceiptID(), entry.getKey(), entry.getValue(), allocations);
+                }
+                unallocated += allocator.allocate(stored.getReceiptID(), remaining, allocations);
+                store.receiptAllocations.put(stored.getReceiptID(), new ArrayList<>(allocations.subList(from, allocations.size())));
+
+                MemoryStore.addToBalance(store.customers.get(receipt.getCustomerID()), -receipt.getAmount());
+            }
+
+            int invoicesSettled = 0;
+            double allocated = 0;
+            for (FifoAllocator allocator : allocators.values()) {
+                for (int i = 0; i < allocator.getInvoiceCount(); i++) {
+                    double applied = allocator.getAppliedAmount(i);
+                    if (applied > 0) {
+                        SaleModel sale = store.sales.get(allocator.getInvoiceId(i));
+                        sale.setReceivedAmount(sale.getReceivedAmount() + applied);
+                        allocated += applied;
+                        invoicesSettled++;
+                    }
+                }
+            }
+            return new SettlementResult(receipts.size(), invoicesSettled, allocations.size(), allocated, unallocated);
+        }
+    }
+
+    @Override
+    public List<SaleModel> getOpenSales(int customerId) {
+        List<SaleModel> open = new ArrayList<>();
+        NavigableSet<PageCursor> sales = store.salesByCustomer.get(customerId);
+        if (sales != null) {
+            for (PageCursor key : sales) {
+                SaleModel sale = store.sales.get(key.getId());
+                if (sale != null && sale.getTotalAmount() - sale.getReceivedAmount() > 0) {
+                    open.add(SaleModel.builder()
+                            .saleID(sale.getSaleID())
+                            .customerID(sale.getCustomerID())
+                            .saleDate(sale.getSaleDate())
+                            .invoiceNo(sale.getInvoiceNo())
+                            .totalAmount(sale.getTotalAmount())
+                            .receivedAmount(sale.getReceivedAmount())
+                            .build());
+                }
+            }
+        }
+        return open;
+    }
+
+    private boolean namesOpenSales(CustomerReceiptModel receipt) {
+        double named = 0;
+        for (Map.Entry<Integer, Double> entry : named(receipt).entrySet()) {
+            SaleModel sale = store.sales.get(entry.getKey());
+            if (sale == null || sale.getCustomerID() != receipt.getCustomerID() || sale.getTotalAmount() - sale.getReceivedAmount() <= 0) {
+                return false;
+            }
+            named += entry.getValue();
+        }
+        return named <= receipt.getAmount();
+    }
+
+    private static Map<Integer, Double> named(CustomerReceiptModel receipt) {
+        return receipt.getAllocateTo() == null ? Collections.emptyMap() : receipt.getAllocateTo();
+    }
+
+    private FifoAllocator openSales(int customerId) {
+        FifoAllocator allocator = new FifoAllocator();
+        for (SaleModel sale : getOpenSales(customerId)) {
+            allocator.add(sale.getSaleID(), sale.getTotalAmount() - sale.getReceivedAmount());
+        }
+        return allocator;
+    }
+}
@@ -0,0 +1,124 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.model.CustomerModel;
+import raven.modal.demo.repository.CustomerRepository;
+
+import javax.swing.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory {@link CustomerRepository}. Balances are stored directly in openingBalance; there is no journal to roll up.
+ */
+public class MemoryCustomerRepository implements CustomerRepository {
+
+    private final MemoryStore store;
+
+    public MemoryCustomerRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<CustomerModel> getActiveCustomersForDropdown() {
+        List<CustomerModel> customers = new ArrayList<>();
+        customers.add(CustomerModel.builder().customerId(0).customerName("--- Select Customer ---").build());
+        for (CustomerModel customer : store.customers.values()) {
+            customers.add(CustomerModel.builder()
+                    .customerId(customer.getCustomerId())
+                    .customerName(customer.getCustomerName())
+                    .build());
+        }
+        return customers;
+    }
+
+    @Override
+    public boolean addCustomer(CustomerModel customer) {
+        CustomerModel stored = MemoryStore.copy(customer);
+        stored.setOpeningBalance(MemoryStore.valueOf(customer.getOpeningBalance()));
+        stored.setCreatedDate(LocalDateTime.now().toString());
+        synchronized (store.writeLock) {
+            stored.setCustomerId(store.customerIds.incrementAndGet());
+            store.customers.put(stored.getCustomerId(), stored);
+        }
+        LookupCache.getInstance().invalidate(LookupType.CUSTOMERS);
+        RowCountCache.getInstance().adjust(RowCount.CUSTOMERS, 1);
+        return true;
+    }
+
+    @Override
+    public List<CustomerModel> getAllCustomers(int offset, int limit) {
+        List<CustomerModel> list = new ArrayList<>();
+        int skipped = 0;
+        for (CustomerModel customer : store.customers.values()) {
+            if (list.size() == limit) {
+                break;
+            }
+            if (skipped++ >= offset) {
+                list.add(MemoryStore.copy(customer));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public List<CustomerModel> getCustomersByIds(List<Integer> customerIds) {
+        List<CustomerModel> list = new ArrayList<>();
+        for (int customerId : customerIds) {
+            CustomerModel customer = store.customers.get(customerId);
+            if (customer != null) {
+                list.add(MemoryStore.copy(customer));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public CustomerModel getCustomerById(int customerId) {
+        return MemoryStore.copy(store.customers.get(customerId));
+    }
+
+    @Override
+    public boolean updateCustomer(CustomerModel customer) {
+        boolean updated;
+        synchronized (store.writeLock) {
+            CustomerModel stored = store.customers.get(customer.getCustomerId());
+            updated = stored != null;
+            if (updated) {
+                CustomerModel replacement = MemoryStore.copy(customer);
+                replacement.setCreatedDate(stored.getCreatedDate());
+                store.customers.put(customer.getCustomerId(), replacement);
+            }
+        }
+        if (updated) {
+            LookupCache.getInstance().invalidate(LookupType.CUSTOMERS);
+        }
+        return updated;
+    }
+
+    @Override
+    public boolean deleteCustomer(int customerId) {
+        boolean deleted;
+        synchronized (store.writeLock) {
+            Set<?> sales = store.salesByCustomer.get(customerId);
+            if (sales != null && !sales.isEmpty()) {
+                JOptionPane.showMessageDialog(null,
+                        "Deletion Failed: This customer has linked transactions and cannot be deleted.",
+                        "Integrity Constraint Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return false;
+            }
+            deleted = store.customers.remove(customerId) != null;
+        }
+        if (deleted) {
+            LookupCache.getInstance().invalidate(LookupType.CUSTOMERS);
+            RowCountCache.getInstance().adjust(RowCount.CUSTOMERS, -1);
+        }
+        return deleted;
+    }
+}
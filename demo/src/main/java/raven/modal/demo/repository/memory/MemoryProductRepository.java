@@ -0,0 +1,181 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.model.ProductModel;
+import raven.modal.demo.repository.ProductRepository;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-memory {@link ProductRepository}. Shows the same messages as {@link raven.modal.demo.dao.ProductDao},
+ * including the duplicate-code and linked-records errors the database would raise.
+ */
+public class MemoryProductRepository implements ProductRepository {
+
+    private static final int SEARCH_LIMIT = 10;
+
+    private final MemoryStore store;
+
+    public MemoryProductRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<ProductModel> searchActiveProducts(String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<ProductModel> products = new ArrayList<>();
+        for (ProductModel product : store.products.values()) {
+            if (products.size() == SEARCH_LIMIT) {
+                break;
+            }
+            if (product.isActive() && (contains(product.getProductName(), needle) || contains(product.getProductCode(), needle))) {
+                products.add(MemoryStore.copy(product));
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public List<ProductModel> getAllActiveProducts() {
+        List<ProductModel> products = new ArrayList<>();
+        for (ProductModel product : store.products.values()) {
+            if (product.isActive()) {
+                products.add(MemoryStore.copy(product));
+            }
+        }
+        products.sort(Comparator.comparing(ProductModel::getProductName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
+        return products;
+    }
+
+    @Override
+    public List<ProductModel> getAllProducts(int offset, int limit) {
+        List<ProductModel> products = new ArrayList<>();
+        int skipped = 0;
+        for (ProductModel product : store.products.values()) {
+            if (products.size() == limit) {
+                break;
+            }
+            if (product.isActive() && skipped++ >= offset) {
+                products.add(MemoryStore.copy(product));
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public List<ProductModel> getProductsByIds(List<Integer> productIds) {
+        List<ProductModel> products = new ArrayList<>();
+        for (int productId : productIds) {
+            ProductModel product = store.products.get(productId);
+            if (product != null && product.isActive()) {
+                products.add(MemoryStore.copy(product));
+            }
+        }
+        return products;
+    }
+
+    @Override
+    public void addProduct(ProductModel product) {
+        synchronized (store.writeLock) {
+            if (codeTaken(product.getProductCode(), 0)) {
+                showDuplicateCode();
+                return;
+            }
+            ProductModel stored = MemoryStore.copy(product);
+            stored.setProductId(store.productIds.incrementAndGet());
+            store.products.put(stored.getProductId(), stored);
+        }
+        LookupCache.getInstance().invalidate(LookupType.PRODUCTS);
+        RowCountCache.getInstance().adjust(RowCount.PRODUCTS, 1);
+        JOptionPane.showMessageDialog(null,
+                "Product '" + product.getProductName() + "' saved successfully!",
+                "Success",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    @Override
+    public void updateProduct(ProductModel product) {
+        boolean updated;
+        synchronized (store.writeLock) {
+            if (codeTaken(product.getProductCode(), product.getProductId())) {
+                showDuplicateCode();
+                return;
+            }
+            updated = store.products.replace(product.getProductId(), MemoryStore.copy(product)) != null;
+        }
+        LookupCache.getInstance().invalidate(LookupType.PRODUCTS);
+        if (updated) {
+            JOptionPane.showMessageDialog(null,
+                    "Product '" + product.getProductName() + "' updated successfully!",
+                    "Update Success",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(null,
+                    "Product ID " + product.getProductId() + " not found. No record was updated.",
+                    "Warning",
+                    JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    @Override
+    public ProductModel getProductById(int productId) {
+        return MemoryStore.copy(store.products.get(productId));
+    }
+
+    @Override
+    public void deleteProductById(int productId) {
+        boolean deleted;
+        synchronized (store.writeLock) {
+            List<?> entries = store.ledgerByProduct.get(productId);
+            if (entries != null && !entries.isEmpty()) {
+                JOptionPane.showMessageDialog(null,
+                        "Deletion Failed: This Product is linked to existing products or records and cannot be deleted.",
+                        "Integrity Constraint Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            deleted = store.products.remove(productId) != null;
+        }
+        LookupCache.getInstance().invalidate(LookupType.PRODUCTS);
+        if (deleted) {
+            RowCountCache.getInstance().adjust(RowCount.PRODUCTS, -1);
+            JOptionPane.showMessageDialog(null,
+                    "Product ID " + productId + " deleted successfully!",
+                    "Deletion Success",
+                    JOptionPane.INFORMATION_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(null,
+                    "Product ID " + productId + " not found. No record was deleted.",
+                    "Warning",
+                    JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    private boolean codeTaken(String productCode, int exceptProductId) {
+        for (ProductModel product : store.products.values()) {
+            if (product.getProductId() != exceptProductId && product.getProductCode() != null
+                    && product.getProductCode().equalsIgnoreCase(productCode)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void showDuplicateCode() {
+        JOptionPane.showMessageDialog(null,
+                "Error: The Product Code provided is already in use.",
+                "Validation Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    private static boolean contains(String value, String needle) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(needle);
+    }
+}
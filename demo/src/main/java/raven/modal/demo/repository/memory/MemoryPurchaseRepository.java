@@ -0,0 +1,309 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.cache.StockAvailability;
+import raven.modal.demo.dao.DetailDiff;
+import raven.modal.demo.model.InvoiceUpdateResult;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.ProductModel;
+import raven.modal.demo.model.PurchaseDetailModel;
+import raven.modal.demo.model.PurchaseModel;
+import raven.modal.demo.model.StockLedgerModel;
+import raven.modal.demo.model.SupplierModel;
+import raven.modal.demo.model.SupplierPaymentModel;
+import raven.modal.demo.repository.PurchaseRepository;
+
+import javax.swing.*;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory {@link PurchaseRepository}: the same ledger entries, stock and supplier balance changes as
+ * {@link raven.modal.demo.dao.PurchaseDao}, applied under the store's write lock instead of a transaction.
+ */
+public class MemoryPurchaseRepository implements PurchaseRepository {
+
+    private final MemoryStore store;
+    private final MemorySupplierPaymentRepository supplierPayments;
+
+    public MemoryPurchaseRepository(MemoryStore store) {
+        this.store = store;
+        this.supplierPayments = new MemorySupplierPaymentRepository(store);
+    }
+
+    @Override
+    public boolean deletePurchase(int purchaseId) {
+        Map<Integer, Double> stockDeltas;
+        synchronized (store.writeLock) {
+            PurchaseModel oldPurchase = store.purchases.remove(purchaseId);
+            if (oldPurchase == null) {
+                stockDeltas = null;
+            } else {
+                MemoryStore.addToBalance(store.suppliers.get(oldPurchase.getSupplierID()),
+                        -(oldPurchase.getTotalAmount() - oldPurchase.getPaidAmount()));
+                stockDeltas = store.removeLedgerEntries(MemoryStore.purchaseDocument(purchaseId));
+                PageCursor key = keyOf(oldPurchase);
+                store.purchasesByDate.remove(key);
+                MemoryStore.unindex(store.purchasesBySupplier, oldPurchase.getSupplierID(), key);
+            }
+        }
+        if (stockDeltas == null) {
+            JOptionPane.showMessageDialog(null, "Cannot find original purchase to delete.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        StockAvailability.getInstance().applyCommitted(stockDeltas);
+        RowCountCache.getInstance().adjust(RowCount.PURCHASES, -1);
+        return true;
+    }
+
+    @Override
+    public PurchaseModel getPurchaseForEdit(int purchaseId) {
+        PurchaseModel purchase = MemoryStore.copy(store.purchases.get(purchaseId));
+        if (purchase == null) {
+            return null;
+        }
+        purchase.setSupplierName(supplierName(purchase.getSupplierID()));
+        purchase.setLoadedPaidAmount(purchase.getPaidAmount());
+        for (PurchaseDetailModel detail : purchase.getDetails()) {
+            ProductModel product = store.products.get(detail.getProductID());
+            if (product != null) {
+                detail.setProductName(product.getProductName());
+                detail.setUnitsPerCarton(product.getUnitsPerCarton());
+            }
+        }
+        return purchase;
+    }
+
+    @Override
+    public int savePurchase(PurchaseModel purchaseModel) throws SQLException {
+        Map<Integer, Double> stockDeltas;
+        int purchaseId;
+        synchronized (store.writeLock) {
+            SupplierModel supplier = store.suppliers.get(purchaseModel.getSupplierID());
+            if (supplier == null) {
+                throw new SQLException("Supplier " + purchaseModel.getSupplierID() + " does not exist.");
+            }
+            purchaseId = store.purchaseIds.incrementAndGet();
+            PurchaseModel stored = MemoryStore.copy(purchaseModel);
+            stored.setPurchaseID(purchaseId);
+            stored.setDetails(new ArrayList<>());
+            stored.setCreatedDate(LocalDateTime.now());
+
+            stockDeltas = addLines(purchaseId, stored, purchaseModel.getDetails(), new ArrayList<>());
+            MemoryStore.addToBalance(supplier, purchaseModel.getTotalAmount() - purchaseModel.getPaidAmount());
+
+            PageCursor key = keyOf(stored);
+            store.purchases.put(purchaseId, stored);
+            store.purchasesByDate.add(key);
+            MemoryStore.index(store.purchasesBySupplier, stored.getSupplierID(), key);
+        }
+        StockAvailability.getInstance().applyCommitted(stockDeltas);
+        RowCountCache.getInstance().adjust(RowCount.PURCHASES, 1);
+        return purchaseId;
+    }
+
+    @Override
+    public List<PurchaseModel> getPurchasesAfter(PageCursor after, int limit) {
+        List<PurchaseModel> purchases = new ArrayList<>();
+        for (PageCursor key : MemoryStore.pageAfter(store.purchasesByDate, after, limit)) {
+            PurchaseModel stored = store.purchases.get(key.getId());
+            if (stored != null) {
+                PurchaseModel purchase = MemoryStore.copy(stored);
+                purchase.setDetails(null);
+                purchase.setSupplierName(supplierName(purchase.getSupplierID()));
+                purchases.add(purchase);
+            }
+        }
+        return purchases;
+    }
+
+    @Override
+    public List<PurchaseModel> getPurchasesByIds(List<Integer> purchaseIds) {
+        List<PurchaseModel> purchases = new ArrayList<>();
+        for (int purchaseId : purchaseIds) {
+            PurchaseModel stored = store.purchases.get(purchaseId);
+            if (stored != null) {
+                PurchaseModel purchase = MemoryStore.copy(stored);
+                purchase.setDetails(null);
+                purchase.setSupplierName(supplierName(purchase.getSupplierID()));
+                purchases.add(purchase);
+            }
+        }
+        return purchases;
+    }
+
+    @Override
+    public PageCursor seekOlderPurchase(PageCursor from, int rows) {
+        return MemoryStore.seekOlder(store.purchasesByDate, from, rows);
+    }
+
+    @Override
+    public PageCursor seekNewerPurchase(PageCursor from, int rows) {
+        return MemoryStore.seekNewer(store.purchasesByDate, from, rows);
+    }
+
+    @Override
+    public int countPurchasesNewerThan(PageCursor cursor) {
+        return MemoryStore.countNewerThan(store.purchasesByDate, cursor);
+    }
+
+    @Override
+    public int getPurchaseCount() {
+        return RowCountCache.getInstance().get(RowCount.PURCHASES);
+    }
+
+    @Override
+    public PurchaseModel getPurchaseById(int purchaseId) {
+        PurchaseModel purchase = MemoryStore.copy(store.purchases.get(purchaseId));
+        if (purchase != null) {
+            for (PurchaseDetailModel detail : purchase.getDetails()) {
+                ProductModel product = store.products.get(detail.getProductID());
+                detail.setProductName(product == null ? null : product.getProductName());
+            }
+        }
+        return purchase;
+    }
+
+    @Override
+    public void updateSupplierPayment(int purchaseId, double paymentAmount) throws SQLException {
+        PurchaseModel purchase = store.purchases.get(purchaseId);
+        if (purchase == null) {
+            throw new SQLException("Purchase ID " + purchaseId + " not found.");
+        }
+        // Saved like any supplier payment, allocated to this purchase first
+        SupplierPaymentModel payment = new SupplierPaymentModel(purchase.getSupplierID(), paymentAmount, "Payment for purchase " + purchase.getInvoiceNo());
+        payment.getAllocateTo().put(purchaseId, paymentAmount);
+        supplierPayments.settlePayments(Collections.singletonList(payment));
+    }
+
+    @Override
+    public InvoiceUpdateResult updatePurchase(PurchaseModel purchaseModel) {
+        int purchaseId = purchaseModel.getPurchaseID();
+        InvoiceUpdateResult result;
+        Map<Integer, Double> stockDeltas;
+        synchronized (store.writeLock) {
+            PurchaseModel oldPurchase = store.purchases.get(purchaseId);
+            SupplierModel supplier = store.suppliers.get(purchaseModel.getSupplierID());
+            if (oldPurchase == null || supplier == null) {
+                result = null;
+                stockDeltas = Map.of();
+            } else {
+                if (purchaseModel.getLoadedPaidAmount() != null) {
+                    purchaseModel.setPaidAmount(oldPurchase.getPaidAmount() + purchaseModel.getPaidAmount() - purchaseModel.getLoadedPaidAmount());
+                }
+                // Supplier balance: only the change of (Total - Paid)
+                MemoryStore.addToBalance(store.suppliers.get(oldPurchase.getSupplierID()),
+                        -(oldPurchase.getTotalAmount() - oldPurchase.getPaidAmount()));
+                MemoryStore.addToBalance(supplier, purchaseModel.getTotalAmount() - purchaseModel.getPaidAmount());
+
+                DetailDiff<PurchaseDetailModel> diff = DetailDiff.of(oldPurchase.getDetails(), purchaseModel.getDetails(),
+                        PurchaseDetailModel::getPurchaseDetailID, PurchaseDetailModel::getProductID, MemoryPurchaseRepository::sameLine);
+                Map<Integer, PurchaseDetailModel> lines = new LinkedHashMap<>();
+                for (PurchaseDetailModel line : oldPurchase.getDetails()) {
+                    lines.put(line.getPurchaseDetailID(), line);
+                }
+                List<StockLedgerModel> adjustments = new ArrayList<>();
+                for (PurchaseDetailModel old : diff.getRemoved()) {
+                    lines.remove(old.getPurchaseDetailID());
+                    adjustments.add(purchaseAdjustment(purchaseId, old.getPurchaseDetailID(), old.getProductID(), -old.getQuantity(), old.getRate()));
+                }
+                for (DetailDiff.Change<PurchaseDetailModel> change : diff.getChanged()) {
+                    PurchaseDetailModel old = change.getStored();
+                    PurchaseDetailModel line = change.getEdited();
+                    line.setPurchaseDetailID(old.getPurchaseDetailID());
+                    PurchaseDetailModel storedLine = MemoryStore.copy(line);
+                    storedLine.setPurchaseID(purchaseId);
+                    lines.put(old.getPurchaseDetailID(), storedLine);
+                    double qtyReceived = line.getQuantity() - old.getQuantity();
+                    if (qtyReceived != 0) {
+                        adjustments.add(purchaseAdjustment(purchaseId, old.getPurchaseDetailID(), line.getProductID(), qtyReceived, line.getRate()));
+                    }
+                }
+
+                PurchaseModel stored = MemoryStore.copy(purchaseModel);
+                stored.setLoadedPaidAmount(null);
+                stored.setCreatedDate(oldPurchase.getCreatedDate());
+                stored.setDetails(new ArrayList<>(lines.values()));
+                stockDeltas = addLines(purchaseId, stored, diff.getAdded(), adjustments);
+                stored.getDetails().sort(Comparator.comparingInt(PurchaseDetailModel::getPurchaseDetailID));
+
+                PageCursor oldKey = keyOf(oldPurchase);
+                PageCursor newKey = keyOf(stored);
+                store.purchasesByDate.remove(oldKey);
+                MemoryStore.unindex(store.purchasesBySupplier, oldPurchase.getSupplierID(), oldKey);
+                store.purchases.put(purchaseId, stored);
+                store.purchasesByDate.add(newKey);
+                MemoryStore.index(store.purchasesBySupplier, stored.getSupplierID(), newKey);
+
+                result = new InvoiceUpdateResult(diff.getAdded().size(), diff.getChanged().size(), diff.getRemoved().size(),
+                        diff.getUnchanged(), diff.getAdded().size() + adjustments.size());
+            }
+        }
+        if (result == null) {
+            JOptionPane.showMessageDialog(null, "Cannot find original purchase to update.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+        StockAvailability.getInstance().applyCommitted(stockDeltas);
+        return result;
+    }
+
+    /**
+     * Gives new lines their IDs, adds them to {@code stored} and writes their 'PURCHASE' ledger entries
+     * together with {@code adjustments}. Caller holds the write lock.
+     * @return The per-product stock change.
+     */
+    private Map<Integer, Double> addLines(int purchaseId, PurchaseModel stored, List<PurchaseDetailModel> newDetails,
+                                          List<StockLedgerModel> adjustments) {
+        List<StockLedgerModel> entries = new ArrayList<>(newDetails.size() + adjustments.size());
+        for (PurchaseDetailModel detail : newDetails) {
+            detail.setPurchaseDetailID(store.purchaseDetailIds.incrementAndGet());
+            detail.setPurchaseID(purchaseId);
+            stored.getDetails().add(MemoryStore.copy(detail));
+            entries.add(StockLedgerModel.builder()
+                    .productID(detail.getProductID())
+                    .refType("PURCHASE")
+                    .refID(purchaseId)
+                    .refDetailID(detail.getPurchaseDetailID())
+                    .qtyIn(detail.getQuantity())
+                    .rate(detail.getRate())
+                    .build());
+        }
+        entries.addAll(adjustments);
+        return entries.isEmpty() ? new HashMap<>() : store.addLedgerEntries(MemoryStore.purchaseDocument(purchaseId), entries);
+    }
+
+    private String supplierName(int supplierId) {
+        SupplierModel supplier = store.suppliers.get(supplierId);
+        return supplier == null ? null : supplier.getSupplierName();
+    }
+
+    private static PageCursor keyOf(PurchaseModel purchase) {
+        return new PageCursor(purchase.getPurchaseDate(), purchase.getPurchaseID());
+    }
+
+    private static boolean sameLine(PurchaseDetailModel stored, PurchaseDetailModel edited) {
+        return stored.getQuantity() == edited.getQuantity()
+                && stored.getRate() == edited.getRate()
+                && stored.getTotal() == edited.getTotal();
+    }
+
+    private static StockLedgerModel purchaseAdjustment(int purchaseId, int purchaseDetailId, int productId, double qtyReceived, double rate) {
+        return StockLedgerModel.builder()
+                .productID(productId)
+                .refType("PURCHASE_ADJUST")
+                .refID(purchaseId)
+                .refDetailID(purchaseDetailId)
+                .qtyIn(qtyReceived > 0 ? qtyReceived : 0)
+                .qtyOut(qtyReceived < 0 ? -qtyReceived : 0)
+                .rate(rate)
+                .build();
+    }
+}
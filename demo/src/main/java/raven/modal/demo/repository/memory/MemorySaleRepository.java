@@ -0,0 +1,268 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.cache.StockAvailability;
+import raven.modal.demo.dao.DetailDiff;
+import raven.modal.demo.model.CustomerModel;
+import raven.modal.demo.model.InvoiceUpdateResult;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.ProductModel;
+import raven.modal.demo.model.SaleDetailModel;
+import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.model.StockLedgerModel;
+import raven.modal.demo.repository.SaleRepository;
+
+import javax.swing.*;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory {@link SaleRepository}: the same ledger entries, stock and customer balance changes as
+ * {@link raven.modal.demo.dao.SaleDao}, applied under the store's write lock instead of a transaction.
+ */
+public class MemorySaleRepository implements SaleRepository {
+
+    private final MemoryStore store;
+
+    public MemorySaleRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public int saveSale(SaleModel saleModel) throws SQLException {
+        Map<Integer, Double> stockDeltas;
+        synchronized (store.writeLock) {
+            CustomerModel customer = store.customers.get(saleModel.getCustomerID());
+            if (customer == null) {
+                throw new SQLException("Customer " + saleModel.getCustomerID() + " does not exist.");
+            }
+            int saleId = store.saleIds.incrementAndGet();
+            saleModel.setSaleID(saleId);
+            SaleModel stored = MemoryStore.copy(saleModel);
+            stored.setDetails(new ArrayList<>());
+            stored.setCreatedDate(LocalDateTime.now());
+
+            stockDeltas = addLines(saleModel, stored, saleModel.getDetails(), new ArrayList<>());
+            MemoryStore.addToBalance(customer, saleModel.getTotalAmount() - saleModel.getReceivedAmount());
+
+            PageCursor key = keyOf(stored);
+            store.sales.put(saleId, stored);
+            store.salesByDate.add(key);
+            MemoryStore.index(store.salesByCustomer, stored.getCustomerID(), key);
+        }
+        StockAvailability.getInstance().applyCommitted(stockDeltas);
+        RowCountCache.getInstance().adjust(RowCount.SALES, 1);
+        return saleModel.getSaleID();
+    }
+
+    @Override
+    public double getAvailableStock(int productId) {
+        return store.stockOnHand.getOrDefault(productId, 0.0);
+    }
+
+    @Override
+    public List<SaleModel> getSalesAfter(PageCursor after, int limit) {
+        List<SaleModel> sales = new ArrayList<>();
+        for (PageCursor key : MemoryStore.pageAfter(store.salesByDate, after, limit)) {
+            SaleModel stored = store.sales.get(key.getId());
+            if (stored != null) {
+                SaleModel sale = MemoryStore.copy(stored);
+                sale.setDetails(null);
+                sale.setCustomerName(customerName(sale.getCustomerID()));
+                sales.add(sale);
+            }
+        }
+        return sales;
+    }
+
+    @Override
+    public PageCursor seekOlderSale(PageCursor from, int rows) {
+        return MemoryStore.seekOlder(store.salesByDate, from, rows);
+    }
+
+    @Override
+    public PageCursor seekNewerSale(PageCursor from, int rows) {
+        return MemoryStore.seekNewer(store.salesByDate, from, rows);
+    }
+
+    @Override
+    public int countSalesNewerThan(PageCursor cursor) {
+        return MemoryStore.countNewerThan(store.salesByDate, cursor);
+    }
+
+    @Override
+    public int getSaleCount() {
+        return RowCountCache.getInstance().get(RowCount.SALES);
+    }
+
+    @Override
+    public SaleModel getSaleForEdit(int saleId) {
+        SaleModel sale = MemoryStore.copy(store.sales.get(saleId));
+        if (sale == null) {
+            return null;
+        }
+        sale.setCustomerName(customerName(sale.getCustomerID()));
+        sale.setLoadedReceivedAmount(sale.getReceivedAmount());
+        for (SaleDetailModel detail : sale.getDetails()) {
+            ProductModel product = store.products.get(detail.getProductID());
+            if (product != null) {
+                detail.setProductName(product.getProductName());
+                detail.setUnitsPerCarton(product.getUnitsPerCarton());
+            }
+        }
+        return sale;
+    }
+
+    @Override
+    public InvoiceUpdateResult updateSale(SaleModel saleModel) {
+        int saleId = saleModel.getSaleID();
+        InvoiceUpdateResult result;
+        Map<Integer, Double> stockDeltas;
+        synchronized (store.writeLock) {
+            SaleModel oldSale = store.sales.get(saleId);
+            CustomerModel customer = store.customers.get(saleModel.getCustomerID());
+            if (oldSale == null || customer == null) {
+                result = null;
+                stockDeltas = Map.of();
+            } else {
+                if (saleModel.getLoadedReceivedAmount() != null) {
+                    saleModel.setReceivedAmount(oldSale.getReceivedAmount() + saleModel.getReceivedAmount() - saleModel.getLoadedReceivedAmount());
+                }
+                // Customer balance: only the change of (Total - Received)
+                MemoryStore.addToBalance(store.customers.get(oldSale.getCustomerID()), -(oldSale.getTotalAmount() - oldSale.getReceivedAmount()));
+                MemoryStore.addToBalance(customer, saleModel.getTotalAmount() - saleModel.getReceivedAmount());
+
+                DetailDiff<SaleDetailModel> diff = DetailDiff.of(oldSale.getDetails(), saleModel.getDetails(),
+                        SaleDetailModel::getSaleDetailID, SaleDetailModel::getProductID, MemorySaleRepository::sameLine);
+                Map<Integer, SaleDetailModel> lines = new LinkedHashMap<>();
+                for (SaleDetailModel line : oldSale.getDetails()) {
+                    lines.put(line.getSaleDetailID(), line);
+                }
+                List<StockLedgerModel> adjustments = new ArrayList<>();
+                for (SaleDetailModel old : diff.getRemoved()) {
+                    lines.remove(old.getSaleDetailID());
+                    adjustments.add(saleAdjustment(saleId, old.getSaleDetailID(), old.getProductID(), -old.getQuantity(), old.getRate()));
+                }
+                for (DetailDiff.Change<SaleDetailModel> change : diff.getChanged()) {
+                    SaleDetailModel old = change.getStored();
+                    SaleDetailModel line = change.getEdited();
+                    line.setSaleDetailID(old.getSaleDetailID());
+                    SaleDetailModel storedLine = MemoryStore.copy(line);
+                    storedLine.setSaleID(saleId);
+                    lines.put(old.getSaleDetailID(), storedLine);
+                    double qtySold = line.getQuantity() - old.getQuantity();
+                    if (qtySold != 0) {
+                        adjustments.add(saleAdjustment(saleId, old.getSaleDetailID(), line.getProductID(), qtySold, line.getRate()));
+                    }
+                }
+
+                SaleModel stored = MemoryStore.copy(saleModel);
+                stored.setLoadedReceivedAmount(null);
+                stored.setCreatedDate(oldSale.getCreatedDate());
+                stored.setDetails(new ArrayList<>(lines.values()));
+                stockDeltas = addLines(saleModel, stored, diff.getAdded(), adjustments);
+                stored.getDetails().sort(Comparator.comparingInt(SaleDetailModel::getSaleDetailID));
+
+                PageCursor oldKey = keyOf(oldSale);
+                PageCursor newKey = keyOf(stored);
+                store.salesByDate.remove(oldKey);
+                MemoryStore.unindex(store.salesByCustomer, oldSale.getCustomerID(), oldKey);
+                store.sales.put(saleId, stored);
+                store.salesByDate.add(newKey);
+                MemoryStore.index(store.salesByCustomer, stored.getCustomerID(), newKey);
+
+                result = new InvoiceUpdateResult(diff.getAdded().size(), diff.getChanged().size(), diff.getRemoved().size(),
+                        diff.getUnchanged(), diff.getAdded().size() + adjustments.size());
+            }
+        }
+        if (result == null) {
+            JOptionPane.showMessageDialog(null, "Cannot find original sale to update.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+        StockAvailability.getInstance().applyCommitted(stockDeltas);
+        return result;
+    }
+
+    @Override
+    public boolean deleteSale(int saleId) {
+        Map<Integer, Double> stockDeltas;
+        synchronized (store.writeLock) {
+            SaleModel oldSale = store.sales.remove(saleId);
+            if (oldSale == null) {
+                stockDeltas = null;
+            } else {
+                MemoryStore.addToBalance(store.customers.get(oldSale.getCustomerID()), -(oldSale.getTotalAmount() - oldSale.getReceivedAmount()));
+                stockDeltas = store.removeLedgerEntries(MemoryStore.saleDocument(saleId));
+                PageCursor key = keyOf(oldSale);
+                store.salesByDate.remove(key);
+                MemoryStore.unindex(store.salesByCustomer, oldSale.getCustomerID(), key);
+            }
+        }
+        if (stockDeltas == null) {
+            JOptionPane.showMessageDialog(null, "Cannot find original sale to delete.", "DB Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        StockAvailability.getInstance().applyCommitted(stockDeltas);
+        RowCountCache.getInstance().adjust(RowCount.SALES, -1);
+        return true;
+    }
+
+    /**
+     * Gives new lines their IDs, adds them to {@code stored} and writes their 'SALE' ledger entries
+     * together with {@code adjustments}. Caller holds the write lock.
+     * @return The per-product stock change.
+     */
+    private Map<Integer, Double> addLines(SaleModel saleModel, SaleModel stored, List<SaleDetailModel> newDetails,
+                                          List<StockLedgerModel> adjustments) {
+        List<StockLedgerModel> entries = new ArrayList<>(newDetails.size() + adjustments.size());
+        for (SaleDetailModel detail : newDetails) {
+            detail.setSaleDetailID(store.saleDetailIds.incrementAndGet());
+            detail.setSaleID(saleModel.getSaleID());
+            stored.getDetails().add(MemoryStore.copy(detail));
+            entries.add(StockLedgerModel.builder()
+                    .productID(detail.getProductID())
+                    .refType("SALE")
+                    .refID(saleModel.getSaleID())
+                    .refDetailID(detail.getSaleDetailID())
+                    .qtyOut(detail.getQuantity())
+                    .rate(detail.getRate())
+                    .build());
+        }
+        entries.addAll(adjustments);
+        return entries.isEmpty() ? new HashMap<>() : store.addLedgerEntries(MemoryStore.saleDocument(saleModel.getSaleID()), entries);
+    }
+
+    private String customerName(int customerId) {
+        CustomerModel customer = store.customers.get(customerId);
+        return customer == null ? null : customer.getCustomerName();
+    }
+
+    private static PageCursor keyOf(SaleModel sale) {
+        return new PageCursor(sale.getSaleDate(), sale.getSaleID());
+    }
+
+    private static boolean sameLine(SaleDetailModel stored, SaleDetailModel edited) {
+        return stored.getQuantity() == edited.getQuantity()
+                && stored.getRate() == edited.getRate()
+                && stored.getTotal() == edited.getTotal();
+    }
+
+    private static StockLedgerModel saleAdjustment(int saleId, int saleDetailId, int productId, double qtySold, double rate) {
+        return StockLedgerModel.builder()
+                .productID(productId)
+                .refType("SALE_ADJUST")
+                .refID(saleId)
+                .refDetailID(saleDetailId)
+                .qtyIn(qtySold < 0 ? -qtySold : 0)
+                .qtyOut(qtySold > 0 ? qtySold : 0)
+                .rate(rate)
+                .build();
+    }
+}
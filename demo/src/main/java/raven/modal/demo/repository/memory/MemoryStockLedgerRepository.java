@@ -0,0 +1,45 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.model.StockLedgerModel;
+import raven.modal.demo.repository.StockLedgerRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory {@link StockLedgerRepository}: stock on hand is kept per product as ledger entries are added and removed.
+ */
+public class MemoryStockLedgerRepository implements StockLedgerRepository {
+
+    private final MemoryStore store;
+
+    public MemoryStockLedgerRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public double getStockOnHand(int productId) {
+        return store.stockOnHand.getOrDefault(productId, 0.0);
+    }
+
+    @Override
+    public Map<Integer, Double> getAllStockOnHand() {
+        return new HashMap<>(store.stockOnHand);
+    }
+
+    @Override
+    public int rebuildStockBalance() {
+        synchronized (store.writeLock) {
+            store.stockOnHand.clear();
+            for (Map.Entry<Integer, List<StockLedgerModel>> product : store.ledgerByProduct.entrySet()) {
+                double qty = 0;
+                for (StockLedgerModel entry : product.getValue()) {
+                    qty += entry.getQtyIn() - entry.getQtyOut();
+                }
+                store.stockOnHand.put(product.getKey(), qty);
+            }
+            return store.stockOnHand.size();
+        }
+    }
+}
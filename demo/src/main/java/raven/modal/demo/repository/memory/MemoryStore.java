@@ -0,0 +1,302 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.model.CustomerModel;
+import raven.modal.demo.model.CustomerReceiptModel;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.PaymentAllocationModel;
+import raven.modal.demo.model.ProductModel;
+import raven.modal.demo.model.PurchaseDetailModel;
+import raven.modal.demo.model.PurchaseModel;
+import raven.modal.demo.model.SaleDetailModel;
+import raven.modal.demo.model.SaleModel;
+import raven.modal.demo.model.StockLedgerModel;
+import raven.modal.demo.model.SupplierModel;
+import raven.modal.demo.model.SupplierPaymentModel;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tables of the in-memory storage engine, shared by its repositories.
+ * <p>
+ * Rows live in primary-key maps; sales and purchases are also indexed by (date, id) for the history pages
+ * and by customer/supplier (oldest first) for balance allocation, and ledger entries by product and by document.
+ * Reads are lock-free on the concurrent maps. Every write that touches more than one map (an invoice with its
+ * lines, ledger entries, stock and party balance) runs under {@link #writeLock}, so other writers never see half
+ * of it. Models are copied in and out, so callers cannot change stored rows behind the store's back.
+ */
+public final class MemoryStore {
+
+    static final Comparator<PageCursor> BY_DATE_AND_ID = Comparator.comparing(PageCursor::getDate).thenComparingInt(PageCursor::getId);
+
+    private static final Set<RowCount> HELD_COUNTS = EnumSet.of(RowCount.CUSTOMERS, RowCount.PRODUCTS,
+            RowCount.PURCHASES, RowCount.SALES, RowCount.SUPPLIERS);
+
+    final Object writeLock = new Object();
+
+    // Master data is listed in ID order, so it is kept in sorted maps
+    final ConcurrentSkipListMap<Integer, ProductModel> products = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Integer, CustomerModel> customers = new ConcurrentSkipListMap<>();
+    final ConcurrentSkipListMap<Integer, SupplierModel> suppliers = new ConcurrentSkipListMap<>();
+    final ConcurrentHashMap<Integer, SaleModel> sales = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Integer, PurchaseModel> purchases = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Integer, SupplierPaymentModel> payments = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Integer, List<PaymentAllocationModel>> paymentAllocations = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Integer, CustomerReceiptModel> receipts = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Integer, List<PaymentAllocationModel>> receiptAllocations = new ConcurrentHashMap<>();
+
+    // Secondary indexes, ascending (date, id)
+    final ConcurrentSkipListSet<PageCursor> salesByDate = new ConcurrentSkipListSet<>(BY_DATE_AND_ID);
+    final ConcurrentSkipListSet<PageCursor> purchasesByDate = new ConcurrentSkipListSet<>(BY_DATE_AND_ID);
+    final ConcurrentHashMap<Integer, ConcurrentSkipListSet<PageCursor>> salesByCustomer = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Integer, ConcurrentSkipListSet<PageCursor>> purchasesBySupplier = new ConcurrentHashMap<>();
+
+    // Stock ledger: entries by product and by document ("SALE#12" holds SALE and SALE_ADJUST rows of sale 12)
+    final ConcurrentHashMap<Integer, List<StockLedgerModel>> ledgerByProduct = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<String, List<StockLedgerModel>> ledgerByDocument = new ConcurrentHashMap<>();
+    final ConcurrentHashMap<Integer, Double> stockOnHand = new ConcurrentHashMap<>();
+
+    final AtomicInteger productIds = new AtomicInteger();
+    final AtomicInteger customerIds = new AtomicInteger();
+    final AtomicInteger supplierIds = new AtomicInteger();
+    final AtomicInteger saleIds = new AtomicInteger();
+    final AtomicInteger saleDetailIds = new AtomicInteger();
+    final AtomicInteger purchaseIds = new AtomicInteger();
+    final AtomicInteger purchaseDetailIds = new AtomicInteger();
+    final AtomicInteger paymentIds = new AtomicInteger();
+    final AtomicInteger receiptIds = new AtomicInteger();
+    final AtomicInteger ledgerIds = new AtomicInteger();
+
+    /**
+     * @return Whether this engine holds the rows behind {@code count}; the rest still live in MySQL.
+     */
+    public static boolean holds(RowCount count) {
+        return HELD_COUNTS.contains(count);
+    }
+
+    /**
+     * Row count for {@link raven.modal.demo.cache.RowCountCache}; counts of tables this engine does not hold are 0.
+     */
+    public int getRowCount(RowCount count) {
+        switch (count) {
+            case CUSTOMERS:
+                return customers.size();
+            case PRODUCTS:
+                return products.size();
+            case PURCHASES:
+                return purchases.size();
+            case SALES:
+                return sales.size();
+            case SUPPLIERS:
+                return suppliers.size();
+            default:
+                return 0;
+        }
+    }
+
+    // --- Indexes (callers hold writeLock) ---
+
+    static void index(ConcurrentHashMap<Integer, ConcurrentSkipListSet<PageCursor>> byParty, int partyId, PageCursor key) {
+        byParty.computeIfAbsent(partyId, id -> new ConcurrentSkipListSet<>(BY_DATE_AND_ID)).add(key);
+    }
+
+    static void unindex(ConcurrentHashMap<Integer, ConcurrentSkipListSet<PageCursor>> byParty, int partyId, PageCursor key) {
+        ConcurrentSkipListSet<PageCursor> keys = byParty.get(partyId);
+        if (keys != null) {
+            keys.remove(key);
+        }
+    }
+
+    /**
+     * Appends ledger entries and applies them to the stock on hand.
+     * @return The net quantity change per ProductID.
+     */
+    Map<Integer, Double> addLedgerEntries(String document, List<StockLedgerModel> entries) {
+        Map<Integer, Double> deltas = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (StockLedgerModel entry : entries) {
+            entry.setLedgerID(ledgerIds.incrementAndGet());
+            entry.setCreatedDate(now);
+            ledgerByProduct.computeIfAbsent(entry.getProductID(), id -> new CopyOnWriteArrayList<>()).add(entry);
+            ledgerByDocument.computeIfAbsent(document, d -> new CopyOnWriteArrayList<>()).add(entry);
+            deltas.merge(entry.getProductID(), entry.getQtyIn() - entry.getQtyOut(), Double::sum);
+        }
+        deltas.forEach((productId, qty) -> stockOnHand.merge(productId, qty, Double::sum));
+        return deltas;
+    }
+
+    /**
+     * Removes every ledger entry of a document and takes its quantities back out of the stock on hand.
+     * @return The net quantity change per ProductID.
+     */
+    Map<Integer, Double> removeLedgerEntries(String document) {
+        Map<Integer, Double> deltas = new HashMap<>();
+        List<StockLedgerModel> entries = ledgerByDocument.remove(document);
+        if (entries == null) {
+            return deltas;
+        }
+        for (StockLedgerModel entry : entries) {
+            List<StockLedgerModel> byProduct = ledgerByProduct.get(entry.getProductID());
+            if (byProduct != null) {
+                byProduct.remove(entry);
+            }
+            deltas.merge(entry.getProductID(), entry.getQtyOut() - entry.getQtyIn(), Double::sum);
+        }
+        deltas.forEach((productId, qty) -> stockOnHand.merge(productId, qty, Double::sum));
+        return deltas;
+    }
+
+    static String saleDocument(int saleId) {
+        return "SALE#" + saleId;
+    }
+
+    static String purchaseDocument(int purchaseId) {
+        return "PURCHASE#" + purchaseId;
+    }
+
+    /**
+     * Adds {@code amount} to a customer's or supplier's current balance (kept in openingBalance, as the DAOs return it).
+     */
+    static void addToBalance(CustomerModel customer, double amount) {
+        if (customer != null) {
+            customer.setOpeningBalance(valueOf(customer.getOpeningBalance()) + amount);
+        }
+    }
+
+    static void addToBalance(SupplierModel supplier, double amount) {
+        if (supplier != null) {
+            supplier.setOpeningBalance(valueOf(supplier.getOpeningBalance()) + amount);
+        }
+    }
+
+    static double valueOf(Double amount) {
+        return amount == null ? 0 : amount;
+    }
+
+    // --- Keyset navigation over a (date, id) index, shared by sales and purchases ---
+
+    /**
+     * Keys of one page in (date DESC, id DESC) order, starting right after {@code after}.
+     */
+    static List<PageCursor> pageAfter(NavigableSet<PageCursor> byDate, PageCursor after, int limit) {
+        NavigableSet<PageCursor> older = after == null ? byDate.descendingSet() : byDate.headSet(after, false).descendingSet();
+        List<PageCursor> page = new ArrayList<>(Math.max(0, limit));
+        Iterator<PageCursor> it = older.iterator();
+        while (it.hasNext() && page.size() < limit) {
+            page.add(it.next());
+        }
+        return page;
+    }
+
+    static PageCursor seekOlder(NavigableSet<PageCursor> byDate, PageCursor from, int rows) {
+        if (rows < 1) {
+            return from;
+        }
+        return nth(from == null ? byDate.descendingSet() : byDate.headSet(from, false).descendingSet(), rows);
+    }
+
+    static PageCursor seekNewer(NavigableSet<PageCursor> byDate, PageCursor from, int rows) {
+        if (rows < 1) {
+            return from;
+        }
+        return nth(from == null ? byDate : byDate.tailSet(from, false), rows);
+    }
+
+    static int countNewerThan(NavigableSet<PageCursor> byDate, PageCursor cursor) {
+        return byDate.tailSet(cursor, false).size();
+    }
+
+    private static PageCursor nth(NavigableSet<PageCursor> keys, int rows) {
+        int i = 0;
+        for (PageCursor key : keys) {
+            if (++i == rows) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    // --- Copies ---
+
+    static ProductModel copy(ProductModel p) {
+        return p == null ? null : ProductModel.builder()
+                .productId(p.getProductId())
+                .productCode(p.getProductCode())
+                .productName(p.getProductName())
+                .brandId(p.getBrandId())
+                .categoryId(p.getCategoryId())
+                .peckingTypeId(p.getPeckingTypeId())
+                .companyId(p.getCompanyId())
+                .isActive(p.isActive())
+                .brandName(p.getBrandName())
+                .categoryName(p.getCategoryName())
+                .peckingTypeName(p.getPeckingTypeName())
+                .companyName(p.getCompanyName())
+                .unitsPerCarton(p.getUnitsPerCarton())
+                .build();
+    }
+
+    static CustomerModel copy(CustomerModel c) {
+        return c == null ? null : new CustomerModel(c.getCustomerId(), c.getCustomerName(), c.getContactNo(), c.getAddress(),
+                c.getEmail(), c.getOpeningBalance(), c.getCreatedDate(), c.getTaxPer());
+    }
+
+    static SupplierModel copy(SupplierModel s) {
+        return s == null ? null : new SupplierModel(s.getSupplierID(), s.getSupplierName(), s.getContactNo(), s.getAddress(),
+                s.getEmail(), s.getOpeningBalance(), s.getCreatedDate());
+    }
+
+    static SaleModel copy(SaleModel s) {
+        if (s == null) {
+            return null;
+        }
+        List<SaleDetailModel> details = new ArrayList<>();
+        if (s.getDetails() != null) {
+            for (SaleDetailModel d : s.getDetails()) {
+                details.add(copy(d));
+            }
+        }
+        return new SaleModel(s.getSaleID(), s.getCustomerID(), s.getCustomerName(), s.getSaleDate(), s.getInvoiceNo(),
+                s.getActualAmount(), s.getDiscountType(), s.getDiscountValue(), s.getTotalAmount(), s.getReceivedAmount(),
+                s.getLoadedReceivedAmount(), s.getRemarks(), s.getCreatedDate(), details);
+    }
+
+    static SaleDetailModel copy(SaleDetailModel d) {
+        return new SaleDetailModel(d.getSaleDetailID(), d.getSaleID(), d.getProductID(), d.getProductName(), d.getQuantity(),
+                d.getRate(), d.getLineDiscount(), d.getTotal(), d.getUnitsPerCarton());
+    }
+
+    static PurchaseModel copy(PurchaseModel p) {
+        if (p == null) {
+            return null;
+        }
+        List<PurchaseDetailModel> details = new ArrayList<>();
+        if (p.getDetails() != null) {
+            for (PurchaseDetailModel d : p.getDetails()) {
+                details.add(copy(d));
+            }
+        }
+        return new PurchaseModel(p.getPurchaseID(), p.getSupplierID(), p.getPurchaseDate(), p.getInvoiceNo(), p.getActualAmount(),
+                p.getDiscountType(), p.getDiscountValue(), p.getTotalAmount(), p.getPaidAmount(), p.getLoadedPaidAmount(), p.getRemarks(),
+                p.getCreatedDate(), details, p.getSupplierName());
+    }
+
+    static PurchaseDetailModel copy(PurchaseDetailModel d) {
+        return new PurchaseDetailModel(d.getPurchaseDetailID(), d.getPurchaseID(), d.getProductID(), d.getQuantity(), d.getRate(),
+                d.getTotal(), d.getProductName(), d.getUnitsPerCarton(), d.getUnitName());
+    }
+}
@@ -0,0 +1,126 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.dao.FifoAllocator;
+import raven.modal.demo.model.PageCursor;
+import raven.modal.demo.model.PaymentAllocationModel;
+import raven.modal.demo.model.PurchaseModel;
+import raven.modal.demo.model.SettlementResult;
+import raven.modal.demo.model.SupplierModel;
+import raven.modal.demo.model.SupplierPaymentModel;
+import raven.modal.demo.repository.SupplierPaymentRepository;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+
+/**
+ * In-memory {@link SupplierPaymentRepository}. Allocation walks the supplier's purchase index oldest first,
+ * like the (SupplierID, PurchaseDate, PurchaseID) index the MySQL implementation reads, and splits the
+ * payments with the same {@link FifoAllocator}.
+ */
+public class MemorySupplierPaymentRepository implements SupplierPaymentRepository {
+
+    private final MemoryStore store;
+
+    public MemorySupplierPaymentRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void saveSupplierPayment(SupplierPaymentModel paymentModel) throws SQLException {
+        settlePayments(Collections.singletonList(paymentModel));
+    }
+
+    @Override
+    public SettlementResult settlePayments(List<SupplierPaymentModel> payments) throws SQLException {
+        synchronized (store.writeLock) {
+            // Validate everything before the first write, the store has no rollback
+            Map<Integer, FifoAllocator> allocators = new HashMap<>();
+            for (SupplierPaymentModel payment : payments) {
+                if (!store.suppliers.containsKey(payment.getSupplierID())) {
+                    throw new SQLException("Supplier " + payment.getSupplierID() + " not found.");
+                }
+                if (!namesOpenPurchases(payment)) {
+                    throw new SQLException("Payment to supplier " + payment.getSupplierID()
+                            + " names a purchase that is not open, or more than the amount paid.");
+                }
+                allocators.computeIfAbsent(payment.getSupplierID(), this::openPurchases);
+            }
+
+            List<PaymentAllocationModel> allocations = new ArrayList<>();
+            double unallocated = 0;
+            for (SupplierPaymentModel paymentModel : payments) {
+                SupplierPaymentModel stored = new SupplierPaymentModel(store.paymentIds.incrementAndGet(), paymentModel.getSupplierID(),
+                        paymentModel.getPaymentDate() == null ? LocalDateTime.now() : paymentModel.getPaymentDate(),
+                        paymentModel.getAmount(), paymentModel.getRemarks(), new LinkedHashMap<>(named(paymentModel)));
+                store.payments.put(stored.getPaymentID(), stored);
+                paymentModel.setPaymentID(stored.getPaymentID());
+
+                // Named purchases first, then FIFO: oldest outstanding purchases first
+                FifoAllocator allocator = allocators.get(paymentModel.getSupplierID());
+                int from = allocations.size();
+                double remaining = paymentModel.getAmount();
+                for (Map.Entry<Integer, Double> entry : named(paymentModel).entrySet()) {
+                    remaining -= entry.getValue() - allocator.allocateTo(stored.getPaymentID(), entry.getKey(), entry.getValue(), allocations);
+                }
+                unallocated += allocator.allocate(stored.getPaymentID(), remaining, allocations);
+                store.paymentAllocations.put(stored.getPaymentID(), new ArrayList<>(allocations.subList(from, allocations.size())));
+
+                SupplierModel supplier = store.suppliers.get(paymentModel.getSupplierID());
+                MemoryStore.addToBalance(supplier, -paymentModel.getAmount());
+            }
+
+            int invoicesSettled = 0;
+            double allocated = 0;
+            for (FifoAllocator allocator : allocators.values()) {
+                for (int i = 0; i < allocator.getInvoiceCount(); i++) {
+                    double applied = allocator.getAppliedAmount(i);
+                    if (applied > 0) {
+                        PurchaseModel purchase = store.purchases.get(allocator.getInvoiceId(i));
+                        purchase.setPaidAmount(purchase.getPaidAmount() + applied);
+                        allocated += applied;
+                        invoicesSettled++;
+                    }
+                }
+            }
+            return new SettlementResult(payments.size(), invoicesSettled, allocations.size(), allocated, unallocated);
+        }
+    }
+
+    private boolean namesOpenPurchases(SupplierPaymentModel payment) {
+        double named = 0;
+        for (Map.Entry<Integer, Double> entry : named(payment).entrySet()) {
+            PurchaseModel purchase = store.purchases.get(entry.getKey());
+            if (purchase == null || purchase.getSupplierID() != payment.getSupplierID() || purchase.getTotalAmount() - purchase.getPaidAmount() <= 0) {
+                return false;
+            }
+            named += entry.getValue();
+        }
+        return named <= payment.getAmount();
+    }
+
+    private static Map<Integer, Double> named(SupplierPaymentModel payment) {
+        return payment.getAllocateTo() == null ? Collections.emptyMap() : payment.getAllocateTo();
+    }
+
+    private FifoAllocator openPurchases(int supplierId) {
+        FifoAllocator allocator = new FifoAllocator();
+        NavigableSet<PageCursor> purchases = store.purchasesBySupplier.get(supplierId);
+        if (purchases != null) {
+            for (PageCursor key : purchases) {
+                PurchaseModel purchase = store.purchases.get(key.getId());
+                double balanceDue = purchase == null ? 0 : purchase.getTotalAmount() - purchase.getPaidAmount();
+                if (balanceDue > 0) {
+                    allocator.add(key.getId(), balanceDue);
+                }
+            }
+        }
+        return allocator;
+    }
+}
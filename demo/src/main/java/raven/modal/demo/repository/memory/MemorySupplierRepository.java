@@ -0,0 +1,174 @@
+package raven.modal.demo.repository.memory;
+
+import raven.modal.demo.cache.LookupCache;
+import raven.modal.demo.cache.LookupType;
+import raven.modal.demo.cache.RowCount;
+import raven.modal.demo.cache.RowCountCache;
+import raven.modal.demo.model.SupplierModel;
+import raven.modal.demo.repository.SupplierRepository;
+
+import javax.swing.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory {@link SupplierRepository}. Returns the result codes of the SP_IUD_Vendor procedure the MySQL
+ * implementation calls: the SupplierID (or 1) on success, -3 for a duplicate name, 0 otherwise.
+ */
+public class MemorySupplierRepository implements SupplierRepository {
+
+    private static final int DUPLICATE = -3;
+
+    private final MemoryStore store;
+
+    public MemorySupplierRepository(MemoryStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public List<SupplierModel> getRemainingBalanceSuppliers() {
+        List<SupplierModel> suppliers = new ArrayList<>();
+        for (SupplierModel supplier : store.suppliers.values()) {
+            if (MemoryStore.valueOf(supplier.getOpeningBalance()) > 0) {
+                suppliers.add(new SupplierModel(supplier.getSupplierID(), supplier.getSupplierName()));
+            }
+        }
+        suppliers.sort(Comparator.comparing(SupplierModel::getSupplierName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER)));
+        return suppliers;
+    }
+
+    @Override
+    public boolean updateSupplierBalance(int supplierId, double totalAmount, double paidAmount) {
+        synchronized (store.writeLock) {
+            SupplierModel supplier = store.suppliers.get(supplierId);
+            if (supplier == null) {
+                JOptionPane.showMessageDialog(null, "Error updating supplier ledger balance.", "DB Error", JOptionPane.ERROR_MESSAGE);
+                return false;
+            }
+            MemoryStore.addToBalance(supplier, totalAmount - paidAmount);
+        }
+        return true;
+    }
+
+    @Override
+    public List<SupplierModel> getActiveSuppliersForDropdown() {
+        List<SupplierModel> suppliers = new ArrayList<>();
+        suppliers.add(SupplierModel.builder().supplierID(0).supplierName("--- Select Vendor ---").build());
+        for (SupplierModel supplier : store.suppliers.values()) {
+            suppliers.add(SupplierModel.builder()
+                    .supplierID(supplier.getSupplierID())
+                    .supplierName(supplier.getSupplierName())
+                    .build());
+        }
+        return suppliers;
+    }
+
+    @Override
+    public List<SupplierModel> getSuppliers(int offset, int limit) {
+        List<SupplierModel> list = new ArrayList<>();
+        int skipped = 0;
+        for (SupplierModel supplier : store.suppliers.values()) {
+            if (list.size() == limit) {
+                break;
+            }
+            if (skipped++ >= offset) {
+                list.add(MemoryStore.copy(supplier));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public List<SupplierModel> getSuppliersByIds(List<Integer> supplierIds) {
+        List<SupplierModel> list = new ArrayList<>();
+        for (int supplierId : supplierIds) {
+            SupplierModel supplier = store.suppliers.get(supplierId);
+            if (supplier != null) {
+                list.add(MemoryStore.copy(supplier));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public int updateSupplier(SupplierModel supplier) {
+        synchronized (store.writeLock) {
+            SupplierModel stored = store.suppliers.get(supplier.getSupplierID());
+            if (stored == null) {
+                return 0;
+            }
+            if (nameTaken(supplier.getSupplierName(), supplier.getSupplierID())) {
+                return DUPLICATE;
+            }
+            SupplierModel replacement = MemoryStore.copy(supplier);
+            replacement.setOpeningBalance(MemoryStore.valueOf(supplier.getOpeningBalance()));
+            replacement.setCreatedDate(stored.getCreatedDate());
+            store.suppliers.put(supplier.getSupplierID(), replacement);
+        }
+        LookupCache.getInstance().invalidate(LookupType.SUPPLIERS);
+        return 1;
+    }
+
+    @Override
+    public int deleteSupplier(int supplierId) {
+        boolean deleted;
+        synchronized (store.writeLock) {
+            Set<?> purchases = store.purchasesBySupplier.get(supplierId);
+            if (purchases != null && !purchases.isEmpty()) {
+                JOptionPane.showMessageDialog(null,
+                        "Operation Failed: This vendor has linked transactions and cannot be deleted.",
+                        "Integrity Constraint Error",
+                        JOptionPane.ERROR_MESSAGE);
+                return 0;
+            }
+            deleted = store.suppliers.remove(supplierId) != null;
+        }
+        if (!deleted) {
+            return 0;
+        }
+        RowCountCache.getInstance().adjust(RowCount.SUPPLIERS, -1);
+        LookupCache.getInstance().invalidate(LookupType.SUPPLIERS);
+        return 1;
+    }
+
+    @Override
+    public int addSupplier(SupplierModel supplier) {
+        SupplierModel stored = MemoryStore.copy(supplier);
+        stored.setOpeningBalance(MemoryStore.valueOf(supplier.getOpeningBalance()));
+        stored.setCreatedDate(LocalDateTime.now());
+        synchronized (store.writeLock) {
+            if (nameTaken(supplier.getSupplierName(), 0)) {
+                return DUPLICATE;
+            }
+            stored.setSupplierID(store.supplierIds.incrementAndGet());
+            store.suppliers.put(stored.getSupplierID(), stored);
+        }
+        LookupCache.getInstance().invalidate(LookupType.SUPPLIERS);
+        RowCountCache.getInstance().adjust(RowCount.SUPPLIERS, 1);
+        return stored.getSupplierID();
+    }
+
+    @Override
+    public SupplierModel getSupplierById(int supplierId) {
+        return MemoryStore.copy(store.suppliers.get(supplierId));
+    }
+
+    @Override
+    public double getSupplierBalance(int supplierId) {
+        SupplierModel supplier = store.suppliers.get(supplierId);
+        return supplier == null ? 0.0 : MemoryStore.valueOf(supplier.getOpeningBalance());
+    }
+
+    private boolean nameTaken(String supplierName, int exceptSupplierId) {
+        for (SupplierModel supplier : store.suppliers.values()) {
+            if (supplier.getSupplierID() != exceptSupplierId && supplier.getSupplierName() != null
+                    && supplier.getSupplierName().equalsIgnoreCase(supplierName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
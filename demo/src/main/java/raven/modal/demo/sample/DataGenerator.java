@@ -0,0 +1,611 @@
+package raven.modal.demo.sample;
+
+import raven.modal.demo.dao.StockLedgerDao;
+import raven.modal.demo.mysql.MySQLConnection;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fills the mart database with a realistic, reproducible dataset: the same config and seed on the same
+ * starting database always write the same rows.
+ * <p>
+ * Master data goes in through batched INSERTs (companies and suppliers through their stored procedures,
+ * like the DAOs). Purchases and sales are written in chunks on {@link GeneratorConfig#getThreads()} threads,
+ * each chunk in one transaction with its headers, lines, ledger entries and payments as multi-row batches.
+ * Invoice and line IDs are assigned up front from the current maximum, so chunks never wait for each other
+ * and the result does not depend on the thread count. Products and customers are picked 80/20, dates follow
+ * {@link SeasonalCalendar}. Party balances are folded into OpeningBalance and the stock balance rebuilt at the end,
+ * which is the state the balance roll-up and {@link StockLedgerDao} would have reached.
+ */
+public class DataGenerator {
+
+    private static final int MIN_SALE_LINES = 1;
+    private static final int MAX_SALE_LINES = 8;
+    private static final int MIN_PURCHASE_LINES = 3;
+    private static final int MAX_PURCHASE_LINES = 15;
+    private static final long SALES_STREAM = 0x5A1E5L;
+    private static final long PURCHASES_STREAM = 0x9C4A5EL;
+    private static final DateTimeFormatter INVOICE_DATE = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private static final String[] ITEMS = {"Basmati Rice", "Flour", "Sugar", "Tea", "Cooking Oil", "Soap", "Shampoo", "Biscuits",
+            "Juice", "Milk", "Detergent", "Toothpaste", "Lentils", "Salt", "Spices", "Noodles", "Ketchup", "Jam", "Butter", "Chips"};
+    private static final String[] SIZES = {"100g", "250g", "500g", "1kg", "5kg", "250ml", "500ml", "1L", "Pack of 6", "Pack of 12"};
+    private static final String[] FIRST_NAMES = {"Ali", "Ahmed", "Sara", "Fatima", "Usman", "Ayesha", "Bilal", "Hina", "Hamza", "Zainab",
+            "Imran", "Maryam", "Kashif", "Nadia", "Omar", "Rabia", "Saad", "Sana", "Tariq", "Zara"};
+    private static final String[] LAST_NAMES = {"Khan", "Malik", "Sheikh", "Qureshi", "Butt", "Chaudhry", "Siddiqui", "Raza", "Javed",
+            "Hussain", "Iqbal", "Mirza", "Abbasi", "Farooq", "Aslam"};
+    private static final int[] UNITS_PER_CARTON = {1, 6, 12, 24, 48};
+
+    private final GeneratorConfig config;
+    private final SeasonalCalendar calendar;
+    private final List<InsertStats> stats = new ArrayList<>();
+
+    private int[] brandIds;
+    private int[] brandCompanyIds;
+    private int[] categoryIds;
+    private int[] peckingTypeIds;
+    private int[] productIds;
+    private double[] productCosts;
+    private int[] customerIds;
+    private int[] supplierIds;
+    private final Map<Integer, Double> customerBalances = new HashMap<>();
+    private final Map<Integer, Double> supplierBalances = new HashMap<>();
+    private final AtomicInteger lastReportedTenth = new AtomicInteger(-1);
+
+    public DataGenerator(GeneratorConfig config) {
+        this.config = config;
+        this.calendar = new SeasonalCalendar(config.getFirstDate(), config.getLastDate());
+    }
+
+    /**
+     * Writes the whole dataset.
+     * @return Rows and throughput per table, in the order they were written.
+     */
+    public List<InsertStats> generate() throws SQLException {
+        stats.clear();
+        insertMasterData();
+        insertInvoices("Purchases", config.getPurchases(), PURCHASES_STREAM, MIN_PURCHASE_LINES, MAX_PURCHASE_LINES,
+                new String[]{"TBLPurchase", "TBLPurchaseDetail", "TBLStockLedger", "TBLSupplierPayments"}, this::writePurchases);
+        insertInvoices("Sales", config.getSales(), SALES_STREAM, MIN_SALE_LINES, MAX_SALE_LINES,
+                new String[]{"TBLSale", "TBLSaleDetail", "TBLStockLedger"}, this::writeSales);
+        applyBalances();
+        return stats;
+    }
+
+    // --- Master data ---
+
+    private void insertMasterData() throws SQLException {
+        Random random = new Random(config.getSeed());
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            long start = System.currentTimeMillis();
+            int before = maxId(conn, "SELECT MAX(CompanyID) FROM TBLCompanies");
+            try (CallableStatement cs = conn.prepareCall("{ CALL SP_IUD_Company(?, ?, ?, ?, ?, ?) }")) {
+                for (int i = 1; i <= config.getCompanies(); i++) {
+                    cs.setNull(1, java.sql.Types.INTEGER);
+                    cs.setString(2, LAST_NAMES[i % LAST_NAMES.length] + " Foods " + (before + i));
+                    cs.setBoolean(3, true);
+                    cs.setInt(4, 1);
+                    cs.setTimestamp(5, Timestamp.valueOf(config.getFirstDate().atStartOfDay()));
+                    cs.setString(6, "Save");
+                    cs.execute();
+                }
+            }
+            int[] companyIds = idsAfter(conn, "SELECT CompanyID FROM TBLCompanies WHERE CompanyID > ? ORDER BY CompanyID", before);
+            record("TBLCompanies", companyIds.length, start);
+
+            start = System.currentTimeMillis();
+            before = maxId(conn, "SELECT MAX(BrandID) FROM TBLBrands");
+            brandCompanyIds = new int[config.getBrands()];
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TBLBrands (BrandTitle, CompanyId, IsActive) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < config.getBrands(); i++) {
+                    brandCompanyIds[i] = companyIds[random.nextInt(companyIds.length)];
+                    ps.setString(1, "Brand " + (before + i + 1));
+                    ps.setInt(2, brandCompanyIds[i]);
+                    ps.setBoolean(3, true);
+                    addBatch(ps, i + 1);
+                }
+                ps.executeBatch();
+            }
+            brandIds = idsAfter(conn, "SELECT BrandID FROM TBLBrands WHERE BrandID > ? ORDER BY BrandID", before);
+            record("TBLBrands", brandIds.length, start);
+
+            start = System.currentTimeMillis();
+            before = maxId(conn, "SELECT MAX(CategoryID) FROM TBLCategories");
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TBLCategories (CategoryName, IsActive) VALUES (?, ?)")) {
+                for (int i = 0; i < config.getCategories(); i++) {
+                    ps.setString(1, ITEMS[i % ITEMS.length] + (i < ITEMS.length ? "" : " " + (i / ITEMS.length + 1)));
+                    ps.setBoolean(2, true);
+                    addBatch(ps, i + 1);
+                }
+                ps.executeBatch();
+            }
+            categoryIds = idsAfter(conn, "SELECT CategoryID FROM TBLCategories WHERE CategoryID > ? ORDER BY CategoryID", before);
+            record("TBLCategories", categoryIds.length, start);
+
+            start = System.currentTimeMillis();
+            before = maxId(conn, "SELECT MAX(PeekingTypeId) FROM TBLPeckingType");
+            try (PreparedStatement ps = conn.prepareStatement("INSERT INTO TBLPeckingType (PeekingTypeName, quarterQty, IsActive) VALUES (?, ?, ?)")) {
+                for (int units : UNITS_PER_CARTON) {
+                    ps.setString(1, units == 1 ? "Single" : "Carton of " + units);
+                    ps.setInt(2, units);
+                    ps.setBoolean(3, true);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            peckingTypeIds = idsAfter(conn, "SELECT PeekingTypeId FROM TBLPeckingType WHERE PeekingTypeId > ? ORDER BY PeekingTypeId", before);
+            record("TBLPeckingType", peckingTypeIds.length, start);
+
+            insertProducts(conn, random);
+            insertCustomers(conn, random);
+            insertSuppliers(conn, random);
+        }
+    }
+
+    private void insertProducts(Connection conn, Random random) throws SQLException {
+        long start = System.currentTimeMillis();
+        int before = maxId(conn, "SELECT MAX(ProductID) FROM TBLProducts");
+        String sql = "INSERT INTO TBLProducts (ProductCode, ProductName, IsActive, BrandId, CategoryId, PeckingTypeId, CompanyId) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+        double[] costs = new double[config.getProducts()];
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < config.getProducts(); i++) {
+                int brand = random.nextInt(brandIds.length);
+                int item = random.nextInt(ITEMS.length);
+                ps.setString(1, String.format("P%07d", before + i + 1));
+                ps.setString(2, "Brand " + brandIds[brand] + " " + ITEMS[item] + " " + SIZES[random.nextInt(SIZES.length)]);
+                ps.setBoolean(3, random.nextInt(50) != 0); // A few discontinued products
+                ps.setInt(4, brandIds[brand]);
+                ps.setInt(5, categoryIds[item % categoryIds.length]);
+                ps.setInt(6, peckingTypeIds[random.nextInt(peckingTypeIds.length)]);
+                ps.setInt(7, brandCompanyIds[brand]);
+                addBatch(ps, i + 1);
+                costs[i] = 20 + random.nextInt(980);
+            }
+            ps.executeBatch();
+        }
+        productIds = idsAfter(conn, "SELECT ProductID FROM TBLProducts WHERE ProductID > ? ORDER BY ProductID", before);
+        productCosts = costs;
+        record("TBLProducts", productIds.length, start);
+    }
+
+    private void insertCustomers(Connection conn, Random random) throws SQLException {
+        long start = System.currentTimeMillis();
+        int before = maxId(conn, "SELECT MAX(CustomerID) FROM TBLCustomers");
+        String sql = "INSERT INTO TBLCustomers (CustomerName, ContactNo, Address, Email, OpeningBalance, TaxPer, CreatedDate) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < config.getCustomers(); i++) {
+                String first = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+                String last = LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                ps.setString(1, first + " " + last);
+                ps.setString(2, String.format("03%09d", random.nextInt(1_000_000_000)));
+                ps.setString(3, "House " + (random.nextInt(500) + 1) + ", Block " + (char) ('A' + random.nextInt(8)));
+                ps.setString(4, first.toLowerCase() + "." + last.toLowerCase() + (before + i + 1) + "@example.com");
+                ps.setDouble(5, 0);
+                ps.setDouble(6, 0);
+                ps.setTimestamp(7, Timestamp.valueOf(config.getFirstDate().atStartOfDay()));
+                addBatch(ps, i + 1);
+            }
+            ps.executeBatch();
+        }
+        customerIds = idsAfter(conn, "SELECT CustomerID FROM TBLCustomers WHERE CustomerID > ? ORDER BY CustomerID", before);
+        record("TBLCustomers", customerIds.length, start);
+    }
+
+    private void insertSuppliers(Connection conn, Random random) throws SQLException {
+        long start = System.currentTimeMillis();
+        int before = maxId(conn, "SELECT MAX(SupplierID) FROM TBLSuppliers");
+        try (CallableStatement cs = conn.prepareCall("{ CALL SP_IUD_Vendor(?, ?, ?, ?, ?, ?, ?, ?, ?) }")) {
+            for (int i = 0; i < config.getSuppliers(); i++) {
+                cs.setNull(1, java.sql.Types.INTEGER);
+                cs.setString(2, LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " Traders " + (before + i + 1));
+                cs.setString(3, String.format("04%09d", random.nextInt(1_000_000_000)));
+                cs.setString(4, "Shop " + (random.nextInt(200) + 1) + ", Wholesale Market");
+                cs.setString(5, "orders" + (before + i + 1) + "@example.com");
+                cs.setDouble(6, 0);
+                cs.setInt(7, 1);
+                cs.setTimestamp(8, Timestamp.valueOf(config.getFirstDate().atStartOfDay()));
+                cs.setString(9, "Save");
+                cs.execute();
+            }
+        }
+        supplierIds = idsAfter(conn, "SELECT SupplierID FROM TBLSuppliers WHERE SupplierID > ? ORDER BY SupplierID", before);
+        record("TBLSuppliers", supplierIds.length, start);
+    }
+
+    // --- Invoices ---
+
+    private interface ChunkWriter {
+        /**
+         * Writes invoices {@code [first, last)} of the phase, their headers numbered from {@code headerBase + first + 1}
+         * and their lines from {@code detailBase + 1}.
+         */
+        void write(Connection conn, Batches batches, int first, int last, int headerBase, int detailBase, Random random,
+                   Map<Integer, Double> balances) throws SQLException;
+    }
+
+    private void insertInvoices(String phase, int count, long stream, int minLines, int maxLines, String[] tables,
+                                ChunkWriter writer) throws SQLException {
+        if (count <= 0) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int chunkSize = config.getInvoicesPerChunk();
+        int chunks = (count + chunkSize - 1) / chunkSize;
+        int headerBase;
+        int[] detailBases = new int[chunks];
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            boolean sales = stream == SALES_STREAM;
+            headerBase = maxId(conn, sales ? "SELECT MAX(SaleID) FROM TBLSale" : "SELECT MAX(PurchaseID) FROM TBLPurchase");
+            // Lines of archived periods live in the archive table; their IDs must not be reused either
+            int detailBase = maxId(conn, sales
+                    ? "SELECT GREATEST(COALESCE((SELECT MAX(SaleDetailID) FROM TBLSaleDetail), 0), COALESCE((SELECT MAX(SaleDetailID) FROM TBLSaleDetailArchive), 0))"
+                    : "SELECT GREATEST(COALESCE((SELECT MAX(PurchaseDetailID) FROM TBLPurchaseDetail), 0), COALESCE((SELECT MAX(PurchaseDetailID) FROM TBLPurchaseDetailArchive), 0))");
+            // Line counts only depend on the invoice number, so every chunk's first line ID is known before any is written
+            for (int c = 0; c < chunks; c++) {
+                detailBases[c] = detailBase;
+                for (int n = c * chunkSize; n < Math.min(count, (c + 1) * chunkSize); n++) {
+                    detailBase += Skew.lineCount(config.getSeed() ^ stream, n, minLines, maxLines);
+                }
+            }
+        }
+
+        Map<String, LongAdder> rows = new LinkedHashMap<>();
+        for (String table : tables) {
+            rows.put(table, new LongAdder());
+        }
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicInteger doneChunks = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(config.getThreads(), r -> {
+            Thread thread = new Thread(r, "mart-datagen");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < config.getThreads(); t++) {
+                workers.add(pool.submit(() -> {
+                    try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+                        runChunks(conn, phase, count, stream, chunks, headerBase, detailBases, nextChunk, doneChunks, rows, writer);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof SQLException ? (SQLException) cause : new SQLException(phase + " failed", cause);
+        } finally {
+            pool.shutdownNow();
+        }
+        for (Map.Entry<String, LongAdder> table : rows.entrySet()) {
+            record(table.getKey(), table.getValue().sum(), start);
+        }
+    }
+
+    private void runChunks(Connection conn, String phase, int count, long stream, int chunks, int headerBase, int[] detailBases,
+                           AtomicInteger nextChunk, AtomicInteger doneChunks, Map<String, LongAdder> rows, ChunkWriter writer) throws SQLException {
+        int chunkSize = config.getInvoicesPerChunk();
+        conn.setAutoCommit(false);
+        try (Statement st = conn.createStatement()) {
+            // IDs are valid and unique by construction; skip the per-row checks for the bulk load
+            st.execute("SET foreign_key_checks = 0, unique_checks = 0");
+        }
+        try (Batches batches = new Batches(conn, config.getBatchRows())) {
+            int c;
+            while ((c = nextChunk.getAndIncrement()) < chunks) {
+                Map<Integer, Double> balances = new HashMap<>();
+                int first = c * chunkSize;
+                int last = Math.min(count, first + chunkSize);
+                writer.write(conn, batches, first, last, headerBase, detailBases[c], new Random(Skew.mix(config.getSeed() ^ stream ^ c)), balances);
+                batches.flush();
+                conn.commit();
+                batches.drainCounts(rows);
+                mergeBalances(stream == SALES_STREAM ? customerBalances : supplierBalances, balances);
+                reportProgress(phase, doneChunks.incrementAndGet(), chunks);
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET foreign_key_checks = 1, unique_checks = 1");
+            }
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void writePurchases(Connection conn, Batches batches, int first, int last, int headerBase, int detailBase,
+                                Random random, Map<Integer, Double> balances) throws SQLException {
+        PreparedStatement header = batches.statement("TBLPurchase", "INSERT INTO TBLPurchase "
+                + "(PurchaseID, SupplierID, PurchaseDate, InvoiceNo, TotalAmount, PaidAmount, Remarks, CreatedDate) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+        PreparedStatement detail = batches.statement("TBLPurchaseDetail", "INSERT INTO TBLPurchaseDetail "
+                + "(PurchaseDetailID, PurchaseID, ProductID, Quantity, Rate, Total) VALUES (?, ?, ?, ?, ?, ?)");
+        PreparedStatement ledger = batches.statement("TBLStockLedger", "INSERT INTO TBLStockLedger "
+                + "(ProductID, RefType, RefID, RefDetailID, QtyIn, QtyOut, Rate, CreatedDate) VALUES (?, 'PURCHASE', ?, ?, ?, 0, ?, ?)");
+        PreparedStatement payment = batches.statement("TBLSupplierPayments", "INSERT INTO TBLSupplierPayments "
+                + "(SupplierID, PaymentDate, Amount, Remarks) VALUES (?, ?, ?, ?)");
+        int detailId = detailBase;
+        for (int n = first; n < last; n++) {
+            int purchaseId = headerBase + n + 1;
+            LocalDateTime date = calendar.dateAt((n + random.nextDouble()) / config.getPurchases(), random);
+            Timestamp timestamp = Timestamp.valueOf(date);
+            int supplierId = supplierIds[Skew.permute(Skew.paretoRank(random, supplierIds.length), supplierIds.length)];
+            int lines = Skew.lineCount(config.getSeed() ^ PURCHASES_STREAM, n, MIN_PURCHASE_LINES, MAX_PURCHASE_LINES);
+            double total = 0;
+            for (int l = 0; l < lines; l++) {
+                int product = Skew.permute(Skew.paretoRank(random, productIds.length), productIds.length);
+                double quantity = 12 * (1 + random.nextInt(20));
+                double rate = productCosts[product];
+                detailId++;
+                detail.setInt(1, detailId);
+                detail.setInt(2, purchaseId);
+                detail.setInt(3, productIds[product]);
+                detail.setDouble(4, quantity);
+                detail.setDouble(5, rate);
+                detail.setDouble(6, quantity * rate);
+                batches.add(detail);
+                ledger.setInt(1, productIds[product]);
+                ledger.setInt(2, purchaseId);
+                ledger.setInt(3, detailId);
+                ledger.setDouble(4, quantity);
+                ledger.setDouble(5, rate);
+                ledger.setTimestamp(6, timestamp);
+                batches.add(ledger);
+                total += quantity * rate;
+            }
+            // 40% paid on delivery, 30% partly, 30% on credit
+            int terms = random.nextInt(10);
+            double paid = terms < 4 ? total : terms < 7 ? Math.floor(total * (0.2 + 0.6 * random.nextDouble()) / 100) * 100 : 0;
+            header.setInt(1, purchaseId);
+            header.setInt(2, supplierId);
+            header.setTimestamp(3, timestamp);
+            header.setString(4, "INV-" + date.format(INVOICE_DATE) + "-" + purchaseId);
+            header.setDouble(5, total);
+            header.setDouble(6, paid);
+            header.setString(7, null);
+            header.setTimestamp(8, timestamp);
+            batches.add(header);
+            if (paid > 0) {
+                payment.setInt(1, supplierId);
+                payment.setTimestamp(2, timestamp);
+                payment.setDouble(3, paid);
+                payment.setString(4, "Paid against INV-" + date.format(INVOICE_DATE) + "-" + purchaseId);
+                batches.add(payment);
+            }
+            balances.merge(supplierId, total - paid, Double::sum);
+        }
+    }
+
+    private void writeSales(Connection conn, Batches batches, int first, int last, int headerBase, int detailBase,
+                            Random random, Map<Integer, Double> balances) throws SQLException {
+        PreparedStatement header = batches.statement("TBLSale", "INSERT INTO TBLSale "
+                + "(SaleID, CustomerID, SaleDate, InvoiceNo, TotalAmount, ReceivedAmount, Remarks) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        PreparedStatement detail = batches.statement("TBLSaleDetail", "INSERT INTO TBLSaleDetail "
+                + "(SaleDetailID, SaleID, ProductID, Quantity, Rate, Total) VALUES (?, ?, ?, ?, ?, ?)");
+        PreparedStatement ledger = batches.statement("TBLStockLedger", "INSERT INTO TBLStockLedger "
+                + "(ProductID, RefType, RefID, RefDetailID, QtyIn, QtyOut, Rate, CreatedDate) VALUES (?, 'SALE', ?, ?, 0, ?, ?, ?)");
+        int detailId = detailBase;
+        for (int n = first; n < last; n++) {
+            int saleId = headerBase + n + 1;
+            LocalDateTime date = calendar.dateAt((n + random.nextDouble()) / config.getSales(), random);
+            Timestamp timestamp = Timestamp.valueOf(date);
+            int customerId = customerIds[Skew.permute(Skew.paretoRank(random, customerIds.length), customerIds.length)];
+            int lines = Skew.lineCount(config.getSeed() ^ SALES_STREAM, n, MIN_SALE_LINES, MAX_SALE_LINES);
+            double total = 0;
+            for (int l = 0; l < lines; l++) {
+                int product = Skew.permute(Skew.paretoRank(random, productIds.length), productIds.length);
+                double quantity = random.nextInt(10) < 7 ? 1 : 2 + random.nextInt(5);
+                double rate = Math.round(productCosts[product] * (1.15 + 0.2 * random.nextDouble()));
+                detailId++;
+                detail.setInt(1, detailId);
+                detail.setInt(2, saleId);
+                detail.setInt(3, productIds[product]);
+                detail.setDouble(4, quantity);
+                detail.setDouble(5, rate);
+                detail.setDouble(6, quantity * rate);
+                batches.add(detail);
+                ledger.setInt(1, productIds[product]);
+                ledger.setInt(2, saleId);
+                ledger.setInt(3, detailId);
+                ledger.setDouble(4, quantity);
+                ledger.setDouble(5, rate);
+                ledger.setTimestamp(6, timestamp);
+                batches.add(ledger);
+                total += quantity * rate;
+            }
+            // 80% cash, 10% part payment, 10% on account
+            int terms = random.nextInt(10);
+            double received = terms < 8 ? total : terms < 9 ? Math.floor(total / 2) : 0;
+            header.setInt(1, saleId);
+            header.setInt(2, customerId);
+            header.setTimestamp(3, timestamp);
+            header.setString(4, "INV-" + date.format(INVOICE_DATE) + "-" + saleId);
+            header.setDouble(5, total);
+            header.setDouble(6, received);
+            header.setString(7, null);
+            batches.add(header);
+            balances.merge(customerId, total - received, Double::sum);
+        }
+    }
+
+    // --- Balances ---
+
+    private void mergeBalances(Map<Integer, Double> target, Map<Integer, Double> chunk) {
+        synchronized (target) {
+            chunk.forEach((partyId, amount) -> target.merge(partyId, amount, Double::sum));
+        }
+    }
+
+    /**
+     * Folds the generated invoices into OpeningBalance, as the balance roll-up does, and rebuilds the stock balance.
+     */
+    private void applyBalances() throws SQLException {
+        long start = System.currentTimeMillis();
+        try (Connection conn = MySQLConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long customers = updateBalances(conn, "UPDATE TBLCustomers SET OpeningBalance = OpeningBalance + ? WHERE CustomerID = ?", customerBalances);
+                long suppliers = updateBalances(conn, "UPDATE TBLSuppliers SET OpeningBalance = OpeningBalance + ? WHERE SupplierID = ?", supplierBalances);
+                conn.commit();
+                record("OpeningBalance", customers + suppliers, start);
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        start = System.currentTimeMillis();
+        record("TBLStockBalance", new StockLedgerDao().rebuildStockBalance(), start);
+    }
+
+    private long updateBalances(Connection conn, String sql, Map<Integer, Double> balances) throws SQLException {
+        long rows = 0;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Map.Entry<Integer, Double> balance : balances.entrySet()) {
+                if (balance.getValue() == 0) {
+                    continue;
+                }
+                ps.setDouble(1, balance.getValue());
+                ps.setInt(2, balance.getKey());
+                addBatch(ps, ++rows);
+            }
+            ps.executeBatch();
+        }
+        return rows;
+    }
+
+    // --- Helpers ---
+
+    private void addBatch(PreparedStatement ps, long rowNumber) throws SQLException {
+        ps.addBatch();
+        if (rowNumber % config.getBatchRows() == 0) {
+            ps.executeBatch();
+        }
+    }
+
+    private void record(String table, long rows, long start) {
+        InsertStats tableStats = new InsertStats(table, rows, System.currentTimeMillis() - start);
+        stats.add(tableStats);
+        System.out.println(tableStats);
+    }
+
+    private void reportProgress(String phase, int doneChunks, int chunks) {
+        int tenth = (int) ((long) doneChunks * 10 / chunks);
+        int previous = lastReportedTenth.get();
+        if (doneChunks == chunks) {
+            lastReportedTenth.set(-1);
+        } else if (tenth > previous && lastReportedTenth.compareAndSet(previous, tenth)) {
+            System.out.println(phase + ": " + tenth * 10 + "% (" + doneChunks + "/" + chunks + " chunks)");
+        }
+    }
+
+    private static int maxId(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static int[] idsAfter(Connection conn, String sql, int afterId) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new SQLException("No rows were created by: " + sql);
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * One prepared statement per table on a worker's connection, each flushed as a multi-row batch once it holds
+     * {@code batchRows} rows (rewriteBatchedStatements=true on the URL). Headers are flushed before lines so
+     * a chunk is written parent-first even though foreign keys are not checked.
+     */
+    private static final class Batches implements AutoCloseable {
+
+        private final Connection conn;
+        private final int batchRows;
+        private final Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+        private final Map<String, Integer> pending = new HashMap<>();
+        private final Map<String, Long> written = new HashMap<>();
+        private final Map<PreparedStatement, String> tables = new HashMap<>();
+
+        Batches(Connection conn, int batchRows) {
+            this.conn = conn;
+            this.batchRows = batchRows;
+        }
+
+        PreparedStatement statement(String table, String sql) throws SQLException {
+            PreparedStatement ps = statements.get(table);
+            if (ps == null) {
+                ps = conn.prepareStatement(sql);
+                statements.put(table, ps);
+                tables.put(ps, table);
+            }
+            return ps;
+        }
+
+        void add(PreparedStatement ps) throws SQLException {
+            ps.addBatch();
+            String table = tables.get(ps);
+            int rows = pending.merge(table, 1, Integer::sum);
+            if (rows >= batchRows) {
+                flush();
+            }
+        }
+
+        void flush() throws SQLException {
+            for (Map.Entry<String, PreparedStatement> entry : statements.entrySet()) {
+                Integer rows = pending.remove(entry.getKey());
+                if (rows != null) {
+                    entry.getValue().executeBatch();
+                    written.merge(entry.getKey(), (long) rows, Long::sum);
+                }
+            }
+        }
+
+        /**
+         * Adds the rows committed since the last call to the phase totals.
+         */
+        void drainCounts(Map<String, LongAdder> totals) {
+            written.forEach((table, rows) -> totals.get(table).add(rows));
+            written.clear();
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (PreparedStatement ps : statements.values()) {
+                ps.close();
+            }
+        }
+    }
+}
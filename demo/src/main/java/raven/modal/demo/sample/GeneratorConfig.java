@@ -0,0 +1,60 @@
+package raven.modal.demo.sample;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Size and shape of a {@link DataGenerator} run. {@link #forRows} derives every count from one target row total;
+ * the builder can override any of them.
+ */
+@Getter
+@Builder
+public class GeneratorConfig {
+
+    @Builder.Default
+    private long seed = 42;
+    @Builder.Default
+    private int threads = Math.min(8, Runtime.getRuntime().availableProcessors()); // Stay below the pool size
+    @Builder.Default
+    private int invoicesPerChunk = 1_000;  // One transaction (and one random stream) per chunk
+    @Builder.Default
+    private int batchRows = 1_000;         // Rows per JDBC batch / multi-row INSERT
+
+    private final int companies;
+    private final int brands;
+    private final int categories;
+    private final int products;
+    private final int customers;
+    private final int suppliers;
+    private final int purchases;
+    private final int sales;
+
+    @Builder.Default
+    private LocalDate firstDate = LocalDate.now().minusYears(2).withDayOfMonth(1);
+    @Builder.Default
+    private LocalDate lastDate = LocalDate.now();
+
+    /**
+     * Counts for roughly {@code rows} rows over all tables. Sales with their lines and ledger entries make up most
+     * of it; master data grows more slowly and is capped, as a bigger shop sells more of a similar range.
+     */
+    public static GeneratorConfigBuilder forRows(long rows) {
+        long sales = Math.max(10, rows / 9);
+        long purchases = Math.max(5, rows / 90);
+        return builder()
+                .companies((int) clamp(rows / 20_000, 5, 500))
+                .brands((int) clamp(rows / 4_000, 10, 3_000))
+                .categories((int) clamp(rows / 40_000, 5, 200))
+                .products((int) clamp(rows / 100, 50, 200_000))
+                .customers((int) clamp(rows / 200, 20, 1_000_000))
+                .suppliers((int) clamp(rows / 5_000, 5, 20_000))
+                .purchases((int) Math.min(purchases, Integer.MAX_VALUE / 2))
+                .sales((int) Math.min(sales, Integer.MAX_VALUE / 2));
+    }
+
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,25 @@
+package raven.modal.demo.sample;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Rows a {@link DataGenerator} phase wrote into one table, and how long the phase took.
+ */
+@Getter
+@AllArgsConstructor
+public class InsertStats {
+
+    private final String table;
+    private final long rows;
+    private final long millis;   // Wall time of the phase that wrote the table (tables written together share it)
+
+    public double getRowsPerSecond() {
+        return millis == 0 ? rows : rows * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-20s %,12d rows %,10d ms %,12.0f rows/s", table, rows, millis, getRowsPerSecond());
+    }
+}
@@ -0,0 +1,70 @@
+package raven.modal.demo.sample;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Invoice dates with a shop's rhythm: busier in December and around the start of each month (pay day),
+ * busier on weekends, and mostly in the evening. Dates are picked by position, so invoice IDs run in date order
+ * like they do at a real till.
+ */
+final class SeasonalCalendar {
+
+    // Relative traffic per hour, 0-23; closed at night
+    private static final double[] HOURS = {0, 0, 0, 0, 0, 0, 0, 0, 0, 0.4, 0.7, 0.9, 1.0, 0.9, 0.8, 0.8, 0.9, 1.1, 1.4, 1.6, 1.5, 1.2, 0.7, 0.2};
+
+    private final LocalDate firstDate;
+    private final double[] cumulativeDays;
+    private final double[] cumulativeHours;
+
+    SeasonalCalendar(LocalDate firstDate, LocalDate lastDate) {
+        this.firstDate = firstDate;
+        int days = (int) ChronoUnit.DAYS.between(firstDate, lastDate) + 1;
+        cumulativeDays = new double[Math.max(1, days)];
+        double total = 0;
+        for (int i = 0; i < cumulativeDays.length; i++) {
+            total += weight(firstDate.plusDays(i));
+            cumulativeDays[i] = total;
+        }
+        for (int i = 0; i < cumulativeDays.length; i++) {
+            cumulativeDays[i] /= total;
+        }
+        cumulativeHours = new double[HOURS.length];
+        total = 0;
+        for (int i = 0; i < HOURS.length; i++) {
+            total += HOURS[i];
+            cumulativeHours[i] = total;
+        }
+        for (int i = 0; i < HOURS.length; i++) {
+            cumulativeHours[i] /= total;
+        }
+    }
+
+    /**
+     * @param position Where the invoice falls in the whole run, in {@code [0, 1)}.
+     */
+    LocalDateTime dateAt(double position, Random random) {
+        LocalDate day = firstDate.plusDays(indexOf(cumulativeDays, position));
+        int hour = indexOf(cumulativeHours, random.nextDouble());
+        return day.atTime(hour, random.nextInt(60), random.nextInt(60));
+    }
+
+    private static double weight(LocalDate date) {
+        // Yearly wave peaking mid-December
+        double season = 1 + 0.35 * Math.cos(2 * Math.PI * (date.getDayOfYear() - 350) / 365.0);
+        double payDay = date.getDayOfMonth() <= 5 ? 1.25 : 1;
+        DayOfWeek day = date.getDayOfWeek();
+        double weekend = day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY ? 1.4 : 1;
+        return season * payDay * weekend;
+    }
+
+    private static int indexOf(double[] cumulative, double value) {
+        int index = Arrays.binarySearch(cumulative, value);
+        index = index >= 0 ? index : -index - 1;
+        return Math.min(index, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,63 @@
+package raven.modal.demo.sample;
+
+import java.util.Random;
+
+/**
+ * Deterministic, skewed choices for the {@link DataGenerator}.
+ */
+final class Skew {
+
+    // u^PARETO_EXPONENT puts 80% of the picks into the first 20% of ranks: 0.2^(1/a) = 0.8
+    private static final double PARETO_EXPONENT = Math.log(0.2) / Math.log(0.8);
+
+    private Skew() {
+    }
+
+    /**
+     * @return A popularity rank in {@code [0, n)}, 80/20 distributed (rank 0 is the most popular).
+     */
+    static int paretoRank(Random random, int n) {
+        return Math.min(n - 1, (int) (n * Math.pow(random.nextDouble(), PARETO_EXPONENT)));
+    }
+
+    /**
+     * Spreads popularity ranks over the whole ID range, so the best sellers are not simply the oldest rows.
+     * Multiplying by a number coprime to {@code n} is a bijection of {@code [0, n)}.
+     */
+    static int permute(int rank, int n) {
+        long multiplier = 1_000_003L;
+        while (gcd(multiplier, n) != 1) {
+            multiplier += 2;
+        }
+        return (int) ((rank * multiplier) % n);
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * A number in {@code [min, max]} that only depends on the seed and {@code n}, so the line count of invoice n
+     * is known without generating the invoices before it.
+     */
+    static int lineCount(long seed, long n, int min, int max) {
+        long h = mix(seed ^ (n * 0x9E3779B97F4A7C15L));
+        // Square of a uniform number: small invoices are the common case
+        double u = (h >>> 11) * 0x1.0p-53;
+        return min + (int) ((max - min + 1) * u * u);
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
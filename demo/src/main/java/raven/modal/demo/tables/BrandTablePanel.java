@@ -10,6 +10,8 @@ import raven.modal.demo.utils.Constants;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.JComponentUtils;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.PageResult;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
@@ -25,6 +27,7 @@ public class BrandTablePanel extends Form implements TableActions {
     private BrandDao brandDao;
     private JPagination pagination;
     private JLabel lbTotal;
+    private AsyncTableLoader loader;
     private int limit = Constants.LIMIT_PER_PAGE;
     private JButton btnCreate;
 
@@ -90,7 +93,8 @@ public class BrandTablePanel extends Form implements TableActions {
         scroll.setBorder(BorderFactory.createEmptyBorder());
         table.getTableHeader().putClientProperty(FlatClientProperties.STYLE, "height:30; hoverBackground:null; pressedBackground:null; separatorColor:$TableHeader.background;");
         table.putClientProperty(FlatClientProperties.STYLE, "rowHeight:30; showHorizontalLines:true; intercellSpacing:0,1; cellFocusColor:$TableHeader.hoverBackground; selectionBackground:$TableHeader.hoverBackground; selectionForeground:$Table.foreground;");
-        add(scroll, "grow, push");
+        loader = new AsyncTableLoader(scroll);
+        add(loader.getLayer(), "grow, push");
 
         // Pagination Panel
         pagination = new JPagination(11, 1, 1);
@@ -114,13 +118,18 @@ public class BrandTablePanel extends Form implements TableActions {
     }
 
     private void loadBrands(int page) {
-        model.setRowCount(0);
         int offset = (page - 1) * limit;
 
         // NOTE: The DAO method here needs to fetch the CompanyName using a JOIN.
         // Assuming BrandDao has a method: getBrandsWithCompanyName(offset, limit)
-        List<BrandModel> brands = brandDao.getBrandsWithCompanyName(offset, limit);
-        int totalBrands = brandDao.getBrandCount(); // Assuming this is implemented in BrandDao
+        loader.load(() -> new PageResult<>(brandDao.getBrandsWithCompanyName(offset, limit), brandDao.getBrandCount()),
+                result -> showBrands(page, result));
+    }
+
+    private void showBrands(int page, PageResult<BrandModel> result) {
+        model.setRowCount(0);
+        List<BrandModel> brands = result.getRows();
+        int totalBrands = result.getTotal();
 
         for (BrandModel brand : brands) {
             // Row structure assumed from DAO: {BrandId, BrandTitle, CompanyName, IsActive}
@@ -10,6 +10,8 @@ import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.JComponentUtils;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.PageResult;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
@@ -26,6 +28,7 @@ public class CategoryTablePanel extends Form implements TableActions {
     private CategoryDao categoryDao;
     private JPagination pagination;
     private JLabel lbTotal;
+    private AsyncTableLoader loader;
     private int limit = Constants.LIMIT_PER_PAGE;
     private JButton btnCreate;
 
@@ -88,7 +91,8 @@ public class CategoryTablePanel extends Form implements TableActions {
         table.getTableHeader().putClientProperty(FlatClientProperties.STYLE, "height:30; hoverBackground:null; pressedBackground:null; separatorColor:$TableHeader.background;");
         table.putClientProperty(FlatClientProperties.STYLE, "rowHeight:30; showHorizontalLines:true; intercellSpacing:0,1; cellFocusColor:$TableHeader.hoverBackground; selectionBackground:$TableHeader.hoverBackground; selectionForeground:$Table.foreground;");
 
-        add(scroll);
+        loader = new AsyncTableLoader(scroll);
+        add(loader.getLayer());
 
         // Pagination Panel
         pagination = new JPagination(11, 1, 1);
@@ -112,11 +116,16 @@ public class CategoryTablePanel extends Form implements TableActions {
     }
 
     private void loadCategories(int page) {
-        model.setRowCount(0);
         int offset = (page - 1) * limit;
 
-        List<CategoryModel> categories = categoryDao.getAllCategories(offset, limit);
-        int totalCategories = categoryDao.getCategoryCount();
+        loader.load(() -> new PageResult<>(categoryDao.getAllCategories(offset, limit), categoryDao.getCategoryCount()),
+                result -> showCategories(page, result));
+    }
+
+    private void showCategories(int page, PageResult<CategoryModel> result) {
+        model.setRowCount(0);
+        List<CategoryModel> categories = result.getRows();
+        int totalCategories = result.getTotal();
 
         for (CategoryModel categoryModel : categories) {
             model.addRow(new Object[]{
@@ -11,6 +11,8 @@ import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.MessageUtils;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.PageResult;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
@@ -27,6 +29,7 @@ public class CompanyTablePanel extends Form implements TableActions {
     private CompanyDao companyDao;
     private JPagination pagination;
     private JLabel lbTotal;
+    private AsyncTableLoader loader;
     private int limit = Constants.LIMIT_PER_PAGE;
     private JButton btnCreate;
 
@@ -97,7 +100,8 @@ public class CompanyTablePanel extends Form implements TableActions {
         table.putClientProperty(FlatClientProperties.STYLE, "rowHeight:30; showHorizontalLines:true; intercellSpacing:0,1; cellFocusColor:$TableHeader.hoverBackground; selectionBackground:$TableHeader.hoverBackground; selectionForeground:$Table.foreground;");
 
 
-        add(scroll);
+        loader = new AsyncTableLoader(scroll);
+        add(loader.getLayer());
 
         // Pagination Panel
         pagination = new JPagination(11, 1, 1);
@@ -131,11 +135,16 @@ public class CompanyTablePanel extends Form implements TableActions {
     }
 
     private void loadCompanies(int page) {
-        model.setRowCount(0);
         int offset = (page - 1) * limit;
 
-        List<CompanyModel> companies = companyDao.getAllCompanies(offset, limit);
-        int totalCompanies = UtilsDao.getCount("TBLCompanies");
+        loader.load(() -> new PageResult<>(companyDao.getAllCompanies(offset, limit), UtilsDao.getCount("TBLCompanies")),
+                result -> showCompanies(page, result));
+    }
+
+    private void showCompanies(int page, PageResult<CompanyModel> result) {
+        model.setRowCount(0);
+        List<CompanyModel> companies = result.getRows();
+        int totalCompanies = result.getTotal();
 
         for (CompanyModel companyModel : companies) {
             model.addRow(new Object[]{
@@ -2,14 +2,19 @@ package raven.modal.demo.tables;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.repository.CustomerRepository;
+import raven.modal.demo.repository.Repositories;
 import raven.modal.demo.utils.Constants;
-import raven.modal.demo.dao.CustomerDao;
 import raven.modal.demo.dao.UtilsDao;
 import raven.modal.demo.forms.FormCustomer;
 import raven.modal.demo.model.CustomerModel;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.LiveTableRows;
+import raven.modal.demo.utils.table.PageResult;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
@@ -24,9 +29,12 @@ public class CustomerTablePanel extends Form implements TableActions{
 
     private JTable table;
     private DefaultTableModel model;
-    private CustomerDao customerDao = new CustomerDao();
+    private CustomerRepository customerDao = Repositories.getInstance().customers();
     private JPagination pagination;
     private JLabel lbTotal;
+    private AsyncTableLoader loader;
+    private LiveTableRows<CustomerModel> liveRows;
+    private int totalRows;
     private int limit = Constants.LIMIT_PER_PAGE;
 
     public CustomerTablePanel() {
@@ -92,7 +100,11 @@ public class CustomerTablePanel extends Form implements TableActions{
                 + "selectionBackground:$TableHeader.hoverBackground;"
                 + "selectionForeground:$Table.foreground;");
 
-        add(scroll);
+        loader = new AsyncTableLoader(scroll);
+        add(loader.getLayer());
+        liveRows = new LiveTableRows<>(table, ChangeEntity.CUSTOMER, customerDao::getCustomersByIds, CustomerModel::getCustomerId, this::toRow);
+        liveRows.setRoom(() -> pagination.getSelectedPage() * limit >= totalRows ? limit - model.getRowCount() : 0);
+        liveRows.setTotal(() -> UtilsDao.getCount("tblcustomers"), total -> showTotal(pagination.getSelectedPage(), total));
 
         // Pagination
         pagination = new JPagination(11, 1, 1);
@@ -107,25 +119,38 @@ public class CustomerTablePanel extends Form implements TableActions{
     }
 
     private void loadCustomers(int page) {
-        model.setRowCount(0);
         int offset = (page - 1) * limit;
 
-        List<CustomerModel> suppliers = customerDao.getAllCustomers(offset, limit);
-        int totalCustomers = UtilsDao.getCount("tblcustomers");
+        loader.load(() -> new PageResult<>(customerDao.getAllCustomers(offset, limit), UtilsDao.getCount("tblcustomers")),
+                result -> showCustomers(page, result));
+    }
+
+    private void showCustomers(int page, PageResult<CustomerModel> result) {
+        model.setRowCount(0);
+        liveRows.pageLoaded();
+        List<CustomerModel> suppliers = result.getRows();
 
-        int count = offset + 1;
         for (CustomerModel customerModel : suppliers) {
-            model.addRow(new Object[]{
-                    customerModel.getCustomerId(),
-                    customerModel.getCustomerName(),
-                    customerModel.getContactNo(),
-                    customerModel.getEmail(),
-                    customerModel.getAddress(),
-                    customerModel.getOpeningBalance(),
-                    customerModel.getTaxPer()
-            });
+            model.addRow(toRow(customerModel));
         }
 
+        showTotal(page, result.getTotal());
+    }
+
+    private Object[] toRow(CustomerModel customerModel) {
+        return new Object[]{
+                customerModel.getCustomerId(),
+                customerModel.getCustomerName(),
+                customerModel.getContactNo(),
+                customerModel.getEmail(),
+                customerModel.getAddress(),
+                customerModel.getOpeningBalance(),
+                customerModel.getTaxPer()
+        };
+    }
+
+    private void showTotal(int page, int totalCustomers) {
+        totalRows = totalCustomers;
         lbTotal.setText(DecimalFormat.getInstance().format(totalCustomers));
         int totalPages = (int) Math.ceil((double) totalCustomers / limit);
         pagination.setSelectedPage(page);
@@ -10,6 +10,8 @@ import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.JComponentUtils;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.PageResult;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
@@ -26,6 +28,7 @@ public class PeckingTypeTablePanel extends Form implements TableActions {
     private PeckingTypeDao PeckingTypeDao;
     private JPagination pagination;
     private JLabel lbTotal;
+    private AsyncTableLoader loader;
     private int limit = Constants.LIMIT_PER_PAGE;
     private JButton btnCreate;
 
@@ -89,7 +92,8 @@ public class PeckingTypeTablePanel extends Form implements TableActions {
         table.getTableHeader().putClientProperty(FlatClientProperties.STYLE, "height:30; hoverBackground:null; pressedBackground:null; separatorColor:$TableHeader.background;");
         table.putClientProperty(FlatClientProperties.STYLE, "rowHeight:30; showHorizontalLines:true; intercellSpacing:0,1; cellFocusColor:$TableHeader.hoverBackground; selectionBackground:$TableHeader.hoverBackground; selectionForeground:$Table.foreground;");
 
-        add(scroll);
+        loader = new AsyncTableLoader(scroll);
+        add(loader.getLayer());
 
         // Pagination Panel
         pagination = new JPagination(11, 1, 1);
@@ -113,11 +117,16 @@ public class PeckingTypeTablePanel extends Form implements TableActions {
     }
 
     private void loadPeckingTypes(int page) {
-        model.setRowCount(0);
         int offset = (page - 1) * limit;
 
-        List<PeckingTypeModel> types = PeckingTypeDao.getAllPeckingTypes(offset, limit);
-        int totalTypes = PeckingTypeDao.getPeckingTypeCount();
+        loader.load(() -> new PageResult<>(PeckingTypeDao.getAllPeckingTypes(offset, limit), PeckingTypeDao.getPeckingTypeCount()),
+                result -> showPeckingTypes(page, result));
+    }
+
+    private void showPeckingTypes(int page, PageResult<PeckingTypeModel> result) {
+        model.setRowCount(0);
+        List<PeckingTypeModel> types = result.getRows();
+        int totalTypes = result.getTotal();
 
         for (PeckingTypeModel typeModel : types) {
             model.addRow(new Object[]{
@@ -2,9 +2,11 @@ package raven.modal.demo.tables;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
+import raven.modal.demo.feed.ChangeEntity;
 import raven.modal.demo.forms.FormViewPurchase;
+import raven.modal.demo.repository.ProductRepository;
+import raven.modal.demo.repository.Repositories;
 import raven.modal.demo.utils.Constants;
-import raven.modal.demo.dao.ProductDao;
 import raven.modal.demo.dao.UtilsDao;
 import raven.modal.demo.forms.FormProducts;
 import raven.modal.demo.model.ProductModel;
@@ -12,6 +14,9 @@ import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.JComponentUtils;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.LiveTableRows;
+import raven.modal.demo.utils.table.PageResult;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
@@ -26,9 +31,12 @@ public class ProductTablePanel extends Form implements TableActions {
 
     private JTable table;
     private DefaultTableModel model;
-    private ProductDao productDao = new ProductDao();
+    private ProductRepository productDao = Repositories.getInstance().products();
     private JPagination pagination;
     private JLabel lbTotal;
+    private AsyncTableLoader loader;
+    private LiveTableRows<ProductModel> liveRows;
+    private int totalRows;
     private int limit = Constants.LIMIT_PER_PAGE; // Items per page
 
     public ProductTablePanel() {
@@ -98,7 +106,11 @@ public class ProductTablePanel extends Form implements TableActions {
                 + "selectionBackground:$TableHeader.hoverBackground;"
                 + "selectionForeground:$Table.foreground;");
 
-        add(scroll);
+        loader = new AsyncTableLoader(scroll);
+        add(loader.getLayer());
+        liveRows = new LiveTableRows<>(table, ChangeEntity.PRODUCT, productDao::getProductsByIds, ProductModel::getProductId, this::toRow);
+        liveRows.setRoom(() -> pagination.getSelectedPage() * limit >= totalRows ? limit - model.getRowCount() : 0);
+        liveRows.setTotal(() -> UtilsDao.getCount("tblproducts"), total -> showTotal(pagination.getSelectedPage(), total));
 
         // Pagination Panel
         pagination = new JPagination(11, 1, 1);
@@ -113,26 +125,40 @@ public class ProductTablePanel extends Form implements TableActions {
     }
 
     private void loadProducts(int page) {
-        model.setRowCount(0);
         int offset = (page - 1) * limit;
 
         // Fetch data using the DAO
-        List<ProductModel> products = productDao.getAllProducts(offset, limit);
-        int totalProducts = UtilsDao.getCount("tblproducts");
+        loader.load(() -> new PageResult<>(productDao.getAllProducts(offset, limit), UtilsDao.getCount("tblproducts")),
+                result -> showProducts(page, result));
+    }
+
+    private void showProducts(int page, PageResult<ProductModel> result) {
+        model.setRowCount(0);
+        liveRows.pageLoaded();
+        List<ProductModel> products = result.getRows();
 
         for (ProductModel productModel : products) {
-            model.addRow(new Object[]{
-                    productModel.getProductId(),
-                    productModel.getProductName(),
-                    productModel.getProductCode(),
-                    productModel.getCompanyName(),
-                    productModel.getBrandName(),
-                    productModel.getCategoryName(),
-                    productModel.getPeckingTypeName(),
-            });
+            model.addRow(toRow(productModel));
         }
 
+        showTotal(page, result.getTotal());
+    }
+
+    private Object[] toRow(ProductModel productModel) {
+        return new Object[]{
+                productModel.getProductId(),
+                productModel.getProductName(),
+                productModel.getProductCode(),
+                productModel.getCompanyName(),
+                productModel.getBrandName(),
+                productModel.getCategoryName(),
+                productModel.getPeckingTypeName(),
+        };
+    }
+
+    private void showTotal(int page, int totalProducts) {
         // Update pagination and total count
+        totalRows = totalProducts;
         lbTotal.setText(DecimalFormat.getInstance().format(totalProducts));
         int totalPages = (int) Math.ceil((double) totalProducts / limit);
         pagination.setSelectedPage(page);
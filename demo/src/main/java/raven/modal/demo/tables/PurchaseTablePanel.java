@@ -2,21 +2,31 @@ package raven.modal.demo.tables;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
+import raven.modal.demo.feed.ChangeEntity;
 import raven.modal.demo.forms.FormViewPurchase;
+import raven.modal.demo.repository.PurchaseRepository;
+import raven.modal.demo.repository.Repositories;
 import raven.modal.demo.utils.Constants;
-import raven.modal.demo.dao.PurchaseDao;
 import raven.modal.demo.forms.FormPurchase;
+import raven.modal.demo.model.PageCursor;
 import raven.modal.demo.model.PurchaseModel;
 import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.JComponentUtils;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.KeysetPager;
+import raven.modal.demo.utils.table.LiveTableRows;
+import raven.modal.demo.utils.table.PageResult;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.sql.SQLException;
 import java.text.DecimalFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @SystemForm(name = "Purchase History", description = "View and manage all recorded purchases", tags = {"purchase", "history", "table"})
@@ -24,10 +34,39 @@ public class PurchaseTablePanel extends Form implements TableActions {
 
     private JTable purchaseTable;
     private DefaultTableModel tableModel;
-    private final PurchaseDao purchaseDao = new PurchaseDao();
+    private final PurchaseRepository purchaseDao = Repositories.getInstance().purchases();
     private JPagination pagination;
     private JLabel lbTotal;
+    private JTextField txtJumpDate;
+    private AsyncTableLoader loader;
+    private LiveTableRows<PurchaseModel> liveRows;
     private int limit = 15; // More rows for history table
+    private final KeysetPager<PurchaseModel> pager = new KeysetPager<>(new KeysetPager.Source<>() {
+        @Override
+        public List<PurchaseModel> fetchAfter(PageCursor after, int limit) {
+            return purchaseDao.getPurchasesAfter(after, limit);
+        }
+
+        @Override
+        public PageCursor seekOlder(PageCursor from, int rows) throws SQLException {
+            return purchaseDao.seekOlderPurchase(from, rows);
+        }
+
+        @Override
+        public PageCursor seekNewer(PageCursor from, int rows) throws SQLException {
+            return purchaseDao.seekNewerPurchase(from, rows);
+        }
+
+        @Override
+        public int countNewerThan(PageCursor cursor) throws SQLException {
+            return purchaseDao.countPurchasesNewerThan(cursor);
+        }
+
+        @Override
+        public PageCursor cursorOf(PurchaseModel row) {
+            return new PageCursor(row.getPurchaseDate(), row.getPurchaseID());
+        }
+    }, limit);
 
     public PurchaseTablePanel() {
         initUI();
@@ -35,6 +74,7 @@ public class PurchaseTablePanel extends Form implements TableActions {
 
     @Override
     public void formOpen() {
+        pager.reset();
         loadPurchaseHistory(1);
     }
 
@@ -49,15 +89,29 @@ public class PurchaseTablePanel extends Form implements TableActions {
         setupTable();
         JScrollPane scrollPane = new JScrollPane(purchaseTable);
         scrollPane.setBorder(BorderFactory.createEmptyBorder());
-        add(scrollPane, "grow, push");
+        loader = new AsyncTableLoader(scrollPane);
+        add(loader.getLayer(), "grow, push");
+        // Newest first, so new purchases belong on page 1 and are never appended; only the total follows them
+        liveRows = new LiveTableRows<>(purchaseTable, ChangeEntity.PURCHASE, purchaseDao::getPurchasesByIds, PurchaseModel::getPurchaseID, this::toRow);
+        liveRows.setTotal(purchaseDao::getPurchaseCount, total -> {
+            pager.reset(); // Rows were added or removed, so remembered page boundaries are stale
+            showTotal(pagination.getSelectedPage(), total);
+        });
 
         // --- Pagination ---
         pagination = new JPagination(11, 1, 1);
         pagination.addChangeListener(e -> loadPurchaseHistory(pagination.getSelectedPage()));
-        JPanel pagePanel = new JPanel(new MigLayout("insets 5 15 5 15", "[][]push[]"));
+        JPanel pagePanel = new JPanel(new MigLayout("insets 5 15 5 15", "[][]push[][]10[]"));
         lbTotal = new JLabel("0");
+        txtJumpDate = new JTextField(10);
+        txtJumpDate.putClientProperty(FlatClientProperties.PLACEHOLDER_TEXT, "yyyy-MM-dd");
+        txtJumpDate.addActionListener(e -> jumpToDate());
+        JButton btnJump = new JButton("Go to date");
+        btnJump.addActionListener(e -> jumpToDate());
         pagePanel.add(new JLabel("Total:"));
         pagePanel.add(lbTotal);
+        pagePanel.add(txtJumpDate);
+        pagePanel.add(btnJump);
         pagePanel.add(pagination);
         add(pagePanel);
     }
@@ -114,36 +168,66 @@ public class PurchaseTablePanel extends Form implements TableActions {
     }
 
     private void loadPurchaseHistory(int page) {
+        loader.load(() -> {
+            int total = purchaseDao.getPurchaseCount();
+            return new PageResult<>(pager.getPage(page, total), total);
+        }, result -> showPurchaseHistory(page, result));
+    }
+
+    private void showPurchaseHistory(int page, PageResult<PurchaseModel> result) {
         tableModel.setRowCount(0);
-        int offset = (page - 1) * limit;
-
-        List<PurchaseModel> purchases = purchaseDao.getPurchases(offset, limit);
-        int totalPurchases = purchaseDao.getPurchaseCount();
-
-        for (PurchaseModel p : purchases) {
-            double balance = p.getTotalAmount() - p.getPaidAmount();
-
-            tableModel.addRow(new Object[]{
-                    p.getPurchaseID(),
-                    p.getSupplierName(),
-                    p.getPurchaseDate().toLocalDate(),
-//                    String.format("%.2f", p.getActualAmount()),
-//                    p.getDiscountType().startsWith("P")
-//                            ? String.format("%.2f%%", p.getDiscountValue())
-//                            : String.format("%.2f", p.getDiscountValue()),
-                    String.format("%.2f", p.getTotalAmount()),
-                    String.format("%.2f", p.getPaidAmount()),
-                    String.format("%.2f", balance),
-                    "Actions Placeholder" // Action Panel will render here
-            });
+        liveRows.pageLoaded();
+
+        for (PurchaseModel p : result.getRows()) {
+            tableModel.addRow(toRow(p));
         }
 
+        showTotal(page, result.getTotal());
+    }
+
+    private Object[] toRow(PurchaseModel p) {
+        double balance = p.getTotalAmount() - p.getPaidAmount();
+
+        return new Object[]{
+                p.getPurchaseID(),
+                p.getSupplierName(),
+                p.getPurchaseDate().toLocalDate(),
+//                String.format("%.2f", p.getActualAmount()),
+//                p.getDiscountType().startsWith("P")
+//                        ? String.format("%.2f%%", p.getDiscountValue())
+//                        : String.format("%.2f", p.getDiscountValue()),
+                String.format("%.2f", p.getTotalAmount()),
+                String.format("%.2f", p.getPaidAmount()),
+                String.format("%.2f", balance),
+                "Actions Placeholder" // Action Panel will render here
+        };
+    }
+
+    private void showTotal(int page, int totalPurchases) {
         lbTotal.setText(DecimalFormat.getInstance().format(totalPurchases));
         int totalPages = (int) Math.ceil((double) totalPurchases / limit);
         pagination.setSelectedPage(page);
         pagination.getModel().setPageRange(page, totalPages);
     }
 
+    private void jumpToDate() {
+        LocalDate date;
+        try {
+            date = LocalDate.parse(txtJumpDate.getText().trim());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a date as yyyy-MM-dd.", "Validation", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        // Locating the page seeks through the date index, so it runs off the EDT like the page loads
+        loader.load(() -> pager.pageOf(date), page -> {
+            if (page == pagination.getSelectedPage()) {
+                loadPurchaseHistory(page);
+            } else {
+                pagination.setSelectedPage(page); // The change listener loads the page
+            }
+        });
+    }
+
     // --- Actions Implementation ---
 
     public void onEdit(int row) {
@@ -206,11 +290,12 @@ public class PurchaseTablePanel extends Form implements TableActions {
                 }
 
                 // Call DAO to update purchase paid amount and supplier balance
-                boolean success = purchaseDao.updateSupplierPayment(purchaseId, payment); // Assumed DAO method
-                if (success) {
-                    JOptionPane.showMessageDialog(this, "Payment recorded successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
-                    formRefresh(); // Refresh table
-                }
+                purchaseDao.updateSupplierPayment(purchaseId, payment);
+                JOptionPane.showMessageDialog(this, "Payment recorded successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
+                formRefresh(); // Refresh table
+            } catch (SQLException e) {
+                System.err.println("Purchase payment failed. Rolled back: " + e.getMessage());
+                JOptionPane.showMessageDialog(this, "Payment failed: " + e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Please enter a valid numeric amount.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -219,11 +304,13 @@ public class PurchaseTablePanel extends Form implements TableActions {
 
     @Override
     public void formInit() {
+        pager.reset();
         loadPurchaseHistory(1);
     }
 
     @Override
     public void formRefresh() {
+        pager.reset(); // Rows may have been added or removed, so remembered page boundaries are stale
         loadPurchaseHistory(pagination.getSelectedPage());
     }
 
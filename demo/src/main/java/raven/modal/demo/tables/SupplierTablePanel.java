@@ -2,8 +2,10 @@ package raven.modal.demo.tables;
 
 import com.formdev.flatlaf.FlatClientProperties;
 import net.miginfocom.swing.MigLayout;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.repository.Repositories;
+import raven.modal.demo.repository.SupplierRepository;
 import raven.modal.demo.utils.Constants;
-import raven.modal.demo.dao.SupplierDao;
 import raven.modal.demo.dao.UtilsDao;
 import raven.modal.demo.forms.FormSupplier;
 import raven.modal.demo.model.SupplierModel;
@@ -11,6 +13,9 @@ import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.combox.JComponentUtils;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.LiveTableRows;
+import raven.modal.demo.utils.table.PageResult;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
@@ -25,9 +30,12 @@ public class SupplierTablePanel extends Form implements TableActions{
 
     private JTable table;
     private DefaultTableModel model;
-    private SupplierDao supplierDao = new SupplierDao();
+    private SupplierRepository supplierDao = Repositories.getInstance().suppliers();
     private JPagination pagination;
     private JLabel lbTotal;
+    private AsyncTableLoader loader;
+    private LiveTableRows<SupplierModel> liveRows;
+    private int totalRows;
     private int limit = Constants.LIMIT_PER_PAGE;
     private JButton btnCreate; // Added standard create button
 
@@ -96,7 +104,11 @@ public class SupplierTablePanel extends Form implements TableActions{
         table.getTableHeader().putClientProperty(FlatClientProperties.STYLE, "height:30;hoverBackground:null;pressedBackground:null;separatorColor:$TableHeader.background;");
         table.putClientProperty(FlatClientProperties.STYLE, "rowHeight:30;showHorizontalLines:true;intercellSpacing:0,1;cellFocusColor:$TableHeader.hoverBackground;selectionBackground:$TableHeader.hoverBackground;selectionForeground:$Table.foreground;");
 
-        add(scroll, "grow, push"); // Table takes remaining space
+        loader = new AsyncTableLoader(scroll);
+        add(loader.getLayer(), "grow, push"); // Table takes remaining space
+        liveRows = new LiveTableRows<>(table, ChangeEntity.SUPPLIER, supplierDao::getSuppliersByIds, SupplierModel::getSupplierID, this::toRow);
+        liveRows.setRoom(() -> pagination.getSelectedPage() * limit >= totalRows ? limit - model.getRowCount() : 0);
+        liveRows.setTotal(() -> UtilsDao.getCount("TBLSuppliers"), total -> showTotal(pagination.getSelectedPage(), total));
 
         // Pagination
         pagination = new JPagination(11, 1, 1);
@@ -121,27 +133,41 @@ public class SupplierTablePanel extends Form implements TableActions{
     }
 
     private void loadSuppliers(int page) {
-        model.setRowCount(0);
         int offset = (page - 1) * limit;
 
         // NOTE: supplierDao.getSuppliers is assumed to be the pagination method
-        List<SupplierModel> suppliers = supplierDao.getSuppliers(offset, limit);
-        int totalSuppliers = UtilsDao.getCount("TBLSuppliers");
+        loader.load(() -> new PageResult<>(supplierDao.getSuppliers(offset, limit), UtilsDao.getCount("TBLSuppliers")),
+                result -> showSuppliers(page, result));
+    }
+
+    private void showSuppliers(int page, PageResult<SupplierModel> result) {
+        model.setRowCount(0);
+        liveRows.pageLoaded();
+        List<SupplierModel> suppliers = result.getRows();
 
         // The logic for count++ or offset+1 is usually redundant if you display the ID
         // The table should display the SupplierID (index 0)
         for (SupplierModel supplierModel : suppliers) {
-            model.addRow(new Object[]{
-                    supplierModel.getSupplierID(),
-                    supplierModel.getSupplierName(),
-                    supplierModel.getContactNo(),
-                    supplierModel.getEmail(),
-                    supplierModel.getAddress(),
-                    supplierModel.getOpeningBalance()
-                    // Action column is handled by the renderer/editor
-            });
+            model.addRow(toRow(supplierModel));
         }
 
+        showTotal(page, result.getTotal());
+    }
+
+    private Object[] toRow(SupplierModel supplierModel) {
+        return new Object[]{
+                supplierModel.getSupplierID(),
+                supplierModel.getSupplierName(),
+                supplierModel.getContactNo(),
+                supplierModel.getEmail(),
+                supplierModel.getAddress(),
+                supplierModel.getOpeningBalance()
+                // Action column is handled by the renderer/editor
+        };
+    }
+
+    private void showTotal(int page, int totalSuppliers) {
+        totalRows = totalSuppliers;
         lbTotal.setText(DecimalFormat.getInstance().format(totalSuppliers));
         int totalPages = (int) Math.ceil((double) totalSuppliers / limit);
         pagination.setSelectedPage(page);
@@ -10,6 +10,8 @@ import raven.modal.demo.system.Form;
 import raven.modal.demo.utils.Constants;
 import raven.modal.demo.utils.SystemForm;
 import raven.modal.demo.utils.table.TableHeaderAlignment;
+import raven.modal.demo.utils.table.AsyncTableLoader;
+import raven.modal.demo.utils.table.PageResult;
 import raven.swingpack.JPagination;
 
 import javax.swing.*;
@@ -26,6 +28,7 @@ public class UnitTablePanel extends Form implements TableActions {
     private UnitDao unitDao; // Placeholder
     private JPagination pagination;
     private JLabel lbTotal;
+    private AsyncTableLoader loader;
     private int limit = Constants.LIMIT_PER_PAGE;
 
     public UnitTablePanel() {
@@ -96,7 +99,8 @@ public class UnitTablePanel extends Form implements TableActions {
                 + "selectionBackground:$TableHeader.hoverBackground;"
                 + "selectionForeground:$Table.foreground;");
 
-        add(scroll);
+        loader = new AsyncTableLoader(scroll);
+        add(loader.getLayer());
 
         // Pagination Panel
         pagination = new JPagination(11, 1, 1);
@@ -111,12 +115,17 @@ public class UnitTablePanel extends Form implements TableActions {
     }
 
     private void loadUnits(int page) {
-        model.setRowCount(0);
         int offset = (page - 1) * limit;
 
         // Fetch data using the DAO placeholder
-        List<UnitModel> allUnits = unitDao.getAllUnits(offset, limit);
-        int totalUnits = UtilsDao.getCount("tblunits");
+        loader.load(() -> new PageResult<>(unitDao.getAllUnits(offset, limit), UtilsDao.getCount("tblunits")),
+                result -> showUnits(page, result));
+    }
+
+    private void showUnits(int page, PageResult<UnitModel> result) {
+        model.setRowCount(0);
+        List<UnitModel> allUnits = result.getRows();
+        int totalUnits = result.getTotal();
 
         for (UnitModel unitModel : allUnits) {
             model.addRow(new Object[]{
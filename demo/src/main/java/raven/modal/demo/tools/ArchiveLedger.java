@@ -0,0 +1,44 @@
+package raven.modal.demo.tools;
+
+import raven.modal.demo.dao.LedgerArchiveDao;
+import raven.modal.demo.dao.StockClosingDao;
+import raven.modal.demo.mysql.SchemaMigrator;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Moves sale/purchase lines and stock ledger rows of closed months into the archive tables.
+ * Run with: {@code java -cp modal-dialog-demo.jar raven.modal.demo.tools.ArchiveLedger [yyyy-MM]}
+ * <p>
+ * Without a month, archives through the latest closed month that is at least {@value #KEEP_MONTHS} months old.
+ */
+public class ArchiveLedger {
+
+    private static final int KEEP_MONTHS = 12;
+
+    public static void main(String[] args) {
+        try {
+            SchemaMigrator.getInstance().migrate();
+            LocalDate cutoff;
+            if (args.length > 0) {
+                cutoff = YearMonth.parse(args[0]).atEndOfMonth();
+            } else {
+                LocalDate limit = YearMonth.now().minusMonths(KEEP_MONTHS).atEndOfMonth();
+                List<LocalDate> closed = new StockClosingDao().getClosedPeriods();
+                cutoff = closed.stream().filter(period -> !period.isAfter(limit)).reduce((a, b) -> b).orElse(null);
+                if (cutoff == null) {
+                    System.out.println("No closed month older than " + KEEP_MONTHS + " months; nothing to archive");
+                    System.exit(0);
+                }
+            }
+            System.out.println("Archived through " + cutoff + ": " + new LedgerArchiveDao().archiveThrough(cutoff).getSummary());
+        } catch (SQLException e) {
+            System.err.println("Archiving failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
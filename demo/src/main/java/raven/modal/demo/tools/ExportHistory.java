@@ -0,0 +1,78 @@
+package raven.modal.demo.tools;
+
+import raven.modal.demo.exporter.ExportFormat;
+import raven.modal.demo.exporter.ExportResult;
+import raven.modal.demo.exporter.ExportTable;
+import raven.modal.demo.exporter.HistoryExporter;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * Exports a history table over a date range as CSV or binary.
+ * Run with: {@code java -cp modal-dialog-demo.jar raven.modal.demo.tools.ExportHistory table [--format=csv|binary] [--from=yyyy-MM-dd] [--to=yyyy-MM-dd] [--out=file]}
+ * <ul>
+ *     <li>{@code table} one of purchases, purchase-details, sales, sale-details, stock-ledger, supplier-payments, customer-receipts.</li>
+ *     <li>{@code --format} Default: csv.</li>
+ *     <li>{@code --from}, {@code --to} first and last day, inclusive. Default: the last 12 months up to today.</li>
+ *     <li>{@code --out} Default: {@code table-from-to.csv} (or {@code .bin}) in the working directory.</li>
+ * </ul>
+ */
+public class ExportHistory {
+
+    public static void main(String[] args) {
+        ExportTable table = null;
+        ExportFormat format = ExportFormat.CSV;
+        LocalDate to = LocalDate.now();
+        LocalDate from = to.minusYears(1).plusDays(1);
+        File file = null;
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--format=")) {
+                    format = ExportFormat.parse(value);
+                } else if (arg.startsWith("--from=")) {
+                    from = LocalDate.parse(value);
+                } else if (arg.startsWith("--to=")) {
+                    to = LocalDate.parse(value);
+                } else if (arg.startsWith("--out=")) {
+                    file = new File(value);
+                } else {
+                    table = ExportTable.valueOf(arg.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            table = null;
+        }
+        if (table == null || from.isAfter(to)) {
+            System.err.println("Usage: ExportHistory table [--format=csv|binary] [--from=yyyy-MM-dd] [--to=yyyy-MM-dd] [--out=file]");
+            System.exit(1);
+        }
+        if (file == null) {
+            file = new File(HistoryExporter.defaultFileName(table, format, from, to));
+        }
+
+        HistoryExporter exporter = new HistoryExporter(table, format, from, to, file);
+        long[] lastReport = {0};
+        exporter.setProgressListener((rows, expectedRows) -> {
+            long now = System.currentTimeMillis();
+            if (now - lastReport[0] >= 2000) {
+                lastReport[0] = now;
+                System.out.println(String.format("%,d of %,d rows", rows, expectedRows));
+            }
+        });
+        try {
+            ExportResult result = exporter.run();
+            System.out.println(String.format("Exported %s to %s in %,d ms: %s",
+                    table, file.getPath(), result.getMillis(), result.getSummary()));
+        } catch (IOException | SQLException e) {
+            System.err.println("Export failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
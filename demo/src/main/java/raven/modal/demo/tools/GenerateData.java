@@ -0,0 +1,69 @@
+package raven.modal.demo.tools;
+
+import raven.modal.demo.mysql.SchemaMigrator;
+import raven.modal.demo.sample.DataGenerator;
+import raven.modal.demo.sample.GeneratorConfig;
+import raven.modal.demo.sample.InsertStats;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Fills the database with a synthetic, reproducible dataset for load testing.
+ * Run with: {@code java -cp modal-dialog-demo.jar raven.modal.demo.tools.GenerateData [--rows=n] [--seed=n] [--threads=n] [--years=n]}
+ * <ul>
+ *     <li>{@code --rows} approximate total rows over all tables, from about 1,000 up to 100,000,000. Default 100,000.</li>
+ *     <li>{@code --seed} the same seed on the same starting database writes the same rows. Default 42.</li>
+ *     <li>{@code --threads} writer threads for purchases and sales. Default: processors, at most 8.</li>
+ *     <li>{@code --years} how far back invoice dates go. Default 2.</li>
+ * </ul>
+ * Rows are added to whatever is there; point {@code -Dmart.db.url} at a scratch database, not a live one.
+ */
+public class GenerateData {
+
+    public static void main(String[] args) {
+        long rows = 100_000;
+        Long seed = null;
+        Integer threads = null;
+        Integer years = null;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--rows=")) {
+                rows = Long.parseLong(value);
+            } else if (arg.startsWith("--seed=")) {
+                seed = Long.parseLong(value);
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(value);
+            } else if (arg.startsWith("--years=")) {
+                years = Integer.parseInt(value);
+            } else {
+                System.err.println("Usage: GenerateData [--rows=n] [--seed=n] [--threads=n] [--years=n]");
+                System.exit(1);
+            }
+        }
+        GeneratorConfig.GeneratorConfigBuilder config = GeneratorConfig.forRows(rows);
+        if (seed != null) {
+            config.seed(seed);
+        }
+        if (threads != null) {
+            config.threads(threads);
+        }
+        if (years != null) {
+            config.firstDate(LocalDate.now().minusYears(years).withDayOfMonth(1));
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            SchemaMigrator.getInstance().migrate();
+            List<InsertStats> stats = new DataGenerator(config.build()).generate();
+            long millis = System.currentTimeMillis() - start;
+            long total = stats.stream().mapToLong(InsertStats::getRows).sum();
+            System.out.println(String.format("Wrote %,d rows in %,d ms (%,.0f rows/s)", total, millis, total * 1000.0 / Math.max(1, millis)));
+        } catch (SQLException e) {
+            System.err.println("Data generation failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,71 @@
+package raven.modal.demo.tools;
+
+import raven.modal.demo.importer.CsvImporter;
+import raven.modal.demo.importer.ImportResult;
+import raven.modal.demo.importer.ImportType;
+import raven.modal.demo.mysql.SchemaMigrator;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * Imports products, customers or suppliers from a CSV file with a header row.
+ * Run with: {@code java -cp modal-dialog-demo.jar raven.modal.demo.tools.ImportCsv products|customers|suppliers file.csv [--threads=n] [--rejects=file]}
+ * <ul>
+ *     <li>{@code --threads} validator threads. Default: processors.</li>
+ *     <li>{@code --rejects} where rejected rows go. Default: {@code file.rejected.csv} next to the input.</li>
+ * </ul>
+ * See {@link ImportType} for the columns of each file type.
+ */
+public class ImportCsv {
+
+    public static void main(String[] args) {
+        ImportType type = null;
+        File file = null;
+        File rejects = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--threads=")) {
+                    threads = Integer.parseInt(value);
+                } else if (arg.startsWith("--rejects=")) {
+                    rejects = new File(value);
+                } else if (type == null) {
+                    type = ImportType.parse(arg);
+                } else {
+                    file = new File(arg);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            type = null;
+        }
+        if (type == null || file == null || !file.isFile()) {
+            System.err.println("Usage: ImportCsv products|customers|suppliers file.csv [--threads=n] [--rejects=file]");
+            System.exit(1);
+        }
+
+        CsvImporter importer = new CsvImporter(type, file, rejects != null ? rejects : CsvImporter.defaultRejectsFile(file), threads);
+        int[] lastDecile = {0};
+        importer.setProgressListener((soFar, fraction) -> {
+            int decile = (int) (fraction * 10);
+            if (decile > lastDecile[0] && decile < 10) {
+                lastDecile[0] = decile;
+                System.out.println(decile * 10 + "%: " + soFar.getSummary());
+            }
+        });
+        try {
+            SchemaMigrator.getInstance().migrate();
+            ImportResult result = importer.run();
+            System.out.println(String.format("Read %,d rows in %,d ms: %s", result.getRowsRead(), result.getMillis(), result.getSummary()));
+            if (result.getRejectsFile() != null) {
+                System.out.println("Rejected rows written to " + result.getRejectsFile().getPath());
+            }
+        } catch (IOException | SQLException e) {
+            System.err.println("Import failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,47 @@
+package raven.modal.demo.tools;
+
+import raven.modal.demo.dao.InvoiceSequenceDao;
+import raven.modal.demo.model.InvoiceGapModel;
+import raven.modal.demo.mysql.SchemaMigrator;
+import raven.modal.demo.utils.combox.InvoiceUtil;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Lists reserved invoice numbers that no saved sale or purchase carries.
+ * Run with: {@code java -cp modal-dialog-demo.jar raven.modal.demo.tools.InvoiceGaps [from yyyy-MM-dd] [to yyyy-MM-dd]}
+ * <p>
+ * Without dates, reports today; with one date, that day.
+ */
+public class InvoiceGaps {
+
+    public static void main(String[] args) {
+        try {
+            SchemaMigrator.getInstance().migrate();
+            LocalDate from = args.length > 0 ? LocalDate.parse(args[0]) : LocalDate.now();
+            LocalDate to = args.length > 1 ? LocalDate.parse(args[1]) : from;
+
+            List<InvoiceGapModel> gaps = new InvoiceSequenceDao().findGaps(from, to);
+            int issued = 0;
+            int unissued = 0;
+            for (InvoiceGapModel gap : gaps) {
+                String first = InvoiceUtil.format(gap.getDate(), gap.getFirstNo());
+                String range = gap.getCount() == 1 ? first : first + " .. " + InvoiceUtil.format(gap.getDate(), gap.getLastNo());
+                System.out.println(range + " (" + gap.getCount() + ", " + gap.getTerminal() + "): "
+                        + (gap.isIssued() ? "issued, not saved or deleted" : "never issued"));
+                if (gap.isIssued()) {
+                    issued += gap.getCount();
+                } else {
+                    unissued += gap.getCount();
+                }
+            }
+            System.out.println(issued + " numbers issued without a saved invoice, " + unissued + " reserved but never issued");
+        } catch (SQLException e) {
+            System.err.println("Invoice gap report failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
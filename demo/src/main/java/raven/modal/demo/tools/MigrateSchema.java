@@ -0,0 +1,23 @@
+package raven.modal.demo.tools;
+
+import raven.modal.demo.mysql.SchemaMigrator;
+
+import java.sql.SQLException;
+
+/**
+ * One-shot command that applies pending schema migrations without starting the application,
+ * e.g. before rolling a new version out to the tills.
+ * Run with: {@code java -cp modal-dialog-demo.jar raven.modal.demo.tools.MigrateSchema}
+ */
+public class MigrateSchema {
+
+    public static void main(String[] args) {
+        try {
+            System.out.println("Schema is at version " + SchemaMigrator.getInstance().migrate());
+        } catch (SQLException e) {
+            System.err.println("Schema migration failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
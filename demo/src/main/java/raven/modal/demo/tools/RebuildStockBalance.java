@@ -0,0 +1,27 @@
+package raven.modal.demo.tools;
+
+import raven.modal.demo.dao.StockLedgerDao;
+import raven.modal.demo.mysql.SchemaMigrator;
+
+import java.sql.SQLException;
+
+/**
+ * One-shot command that recomputes TBLStockBalance from TBLStockLedger.
+ * Run with: {@code java -cp modal-dialog-demo.jar raven.modal.demo.tools.RebuildStockBalance}
+ */
+public class RebuildStockBalance {
+
+    public static void main(String[] args) {
+        long start = System.currentTimeMillis();
+        try {
+            SchemaMigrator.getInstance().migrate();
+            int products = new StockLedgerDao().rebuildStockBalance();
+            System.out.println("Stock balance rebuilt for " + products + " products in "
+                    + (System.currentTimeMillis() - start) + "ms");
+        } catch (SQLException e) {
+            System.err.println("Stock balance rebuild failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,71 @@
+package raven.modal.demo.tools;
+
+import raven.modal.demo.dao.StockClosingDao;
+import raven.modal.demo.mysql.SchemaMigrator;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Month-end stock closing commands.
+ * Run with: {@code java -cp modal-dialog-demo.jar raven.modal.demo.tools.StockClosing <command>}
+ * <ul>
+ *     <li>{@code close} closes every ended month that is not closed yet; {@code close 2024-05} (re)closes one month.</li>
+ *     <li>{@code verify} lists the closed months that no longer match the ledger (back-dated entries).</li>
+ *     <li>{@code rebuild} rewrites every month from the first stale one; {@code rebuild 2024-05} from that month.</li>
+ * </ul>
+ */
+public class StockClosing {
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "verify";
+        StockClosingDao dao = new StockClosingDao();
+        long start = System.currentTimeMillis();
+        try {
+            SchemaMigrator.getInstance().migrate();
+            switch (command) {
+                case "close":
+                    if (args.length > 1) {
+                        System.out.println("Closed period " + dao.closeMonth(YearMonth.parse(args[1])));
+                    } else {
+                        System.out.println("Closed " + dao.closeEndedMonths() + " month(s)");
+                    }
+                    break;
+                case "verify": {
+                    List<LocalDate> stale = dao.verify();
+                    System.out.println(stale.isEmpty() ? "All " + dao.getClosedPeriods().size() + " closed periods match the ledger"
+                            : "Stale periods: " + stale);
+                    if (!stale.isEmpty()) {
+                        System.exit(2);
+                    }
+                    break;
+                }
+                case "rebuild": {
+                    LocalDate from;
+                    if (args.length > 1) {
+                        from = YearMonth.parse(args[1]).atEndOfMonth();
+                    } else {
+                        List<LocalDate> stale = dao.verify();
+                        if (stale.isEmpty()) {
+                            System.out.println("Nothing to rebuild");
+                            break;
+                        }
+                        from = stale.get(0);
+                    }
+                    System.out.println("Rebuilt " + dao.rebuildFrom(from) + " period(s) from " + from);
+                    break;
+                }
+                default:
+                    System.err.println("Usage: StockClosing close [yyyy-MM] | verify | rebuild [yyyy-MM]");
+                    System.exit(1);
+            }
+            System.out.println("Done in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (SQLException e) {
+            System.err.println("Stock closing failed: " + e.getMessage());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+}
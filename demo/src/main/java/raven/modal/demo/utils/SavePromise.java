@@ -0,0 +1,55 @@
+package raven.modal.demo.utils;
+
+import raven.modal.Toast;
+import raven.modal.toast.ToastPromise;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Shows the progress of a queued save as a promise toast: a spinner while the save is pending,
+ * then a success or error toast once the future completes.
+ */
+public class SavePromise<T> extends ToastPromise {
+
+    private final CompletableFuture<T> future;
+    private final Function<T, String> successMessage;
+    private final String failureMessage;
+    private final Consumer<Throwable> onFailure;
+
+    private SavePromise(CompletableFuture<T> future, Function<T, String> successMessage, String failureMessage, Consumer<Throwable> onFailure) {
+        this.future = future;
+        this.successMessage = successMessage;
+        this.failureMessage = failureMessage;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * @param owner          Component the toast is attached to.
+     * @param message        Text shown while the save is pending.
+     * @param future         The queued save.
+     * @param successMessage Builds the success text from the save's result.
+     * @param failureMessage Text shown before the error detail when the save fails.
+     * @param onFailure      Runs on the EDT after a failure, e.g. to restore the draft.
+     */
+    public static <T> void show(Component owner, String message, CompletableFuture<T> future,
+                                Function<T, String> successMessage, String failureMessage, Consumer<Throwable> onFailure) {
+        Toast.showPromise(owner, message, new SavePromise<>(future, successMessage, failureMessage, onFailure));
+    }
+
+    @Override
+    public void execute(PromiseCallback callback) {
+        try {
+            T result = future.join();
+            callback.done(Toast.Type.SUCCESS, successMessage.apply(result));
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            callback.done(Toast.Type.ERROR, failureMessage + ": " + cause.getMessage());
+            SwingUtilities.invokeLater(() -> onFailure.accept(cause));
+        }
+    }
+}
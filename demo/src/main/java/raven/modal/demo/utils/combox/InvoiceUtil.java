@@ -1,22 +1,60 @@
 package raven.modal.demo.utils.combox;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Random;
+import raven.modal.demo.dao.InvoiceSequence;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 
 public class InvoiceUtil {
 
-    private static final Random random = new Random();
+    private static final DateTimeFormatter DATE_PART = DateTimeFormatter.ofPattern("yyyyMMdd");
 
-    public static String generateInvoiceNumber() {
-        // Example format: INV-20251110-83472
-        String datePart = new SimpleDateFormat("yyyyMMdd").format(new Date());
-        int randomPart = 10000 + random.nextInt(90000); // 5-digit random number
-        return "INV-" + datePart + "-" + randomPart;
+    /**
+     * Next invoice number of this terminal, from its reserved block (see {@link InvoiceSequence}).
+     * Reserves a new block in a database transaction when needed, so call it off the EDT (e.g. on the save queue);
+     * forms use {@link #reservedInvoiceNumber()}.
+     * @throws SQLException If a new block was needed and could not be reserved.
+     */
+    public static String generateInvoiceNumber() throws SQLException {
+        // Example format: INV-20251110-00042
+        return InvoiceSequence.getInstance().next();
     }
 
-    public static void main(String[] args) {
-        System.out.println(generateInvoiceNumber());
+    /**
+     * Next invoice number of this terminal if one is reserved already, without touching the database.
+     * @return The number, or null if a block has to be reserved first.
+     */
+    public static String reservedInvoiceNumber() {
+        return InvoiceSequence.getInstance().nextReserved();
+    }
+
+    public static String format(LocalDate date, int number) {
+        return String.format("%s%05d", prefix(date), number);
     }
-}
 
+    /**
+     * The part all invoice numbers of {@code date} start with, e.g. "INV-20251110-".
+     */
+    public static String prefix(LocalDate date) {
+        return "INV-" + DATE_PART.format(date) + "-";
+    }
+
+    /**
+     * @return The sequence number of an invoice number of {@code date}, or -1 if it is not one.
+     */
+    public static int parseNumber(String invoiceNo, LocalDate date) {
+        String prefix = prefix(date);
+        if (invoiceNo == null || !invoiceNo.startsWith(prefix) || invoiceNo.length() == prefix.length()
+                || invoiceNo.length() - prefix.length() > 9) {
+            return -1;
+        }
+        for (int i = prefix.length(); i < invoiceNo.length(); i++) {
+            char c = invoiceNo.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        return Integer.parseInt(invoiceNo.substring(prefix.length()));
+    }
+}
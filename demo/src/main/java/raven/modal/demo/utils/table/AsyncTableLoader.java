@@ -0,0 +1,108 @@
+package raven.modal.demo.utils.table;
+
+import raven.modal.demo.dao.DaoExecutor;
+
+import javax.swing.*;
+import javax.swing.plaf.LayerUI;
+import java.awt.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Loads table data on the {@link DaoExecutor} and applies it on the EDT.
+ * <p>
+ * Only the latest request counts: a new {@link #load} cancels the previous one if it has not started yet and
+ * otherwise discards its result, so rapid page clicks do not freeze the window or fill the table out of order.
+ * While a request is running for longer than {@link #INDICATOR_DELAY_MS} the wrapped table is dimmed with a
+ * "Loading..." overlay.
+ */
+public class AsyncTableLoader {
+
+    private static final int INDICATOR_DELAY_MS = 150;
+
+    private final LoadingLayerUI layerUI = new LoadingLayerUI();
+    private final JLayer<JComponent> layer;
+    private final Timer indicatorTimer;
+    private CompletableFuture<?> current;
+    private long generation;
+
+    public AsyncTableLoader(JComponent view) {
+        layer = new JLayer<>(view, layerUI);
+        indicatorTimer = new Timer(INDICATOR_DELAY_MS, e -> layerUI.setLoading(layer, true));
+        indicatorTimer.setRepeats(false);
+    }
+
+    /**
+     * @return The component to add to the panel in place of the view.
+     */
+    public JLayer<JComponent> getLayer() {
+        return layer;
+    }
+
+    /**
+     * Runs {@code query} in the background and hands its result to {@code apply} on the EDT,
+     * unless a newer request was made in the meantime. Must be called on the EDT.
+     */
+    public <T> CompletableFuture<T> load(Callable<T> query, Consumer<T> apply) {
+        if (current != null) {
+            current.cancel(false);
+        }
+        long requestGeneration = ++generation;
+        indicatorTimer.restart();
+
+        CompletableFuture<T> future = DaoExecutor.getInstance().submit(query);
+        current = future;
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (requestGeneration != generation) {
+                return; // Superseded by a newer request
+            }
+            current = null;
+            indicatorTimer.stop();
+            layerUI.setLoading(layer, false);
+            if (error == null) {
+                apply.accept(result);
+            } else if (!(error instanceof CancellationException)) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                System.err.println("Error loading table data: " + cause.getMessage());
+            }
+        }));
+        return future;
+    }
+
+    private static class LoadingLayerUI extends LayerUI<JComponent> {
+
+        private boolean loading;
+
+        void setLoading(JLayer<JComponent> layer, boolean loading) {
+            if (this.loading != loading) {
+                this.loading = loading;
+                layer.repaint();
+            }
+        }
+
+        @Override
+        public void paint(Graphics g, JComponent c) {
+            super.paint(g, c);
+            if (!loading) {
+                return;
+            }
+            Graphics2D g2 = (Graphics2D) g.create();
+            try {
+                Color background = c.getBackground();
+                Color foreground = UIManager.getColor("Label.disabledForeground");
+                g2.setColor(new Color(background.getRed(), background.getGreen(), background.getBlue(), 160));
+                g2.fillRect(0, 0, c.getWidth(), c.getHeight());
+                g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+                g2.setColor(foreground != null ? foreground : c.getForeground());
+                String text = "Loading...";
+                FontMetrics fm = g2.getFontMetrics();
+                g2.drawString(text, (c.getWidth() - fm.stringWidth(text)) / 2, (c.getHeight() + fm.getAscent()) / 2);
+            } finally {
+                g2.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package raven.modal.demo.utils.table;
+
+import raven.modal.demo.model.PageCursor;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps the page numbers of a {@code JPagination} onto keyset queries.
+ * <p>
+ * The pager remembers the boundary of every page it has seen (the key of the last row of the previous page).
+ * Next/previous pages continue from a remembered boundary; a jump to an unseen page first seeks from the
+ * nearest remembered boundary (or either end of the list) along the index, then reads the page by key.
+ * Call {@link #reset()} whenever rows were inserted or deleted, since the boundaries shift.
+ * The public methods are synchronized because pages are loaded on the DAO worker threads.
+ *
+ * @param <T> The row model of the history table.
+ */
+public class KeysetPager<T> {
+
+    /**
+     * Keyset queries of one history list, ordered newest first.
+     */
+    public interface Source<T> {
+
+        List<T> fetchAfter(PageCursor after, int limit);
+
+        PageCursor seekOlder(PageCursor from, int rows) throws SQLException;
+
+        PageCursor seekNewer(PageCursor from, int rows) throws SQLException;
+
+        int countNewerThan(PageCursor cursor) throws SQLException;
+
+        PageCursor cursorOf(T row);
+    }
+
+    private final Source<T> source;
+    private final int limit;
+    // page -> key of the last row of the page before it (page 1 has no boundary)
+    private final TreeMap<Integer, PageCursor> boundaries = new TreeMap<>();
+
+    public KeysetPager(Source<T> source, int limit) {
+        this.source = source;
+        this.limit = limit;
+    }
+
+    /**
+     * Loads one page.
+     * @param page      1-based page number.
+     * @param totalRows Current row count, used to seek from the oldest end when that is closer.
+     */
+    public synchronized List<T> getPage(int page, int totalRows) {
+        PageCursor after = null;
+        if (page > 1) {
+            after = boundaries.get(page);
+            if (after == null) {
+                try {
+                    after = seekBoundary(page, totalRows);
+                } catch (SQLException e) {
+                    System.err.println("Error locating page " + page + ": " + e.getMessage());
+                }
+                if (after == null) {
+                    return Collections.emptyList();
+                }
+                boundaries.put(page, after);
+            }
+        }
+        List<T> rows = source.fetchAfter(after, limit);
+        if (rows.size() == limit) {
+            boundaries.put(page + 1, source.cursorOf(rows.get(rows.size() - 1)));
+        }
+        return rows;
+    }
+
+    /**
+     * Finds the page that lists the newest row on or before {@code date} and remembers its boundary.
+     * @return The 1-based page number to load.
+     */
+    public synchronized int pageOf(LocalDate date) throws SQLException {
+        // Rows of later days sort before this cursor; rows of the date itself and older come after it
+        PageCursor dateCursor = new PageCursor(date.plusDays(1).atStartOfDay(), 0);
+        int newer = source.countNewerThan(dateCursor);
+        int page = newer / limit + 1;
+        if (page > 1 && !boundaries.containsKey(page)) {
+            PageCursor boundary = source.seekNewer(dateCursor, newer % limit + 1);
+            if (boundary != null) {
+                boundaries.put(page, boundary);
+            }
+        }
+        return page;
+    }
+
+    public synchronized void reset() {
+        boundaries.clear();
+    }
+
+    /**
+     * Seeks the boundary of {@code page} (the key of row {@code (page - 1) * limit - 1}) from whichever known
+     * position is closest: a remembered boundary above or below, the newest row, or the oldest row.
+     */
+    private PageCursor seekBoundary(int page, int totalRows) throws SQLException {
+        int target = (page - 1) * limit - 1;
+
+        Map.Entry<Integer, PageCursor> lower = boundaries.lowerEntry(page);
+        int lowerIndex = lower == null ? -1 : (lower.getKey() - 1) * limit - 1;
+        PageCursor lowerCursor = lower == null ? null : lower.getValue();
+
+        Map.Entry<Integer, PageCursor> higher = boundaries.higherEntry(page);
+        int higherIndex = higher == null ? totalRows : (higher.getKey() - 1) * limit - 1;
+        PageCursor higherCursor = higher == null ? null : higher.getValue();
+
+        if (higherIndex - target < target - lowerIndex) {
+            return source.seekNewer(higherCursor, higherIndex - target);
+        }
+        return source.seekOlder(lowerCursor, target - lowerIndex);
+    }
+}
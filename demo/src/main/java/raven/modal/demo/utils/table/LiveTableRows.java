@@ -0,0 +1,188 @@
+package raven.modal.demo.utils.table;
+
+import raven.modal.demo.dao.DaoExecutor;
+import raven.modal.demo.feed.ChangeBatch;
+import raven.modal.demo.feed.ChangeEntity;
+import raven.modal.demo.feed.ChangeEvent;
+import raven.modal.demo.feed.ChangeFeed;
+import raven.modal.demo.feed.ChangeListener;
+import raven.modal.demo.feed.ChangeOp;
+
+import javax.swing.*;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
+import javax.swing.table.DefaultTableModel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Keeps the rows of an open table page current from the {@link ChangeFeed}, instead of re-running the page query.
+ * <p>
+ * Column 0 of the table must hold the entity ID. For every changed row on the page the row is reloaded by ID and
+ * replaced, or removed if it no longer exists; new rows are appended while the page has room. Only a page that is
+ * showing is patched, and a patch is dropped if the page was reloaded while it was being fetched.
+ * The table is subscribed while it is in a window.
+ */
+public class LiveTableRows<T> implements ChangeListener {
+
+    /**
+     * Reloads rows by ID, in the form the page query returns them; IDs that no longer exist are left out.
+     */
+    @FunctionalInterface
+    public interface RowLoader<T> {
+
+        List<T> load(List<Integer> ids) throws Exception;
+    }
+
+    private final JTable table;
+    private final ChangeEntity entity;
+    private final RowLoader<T> loader;
+    private final Function<T, Integer> idOf;
+    private final Function<T, Object[]> toRow;
+    private IntSupplier room = () -> 0;
+    private Callable<Integer> totalQuery;
+    private IntConsumer showTotal;
+    private long generation;
+
+    public LiveTableRows(JTable table, ChangeEntity entity, RowLoader<T> loader, Function<T, Integer> idOf, Function<T, Object[]> toRow) {
+        this.table = table;
+        this.entity = entity;
+        this.loader = loader;
+        this.idOf = idOf;
+        this.toRow = toRow;
+        table.addAncestorListener(new AncestorListener() {
+            @Override
+            public void ancestorAdded(AncestorEvent event) {
+                ChangeFeed.getInstance().subscribe(LiveTableRows.this);
+            }
+
+            @Override
+            public void ancestorRemoved(AncestorEvent event) {
+                ChangeFeed.getInstance().unsubscribe(LiveTableRows.this);
+            }
+
+            @Override
+            public void ancestorMoved(AncestorEvent event) {
+            }
+        });
+    }
+
+    /**
+     * @param room How many inserted rows may still be appended to the page (0 unless it is the last page).
+     */
+    public void setRoom(IntSupplier room) {
+        this.room = room;
+    }
+
+    /**
+     * Re-reads the total row count after rows were inserted or deleted. The feed has already invalidated the cached
+     * count, so {@code query} sees the new total; it is counted again rather than adjusted because the feed also
+     * delivers this terminal's own writes, which the page has already reloaded.
+     * @param query Runs on the {@link DaoExecutor}.
+     * @param show Receives the total on the EDT.
+     */
+    public void setTotal(Callable<Integer> query, IntConsumer show) {
+        this.totalQuery = query;
+        this.showTotal = show;
+    }
+
+    /**
+     * Call on the EDT whenever the page is (re)loaded, so patches fetched for the previous rows are dropped.
+     */
+    public void pageLoaded() {
+        generation++;
+    }
+
+    @Override
+    public void changed(ChangeBatch batch) {
+        if (!batch.contains(entity)) {
+            return;
+        }
+        List<ChangeEvent> events = batch.getEvents(entity);
+        SwingUtilities.invokeLater(() -> patch(events));
+    }
+
+    private void patch(List<ChangeEvent> events) {
+        if (!table.isShowing()) {
+            return; // Reloaded in full when the form is opened again
+        }
+        long requestGeneration = generation;
+        if (totalQuery != null && events.stream().anyMatch(event -> event.getOp() != ChangeOp.UPDATE)) {
+            DaoExecutor.getInstance().submit(totalQuery).whenComplete((total, error) -> SwingUtilities.invokeLater(() -> {
+                if (error == null && requestGeneration == generation) {
+                    showTotal.accept(total);
+                }
+            }));
+        }
+
+        Map<Integer, Integer> rowsById = rowsById();
+        int free = room.getAsInt();
+        List<Integer> ids = new ArrayList<>();
+        for (ChangeEvent event : events) {
+            if (rowsById.containsKey(event.getEntityId())) {
+                ids.add(event.getEntityId());
+            } else if (event.getOp() == ChangeOp.INSERT && free > 0) {
+                ids.add(event.getEntityId());
+                free--;
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+
+        Callable<List<T>> query = () -> loader.load(ids);
+        DaoExecutor.getInstance().submit(query).whenComplete((rows, error) -> SwingUtilities.invokeLater(() -> {
+            if (error != null) {
+                System.err.println("Error refreshing changed rows: " + error.getMessage());
+            } else if (requestGeneration == generation) {
+                apply(ids, rows);
+            }
+        }));
+    }
+
+    private void apply(List<Integer> ids, List<T> rows) {
+        Map<Integer, T> loaded = new HashMap<>();
+        for (T row : rows) {
+            loaded.put(idOf.apply(row), row);
+        }
+        if (table.isEditing()) {
+            table.getCellEditor().cancelCellEditing();
+        }
+        DefaultTableModel model = (DefaultTableModel) table.getModel();
+        int free = room.getAsInt();
+        for (Integer id : ids) {
+            Integer index = rowsById().get(id);
+            T row = loaded.get(id);
+            if (index != null) {
+                if (row == null) {
+                    model.removeRow(index);
+                } else {
+                    Object[] values = toRow.apply(row);
+                    for (int column = 0; column < values.length; column++) {
+                        model.setValueAt(values[column], index, column);
+                    }
+                }
+            } else if (row != null && free > 0) {
+                model.addRow(toRow.apply(row));
+                free--;
+            }
+        }
+    }
+
+    private Map<Integer, Integer> rowsById() {
+        Map<Integer, Integer> rows = new HashMap<>();
+        for (int i = 0; i < table.getModel().getRowCount(); i++) {
+            Object id = table.getModel().getValueAt(i, 0);
+            if (id instanceof Integer) {
+                rows.put((Integer) id, i);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,17 @@
+package raven.modal.demo.utils.table;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of rows plus the total row count, loaded together off the EDT.
+ */
+@Getter
+@AllArgsConstructor
+public class PageResult<T> {
+
+    private final List<T> rows;
+    private final int total;
+}
@@ -0,0 +1,97 @@
+-- Tables the application added on top of the original martDB schema.
+-- Earlier versions created them on first use; CREATE TABLE IF NOT EXISTS keeps this script safe on those databases.
+
+-- Materialized stock on hand per product, kept in step with TBLStockLedger (StockLedgerDao)
+CREATE TABLE IF NOT EXISTS TBLStockBalance (
+    ProductID INT NOT NULL PRIMARY KEY,
+    QtyOnHand DOUBLE NOT NULL DEFAULT 0,
+    UpdatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- Seeds products missing from the balance (a new table); rows already there are left as they are
+INSERT INTO TBLStockBalance (ProductID, QtyOnHand)
+SELECT ProductID, SUM(QtyIn) - SUM(QtyOut) FROM TBLStockLedger GROUP BY ProductID
+ON DUPLICATE KEY UPDATE QtyOnHand = TBLStockBalance.QtyOnHand;
+
+-- Customer/supplier balance changes not yet rolled into OpeningBalance (BalanceJournalDao)
+CREATE TABLE IF NOT EXISTS TBLBalanceJournal (
+    JournalID BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    PartyType CHAR(1) NOT NULL,
+    PartyID INT NOT NULL,
+    Amount DOUBLE NOT NULL,
+    RefType VARCHAR(20) NOT NULL,
+    RefID INT NOT NULL,
+    CreatedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    KEY IX_TBLBalanceJournal_Party (PartyType, PartyID)
+);
+
+-- Month-end stock snapshots (StockClosingDao)
+CREATE TABLE IF NOT EXISTS TBLStockClosing (
+    PeriodEnd DATE NOT NULL PRIMARY KEY,
+    ProductCount INT NOT NULL,
+    TotalValue DOUBLE NOT NULL,
+    ClosedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS TBLStockClosingLine (
+    PeriodEnd DATE NOT NULL,
+    ProductID INT NOT NULL,
+    ClosingQty DOUBLE NOT NULL,
+    ReceivedQty DOUBLE NOT NULL,
+    ReceivedCost DOUBLE NOT NULL,
+    ClosingValue DOUBLE NOT NULL,
+    PRIMARY KEY (PeriodEnd, ProductID)
+);
+
+-- Archive of closed periods (LedgerArchiveDao); yearly partitions are split off pmax when rows are archived
+CREATE TABLE IF NOT EXISTS TBLArchiveLog (
+    RunID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    ArchivedThrough DATE NOT NULL,
+    Sales INT NOT NULL,
+    Purchases INT NOT NULL,
+    DetailRows INT NOT NULL,
+    LedgerRows INT NOT NULL,
+    FinishedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE TABLE IF NOT EXISTS TBLStockLedgerArchive (
+    DocYear SMALLINT NOT NULL,
+    LedgerID INT NOT NULL,
+    ProductID INT NOT NULL,
+    RefType VARCHAR(20) NOT NULL,
+    RefID INT NOT NULL,
+    RefDetailID INT NULL,
+    QtyIn DOUBLE NOT NULL,
+    QtyOut DOUBLE NOT NULL,
+    Rate DOUBLE NOT NULL,
+    CreatedDate DATETIME NULL,
+    ArchivedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (DocYear, LedgerID),
+    KEY IX_TBLStockLedgerArchive_Ref (RefType, RefID)
+) PARTITION BY RANGE (DocYear) (PARTITION pmax VALUES LESS THAN MAXVALUE);
+
+CREATE TABLE IF NOT EXISTS TBLSaleDetailArchive (
+    DocYear SMALLINT NOT NULL,
+    SaleDetailID INT NOT NULL,
+    SaleID INT NOT NULL,
+    ProductID INT NOT NULL,
+    Quantity DOUBLE NOT NULL,
+    Rate DOUBLE NOT NULL,
+    Total DOUBLE NOT NULL,
+    ArchivedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (DocYear, SaleDetailID),
+    KEY IX_TBLSaleDetailArchive_SaleID (SaleID)
+) PARTITION BY RANGE (DocYear) (PARTITION pmax VALUES LESS THAN MAXVALUE);
+
+CREATE TABLE IF NOT EXISTS TBLPurchaseDetailArchive (
+    DocYear SMALLINT NOT NULL,
+    PurchaseDetailID INT NOT NULL,
+    PurchaseID INT NOT NULL,
+    ProductID INT NOT NULL,
+    Quantity DOUBLE NOT NULL,
+    Rate DOUBLE NOT NULL,
+    Total DOUBLE NOT NULL,
+    ArchivedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (DocYear, PurchaseDetailID),
+    KEY IX_TBLPurchaseDetailArchive_PurchaseID (PurchaseID)
+) PARTITION BY RANGE (DocYear) (PARTITION pmax VALUES LESS THAN MAXVALUE);
@@ -0,0 +1,25 @@
+-- Composite indexes for the predicates the DAOs run on every invoice save, edit and list page.
+-- Where a query reads only a few columns they are appended so the index covers it without row lookups.
+
+-- Sale / purchase history pages: ORDER BY date DESC, id DESC with keyset cursors (KeysetQuery)
+CREATE INDEX IX_TBLSale_SaleDate_SaleID ON TBLSale (SaleDate, SaleID);
+CREATE INDEX IX_TBLPurchase_PurchaseDate_PurchaseID ON TBLPurchase (PurchaseDate, PurchaseID);
+
+-- Detail lines of one invoice: load for edit, diff on update, delete (SaleDao, PurchaseDao, LedgerArchiveDao)
+CREATE INDEX IX_TBLSaleDetail_SaleID ON TBLSaleDetail (SaleID, SaleDetailID);
+CREATE INDEX IX_TBLPurchaseDetail_PurchaseID ON TBLPurchaseDetail (PurchaseID, PurchaseDetailID);
+
+-- Ledger rows of one document: WHERE RefID = ? AND RefType IN (...), SUM(QtyIn) - SUM(QtyOut) GROUP BY ProductID
+CREATE INDEX IX_TBLStockLedger_Ref ON TBLStockLedger (RefID, RefType, ProductID, QtyIn, QtyOut);
+
+-- Per-product stock: WHERE ProductID = ? and the GROUP BY ProductID rebuild of TBLStockBalance
+CREATE INDEX IX_TBLStockLedger_Product ON TBLStockLedger (ProductID, QtyIn, QtyOut);
+
+-- Movements of other RefTypes dated by CreatedDate (StockClosingDao)
+CREATE INDEX IX_TBLStockLedger_CreatedDate ON TBLStockLedger (CreatedDate, RefType);
+
+-- Unrolled balance of one party: SUM(Amount) WHERE PartyType = ? AND PartyID = ? (BalanceJournalDao)
+ALTER TABLE TBLBalanceJournal DROP INDEX IX_TBLBalanceJournal_Party, ADD INDEX IX_TBLBalanceJournal_Party (PartyType, PartyID, Amount);
+
+-- Login: WHERE Username = ? (UserDAO)
+CREATE INDEX IX_TBLUserLogin_Username ON TBLUserLogin (Username);
@@ -0,0 +1,6 @@
+-- Outstanding amount per purchase as a stored column, so supplier payment allocation
+-- (WHERE SupplierID = ? AND BalanceDue > 0 ORDER BY PurchaseDate, PurchaseID) is a range scan of one index
+-- instead of evaluating TotalAmount - PaidAmount for every purchase of the supplier and sorting.
+ALTER TABLE TBLPurchase ADD COLUMN BalanceDue DOUBLE AS (TotalAmount - PaidAmount) STORED;
+
+CREATE INDEX IX_TBLPurchase_Supplier_Open ON TBLPurchase (SupplierID, PurchaseDate, PurchaseID, BalanceDue);
@@ -0,0 +1,10 @@
+-- Which purchases each supplier payment was applied to, and how much (SupplierPaymentDao).
+-- Payments recorded before this migration have no rows here; their effect is only in TBLPurchase.PaidAmount.
+CREATE TABLE IF NOT EXISTS TBLSupplierPaymentAllocation (
+    AllocationID BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    PaymentID INT NOT NULL,
+    PurchaseID INT NOT NULL,
+    Amount DOUBLE NOT NULL,
+    KEY IX_TBLSupplierPaymentAllocation_Payment (PaymentID),
+    KEY IX_TBLSupplierPaymentAllocation_Purchase (PurchaseID)
+);
@@ -0,0 +1,26 @@
+-- Customer receipts (CustomerReceiptDao), the counterpart of TBLSupplierPayments for sales.
+
+-- Outstanding amount per sale as a stored column, so receipt allocation
+-- (WHERE CustomerID = ? AND BalanceDue > 0 ORDER BY SaleDate, SaleID) is a range scan of one index, as for purchases in V3.
+ALTER TABLE TBLSale ADD COLUMN BalanceDue DOUBLE AS (TotalAmount - ReceivedAmount) STORED;
+
+CREATE INDEX IX_TBLSale_Customer_Open ON TBLSale (CustomerID, SaleDate, SaleID, BalanceDue);
+
+CREATE TABLE IF NOT EXISTS TBLCustomerReceipts (
+    ReceiptID INT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    CustomerID INT NOT NULL,
+    ReceiptDate DATETIME NOT NULL,
+    Amount DOUBLE NOT NULL,
+    Remarks VARCHAR(255) NULL,
+    KEY IX_TBLCustomerReceipts_Customer (CustomerID, ReceiptDate)
+);
+
+-- Which sales each receipt was applied to, and how much
+CREATE TABLE IF NOT EXISTS TBLCustomerReceiptAllocation (
+    AllocationID BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    ReceiptID INT NOT NULL,
+    SaleID INT NOT NULL,
+    Amount DOUBLE NOT NULL,
+    KEY IX_TBLCustomerReceiptAllocation_Receipt (ReceiptID),
+    KEY IX_TBLCustomerReceiptAllocation_Sale (SaleID)
+);
@@ -0,0 +1,11 @@
+-- Change feed (ChangeFeedDao): the DAO write paths append one row per changed entity in the same transaction,
+-- and every terminal tails the table by ChangeID to refresh its caches and open tables.
+-- ChangeID is both the poll cursor and the version of the change. Rows older than a day are pruned.
+CREATE TABLE IF NOT EXISTS TBLChangeFeed (
+    ChangeID BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    Entity VARCHAR(20) NOT NULL,
+    EntityID INT NOT NULL,
+    Op CHAR(1) NOT NULL,
+    CreatedDate DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    KEY IX_TBLChangeFeed_CreatedDate (CreatedDate)
+);
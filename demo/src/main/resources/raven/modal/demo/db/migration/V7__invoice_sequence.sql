@@ -0,0 +1,22 @@
+-- Invoice numbers INV-yyyyMMdd-NNNNN handed out in blocks (InvoiceSequence, InvoiceSequenceDao).
+
+-- Next unreserved number of each day; a terminal moves it on by a whole block in one short transaction
+CREATE TABLE IF NOT EXISTS TBLInvoiceSequence (
+    SeqDate DATE NOT NULL PRIMARY KEY,
+    NextNo INT NOT NULL
+);
+
+-- Every block reserved, for gap reports: numbers of a block that no saved invoice carries
+CREATE TABLE IF NOT EXISTS TBLInvoiceBlock (
+    BlockID BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    SeqDate DATE NOT NULL,
+    FirstNo INT NOT NULL,
+    LastNo INT NOT NULL,
+    Terminal VARCHAR(100) NOT NULL,
+    CreatedDate DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    KEY IX_TBLInvoiceBlock_SeqDate (SeqDate, FirstNo)
+);
+
+-- Invoices of one day: WHERE InvoiceNo LIKE 'INV-yyyyMMdd-%' (first block of the day, resumption, gap report)
+CREATE INDEX IX_TBLSale_InvoiceNo ON TBLSale (InvoiceNo);
+CREATE INDEX IX_TBLPurchase_InvoiceNo ON TBLPurchase (InvoiceNo);
@@ -0,0 +1,5 @@
+-- Key a terminal gives each sale before saving it (OfflineSales). A sale replayed from the offline journal after
+-- its first attempt did commit is recognised by it and not saved twice. NULL for sales saved without one.
+ALTER TABLE TBLSale ADD COLUMN ClientRef CHAR(36) NULL;
+
+CREATE UNIQUE INDEX UX_TBLSale_ClientRef ON TBLSale (ClientRef);